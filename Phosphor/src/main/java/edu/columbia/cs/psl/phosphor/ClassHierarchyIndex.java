@@ -0,0 +1,240 @@
+package edu.columbia.cs.psl.phosphor;
+
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.HashMap;
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.Map;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/* Stores the class hierarchy of the inputs to the static instrumenter in a file, so that a later run over the same
+ * inputs can load it instead of making an analysis pass over the inputs. For each class the index records its name,
+ * superclass, interfaces and the access flags, name, descriptor and declared exceptions of its methods, which is the
+ * information gathered by the analysis pass.
+ *
+ * The index starts with a digest of the path, size and modification time of every class, jar, zip and war file of the
+ * inputs and of the extra classpath and is only used if they still have the same digest. Every string is stored once in a table at the
+ * start of the file and referred to by its index in the table, and all of the integers are big-endian, so the file is
+ * read by mapping it into memory and decoding it in place. */
+public final class ClassHierarchyIndex {
+
+    // The first four bytes of an index file
+    private static final int MAGIC = 0x50484349;
+    // Incremented whenever the layout of the file changes, so that files written with an older layout are ignored
+    private static final int FORMAT_VERSION = 1;
+    // The index of a missing string, such as the superclass of java/lang/Object
+    private static final int NO_STRING = -1;
+
+    private ClassHierarchyIndex() {
+        // Prevents this class from being instantiated
+    }
+
+    /* Returns a digest of the relative path, size and modification time of each class, jar, zip or war file that is the
+     * specified input or is in the directory tree rooted at it. */
+    public static byte[] fingerprint(File input) throws IOException {
+        return fingerprint(input, new File[0]);
+    }
+
+    /* Returns a digest of the specified input as computed by fingerprint(File) and of the specified classpath as computed
+     * by fingerprintClasspath. */
+    public static byte[] fingerprint(File input, File[] classpath) throws IOException {
+        MessageDigest digest = newDigest();
+        addToFingerprint(digest, input, "");
+        addToFingerprint(digest, classpath);
+        return digest.digest();
+    }
+
+    /* Returns a digest of the path, size and modification time of each class, jar, zip or war file that is an entry of
+     * the specified classpath or is in the directory tree rooted at one. */
+    public static byte[] fingerprintClasspath(File[] classpath) throws IOException {
+        MessageDigest digest = newDigest();
+        addToFingerprint(digest, classpath);
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void addToFingerprint(MessageDigest digest, File[] classpath) {
+        for(File entry : classpath) {
+            digest.update((byte) 0);
+            digest.update(entry.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            addToFingerprint(digest, entry, "");
+        }
+    }
+
+    private static void addToFingerprint(MessageDigest digest, File file, String relativePath) {
+        if(file.isDirectory()) {
+            String[] names = file.list();
+            if(names != null) {
+                Arrays.sort(names);
+                for(String name : names) {
+                    addToFingerprint(digest, new File(file, name), relativePath + "/" + name);
+                }
+            }
+        } else if(isAnalyzedFile(file.getName())) {
+            digest.update(relativePath.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer attributes = ByteBuffer.allocate(16);
+            attributes.putLong(file.length()).putLong(file.lastModified());
+            digest.update(attributes.array());
+        }
+    }
+
+    /* Returns whether the analysis pass reads the file with the specified name. */
+    private static boolean isAnalyzedFile(String name) {
+        return name.endsWith(".class") || name.endsWith(".jar") || name.endsWith(".zip") || name.endsWith(".war");
+    }
+
+    /* Writes the specified class nodes and the specified fingerprint of the inputs that they were read from to the
+     * specified file. The index is written to a temporary file that then replaces the specified file, so that a run
+     * that fails while writing the index does not leave a truncated index behind. */
+    public static void write(File file, byte[] fingerprint, Map<String, ClassNode> classes) throws IOException {
+        Map<String, Integer> stringIndices = new HashMap<>();
+        java.util.List<String> strings = new java.util.ArrayList<>();
+        java.util.List<ClassNode> nodes = new java.util.ArrayList<>();
+        synchronized(classes) {
+            for(ClassNode cn : classes.values()) {
+                nodes.add(cn);
+            }
+        }
+        for(ClassNode cn : nodes) {
+            intern(cn.name, stringIndices, strings);
+            intern(cn.superName, stringIndices, strings);
+            for(String itf : cn.interfaces) {
+                intern(itf, stringIndices, strings);
+            }
+            for(MethodNode mn : cn.methods) {
+                intern(mn.name, stringIndices, strings);
+                intern(mn.desc, stringIndices, strings);
+                for(String exception : mn.exceptions) {
+                    intern(exception, stringIndices, strings);
+                }
+            }
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(fingerprint.length);
+            out.write(fingerprint);
+            out.writeInt(strings.size());
+            for(String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(nodes.size());
+            for(ClassNode cn : nodes) {
+                out.writeInt(indexOf(cn.name, stringIndices));
+                out.writeInt(indexOf(cn.superName, stringIndices));
+                out.writeInt(cn.interfaces.size());
+                for(String itf : cn.interfaces) {
+                    out.writeInt(indexOf(itf, stringIndices));
+                }
+                out.writeInt(cn.methods.size());
+                for(MethodNode mn : cn.methods) {
+                    out.writeInt(mn.access);
+                    out.writeInt(indexOf(mn.name, stringIndices));
+                    out.writeInt(indexOf(mn.desc, stringIndices));
+                    out.writeInt(mn.exceptions.size());
+                    for(String exception : mn.exceptions) {
+                        out.writeInt(indexOf(exception, stringIndices));
+                    }
+                }
+            }
+        } catch(IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void intern(String s, Map<String, Integer> stringIndices, java.util.List<String> strings) {
+        if(s != null && !stringIndices.containsKey(s)) {
+            stringIndices.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    private static int indexOf(String s, Map<String, Integer> stringIndices) {
+        return s == null ? NO_STRING : stringIndices.get(s);
+    }
+
+    /* Adds the class nodes stored in the specified index file to the specified map if the file exists, is a valid index
+     * and was written for inputs with the specified fingerprint. Returns whether the class nodes were added. The map is
+     * not modified if the file is not used. */
+    public static boolean read(File file, byte[] fingerprint, Map<String, ClassNode> classes) {
+        if(!file.isFile()) {
+            return false;
+        }
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return false;
+            }
+            byte[] stored = new byte[buffer.getInt()];
+            buffer.get(stored);
+            if(!Arrays.equals(stored, fingerprint)) {
+                return false;
+            }
+            String[] strings = new String[buffer.getInt()];
+            for(int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            ClassNode[] nodes = new ClassNode[buffer.getInt()];
+            for(int i = 0; i < nodes.length; i++) {
+                ClassNode cn = new ClassNode();
+                cn.name = stringAt(strings, buffer.getInt());
+                cn.superName = stringAt(strings, buffer.getInt());
+                String[] interfaces = readStrings(buffer, strings);
+                cn.interfaces = new java.util.ArrayList<>(Arrays.asList(interfaces));
+                int numMethods = buffer.getInt();
+                cn.methods = new java.util.ArrayList<>(numMethods);
+                for(int j = 0; j < numMethods; j++) {
+                    int access = buffer.getInt();
+                    String name = stringAt(strings, buffer.getInt());
+                    String desc = stringAt(strings, buffer.getInt());
+                    cn.methods.add(new MethodNode(access, name, desc, null, readStrings(buffer, strings)));
+                }
+                nodes[i] = cn;
+            }
+            for(ClassNode cn : nodes) {
+                classes.put(cn.name, cn);
+            }
+            return true;
+        } catch(IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            System.err.println("Ignoring unreadable class hierarchy index " + file + ": " + e);
+            return false;
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, String[] strings) {
+        String[] result = new String[buffer.getInt()];
+        for(int i = 0; i < result.length; i++) {
+            result[i] = stringAt(strings, buffer.getInt());
+        }
+        return result;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+}
@@ -57,6 +57,26 @@ public class Configuration {
     public static Class<? extends ClassVisitor> PRIOR_CLASS_VISITOR = null;
     public static ControlFlowManager controlFlowManager;
     public static boolean QUIET_MODE = false;
+    // Whether taint tags with few labels are stored inline instead of as nodes of the PowerSetTree
+    public static boolean INLINE_SMALL_TAINTS = true;
+    // The number of distinct labels that can be represented by BitSetTaints, if zero BitSetTaints are not used
+    public static int BIT_SET_TAINT_CAPACITY = 0;
+    // Whether a daemon thread reclaims the slots of garbage collected taint tags and labels as soon as they are collected
+    public static boolean TAINT_TREE_SWEEPER = false;
+    // The length above which arrays of taint tags are merged in parallel by splitting them into ranges of this length,
+    // if zero arrays are always merged by the calling thread. Off by default because the merge tasks run on the common
+    // fork-join pool, whose classes are instrumented when the JDK is.
+    public static int PARALLEL_TAINT_MERGE_THRESHOLD = 0;
+    // Whether statistics about taint propagation are collected and reported through an MBean
+    public static boolean TAINT_STATISTICS = false;
+    // Whether the tags of the elements of long arrays are stored as runs of equal tags until the runs become fragmented
+    public static boolean RANGE_ENCODED_TAINTS = true;
+    // Whether the tags of the elements of arrays that have few distinct tags are stored as indices into a per-array
+    // dictionary of tags instead of in dense arrays of tags
+    public static boolean DICTIONARY_ENCODED_TAINTS = true;
+    // Whether multi-dimensional arrays are allocated and boxed without wrapping their inner arrays, which are instead
+    // wrapped the first time that they are read
+    public static boolean LAZY_MULTI_D_ARRAYS = false;
 
     public static Set<String> ignoredMethods = new HashSet<>();
     /*
@@ -71,6 +91,9 @@ public class Configuration {
     public static DerivedTaintListener derivedTaintListener = new DerivedTaintListener();
     public static boolean WITH_HEAVY_OBJ_EQUALS_HASHCODE = false;
     public static String CACHE_DIR = null;
+    public static String CLASS_HIERARCHY_INDEX = null;
+    public static boolean INCREMENTAL = false;
+    public static String TIMING_REPORT = null;
     public static boolean TAINT_THROUGH_SERIALIZATION = true;
 
     private Configuration() {
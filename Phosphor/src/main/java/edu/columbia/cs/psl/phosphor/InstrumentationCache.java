@@ -0,0 +1,321 @@
+package edu.columbia.cs.psl.phosphor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/* Caches the classes instrumented by the java agent in a cache directory, so that later runs can load a class without
+ * instrumenting it again. The cache is shared by every JVM that uses the same cache directory.
+ *
+ * The instrumented classes are appended to a single data file. Each is keyed by an MD5 digest of the agent's options,
+ * the Phosphor jar and the uninstrumented class, so a class is only reused by a run that would instrument it the same
+ * way. An open-addressing hash table in a separate index file maps each key to the offset of its class in the data file.
+ * Both files are mapped into memory, so a lookup reads no files and takes no locks. Entries are added under a lock on
+ * a third file that excludes the other JVMs using the cache. A class is appended to the data file before its key is
+ * added to the index, and it is stored with its key and a CRC, so a lookup that races with an addition by another JVM
+ * either misses or finds the complete class. When the index becomes too full it is rebuilt with twice the capacity and the old index is
+ * marked stale, which tells the other JVMs to map the new one. */
+public final class InstrumentationCache {
+
+    // The first four bytes of the data and index files
+    private static final int MAGIC = 0x50484943;
+    // Incremented whenever the layout of the files changes
+    private static final int FORMAT_VERSION = 1;
+    private static final String DATA_FILE_NAME = "instrumented-classes.data";
+    private static final String INDEX_FILE_NAME = "instrumented-classes.index";
+    private static final String LOCK_FILE_NAME = "instrumented-classes.lock";
+    // The size of the header of the data file: magic and version
+    private static final int DATA_HEADER_SIZE = 8;
+    // The size of the header of a class in the data file: two longs of the key, the length and the CRC of the class
+    private static final int RECORD_HEADER_SIZE = 24;
+    // Offsets of the fields of the header of the index file: magic, version, capacity, size and whether it is stale
+    private static final int INDEX_CAPACITY = 8;
+    private static final int INDEX_SIZE = 12;
+    private static final int INDEX_STALE = 16;
+    private static final int INDEX_HEADER_SIZE = 24;
+    // The size of a slot of the index: two longs of the key and the offset of the class, 0 if the slot is empty
+    private static final int SLOT_SIZE = 24;
+    private static final int INITIAL_CAPACITY = 1 << 15;
+
+    private final File dir;
+    // A digest of the agent's options and of the Phosphor jar, which is part of every key
+    private final byte[] fingerprint;
+    // Locked to exclude the other JVMs while the files are changed
+    private final FileChannel lockChannel;
+    private final FileChannel dataChannel;
+    // The data file mapped up to some length, which is extended when a class beyond it is read
+    private volatile MappedByteBuffer data;
+    // The mapped index
+    private volatile MappedByteBuffer index;
+    // A digest for each thread that computes keys
+    private final ThreadLocal<MessageDigest> digests = new ThreadLocal<>();
+
+    private InstrumentationCache(File dir, byte[] fingerprint) throws IOException {
+        this.dir = dir;
+        this.fingerprint = fingerprint;
+        this.lockChannel = new RandomAccessFile(new File(dir, LOCK_FILE_NAME), "rw").getChannel();
+        this.dataChannel = new RandomAccessFile(new File(dir, DATA_FILE_NAME), "rw").getChannel();
+        try {
+            synchronized(this) {
+                try(FileLock ignored = lockChannel.lock()) {
+                    mapIndex();
+                    if(dataChannel.size() == 0) {
+                        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+                        header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+                        dataChannel.write(header, 0);
+                    }
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+            dataChannel.read(header, 0);
+            if(header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unrecognized instrumentation cache " + new File(dir, DATA_FILE_NAME));
+            }
+            data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataChannel.size());
+        } catch(IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /* Returns the cache in the specified directory for an agent with the specified options or null if it could not be
+     * opened. */
+    public static InstrumentationCache open(File dir, String options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            if(options != null) {
+                digest.update(options.getBytes(StandardCharsets.UTF_8));
+            }
+            CodeSource source = InstrumentationCache.class.getProtectionDomain().getCodeSource();
+            if(source != null) {
+                digest.update(source.getLocation().toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    File phosphor = new File(source.getLocation().toURI());
+                    ByteBuffer attributes = ByteBuffer.allocate(16);
+                    attributes.putLong(phosphor.length()).putLong(phosphor.lastModified());
+                    digest.update(attributes.array());
+                } catch(Exception e) {
+                    // The location of Phosphor is not a file, its URL is used on its own
+                }
+            }
+            return new InstrumentationCache(dir, digest.digest());
+        } catch(IOException | NoSuchAlgorithmException e) {
+            System.err.println("Unable to open instrumentation cache in " + dir + ", generated files are not being cached: " + e);
+            return null;
+        }
+    }
+
+    /* Returns the key of the specified uninstrumented class. */
+    public byte[] key(byte[] classFileBuffer) {
+        MessageDigest digest = digests.get();
+        if(digest == null) {
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch(NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            digests.set(digest);
+        }
+        digest.update(fingerprint);
+        return digest.digest(classFileBuffer);
+    }
+
+    /* Returns the instrumented class with the specified key or null if it is not in the cache. */
+    public byte[] get(byte[] key) {
+        long k0 = ByteBuffer.wrap(key).getLong(0);
+        long k1 = ByteBuffer.wrap(key).getLong(8);
+        MappedByteBuffer idx = index;
+        if(idx.get(INDEX_STALE) != 0) {
+            synchronized(this) {
+                try(FileLock ignored = lockChannel.lock()) {
+                    if(index.get(INDEX_STALE) != 0) {
+                        mapIndex();
+                    }
+                } catch(IOException e) {
+                    return null;
+                }
+            }
+            idx = index;
+        }
+        long offset = find(idx, k0, k1);
+        return offset == 0 ? null : read(offset, k0, k1);
+    }
+
+    /* Adds the specified instrumented class with the specified key to the cache. */
+    public synchronized void put(byte[] key, byte[] instrumented) {
+        long k0 = ByteBuffer.wrap(key).getLong(0);
+        long k1 = ByteBuffer.wrap(key).getLong(8);
+        try(FileLock ignored = lockChannel.lock()) {
+            if(index.get(INDEX_STALE) != 0) {
+                mapIndex();
+            }
+            if(find(index, k0, k1) != 0) {
+                return;
+            }
+            long offset = dataChannel.size();
+            if(offset + RECORD_HEADER_SIZE + instrumented.length > Integer.MAX_VALUE) {
+                // The data file is read through a single mapping, which is limited to 2GB
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(instrumented);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + instrumented.length);
+            record.putLong(k0).putLong(k1).putInt(instrumented.length).putInt((int) crc.getValue()).put(instrumented);
+            record.flip();
+            while(record.hasRemaining()) {
+                dataChannel.write(record, offset + record.position());
+            }
+            if((index.getInt(INDEX_SIZE) + 1) * 4L > index.getInt(INDEX_CAPACITY) * 3L) {
+                grow();
+            }
+            insert(index, k0, k1, offset);
+        } catch(IOException e) {
+            System.err.println("Unable to add a class to the instrumentation cache in " + dir + ": " + e);
+        }
+    }
+
+    /* Returns the offset of the class with the specified key in the data file or 0 if the specified index does not
+     * contain the key. */
+    private static long find(ByteBuffer idx, long k0, long k1) {
+        int capacity = idx.getInt(INDEX_CAPACITY);
+        for(int i = 0, slot = slotOf(k0, capacity); i < capacity; i++, slot = (slot + 1) % capacity) {
+            int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = idx.getLong(position + 16);
+            if(offset == 0) {
+                return 0;
+            } else if(idx.getLong(position) == k0 && idx.getLong(position + 8) == k1) {
+                return offset;
+            }
+        }
+        return 0;
+    }
+
+    /* Adds the specified key to the specified index, which must not be full. The offset is written last, so a reader
+     * never sees a slot with an offset and an incomplete key. */
+    private static void insert(ByteBuffer idx, long k0, long k1, long offset) {
+        int capacity = idx.getInt(INDEX_CAPACITY);
+        int slot = slotOf(k0, capacity);
+        while(idx.getLong(INDEX_HEADER_SIZE + slot * SLOT_SIZE + 16) != 0) {
+            slot = (slot + 1) % capacity;
+        }
+        int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+        idx.putLong(position, k0);
+        idx.putLong(position + 8, k1);
+        idx.putLong(position + 16, offset);
+        idx.putInt(INDEX_SIZE, idx.getInt(INDEX_SIZE) + 1);
+    }
+
+    private static int slotOf(long k0, int capacity) {
+        return (int) ((k0 & Long.MAX_VALUE) % capacity);
+    }
+
+    /* Reads the class stored at the specified offset of the data file if it has the specified key and is intact. */
+    private byte[] read(long offset, long k0, long k1) {
+        MappedByteBuffer d = data;
+        if(offset + RECORD_HEADER_SIZE > d.limit()) {
+            d = remapData();
+            if(d == null || offset + RECORD_HEADER_SIZE > d.limit()) {
+                return null;
+            }
+        }
+        int position = (int) offset;
+        int length = d.getInt(position + 16);
+        if(d.getLong(position) != k0 || d.getLong(position + 8) != k1 || length < 0) {
+            return null;
+        }
+        if(offset + RECORD_HEADER_SIZE + length > d.limit()) {
+            d = remapData();
+            if(d == null || offset + RECORD_HEADER_SIZE + length > d.limit()) {
+                return null;
+            }
+        }
+        byte[] instrumented = new byte[length];
+        ByteBuffer view = d.duplicate();
+        view.position(position + RECORD_HEADER_SIZE);
+        view.get(instrumented);
+        CRC32 crc = new CRC32();
+        crc.update(instrumented);
+        return (int) crc.getValue() == d.getInt(position + 20) ? instrumented : null;
+    }
+
+    private synchronized MappedByteBuffer remapData() {
+        try {
+            long size = dataChannel.size();
+            if(size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if(size > data.limit()) {
+                data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return data;
+        } catch(IOException e) {
+            return null;
+        }
+    }
+
+    /* Maps the index file, creating it if it does not exist. Called with the lock held. */
+    private void mapIndex() throws IOException {
+        File file = new File(dir, INDEX_FILE_NAME);
+        MappedByteBuffer idx;
+        // The mapping stays valid after the channel is closed
+        try(FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            if(channel.size() == 0) {
+                idx = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) INITIAL_CAPACITY * SLOT_SIZE);
+                idx.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(INDEX_CAPACITY, INITIAL_CAPACITY);
+            } else {
+                idx = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+        }
+        if(idx.getInt(0) != MAGIC || idx.getInt(4) != FORMAT_VERSION
+                || idx.limit() != INDEX_HEADER_SIZE + (long) idx.getInt(INDEX_CAPACITY) * SLOT_SIZE) {
+            throw new IOException("Unrecognized instrumentation cache index " + file);
+        }
+        index = idx;
+    }
+
+    /* Replaces the index with an index with twice its capacity and marks the old index stale. Called with the lock
+     * held. */
+    private void grow() throws IOException {
+        MappedByteBuffer old = index;
+        int capacity = old.getInt(INDEX_CAPACITY) * 2;
+        File tmp = File.createTempFile(INDEX_FILE_NAME, ".tmp", dir);
+        try(FileChannel channel = new RandomAccessFile(tmp, "rw").getChannel()) {
+            MappedByteBuffer idx = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            idx.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(INDEX_CAPACITY, capacity);
+            for(int slot = 0; slot < old.getInt(INDEX_CAPACITY); slot++) {
+                int position = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+                long offset = old.getLong(position + 16);
+                if(offset != 0) {
+                    insert(idx, old.getLong(position), old.getLong(position + 8), offset);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), new File(dir, INDEX_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        mapIndex();
+        old.put(INDEX_STALE, (byte) 1);
+    }
+
+    /* Closes the files of the cache. */
+    public synchronized void close() {
+        for(FileChannel channel : new FileChannel[]{lockChannel, dataChannel}) {
+            if(channel != null) {
+                try {
+                    channel.close();
+                } catch(IOException e) {
+                    //
+                }
+            }
+        }
+    }
+}
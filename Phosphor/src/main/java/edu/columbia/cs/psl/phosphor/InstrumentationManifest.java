@@ -0,0 +1,205 @@
+package edu.columbia.cs.psl.phosphor;
+
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.HashMap;
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.Map;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/* Records the inputs that the static instrumenter wrote to an output directory, so that a later run into the same
+ * output directory can leave the outputs of unchanged inputs in place instead of instrumenting those inputs again.
+ *
+ * The manifest is a text file in the output directory. Its first line is a digest of the configuration of the run that
+ * wrote it: the Phosphor jar, the options, the extra classpath and the signatures of the classes of the inputs. Because
+ * the instrumentation of a class depends on the signatures of the classes that it extends and calls, a change to the
+ * signature of any class of the inputs or to the extra classpath changes the configuration and causes every input to
+ * be instrumented again, while a change to a method body only causes the file that contains it to be instrumented
+ * again. Each remaining line holds the digest of the
+ * contents of a top-level input file followed by the path of its output relative to the output directory. */
+public final class InstrumentationManifest {
+
+    // The name of the manifest file in the output directory
+    static final String FILE_NAME = ".phosphor-manifest";
+
+    // The output directory of the run
+    private final File outputDir;
+    // The digest of the configuration of the run
+    private final String configuration;
+    // Maps the relative paths of the outputs of the previous run to the digests of their inputs, empty if the previous
+    // run had a different configuration
+    private final Map<String, String> previous;
+    // Maps the relative paths of the outputs of the current run to the digests of their inputs
+    private final Map<String, String> current = new HashMap<>();
+
+    private InstrumentationManifest(File outputDir, String configuration, Map<String, String> previous) {
+        this.outputDir = outputDir.getAbsoluteFile();
+        this.configuration = configuration;
+        this.previous = previous;
+    }
+
+    /* Reads the manifest of the previous run into the specified output directory if it has the specified configuration
+     * and deletes it, so that a run that fails part way through does not leave behind a manifest that describes outputs
+     * that it may have overwritten. */
+    public static InstrumentationManifest open(File outputDir, String configuration) {
+        Map<String, String> previous = new HashMap<>();
+        File file = new File(outputDir, FILE_NAME);
+        if(file.isFile()) {
+            try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                if(configuration.equals(reader.readLine())) {
+                    for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        int split = line.indexOf(' ');
+                        if(split > 0) {
+                            previous.put(line.substring(split + 1), line.substring(0, split));
+                        }
+                    }
+                }
+            } catch(IOException e) {
+                System.err.println("Ignoring unreadable instrumentation manifest " + file + ": " + e);
+                previous.clear();
+            }
+            if(!file.delete()) {
+                System.err.println("Unable to delete instrumentation manifest " + file);
+            }
+        }
+        return new InstrumentationManifest(outputDir, configuration, previous);
+    }
+
+    /* Records the digest of the specified input for the specified output and returns whether the output was written by
+     * the previous run from an input with the same contents and still exists. */
+    public boolean isUnchanged(File input, File output) {
+        String path = outputDir.toPath().relativize(output.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+        String digest;
+        try {
+            digest = toHex(digestOf(input));
+        } catch(IOException e) {
+            return false;
+        }
+        synchronized(current) {
+            current.put(path, digest);
+        }
+        return digest.equals(previous.get(path)) && output.isFile();
+    }
+
+    /* Writes the manifest of the current run to the output directory. */
+    public void save() throws IOException {
+        File file = new File(outputDir, FILE_NAME);
+        File tmp = File.createTempFile(FILE_NAME, ".tmp", outputDir);
+        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            writer.write(configuration);
+            writer.write('\n');
+            synchronized(current) {
+                for(Map.Entry<String, String> entry : current.entrySet()) {
+                    writer.write(entry.getValue());
+                    writer.write(' ');
+                    writer.write(entry.getKey());
+                    writer.write('\n');
+                }
+            }
+        } catch(IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /* Returns a digest of the jar or directory that Phosphor was loaded from, the options of the specified command line
+     * and the contents of any files that they name, the extra classpath named by its arguments, and the signatures of
+     * the specified classes. */
+    public static String configurationOf(CommandLine line, Map<String, ClassNode> classes) throws IOException {
+        MessageDigest digest = newDigest();
+        CodeSource source = InstrumentationManifest.class.getProtectionDomain().getCodeSource();
+        if(source != null) {
+            try {
+                File phosphor = new File(source.getLocation().toURI());
+                digest.update(phosphor.isFile() ? digestOf(phosphor) : ClassHierarchyIndex.fingerprint(phosphor));
+            } catch(URISyntaxException | IllegalArgumentException e) {
+                digest.update(source.getLocation().toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        digest.update(ClassHierarchyIndex.fingerprintClasspath(Instrumenter.extraClasspath(line.getArgs())));
+        java.util.List<String> options = new java.util.ArrayList<>();
+        for(Option option : line.getOptions()) {
+            String value = option.getValue();
+            String entry = option.getOpt() + "=" + value;
+            if(value != null && new File(value).isFile()) {
+                entry += "#" + toHex(digestOf(new File(value)));
+            }
+            options.add(entry);
+        }
+        java.util.Collections.sort(options);
+        for(String option : options) {
+            update(digest, option);
+        }
+        java.util.List<ClassNode> nodes = new java.util.ArrayList<>();
+        synchronized(classes) {
+            for(ClassNode cn : classes.values()) {
+                nodes.add(cn);
+            }
+        }
+        java.util.Collections.sort(nodes, new java.util.Comparator<ClassNode>() {
+            @Override
+            public int compare(ClassNode o1, ClassNode o2) {
+                return o1.name.compareTo(o2.name);
+            }
+        });
+        for(ClassNode cn : nodes) {
+            update(digest, cn.name);
+            update(digest, cn.superName);
+            for(String itf : cn.interfaces) {
+                update(digest, itf);
+            }
+            for(MethodNode mn : cn.methods) {
+                update(digest, mn.access + mn.name + mn.desc);
+                for(String exception : mn.exceptions) {
+                    update(digest, exception);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        if(s != null) {
+            digest.update(s.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    /* Returns a digest of the contents of the specified file. */
+    static byte[] digestOf(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try(InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            for(int count = in.read(buffer); count != -1; count = in.read(buffer)) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package edu.columbia.cs.psl.phosphor;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Runs the tasks of the static instrumenter on a fixed number of threads. Queued tasks are run largest first, so that
+ * the few classes that take much longer to instrument than the rest, such as java/lang/Character, are started early
+ * instead of being left to run alone at the end. Tasks of the same size are run in the order in which they were
+ * submitted.
+ *
+ * A thread that waits for a task through await runs queued tasks until the task is done instead of blocking, so the
+ * thread that reads the inputs and writes the outputs instruments classes whenever it would otherwise be idle. */
+public final class InstrumentationScheduler extends ThreadPoolExecutor {
+
+    // Orders tasks of the same size
+    private final AtomicLong sequence = new AtomicLong();
+
+    public InstrumentationScheduler(int nThreads) {
+        super(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>());
+    }
+
+    /* Submits a task whose cost is proportional to the specified size, such as the number of bytes of the class that it
+     * instruments. */
+    public <T> Future<T> submit(Callable<T> task, long size) {
+        SizedTask<T> future = new SizedTask<>(task, size, sequence.getAndIncrement());
+        execute(future);
+        return future;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new SizedTask<>(callable, 0, sequence.getAndIncrement());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new SizedTask<>(Executors.callable(runnable, value), 0, sequence.getAndIncrement());
+    }
+
+    /* Runs queued tasks on the calling thread until the specified task is done or there are no queued tasks and then
+     * returns the result of the specified task. */
+    public <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+        while(!future.isDone()) {
+            Runnable task = getQueue().poll();
+            if(task == null) {
+                break;
+            }
+            task.run();
+        }
+        return future.get();
+    }
+
+    /* Submits the specified task to the specified executor with the specified size if the executor is a scheduler. */
+    public static <T> Future<T> submit(ExecutorService executor, Callable<T> task, long size) {
+        if(executor instanceof InstrumentationScheduler) {
+            return ((InstrumentationScheduler) executor).submit(task, size);
+        }
+        return executor.submit(task);
+    }
+
+    /* Returns the result of the specified task, running queued tasks while waiting for it if the executor is a
+     * scheduler. */
+    public static <T> T await(ExecutorService executor, Future<T> future) throws InterruptedException, ExecutionException {
+        if(executor instanceof InstrumentationScheduler) {
+            return ((InstrumentationScheduler) executor).await(future);
+        }
+        return future.get();
+    }
+
+    private static final class SizedTask<T> extends FutureTask<T> implements Comparable<SizedTask<?>> {
+        private final long size;
+        private final long sequence;
+
+        SizedTask(Callable<T> callable, long size, long sequence) {
+            super(callable);
+            this.size = size;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(SizedTask<?> other) {
+            if(size != other.size) {
+                return size > other.size ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
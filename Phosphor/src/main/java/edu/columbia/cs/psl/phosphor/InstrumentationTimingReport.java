@@ -0,0 +1,159 @@
+package edu.columbia.cs.psl.phosphor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/* Records how long the static instrumenter spends on each class in each phase of instrumentation and writes the times
+ * to a CSV file, one row per class with the slowest classes first. Recording is disabled until enable is called, and
+ * the methods that record times do nothing while it is disabled, so the transformer can call them unconditionally. */
+public final class InstrumentationTimingReport {
+
+    public enum Phase {
+        // Reading the class file from its input
+        READ,
+        // Parsing the class and checking whether and how it should be instrumented
+        ANALYZE,
+        // Recomputing the frames of a class that may not have valid frames
+        FRAMES,
+        // Passing the class through the chain of visitors that includes TaintTrackingClassVisitor
+        INSTRUMENT,
+        // Serializing the instrumented class and writing it to its output
+        WRITE
+    }
+
+    // The record of the class being instrumented by each thread, null while recording is disabled
+    private static volatile ThreadLocal<ClassTiming> current = null;
+    // The records of the classes that have been instrumented
+    private static volatile ConcurrentLinkedQueue<ClassTiming> timings = null;
+
+    private InstrumentationTimingReport() {
+        // Prevents this class from being instantiated
+    }
+
+    /* Starts recording times. */
+    public static synchronized void enable() {
+        if(current == null) {
+            timings = new ConcurrentLinkedQueue<>();
+            current = new ThreadLocal<>();
+        }
+    }
+
+    /* Stops recording times and discards the recorded times. */
+    static synchronized void reset() {
+        current = null;
+        timings = null;
+    }
+
+    /* Starts a record of the times spent on the class with the specified name on the calling thread. Returns the record
+     * or null if recording is disabled. */
+    public static ClassTiming begin(String name) {
+        ThreadLocal<ClassTiming> c = current;
+        if(c == null) {
+            return null;
+        }
+        ClassTiming timing = new ClassTiming(name);
+        c.set(timing);
+        return timing;
+    }
+
+    /* Ends the record of the class being instrumented by the calling thread and adds it to the report. */
+    public static void end(ClassTiming timing) {
+        ThreadLocal<ClassTiming> c = current;
+        if(c != null && timing != null) {
+            c.remove();
+            timings.add(timing);
+        }
+    }
+
+    /* Adds the time since the specified System.nanoTime to the specified phase of the class being instrumented by the
+     * calling thread. */
+    public static void record(Phase phase, long startNanos) {
+        ThreadLocal<ClassTiming> c = current;
+        if(c != null) {
+            ClassTiming timing = c.get();
+            if(timing != null) {
+                timing.add(phase, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /* Writes the recorded times to the specified file. */
+    public static void write(File file) throws IOException {
+        java.util.List<ClassTiming> sorted = sortedTimings();
+        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("class");
+            for(Phase phase : Phase.values()) {
+                writer.write("," + phase.name().toLowerCase() + "_ms");
+            }
+            writer.write(",total_ms\n");
+            for(ClassTiming timing : sorted) {
+                writer.write(timing.name);
+                for(Phase phase : Phase.values()) {
+                    writer.write("," + toMillis(timing.nanos[phase.ordinal()]));
+                }
+                writer.write("," + toMillis(timing.total()) + "\n");
+            }
+        }
+    }
+
+    /* Prints the total time spent in each phase and the specified number of slowest classes to the specified stream. */
+    public static void printSummary(PrintStream out, int nSlowest) {
+        java.util.List<ClassTiming> sorted = sortedTimings();
+        long[] totals = new long[Phase.values().length];
+        for(ClassTiming timing : sorted) {
+            for(Phase phase : Phase.values()) {
+                totals[phase.ordinal()] += timing.nanos[phase.ordinal()];
+            }
+        }
+        StringBuilder summary = new StringBuilder("Instrumentation time by phase:");
+        for(Phase phase : Phase.values()) {
+            summary.append(' ').append(phase.name().toLowerCase()).append('=').append(toMillis(totals[phase.ordinal()])).append("ms");
+        }
+        out.println(summary);
+        out.println("Slowest classes:");
+        for(int i = 0; i < Math.min(nSlowest, sorted.size()); i++) {
+            out.println("\t" + sorted.get(i).name + ": " + toMillis(sorted.get(i).total()) + "ms");
+        }
+    }
+
+    /* Returns the recorded times with the slowest classes first. */
+    private static java.util.List<ClassTiming> sortedTimings() {
+        ConcurrentLinkedQueue<ClassTiming> t = timings;
+        java.util.List<ClassTiming> sorted = t == null ? new java.util.ArrayList<ClassTiming>() : new java.util.ArrayList<>(t);
+        java.util.Collections.sort(sorted, new java.util.Comparator<ClassTiming>() {
+            @Override
+            public int compare(ClassTiming o1, ClassTiming o2) {
+                return Long.compare(o2.total(), o1.total());
+            }
+        });
+        return sorted;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(java.util.Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /* The time spent on a single class in each phase. A record is only updated by the thread that instruments the class
+     * and then by the thread that writes it, which waits for the instrumenting thread to finish. */
+    public static final class ClassTiming {
+        private final String name;
+        private final long[] nanos = new long[Phase.values().length];
+
+        private ClassTiming(String name) {
+            this.name = name;
+        }
+
+        public void add(Phase phase, long elapsedNanos) {
+            nanos[phase.ordinal()] += elapsedNanos;
+        }
+
+        private long total() {
+            long total = 0;
+            for(long n : nanos) {
+                total += n;
+            }
+            return total;
+        }
+    }
+}
@@ -18,7 +18,6 @@ import java.net.URLClassLoader;
 import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Random;
 import java.util.concurrent.*;
 import java.util.zip.*;
 
@@ -36,6 +35,14 @@ public class Instrumenter {
     static int nTotal = 0;
     static int n = 0;
     private static ClassFileTransformer addlTransformer;
+    // Records the inputs written to the output directory when instrumenting incrementally, null otherwise
+    private static InstrumentationManifest manifest;
+    // The number of inputs whose outputs were left in place because they were unchanged
+    private static int nUnchanged = 0;
+    // The size of the buffers used to copy the entries of archives
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // The number of bytes of the classes of an archive that may be being instrumented or waiting to be written at once
+    private static final long MAX_IN_FLIGHT_CLASS_BYTES = 16 * 1024 * 1024;
 
     static {
         classes.putAll(ClassSupertypeReadingTransformer.classNodes);
@@ -133,15 +140,24 @@ public class Instrumenter {
         try {
             cr = new ClassReader(is);
             cr.accept(new ClassVisitor(Configuration.ASM_VERSION) {
+                private ClassNode cn;
+
                 @Override
                 public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
                     super.visit(version, access, name, signature, superName, interfaces);
-                    ClassNode cn = new ClassNode();
+                    cn = new ClassNode();
                     cn.name = name;
                     cn.superName = superName;
                     cn.interfaces = new java.util.ArrayList<>(java.util.Arrays.asList(interfaces));
                     Instrumenter.classes.put(name, cn);
                 }
+
+                /* Records the method's signature so that it is stored in the class hierarchy index. */
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    cn.methods.add(new MethodNode(access, name, descriptor, null, exceptions));
+                    return null;
+                }
             }, ClassReader.SKIP_CODE);
             is.close();
         } catch(IOException e) {
@@ -158,6 +174,7 @@ public class Instrumenter {
                 System.out.println("Processed: " + n + "/" + nTotal);
             }
             curPath = path;
+            long start = System.nanoTime();
             ByteArrayOutputStream buffer = new ByteArrayOutputStream();
             byte[] data = new byte[16384];
             for(int nRead; (nRead = is.read(data, 0, data.length)) != -1;) {
@@ -165,6 +182,7 @@ public class Instrumenter {
             }
             is.close();
             buffer.flush();
+            InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.READ, start);
             PreMain.PCLoggingTransformer transformer = new PreMain.PCLoggingTransformer();
             byte[] ret = transformer.transform(Instrumenter.loader, path, null, null, buffer.toByteArray());
             if(addlTransformer != null) {
@@ -205,15 +223,95 @@ public class Instrumenter {
             System.out.println("Branch not taken: enabled");
         }
         TaintTrackingClassVisitor.IS_RUNTIME_INST = false;
-        ANALYZE_ONLY = true;
-        System.out.println("Starting analysis");
-        _main(line.getArgs());
+        File index = Configuration.CLASS_HIERARCHY_INDEX == null ? null : new File(Configuration.CLASS_HIERARCHY_INDEX);
+        byte[] fingerprint = index == null || line.getArgs().length == 0 ? null : fingerprintInputs(line.getArgs());
+        if(fingerprint != null && ClassHierarchyIndex.read(index, fingerprint, classes)) {
+            System.out.println("Loaded class hierarchy from " + index + ": skipping analysis");
+            nTotal = classes.size();
+        } else {
+            ANALYZE_ONLY = true;
+            System.out.println("Starting analysis");
+            _main(line.getArgs());
+            if(fingerprint != null) {
+                try {
+                    ClassHierarchyIndex.write(index, fingerprint, classes);
+                } catch(IOException e) {
+                    System.err.println("Unable to write class hierarchy index " + index);
+                    e.printStackTrace();
+                }
+            }
+        }
         System.out.println("Analysis Completed: Beginning Instrumentation Phase");
         ANALYZE_ONLY = false;
+        if(Configuration.INCREMENTAL && line.getArgs().length > 1) {
+            try {
+                manifest = InstrumentationManifest.open(new File(line.getArgs()[1]), InstrumentationManifest.configurationOf(line, classes));
+            } catch(IOException e) {
+                System.err.println("Unable to fingerprint the configuration, instrumenting every input");
+                e.printStackTrace();
+            }
+        }
+        if(Configuration.TIMING_REPORT != null) {
+            InstrumentationTimingReport.enable();
+        }
         _main(line.getArgs());
+        if(Configuration.TIMING_REPORT != null) {
+            try {
+                InstrumentationTimingReport.write(new File(Configuration.TIMING_REPORT));
+                InstrumentationTimingReport.printSummary(System.out, 10);
+                System.out.println("Wrote per-class instrumentation times to " + Configuration.TIMING_REPORT);
+            } catch(IOException e) {
+                System.err.println("Unable to write instrumentation timing report to " + Configuration.TIMING_REPORT);
+                e.printStackTrace();
+            }
+        }
+        if(manifest != null) {
+            System.out.println("Kept the outputs of " + nUnchanged + " unchanged inputs");
+            try {
+                manifest.save();
+            } catch(IOException e) {
+                System.err.println("Unable to write instrumentation manifest to " + line.getArgs()[1]);
+                e.printStackTrace();
+            }
+        }
         System.out.println("Done after " + (System.currentTimeMillis() - START) + " ms");
     }
 
+    /* Returns the fingerprint of the inputs and extra classpath named by the specified arguments or null if it could
+     * not be computed. */
+    private static byte[] fingerprintInputs(String[] args) {
+        try {
+            return ClassHierarchyIndex.fingerprint(new File(args[0]), extraClasspath(args));
+        } catch(IOException e) {
+            System.err.println("Unable to fingerprint " + args[0] + ", the class hierarchy index is not used");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /* Returns the entries of the extra classpath named by the specified arguments. A single extra argument names either
+     * a file that lists one entry per line or a directory that is the only entry, while two or more extra arguments are
+     * each an entry. */
+    static File[] extraClasspath(String[] args) throws IOException {
+        ArrayList<File> entries = new ArrayList<>();
+        if(args.length == 3) {
+            File f = new File(args[2]);
+            if(f.isFile()) {
+                for(Scanner s = new Scanner(f); s.hasNextLine();) {
+                    entries.add(new File(s.nextLine()).getCanonicalFile());
+                }
+            } else if(f.isDirectory()) {
+                entries.add(f);
+            }
+        } else {
+            for(int i = 2; i < args.length; i++) {
+                File f = new File(args[i]);
+                entries.add(f.exists() ? f.getCanonicalFile() : f);
+            }
+        }
+        return entries.toArray(new File[0]);
+    }
+
     public static void _main(String[] args) {
         if(PreMain.DEBUG) {
             System.err.println("Warning: Debug output enabled (uses a lot of IO!)");
@@ -269,34 +367,17 @@ public class Instrumenter {
         }
         if(args.length == 3) {
             System.out.println("Using extra classpath file: " + args[2]);
-            try {
-                File f = new File(args[2]);
-                if(f.exists() && f.isFile()) {
-                    for(Scanner s = new Scanner(f); s.hasNextLine();) {
-                        urls.add(new File(s.nextLine()).getCanonicalFile().toURI().toURL());
-                    }
-                } else if(f.isDirectory()) {
-                    urls.add(f.toURI().toURL());
-                }
-            } catch(IOException e) {
-                e.printStackTrace();
-            }
-        } else if(args.length > 3) {
-            for(int i = 2; i < args.length; i++) {
-                File f = new File(args[i]);
-                if(!f.exists()) {
-                    System.err.println("Unable to read path " + args[i]);
+        }
+        try {
+            for(File entry : extraClasspath(args)) {
+                if(args.length > 3 && !entry.exists()) {
+                    System.err.println("Unable to read path " + entry);
                     System.exit(-1);
                 }
-                if(f.isDirectory() && !f.getAbsolutePath().endsWith("/")) {
-                    f = new File(f.getAbsolutePath() + "/");
-                }
-                try {
-                    urls.add(f.getCanonicalFile().toURI().toURL());
-                } catch(Exception ex) {
-                    ex.printStackTrace();
-                }
+                urls.add(entry.toURI().toURL());
             }
+        } catch(IOException e) {
+            e.printStackTrace();
         }
 
         URL[] urlArray = new URL[urls.size()];
@@ -310,7 +391,7 @@ public class Instrumenter {
             System.exit(-1);
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = new InstrumentationScheduler(Runtime.getRuntime().availableProcessors());
         LinkedList<Future> toWait = new LinkedList<>();
 
         if(f.isDirectory()) {
@@ -326,7 +407,7 @@ public class Instrumenter {
 
         while(!toWait.isEmpty()) {
             try {
-                toWait.addAll((Collection<? extends Future>) toWait.removeFirst().get());
+                toWait.addAll((Collection<? extends Future>) InstrumentationScheduler.await(executor, toWait.removeFirst()));
             } catch(InterruptedException e) {
                 //
             } catch(ExecutionException e) {
@@ -344,8 +425,21 @@ public class Instrumenter {
         }
     }
 
+    /* Returns whether the output of the specified input was written by a previous incremental run from an input with the
+     * same contents and can be left in place. */
+    private static boolean isUnchanged(File input, File output) {
+        if(ANALYZE_ONLY || manifest == null || !manifest.isUnchanged(input, output)) {
+            return false;
+        }
+        nUnchanged++;
+        return true;
+    }
+
     private static List<Future<? extends Collection>> processClass(File f, final File outputDir, ExecutorService executor) {
         List<Future<? extends Collection>> ret = new LinkedList<>();
+        if(isUnchanged(f, new File(outputDir, f.getName()))) {
+            return ret;
+        }
         try {
             final String name = f.getName();
             final InputStream is = new FileInputStream(f);
@@ -353,21 +447,25 @@ public class Instrumenter {
                 analyzeClass(is);
                 is.close();
             } else {
-                ret.add(executor.submit(new Callable<List>() {
+                ret.add(InstrumentationScheduler.submit(executor, new Callable<List>() {
                     @Override
                     public List call() throws Exception {
+                        InstrumentationTimingReport.ClassTiming timing = InstrumentationTimingReport.begin(name);
                         ByteArrayOutputStream bos = new ByteArrayOutputStream();
                         FileOutputStream fos = new FileOutputStream(outputDir.getPath() + File.separator + name);
                         byte[] c = instrumentClass(outputDir.getAbsolutePath(), is, true);
                         is.close();
+                        long start = System.nanoTime();
                         if(c != null) {
                             bos.write(c);
                         }
                         bos.writeTo(fos);
                         fos.close();
+                        InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.WRITE, start);
+                        InstrumentationTimingReport.end(timing);
                         return new LinkedList();
                     }
-                }));
+                }, f.length()));
             }
 
         } catch(Exception ex) {
@@ -442,192 +540,189 @@ public class Instrumenter {
      * Handles Jar files, Zip files and War files.
      */
     public static LinkedList<Future> processZip(final File f, File outputDir, ExecutorService executor) {
-        return _processZip(f, outputDir, executor, false);
-    }
-
-    private static LinkedList<Future> _processZip(final File f, File outputDir, ExecutorService executor, boolean unCompressed) {
-        try(ZipFile zip = new ZipFile(f); ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outputDir.getPath() + File.separator + f.getName()))) {
-            if(unCompressed) {
-                zos.setLevel(ZipOutputStream.STORED);
-            }
-            LinkedList<Future<Result>> ret = new LinkedList<>();
-            java.util.Enumeration<? extends ZipEntry> entries = zip.entries();
-            while(entries.hasMoreElements()) {
-                final ZipEntry e = entries.nextElement();
-
-                if(e.getName().endsWith(".class")) {
-                    if(ANALYZE_ONLY) {
-                        analyzeClass(zip.getInputStream(e));
-                    } else {
-                        ret.add(executor.submit(new Callable<Result>() {
-                            @Override
-                            public Result call() throws Exception {
-                                Result ret = new Result();
-                                ret.e = e;
-                                ret.buf = instrumentClass(f.getAbsolutePath(), zip.getInputStream(e), true);
-                                return ret;
-                            }
-                        }));
-                    }
-                } else if(e.getName().endsWith(".jar")) {
-                    ZipEntry outEntry = new ZipEntry(e.getName());
-                    Random r = new Random();
-                    String markFileName = Long.toOctalString(System.currentTimeMillis())
-                            + Integer.toOctalString(r.nextInt(10000))
-                            + e.getName().replace("/", "");
-                    final String tempDir = System.getProperty("java.io.tmpdir");
-                    File tmp = new File(tempDir + markFileName);
-                    if(tmp.exists()) {
-                        tmp.delete();
-                    }
-                    try(InputStream is = zip.getInputStream(e); FileOutputStream fos = new FileOutputStream(tmp)) {
-                        byte[] buf = new byte[1024];
-                        for(int len; (len = is.read(buf)) > 0;) {
-                            fos.write(buf, 0, len);
+        if(isUnchanged(f, new File(outputDir, f.getName()))) {
+            return new LinkedList<>();
+        }
+        return _processZip(f, outputDir, executor);
+    }
+
+    private static LinkedList<Future> _processZip(final File f, File outputDir, ExecutorService executor) {
+        File dest = new File(outputDir, f.getName());
+        try(ZipFile zip = new ZipFile(f)) {
+            if(ANALYZE_ONLY) {
+                analyzeZip(zip);
+            } else {
+                try(ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(dest), COPY_BUFFER_SIZE))) {
+                    InstrumentedClassQueue queue = new InstrumentedClassQueue(f.getName(), zos, executor);
+                    java.util.Enumeration<? extends ZipEntry> entries = zip.entries();
+                    while(entries.hasMoreElements()) {
+                        ZipEntry e = entries.nextElement();
+                        try(InputStream is = zip.getInputStream(e)) {
+                            processZipEntry(f.getAbsolutePath(), f.getName(), e, is, zos, queue, executor);
                         }
                     }
+                    queue.finish();
+                }
+            }
+        } catch(Exception e) {
+            System.err.println("Unable to process zip/jar: " + f.getAbsolutePath());
+            e.printStackTrace();
+            if(!ANALYZE_ONLY) {
+                try {
+                    Files.copy(f.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch(IOException ex) {
+                    System.err.println("Unable to copy zip/jar: " + f.getAbsolutePath());
+                    ex.printStackTrace();
+                }
+            }
+        }
+        return new LinkedList<>();
+    }
 
-                    File tmp2 = new File(tempDir, "tmp2");
-                    if(!tmp2.exists()) {
-                        tmp2.mkdir();
-                    }
-                    _processZip(tmp, tmp2, executor, true);
-                    tmp.delete();
+    /* Analyzes the classes of the specified archive and of the jars nested in it. */
+    private static void analyzeZip(ZipFile zip) throws IOException {
+        java.util.Enumeration<? extends ZipEntry> entries = zip.entries();
+        while(entries.hasMoreElements()) {
+            ZipEntry e = entries.nextElement();
+            if(e.getName().endsWith(".class")) {
+                analyzeClass(zip.getInputStream(e));
+            } else if(e.getName().endsWith(".jar")) {
+                try(ZipInputStream nested = new ZipInputStream(zip.getInputStream(e))) {
+                    analyzeZip(nested);
+                }
+            }
+        }
+    }
 
-                    outEntry.setMethod(ZipEntry.STORED);
-                    Path newPath = Paths.get(tempDir, "tmp2", markFileName);
+    /* Analyzes the classes of the archive read from the specified stream and of the jars nested in it. */
+    private static void analyzeZip(ZipInputStream zin) throws IOException {
+        for(ZipEntry e = zin.getNextEntry(); e != null; e = zin.getNextEntry()) {
+            if(e.getName().endsWith(".class")) {
+                analyzeClass(new ByteArrayInputStream(readFully(zin)));
+            } else if(e.getName().endsWith(".jar")) {
+                try(ZipInputStream nested = new ZipInputStream(nonClosing(zin))) {
+                    analyzeZip(nested);
+                }
+            }
+        }
+    }
 
-                    outEntry.setSize(Files.size(newPath));
-                    CRC32 crc = new CRC32();
-                    crc.update(Files.readAllBytes(newPath));
-                    outEntry.setCrc(crc.getValue());
+    /* Writes the instrumented form of the specified entry of an archive, read from the specified stream, to the output
+     * of the archive. Classes are instrumented by the executor and written by the specified queue. */
+    private static void processZipEntry(String path, String archiveName, ZipEntry e, InputStream is, ZipOutputStream zos,
+                                        InstrumentedClassQueue queue, ExecutorService executor) throws IOException {
+        if(e.getName().endsWith(".class")) {
+            long start = System.nanoTime();
+            byte[] buf = readFully(is);
+            queue.add(path, e, buf, System.nanoTime() - start);
+        } else if(e.getName().endsWith(".jar")) {
+            processNestedZip(path, e, is, zos, executor);
+        } else {
+            ZipEntry outEntry = new ZipEntry(e.getName());
+            if(e.isDirectory()) {
+                try {
                     zos.putNextEntry(outEntry);
-                    File newFile = newPath.toFile();
-                    try(InputStream is = new FileInputStream(newFile)) {
-                        byte[] buffer = new byte[1024];
-                        for(int count = is.read(buffer); count != -1; count = is.read(buffer)) {
-                            zos.write(buffer, 0, count);
-                        }
-                    }
-                    newFile.delete();
                     zos.closeEntry();
-                } else {
-                    ZipEntry outEntry = new ZipEntry(e.getName());
-                    if(e.isDirectory()) {
-                        try {
-                            zos.putNextEntry(outEntry);
-                            zos.closeEntry();
-                        } catch(ZipException exxxx) {
-                            System.out.println("Ignoring exception: " + exxxx.getMessage());
-                        }
-                    } else if(!e.getName().startsWith("META-INF")
-                            || (!e.getName().endsWith(".SF")
-                            && !e.getName().endsWith(".RSA"))) {
-                        if(e.getName().equals("META-INF/MANIFEST.MF")) {
-                            Scanner s = new Scanner(zip.getInputStream(e));
-                            zos.putNextEntry(outEntry);
-
-                            String curPair = "";
-                            while(s.hasNextLine()) {
-                                String line = s.nextLine();
-                                if(line.equals("")) {
-                                    curPair += "\n";
-                                    if(!curPair.contains("SHA1-Digest:")) {
-                                        zos.write(curPair.getBytes());
-                                    }
-                                    curPair = "";
-                                } else {
-                                    curPair += line + "\n";
-                                }
-                            }
-                            s.close();
-                            // Jar file is different from Zip file. :)
-                            if(f.getName().endsWith(".zip")) {
-                                zos.write("\n".getBytes());
-                            }
-                            zos.closeEntry();
-                        } else {
-                            try {
-                                zos.putNextEntry(outEntry);
-                                try(InputStream is = zip.getInputStream(e)) {
-                                    byte[] buffer = new byte[1024];
-                                    for(int count = is.read(buffer); count != -1; count = is.read(buffer)) {
-                                        zos.write(buffer, 0, count);
-                                    }
-                                }
-                                zos.closeEntry();
-                            } catch(ZipException ex) {
-                                if(!ex.getMessage().contains("duplicate entry")) {
-                                    ex.printStackTrace();
-                                    System.out.println("Ignoring above warning from improper source zip...");
-                                }
-                            }
-                        }
-                    }
+                } catch(ZipException exxxx) {
+                    System.out.println("Ignoring exception: " + exxxx.getMessage());
                 }
-            }
-            for(Future<Result> fr : ret) {
-                Result r;
-                while(true) {
-                    try {
-                        r = fr.get();
-                        break;
-                    } catch(InterruptedException e) {
-                        //
-                    }
-                }
-                try {
-                    ZipEntry outEntry = new ZipEntry(r.e.getName());
+            } else if(!e.getName().startsWith("META-INF")
+                    || (!e.getName().endsWith(".SF")
+                    && !e.getName().endsWith(".RSA"))) {
+                if(e.getName().equals("META-INF/MANIFEST.MF")) {
+                    Scanner s = new Scanner(is);
                     zos.putNextEntry(outEntry);
 
-                    byte[] clazz = r.buf;
-                    if(clazz == null) {
-                        System.out.println("Failed to instrument " + r.e.getName() + " in " + f.getName());
-                        try(InputStream is = zip.getInputStream(r.e)) {
-                            byte[] buffer = new byte[1024];
-                            for(int count = is.read(buffer); count != -1; count = is.read(buffer)) {
-                                zos.write(buffer, 0, count);
+                    String curPair = "";
+                    while(s.hasNextLine()) {
+                        String line = s.nextLine();
+                        if(line.equals("")) {
+                            curPair += "\n";
+                            if(!curPair.contains("SHA1-Digest:")) {
+                                zos.write(curPair.getBytes());
                             }
+                            curPair = "";
+                        } else {
+                            curPair += line + "\n";
                         }
-                    } else {
-                        zos.write(clazz);
+                    }
+                    // Jar file is different from Zip file. :)
+                    if(archiveName.endsWith(".zip")) {
+                        zos.write("\n".getBytes());
                     }
                     zos.closeEntry();
-                } catch(ZipException ex) {
-                    ex.printStackTrace();
-                }
-            }
-        } catch(Exception e) {
-            System.err.println("Unable to process zip/jar: " + f.getAbsolutePath());
-            e.printStackTrace();
-            File dest = new File(outputDir.getPath() + File.separator + f.getName());
-            FileChannel source = null;
-            FileChannel destination = null;
-            try {
-                source = new FileInputStream(f).getChannel();
-                destination = new FileOutputStream(dest).getChannel();
-                destination.transferFrom(source, 0, source.size());
-            } catch(Exception ex) {
-                System.err.println("Unable to copy zip/jar: " + f.getAbsolutePath());
-                ex.printStackTrace();
-            } finally {
-                if(source != null) {
+                } else {
                     try {
-                        source.close();
-                    } catch(IOException e2) {
-                        e2.printStackTrace();
+                        zos.putNextEntry(outEntry);
+                        copy(is, zos);
+                        zos.closeEntry();
+                    } catch(ZipException ex) {
+                        if(!ex.getMessage().contains("duplicate entry")) {
+                            ex.printStackTrace();
+                            System.out.println("Ignoring above warning from improper source zip...");
+                        }
                     }
                 }
-                if(destination != null) {
-                    try {
-                        destination.close();
-                    } catch(IOException e2) {
-                        e2.printStackTrace();
-                    }
+            }
+        }
+    }
+
+    /* Writes the instrumented form of the jar stored in the specified entry, read from the specified stream, to the
+     * output of the enclosing archive as an uncompressed entry. The entries of the nested jar are instrumented as they
+     * are read from the stream. Because the size and CRC of an uncompressed entry have to be written before its
+     * contents, the instrumented jar is spooled to a temporary file while its CRC is computed and then copied once. */
+    private static void processNestedZip(String path, ZipEntry e, InputStream is, ZipOutputStream zos, ExecutorService executor) throws IOException {
+        File tmp = File.createTempFile("phosphor", ".jar");
+        try {
+            CRC32 crc = new CRC32();
+            try(ZipInputStream zin = new ZipInputStream(is);
+                ZipOutputStream nested = new ZipOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), COPY_BUFFER_SIZE), crc))) {
+                nested.setLevel(Deflater.NO_COMPRESSION);
+                InstrumentedClassQueue queue = new InstrumentedClassQueue(e.getName(), nested, executor);
+                InputStream entryStream = nonClosing(zin);
+                for(ZipEntry nestedEntry = zin.getNextEntry(); nestedEntry != null; nestedEntry = zin.getNextEntry()) {
+                    processZipEntry(path, e.getName(), nestedEntry, entryStream, nested, queue, executor);
                 }
+                queue.finish();
+            }
+            ZipEntry outEntry = new ZipEntry(e.getName());
+            outEntry.setMethod(ZipEntry.STORED);
+            outEntry.setSize(tmp.length());
+            outEntry.setCrc(crc.getValue());
+            zos.putNextEntry(outEntry);
+            Files.copy(tmp.toPath(), zos);
+            zos.closeEntry();
+        } finally {
+            if(!tmp.delete()) {
+                System.err.println("Unable to delete temporary file " + tmp);
             }
         }
-        return new LinkedList<>();
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] data = new byte[16384];
+        for(int nRead; (nRead = is.read(data, 0, data.length)) != -1;) {
+            buffer.write(data, 0, nRead);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for(int count = is.read(buffer); count != -1; count = is.read(buffer)) {
+            os.write(buffer, 0, count);
+        }
+    }
+
+    /* Returns a stream that reads from the specified stream but leaves it open when it is closed, which lets the entries
+     * of a ZipInputStream be handled like the entries of a ZipFile. */
+    private static InputStream nonClosing(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
     }
 
     public static boolean isIgnoredMethod(String owner, String name, String desc) {
@@ -693,5 +788,87 @@ public class Instrumenter {
     private static class Result {
         ZipEntry e;
         byte[] buf;
+        // The uninstrumented class, which is written if the class could not be instrumented
+        byte[] original;
+        // The times spent on the class if they are being recorded, null otherwise
+        InstrumentationTimingReport.ClassTiming timing;
+    }
+
+    /* Writes the classes of an archive to its output in the order in which they were submitted to be instrumented. The
+     * queue holds a bounded number of bytes of classes at once, so the memory used to instrument an archive does not grow
+     * with the size of the archive. Within that bound, the scheduler instruments the largest classes first. */
+    private static class InstrumentedClassQueue {
+        private final String archiveName;
+        private final ZipOutputStream zos;
+        private final ExecutorService executor;
+        private final LinkedList<Future<Result>> pending = new LinkedList<>();
+        // The number of bytes of the uninstrumented classes in pending
+        private long pendingBytes = 0;
+
+        InstrumentedClassQueue(String archiveName, ZipOutputStream zos, ExecutorService executor) {
+            this.archiveName = archiveName;
+            this.zos = zos;
+            this.executor = executor;
+        }
+
+        void add(final String path, final ZipEntry e, final byte[] original, final long readNanos) throws IOException {
+            pending.add(InstrumentationScheduler.submit(executor, new Callable<Result>() {
+                @Override
+                public Result call() {
+                    Result ret = new Result();
+                    ret.e = e;
+                    ret.original = original;
+                    ret.timing = InstrumentationTimingReport.begin(e.getName());
+                    if(ret.timing != null) {
+                        ret.timing.add(InstrumentationTimingReport.Phase.READ, readNanos);
+                    }
+                    ret.buf = instrumentClass(path, new ByteArrayInputStream(original), true);
+                    InstrumentationTimingReport.end(ret.timing);
+                    return ret;
+                }
+            }, original.length));
+            pendingBytes += original.length;
+            while(pendingBytes > MAX_IN_FLIGHT_CLASS_BYTES && pending.size() > 1) {
+                writeNext();
+            }
+        }
+
+        void finish() throws IOException {
+            while(!pending.isEmpty()) {
+                writeNext();
+            }
+        }
+
+        private void writeNext() throws IOException {
+            Future<Result> fr = pending.removeFirst();
+            Result r;
+            while(true) {
+                try {
+                    r = InstrumentationScheduler.await(executor, fr);
+                    break;
+                } catch(InterruptedException e) {
+                    //
+                } catch(ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            }
+            pendingBytes -= r.original.length;
+            long start = System.nanoTime();
+            try {
+                zos.putNextEntry(new ZipEntry(r.e.getName()));
+                if(r.buf == null) {
+                    System.out.println("Failed to instrument " + r.e.getName() + " in " + archiveName);
+                    zos.write(r.original);
+                } else {
+                    zos.write(r.buf);
+                }
+                zos.closeEntry();
+            } catch(ZipException ex) {
+                ex.printStackTrace();
+            }
+            if(r.timing != null) {
+                r.timing.add(InstrumentationTimingReport.Phase.WRITE, System.nanoTime() - start);
+            }
+        }
     }
 }
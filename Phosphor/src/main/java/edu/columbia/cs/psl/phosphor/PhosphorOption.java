@@ -4,6 +4,7 @@ import edu.columbia.cs.psl.phosphor.control.ControlFlowManager;
 import edu.columbia.cs.psl.phosphor.control.standard.StandardControlFlowManager;
 import edu.columbia.cs.psl.phosphor.instrumenter.TaintTagFactory;
 import edu.columbia.cs.psl.phosphor.runtime.TaintSourceWrapper;
+import edu.columbia.cs.psl.phosphor.runtime.TaintStatistics;
 import edu.columbia.cs.psl.phosphor.struct.harmony.util.EnumMap;
 import edu.columbia.cs.psl.phosphor.struct.harmony.util.StringBuilder;
 import org.apache.commons.cli.*;
@@ -120,6 +121,78 @@ public enum PhosphorOption {
             Configuration.IMPLICIT_HEADERS_NO_TRACKING = isPresent;
         }
     },
+    WITHOUT_INLINE_TAINTS(new PhosphorOptionBuilder("Always represent taint tags as nodes of the shared tree of label " +
+            "sets instead of storing the labels of tags with few labels inline", false, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.INLINE_SMALL_TAINTS = !isPresent;
+        }
+    },
+    WITHOUT_TAINT_RANGES(new PhosphorOptionBuilder("Always store the tags of the elements of arrays in dense arrays " +
+            "of tags instead of storing runs of equal tags for long arrays", false, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.RANGE_ENCODED_TAINTS = !isPresent;
+        }
+    },
+    WITHOUT_TAINT_DICTIONARIES(new PhosphorOptionBuilder("Store the tags of the elements of arrays in dense arrays of " +
+            "tags instead of storing indices into a per-array dictionary of the distinct tags", false, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.DICTIONARY_ENCODED_TAINTS = !isPresent;
+        }
+    },
+    LAZY_MULTI_D_ARRAYS(new PhosphorOptionBuilder("Wrap the inner arrays of multi-dimensional arrays the first time " +
+            "that they are read instead of when the multi-dimensional arrays are allocated or boxed", true, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.LAZY_MULTI_D_ARRAYS = isPresent;
+        }
+    },
+    BIT_SET_TAINTS(new PhosphorOptionBuilder("Represent taint tags as bit sets over a bounded universe of labels. The " +
+            "argument is the number of distinct labels in the universe, labels beyond that number are represented by " +
+            "the shared tree of label sets", false, true).argType(Number.class)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.BIT_SET_TAINT_CAPACITY = 0;
+            if(isPresent) {
+                try {
+                    Configuration.BIT_SET_TAINT_CAPACITY = ((Number) commandLine.getParsedOptionValue(optionName)).intValue();
+                } catch(ParseException e) {
+                    System.err.println("Invalid number of bit set taint labels: " + commandLine.getOptionValue(optionName));
+                }
+            }
+        }
+    },
+    TAINT_TREE_SWEEPER(new PhosphorOptionBuilder("Start a daemon thread that eagerly reclaims the space used by taint " +
+            "tags and labels that have been garbage collected", false, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.TAINT_TREE_SWEEPER = isPresent;
+        }
+    },
+    PARALLEL_TAINT_MERGE_THRESHOLD(new PhosphorOptionBuilder("Specify the length above which arrays of taint tags " +
+            "are merged in parallel using the common fork-join pool. A value of zero, the default, disables parallel merging", false, true)
+            .argType(Number.class)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.PARALLEL_TAINT_MERGE_THRESHOLD = 0;
+            if(isPresent) {
+                try {
+                    Configuration.PARALLEL_TAINT_MERGE_THRESHOLD = ((Number) commandLine.getParsedOptionValue(optionName)).intValue();
+                } catch(ParseException e) {
+                    System.err.println("Invalid parallel taint merge threshold: " + commandLine.getOptionValue(optionName));
+                }
+            }
+        }
+    },
+    TAINT_STATISTICS(new PhosphorOptionBuilder("Collect statistics about taint propagation and report them through " +
+            "a JMX MBean named " + TaintStatistics.OBJECT_NAME, false, true)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.TAINT_STATISTICS = isPresent;
+        }
+    },
     QUIET(new PhosphorOptionBuilder("Reduces the amount of command line output produced by Phosphor.", true, true)
             .alternativeName("q")) {
         @Override
@@ -185,6 +258,28 @@ public enum PhosphorOption {
             }
         }
     },
+    CLASS_HIERARCHY_INDEX(new PhosphorOptionBuilder("File in which to store the class hierarchy of the inputs. A " +
+            "later run over the same unchanged inputs loads the class hierarchy from the file instead of reading every " +
+            "input twice", true, false).argType(String.class)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.CLASS_HIERARCHY_INDEX = isPresent ? commandLine.getOptionValue(optionName) : null;
+        }
+    },
+    INCREMENTAL(new PhosphorOptionBuilder("Record the inputs written to the output directory, so that a later run into " +
+            "the same output directory with the same options does not instrument the unchanged inputs again", true, false)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.INCREMENTAL = isPresent;
+        }
+    },
+    TIMING_REPORT(new PhosphorOptionBuilder("File to which to write the time spent instrumenting each class in each " +
+            "phase of instrumentation", true, false).argType(String.class)) {
+        @Override
+        public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
+            Configuration.TIMING_REPORT = isPresent ? commandLine.getOptionValue(optionName) : null;
+        }
+    },
     WITH_HEAVY_OBJ_EQUALS_HASHCODE(new PhosphorOptionBuilder(null, true, true).alternativeName("objmethods")) {
         @Override
         public void configure(boolean forRuntimeInst, boolean isPresent, CommandLine commandLine) {
@@ -6,6 +6,9 @@ import edu.columbia.cs.psl.phosphor.instrumenter.asm.OffsetPreservingClassReader
 import edu.columbia.cs.psl.phosphor.org.objectweb.asm.commons.OurJSRInlinerAdapter;
 import edu.columbia.cs.psl.phosphor.org.objectweb.asm.commons.OurSerialVersionUIDAdder;
 import edu.columbia.cs.psl.phosphor.runtime.TaintInstrumented;
+import edu.columbia.cs.psl.phosphor.runtime.TaintStatistics;
+import edu.columbia.cs.psl.phosphor.struct.LazyCharArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
 import edu.columbia.cs.psl.phosphor.struct.SinglyLinkedList;
 import edu.columbia.cs.psl.phosphor.struct.TaintedWithObjTag;
 import edu.columbia.cs.psl.phosphor.struct.harmony.util.HashSet;
@@ -21,8 +24,6 @@ import java.io.*;
 import java.lang.instrument.IllegalClassFormatException;
 import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Constructor;
-import java.nio.file.Files;
-import java.security.MessageDigest;
 import java.security.ProtectionDomain;
 
 public class PreMain {
@@ -37,6 +38,8 @@ public class PreMain {
      */
     public static ClassLoader curLoader;
     private static Instrumentation instrumentation;
+    // The cache of instrumented classes in the cache directory, null if classes are not being cached
+    private static InstrumentationCache cache;
 
     private PreMain() {
         // Prevents this class from being instantiated
@@ -65,14 +68,25 @@ public class PreMain {
                 }
             }
         }
+        if(Configuration.CACHE_DIR != null) {
+            cache = InstrumentationCache.open(new File(Configuration.CACHE_DIR), args);
+        }
         if(Instrumenter.loader == null) {
             Instrumenter.loader = bigLoader;
         }
         // Ensure that BasicSourceSinkManager & anything needed to call isSourceOrSinkOrTaintThrough gets initialized
         BasicSourceSinkManager.getInstance().isSourceOrSinkOrTaintThrough(Object.class);
+        // The JVM has started, so char arrays can clear their cached merged tags with ordered writes
+        LazyCharArrayObjTags.initializeOrderedClears();
         inst.addTransformer(new PCLoggingTransformer());
         inst.addTransformer(new SourceSinkTransformer(), true);
         instrumentation = inst;
+        if(Configuration.TAINT_TREE_SWEEPER) {
+            PowerSetTree.getInstance().startSweeper();
+        }
+        if(Configuration.TAINT_STATISTICS) {
+            TaintStatistics.register();
+        }
     }
 
     private static String[] parseArgs(String argString) {
@@ -98,7 +112,6 @@ public class PreMain {
 
     public static final class PCLoggingTransformer extends PhosphorBaseTransformer {
         static boolean innerException = false;
-        static MessageDigest md5inst;
 
         public PCLoggingTransformer() {
             TaintUtils.VERIFY_CLASS_GENERATION = System.getProperty("phosphor.verify") != null;
@@ -170,8 +183,12 @@ public class PreMain {
                         }
                     }
                     _cv = new HidePhosphorFromASMCV(_cv, upgradeVersion);
+                    long start = System.nanoTime();
                     cr.accept(_cv, ClassReader.EXPAND_FRAMES);
+                    InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.INSTRUMENT, start);
+                    start = System.nanoTime();
                     byte[] instrumentedBytes = cw.toByteArray();
+                    InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.WRITE, start);
                     if (!traceClass && (DEBUG || TaintUtils.VERIFY_CLASS_GENERATION)) {
                         ClassReader cr2 = new ClassReader(instrumentedBytes);
                         cr2.accept(new CheckClassAdapter(new ClassWriter(0), true), ClassReader.EXPAND_FRAMES);
@@ -222,6 +239,7 @@ public class PreMain {
             }
 
             Configuration.taintTagFactory.instrumentationStarting(className);
+            long start = System.nanoTime();
             try {
                 ClassNode cn = new ClassNode();
                 cr.accept(cn, (Configuration.ALWAYS_CHECK_FOR_FRAMES ? 0 : ClassReader.SKIP_CODE));
@@ -280,40 +298,12 @@ public class PreMain {
                         return classfileBuffer;
                     }
                 }
-                if(Configuration.CACHE_DIR != null) {
-                    String cacheKey = className.replace("/", ".");
-                    File f = new File(Configuration.CACHE_DIR + File.separator + cacheKey + ".md5sum");
-                    if(f.exists()) {
-                        try {
-                            FileInputStream fis = new FileInputStream(f);
-                            byte[] cachedDigest = new byte[1024];
-                            fis.read(cachedDigest);
-                            fis.close();
-                            if(md5inst == null) {
-                                md5inst = MessageDigest.getInstance("MD5");
-                            }
-                            byte[] checksum;
-                            synchronized(md5inst) {
-                                checksum = md5inst.digest(classfileBuffer);
-                            }
-                            boolean matches = true;
-                            if(checksum.length > cachedDigest.length) {
-                                matches = false;
-                            }
-                            if(matches) {
-                                for(int i = 0; i < checksum.length; i++) {
-                                    if(checksum[i] != cachedDigest[i]) {
-                                        matches = false;
-                                        break;
-                                    }
-                                }
-                            }
-                            if(matches) {
-                                return Files.readAllBytes(new File(Configuration.CACHE_DIR + File.separator + cacheKey + ".class").toPath());
-                            }
-                        } catch(Throwable t) {
-                            t.printStackTrace();
-                        }
+                byte[] cacheKey = null;
+                if(cache != null) {
+                    cacheKey = cache.key(classfileBuffer);
+                    byte[] cached = cache.get(cacheKey);
+                    if(cached != null) {
+                        return cached;
                     }
                 }
                 if(DEBUG) {
@@ -342,7 +332,9 @@ public class PreMain {
                         nonBridgeMethodsErasedReturnTypes.add(mn.name + "." + mn.desc.substring(0, mn.desc.indexOf(')')));
                     }
                 }
+                InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.ANALYZE, start);
                 if(skipFrames) {
+                    start = System.nanoTime();
                     // This class is old enough to not guarantee frames.
                     // Generate new frames for analysis reasons, then make sure
                     // to not emit ANY frames.
@@ -354,6 +346,7 @@ public class PreMain {
                         }
                     }, 0);
                     cr = (Configuration.READ_AND_SAVE_BCI ? new OffsetPreservingClassReader(cw.toByteArray()) : new ClassReader(cw.toByteArray()));
+                    InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.FRAMES, start);
                 }
                 // Find out if this class already has frames
                 TraceClassVisitor cv;
@@ -368,25 +361,8 @@ public class PreMain {
                         fos.close();
                     }
 
-                    if(Configuration.CACHE_DIR != null) {
-                        String cacheKey = className.replace("/", ".");
-                        File f = new File(Configuration.CACHE_DIR + File.separator + cacheKey + ".class");
-                        FileOutputStream fos = new FileOutputStream(f);
-                        fos.write(instrumentedBytes);
-                        fos.close();
-                        if(md5inst == null) {
-                            md5inst = MessageDigest.getInstance("MD5");
-                        }
-                        byte[] checksum;
-                        synchronized(md5inst) {
-                            checksum = md5inst.digest(classfileBuffer);
-                        }
-                        f = new File(Configuration.CACHE_DIR + File.separator + cacheKey + ".md5sum");
-                        fos = new FileOutputStream(f);
-
-                        fos.write(checksum);
-                        fos.close();
-                        return instrumentedBytes;
+                    if(cacheKey != null) {
+                        cache.put(cacheKey, instrumentedBytes);
                     }
                     return instrumentedBytes;
                 } catch(Throwable ex) {
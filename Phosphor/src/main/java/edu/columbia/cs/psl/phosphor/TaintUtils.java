@@ -120,13 +120,8 @@ public class TaintUtils {
                                                  Object dest, Taint<?> destTaint, int destPos, Taint<?> destPosTaint,
                                                  int length, Taint<?> lengthTaint) {
         if(!src.getClass().isArray() && !dest.getClass().isArray()) {
-            System.arraycopy(((LazyArrayObjTags) src).getVal(), srcPos, ((LazyArrayObjTags) dest).getVal(), destPos, length);
-            if(((LazyArrayObjTags) src).taints != null) {
-                if(((LazyArrayObjTags) dest).taints == null) {
-                    ((LazyArrayObjTags) dest).taints = new Taint[((LazyArrayObjTags) dest).getLength()];
-                }
-                System.arraycopy(((LazyArrayObjTags) src).taints, srcPos, ((LazyArrayObjTags) dest).taints, destPos, length);
-            }
+            copyValues((LazyArrayObjTags) src, srcPos, (LazyArrayObjTags) dest, destPos, length);
+            LazyArrayObjTags.copyTaints((LazyArrayObjTags) src, srcPos, (LazyArrayObjTags) dest, destPos, length);
         } else if(!dest.getClass().isArray()) {
             System.arraycopy(src, srcPos, ((LazyArrayObjTags) dest).getVal(), destPos, length);
         } else {
@@ -138,30 +133,13 @@ public class TaintUtils {
                                                  Object dest, Taint<?> destTaint, int destPos, Taint<?> destPosTaint,
                                                  int length, Taint<?> lengthTaint, ControlFlowStack ctrl) {
         if(!src.getClass().isArray() && !dest.getClass().isArray()) {
-            System.arraycopy(((LazyArrayObjTags) src).getVal(), srcPos, ((LazyArrayObjTags) dest).getVal(), destPos, length);
-            if(((LazyArrayObjTags) src).taints != null) {
-                if(((LazyArrayObjTags) dest).taints == null) {
-                    ((LazyArrayObjTags) dest).taints = new Taint[((LazyArrayObjTags) dest).getLength()];
-                }
-                System.arraycopy(((LazyArrayObjTags) src).taints, srcPos, ((LazyArrayObjTags) dest).taints, destPos, length);
-            }
+            copyValues((LazyArrayObjTags) src, srcPos, (LazyArrayObjTags) dest, destPos, length);
+            LazyArrayObjTags.copyTaints((LazyArrayObjTags) src, srcPos, (LazyArrayObjTags) dest, destPos, length);
             if(srcTaint != null && !srcTaint.isEmpty()) {
-                LazyArrayObjTags destTags = (LazyArrayObjTags) dest;
-                if(destTags.taints == null) {
-                    destTags.taints = new Taint[destTags.getLength()];
-                }
-                for(int i = destPos; i < destPos + length; i++) {
-                    destTags.taints[i] = Taint.combineTags(destTags.taints[i], srcTaint);
-                }
+                combineTaints((LazyArrayObjTags) dest, destPos, length, srcTaint);
             }
             if(!ctrl.copyTag().isEmpty()) {
-                LazyArrayObjTags destTags = (LazyArrayObjTags) dest;
-                if(destTags.taints == null) {
-                    destTags.taints = new Taint[destTags.getLength()];
-                }
-                for(int i = destPos; i < destPos + length; i++) {
-                    destTags.taints[i] = Taint.combineTags(destTags.taints[i], ctrl.copyTag());
-                }
+                combineTaints((LazyArrayObjTags) dest, destPos, length, ctrl.copyTag());
             }
         } else if(!dest.getClass().isArray()) {
             System.arraycopy(src, srcPos, ((LazyArrayObjTags) dest).getVal(), destPos, length);
@@ -170,6 +148,30 @@ public class TaintUtils {
         }
     }
 
+    /* Copies the values of the specified range of elements of src to dest. */
+    private static void copyValues(LazyArrayObjTags src, int srcPos, LazyArrayObjTags dest, int destPos, int length) {
+        if(src instanceof LazyReferenceArrayObjTags && dest instanceof LazyReferenceArrayObjTags) {
+            LazyReferenceArrayObjTags.copyElements((LazyReferenceArrayObjTags) src, srcPos, (LazyReferenceArrayObjTags) dest, destPos, length);
+        } else {
+            System.arraycopy(src.getVal(), srcPos, dest.getVal(), destPos, length);
+        }
+    }
+
+    /* Combines the specified tag with the tags of the specified range of elements of dest. */
+    private static void combineTaints(LazyArrayObjTags dest, int destPos, int length, Taint tag) {
+        Taint uniform = dest.getUniformTaint();
+        if(uniform != null || !dest.hasTaints()) {
+            // Every element in the range has the same tag before and after the tags are combined
+            dest.fillTaint(destPos, destPos + length, Taint.combineTags(uniform, tag));
+        } else {
+            Taint[] destTaints = dest.ensureDenseTaints();
+            for(int i = destPos; i < destPos + length; i++) {
+                destTaints[i] = Taint.combineTags(destTaints[i], tag);
+            }
+            dest.taintsChanged();
+        }
+    }
+
     public static String getShadowTaintType(String typeDesc) {
         Type t = Type.getType(typeDesc);
         if(isShadowedType(t)) {
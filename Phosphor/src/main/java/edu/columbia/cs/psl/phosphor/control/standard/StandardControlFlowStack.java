@@ -1,7 +1,9 @@
 package edu.columbia.cs.psl.phosphor.control.standard;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.control.ControlFlowStack;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.TaintStatistics;
 import edu.columbia.cs.psl.phosphor.struct.EnqueuedTaint;
 import edu.columbia.cs.psl.phosphor.struct.ExceptionalTaintData;
 import edu.columbia.cs.psl.phosphor.struct.MaybeThrownException;
@@ -76,6 +78,9 @@ public class StandardControlFlowStack<E> extends ControlFlowStack {
         }
         enqueuedTaint.activeCount++;
         taintHistory.push(exceptionTaint.union(taintHistory.peek()));
+        if(Configuration.TAINT_STATISTICS) {
+            TaintStatistics.recordControlFlowDepth(taintHistory.size());
+        }
         return enqueuedTaint;
     }
 
@@ -176,6 +181,9 @@ public class StandardControlFlowStack<E> extends ControlFlowStack {
         if(branchTags[branchID] == NOT_PUSHED) {
             // Adding a label for this branch for the first time
             taintHistory.push(tag.union(taintHistory.peek()));
+            if(Configuration.TAINT_STATISTICS) {
+                TaintStatistics.recordControlFlowDepth(taintHistory.size());
+            }
             if(curMethod != null) {
                 curMethod.push(tag.union(taintHistory.peek()));
             }
@@ -219,6 +219,38 @@ public class ReflectionHidingMV extends MethodVisitor implements Opcodes {
         }
     }
 
+    /* Returns whether a method instruction with the specified information is for a method added to Unsafe by Phosphor
+     * that sets, retrieves, fills, allocates or frees memory outside of the Java heap by absolute address. */
+    private boolean isUnsafeRawMemoryAccessor(int opcode, String owner, String name, Type[] args, String nameWithoutSuffix) {
+        if(className.equals("sun/misc/Unsafe") || opcode != INVOKEVIRTUAL || !"sun/misc/Unsafe".equals(owner) || !name.endsWith(TaintUtils.METHOD_SUFFIX)) {
+            return false;
+        }
+        switch(nameWithoutSuffix) {
+            case "getByte":
+            case "getChar":
+            case "getDouble":
+            case "getFloat":
+            case "getInt":
+            case "getLong":
+            case "getShort":
+            case "putByte":
+            case "putChar":
+            case "putDouble":
+            case "putFloat":
+            case "putInt":
+            case "putLong":
+            case "putShort":
+                return args.length >= 2 && args[1].equals(Type.LONG_TYPE);
+            case "setMemory":
+            case "allocateMemory":
+            case "reallocateMemory":
+            case "freeMemory":
+                return true;
+            default:
+                return false;
+        }
+    }
+
     private boolean isUnsafeCopyMemory(String owner, String name, String nameWithoutSuffix) {
         if(!"sun/misc/Unsafe".equals(owner) || !name.endsWith(TaintUtils.METHOD_SUFFIX) || className.equals("sun/misc/Unsafe")) {
             return false;
@@ -372,6 +404,17 @@ public class ReflectionHidingMV extends MethodVisitor implements Opcodes {
                 desc = "(Lsun/misc/Unsafe;" + desc.substring(1);
                 super.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(RuntimeUnsafePropagator.class), name, desc, false);
                 return;
+            } else if(isUnsafeRawMemoryAccessor(opcode, owner, name, args, nameWithoutSuffix)) {
+                if(Configuration.IMPLICIT_TRACKING || Configuration.IMPLICIT_HEADERS_NO_TRACKING) {
+                    desc = desc.replace(CONTROL_STACK_DESC, "");
+                    if(returnType.getSort() != Type.VOID) {
+                        super.visitInsn(SWAP);
+                    }
+                    super.visitInsn(POP);
+                }
+                desc = "(Lsun/misc/Unsafe;" + desc.substring(1);
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(RuntimeUnsafePropagator.class), name, desc, false);
+                return;
             } else if(isUnsafeCAS(owner, name, nameWithoutSuffix) || isUnsafeCopyMemory(owner, name, nameWithoutSuffix)) {
                 if(Configuration.IMPLICIT_TRACKING || Configuration.IMPLICIT_HEADERS_NO_TRACKING) {
                     desc = desc.replace(CONTROL_STACK_DESC, "");
@@ -412,6 +412,9 @@ public class TaintPassingMV extends TaintAdapter implements Opcodes {
         methodToCall.append('_');
         methodToCall.append(arrayType.getDimensions());
         methodToCall.append("DIMS");
+        if(Configuration.LAZY_MULTI_D_ARRAYS) {
+            methodToCall.append("_LAZY");
+        }
 
         descToCall.append(")");
         descToCall.append(Type.getDescriptor(LazyReferenceArrayObjTags.class));
@@ -233,8 +233,8 @@ public class ArrayReflectionMasker {
     }
 
     static void fillInTaint(TaintedReferenceWithObjTag ret, LazyArrayObjTags ar, int idx) {
-        if(ar.taints != null) {
-            ret.taint = ar.taints[idx];
+        if(ar.hasTaints()) {
+            ret.taint = ar.getTaintOrEmpty(idx);
         } else {
             ret.taint = Taint.emptyTaint();
         }
@@ -274,7 +274,7 @@ public class ArrayReflectionMasker {
             fillInTaint(ret, (LazyArrayObjTags) obj, idx);
             return ret;
         } else if(obj instanceof LazyReferenceArrayObjTags) {
-            ret.val = ((LazyReferenceArrayObjTags) obj).val[idx];
+            ret.val = ((LazyReferenceArrayObjTags) obj).getBoxed(idx);
             fillInTaint(ret, (LazyArrayObjTags) obj, idx);
             return ret;
         }
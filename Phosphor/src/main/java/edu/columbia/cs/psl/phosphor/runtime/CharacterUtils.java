@@ -83,8 +83,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointAt(tags.val, i);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -97,8 +97,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointAt$$PHOSPHORTAGGED(CharSequence seq, Taint seqTaint, int i, Taint t, TaintedIntWithObjTag ret) {
         try {
             ret.val = Character.codePointAt(seq, i);
-            if(seq instanceof String && ((String) seq).valuePHOSPHOR_WRAPPER != null && ((String) seq).valuePHOSPHOR_WRAPPER.taints != null) {
-                ret.taint = ((String) seq).valuePHOSPHOR_WRAPPER.taints[i];
+            if(seq instanceof String && ((String) seq).valuePHOSPHOR_WRAPPER != null && ((String) seq).valuePHOSPHOR_WRAPPER.hasTaints()) {
+                ret.taint = ((String) seq).valuePHOSPHOR_WRAPPER.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -113,8 +113,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointAt(tags.val, i, i2);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -129,8 +129,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointBefore(tags.val, i);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -143,8 +143,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointBefore$$PHOSPHORTAGGED(CharSequence seq, Taint seqTaint, int i, Taint t, TaintedIntWithObjTag ret) {
         try {
             ret.val = Character.codePointBefore(seq, i);
-            if(seq instanceof String && ((String) seq).valuePHOSPHOR_WRAPPER != null && ((String) seq).valuePHOSPHOR_WRAPPER.taints != null) {
-                ret.taint = ((String) seq).valuePHOSPHOR_WRAPPER.taints[i];
+            if(seq instanceof String && ((String) seq).valuePHOSPHOR_WRAPPER != null && ((String) seq).valuePHOSPHOR_WRAPPER.hasTaints()) {
+                ret.taint = ((String) seq).valuePHOSPHOR_WRAPPER.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -159,8 +159,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointBefore(tags.val, i, i2);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -176,10 +176,7 @@ public class CharacterUtils {
         LazyCharArrayObjTags ret = new LazyCharArrayObjTags(v);
 
         if(idxTaint != null) {
-            ret.taints = new Taint[v.length];
-            for(int i = 0; i < v.length; i++) {
-                ret.taints[i] = idxTaint;
-            }
+            ret.setTaints(idxTaint);
         }
         _ret.val = ret;
         _ret.taint = idxTaint;
@@ -201,8 +198,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointAt(tags.val, i);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -217,7 +214,7 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointAt(seq, i);
             if(seq instanceof String && ((String) seq).valuePHOSPHOR_WRAPPER != null) {
-                ret.taint = seq.toString().valuePHOSPHOR_WRAPPER.taints[i];
+                ret.taint = seq.toString().valuePHOSPHOR_WRAPPER.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -233,8 +230,8 @@ public class CharacterUtils {
         try {
             ret.val = Character.codePointAt(tags.val, i, i2);
             ret.taint = Taint.emptyTaint();
-            if(tags.taints != null) {
-                ret.taint = tags.taints[i];
+            if(tags.hasTaints()) {
+                ret.taint = tags.getTaintOrEmpty(i);
             }
             return ret;
         } catch(StringIndexOutOfBoundsException ex) {
@@ -249,10 +246,7 @@ public class CharacterUtils {
         char[] v = Character.toChars(idx);
         LazyCharArrayObjTags ret = new LazyCharArrayObjTags(v);
         if(idxTaint != null) {
-            ret.taints = new Taint[v.length];
-            for(int i = 0; i < v.length; i++) {
-                ret.taints[i] = idxTaint;
-            }
+            ret.setTaints(idxTaint);
         }
         _ret.taint = Taint.emptyTaint();
         _ret.val = ret;
@@ -340,8 +334,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointBeforeImpl$$PHOSPHORTAGGED(LazyCharArrayObjTags tags, Taint tagsTaint, int i, Taint t, Taint t2, int i2, TaintedIntWithObjTag ret) {
         ret.val = Character.codePointBeforeImpl(tags.val, i, i2);
         ret.taint = Taint.emptyTaint();
-        if(tags.taints != null) {
-            ret.taint = tags.taints[i];
+        if(tags.hasTaints()) {
+            ret.taint = tags.getTaintOrEmpty(i);
         }
         return ret;
     }
@@ -349,8 +343,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointBeforeImpl$$PHOSPHORTAGGED(LazyCharArrayObjTags tags, Taint tagsTaint, int i, Taint t, Taint t2, int i2, ControlFlowStack ctrl, TaintedIntWithObjTag ret) {
         ret.val = Character.codePointBeforeImpl(tags.val, i, i2);
         ret.taint = Taint.emptyTaint();
-        if(tags.taints != null) {
-            ret.taint = tags.taints[i];
+        if(tags.hasTaints()) {
+            ret.taint = tags.getTaintOrEmpty(i);
         }
         return ret;
     }
@@ -368,14 +362,7 @@ public class CharacterUtils {
     public static TaintedReferenceWithObjTag toUpperCaseCharArray$$PHOSPHORTAGGED(int c, Taint t, TaintedReferenceWithObjTag _ret) {
         LazyCharArrayObjTags ret = new LazyCharArrayObjTags(Character.toUpperCaseCharArray(c));
         if(t != null) {
-            ret.taints = new Taint[ret.val.length];
-            for(int i = 0; i < ret.taints.length; i++) {
-                if(t != null) {
-                    ret.taints[i] = t;
-                }
-            }
-        } else {
-            ret.taints = null;
+            ret.setTaints(t);
         }
         _ret.val = ret;
         _ret.taint = Taint.emptyTaint();
@@ -395,14 +382,7 @@ public class CharacterUtils {
     public static TaintedReferenceWithObjTag toUpperCaseCharArray$$PHOSPHORTAGGED(Taint t, ControlFlowStack ctrl, int cp, TaintedReferenceWithObjTag _ret) {
         LazyCharArrayObjTags ret = new LazyCharArrayObjTags(Character.toUpperCaseCharArray(cp));
         if(t != null) {
-            ret.taints = new Taint[ret.val.length];
-            for(int i = 0; i < ret.taints.length; i++) {
-                if(t != null) {
-                    ret.taints[i] = t;
-                }
-            }
-        } else {
-            ret.taints = null;
+            ret.setTaints(t);
         }
         _ret.taint = Taint.emptyTaint();
         _ret.val = ret;
@@ -412,8 +392,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointAtImpl$$PHOSPHORTAGGED(LazyCharArrayObjTags t, Taint refTaint, int index, Taint ti, int limit, Taint tl, TaintedIntWithObjTag ret) {
         ret.val = Character.codePointAtImpl(t.val, index, limit);
         ret.taint = Taint.emptyTaint();
-        if(t.taints != null && t.taints[index] != null) {
-            ret.taint = t.taints[index];
+        if(t.hasTaints() && t.getTaintOrEmpty(index) != null) {
+            ret.taint = t.getTaintOrEmpty(index);
         }
         return ret;
     }
@@ -421,8 +401,8 @@ public class CharacterUtils {
     public static TaintedIntWithObjTag codePointAtImpl$$PHOSPHORTAGGED(LazyCharArrayObjTags t, Taint refTaint, int index, Taint ti, int limit, Taint tl, ControlFlowStack ctrl, TaintedIntWithObjTag ret) {
         ret.val = Character.codePointAtImpl(t.val, index, limit);
         ret.taint = Taint.emptyTaint();
-        if(t.taints != null && t.taints[index] != null) {
-            ret.taint = t.taints[index];
+        if(t.hasTaints() && t.getTaintOrEmpty(index) != null) {
+            ret.taint = t.getTaintOrEmpty(index);
         }
         return ret;
     }
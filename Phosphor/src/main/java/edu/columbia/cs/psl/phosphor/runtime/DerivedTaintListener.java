@@ -21,91 +21,91 @@ public class DerivedTaintListener {
 
     public TaintedShortWithObjTag arrayGet(LazyShortArrayObjTags b, Taint idxTaint, int idx, TaintedShortWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedIntWithObjTag arrayGet(LazyIntArrayObjTags b, Taint idxTaint, int idx, TaintedIntWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedByteWithObjTag arrayGet(LazyByteArrayObjTags b, Taint idxTaint, int idx, TaintedByteWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedBooleanWithObjTag arrayGet(LazyBooleanArrayObjTags b, Taint idxTaint, int idx, TaintedBooleanWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedLongWithObjTag arrayGet(LazyLongArrayObjTags b, Taint idxTaint, int idx, TaintedLongWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedFloatWithObjTag arrayGet(LazyFloatArrayObjTags b, Taint idxTaint, int idx, TaintedFloatWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedDoubleWithObjTag arrayGet(LazyDoubleArrayObjTags b, Taint idxTaint, int idx, TaintedDoubleWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
     public TaintedCharWithObjTag arrayGet(LazyCharArrayObjTags b, Taint idxTaint, int idx, TaintedCharWithObjTag ret, ControlFlowStack ctrl) {
         ret.val = b.val[idx];
-        if(b.taints == null) {
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
 
 
     public TaintedReferenceWithObjTag arrayGet(LazyReferenceArrayObjTags b, Taint idxTaint, int idx, TaintedReferenceWithObjTag ret, ControlFlowStack ctrl) {
-        ret.val = b.val[idx];
-        if(b.taints == null) {
+        ret.val = b.getBoxed(idx);
+        if(!b.hasTaints()) {
             ret.taint = idxTaint;
         } else {
-            ret.taint = Taint.combineTags(idxTaint, b.taints[idx]);
+            ret.taint = Taint.combineTags(idxTaint, b.getTaintOrEmpty(idx));
         }
         return ret;
     }
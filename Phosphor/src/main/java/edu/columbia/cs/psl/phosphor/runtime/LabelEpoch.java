@@ -0,0 +1,110 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+/* A scope for taint labels, such as the handling of a single request by a server. Labels passed to Taint.withLabel by a
+ * thread while an epoch is current for that thread belong to that epoch. Retiring an epoch takes constant time and makes
+ * the labels that belong to it read as absent from every taint tag: tags whose labels all belong to retired epochs are
+ * empty and tags that also contain other labels no longer report the retired labels. Labels created while no epoch is
+ * current are never retired. Labels equal to one another with respect to the equals method but belonging to different
+ * epochs are distinct, so retiring one thread's epoch does not affect threads working in other epochs. A taint tag that
+ * contains such labels from several epochs reports the label once for each epoch from getLabels. */
+public final class LabelEpoch {
+
+    // The epoch that is current for each thread
+    private static final ThreadLocal<LabelEpoch> current = new ThreadLocal<>();
+    // Whether any epoch has ever been made current, until then label lookups can skip checking for a current epoch
+    private static volatile boolean everCurrent = false;
+    // The number of epochs that have been made current and not yet retired
+    private static volatile int active = 0;
+    // The number of epochs that have been retired, used to tell whether results computed from retired states are stale
+    private static volatile int retirements = 0;
+    // Descriptive name of this epoch
+    private final String name;
+    // Whether this epoch has been made current and counted as active
+    private volatile boolean activated = false;
+    // Whether this epoch has been retired
+    private volatile boolean retired = false;
+
+    /* Constructs a new epoch with the specified name. The epoch is not made current for any thread. */
+    public LabelEpoch(String name) {
+        this.name = name;
+    }
+
+    /* Returns a new epoch with the specified name that is current for the calling thread. */
+    public static LabelEpoch begin(String name) {
+        LabelEpoch epoch = new LabelEpoch(name);
+        setCurrent(epoch);
+        return epoch;
+    }
+
+    /* Makes the specified epoch current for the calling thread, for example a worker thread performing part of a request.
+     * If the specified epoch is null, no epoch is current for the calling thread. */
+    public static void setCurrent(LabelEpoch epoch) {
+        if(epoch == null) {
+            current.remove();
+        } else {
+            if(!epoch.activated) {
+                epoch.activate();
+            }
+            everCurrent = true;
+            current.set(epoch);
+        }
+    }
+
+    /* Returns the epoch that is current for the calling thread or null if there is no current epoch. */
+    public static LabelEpoch getCurrent() {
+        return everCurrent ? current.get() : null;
+    }
+
+    /* Returns whether some epoch that has been made current has not been retired. While none has, labels that belong to
+     * epochs all read as absent, so taint tags can be examined without checking the epochs of their labels. */
+    public static boolean isInUse() {
+        return active != 0;
+    }
+
+    /* Returns the number of times that an epoch has been retired. */
+    public static int getRetirementCount() {
+        return retirements;
+    }
+
+    private void activate() {
+        synchronized(LabelEpoch.class) {
+            if(!activated && !retired) {
+                activated = true;
+                active++;
+            }
+        }
+    }
+
+    /* Retires this epoch and, if it is current for the calling thread, makes no epoch current for the calling thread. */
+    public void end() {
+        retire();
+        if(current.get() == this) {
+            current.remove();
+        }
+    }
+
+    /* Retires this epoch. Labels that belong to this epoch read as absent from all taint tags once this method returns. */
+    public void retire() {
+        if(!retired) {
+            synchronized(LabelEpoch.class) {
+                if(!retired) {
+                    retired = true;
+                    retirements++;
+                    if(activated) {
+                        active--;
+                    }
+                }
+            }
+        }
+    }
+
+    /* Returns whether this epoch has been retired. */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    @Override
+    public String toString() {
+        return "LabelEpoch [" + name + (retired ? ", retired]" : "]");
+    }
+}
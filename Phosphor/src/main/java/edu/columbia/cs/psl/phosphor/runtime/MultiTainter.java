@@ -217,12 +217,7 @@ public final class MultiTainter {
     }
 
     private static void taintedArray(LazyArrayObjTags in, Object lbl, TaintedReferenceWithObjTag ret) {
-        if(in.taints == null) {
-            in.taints = new Taint[in.getLength()];
-        }
-        for(int i = 0; i < in.getLength(); i++) {
-            in.taints[i] = Taint.withLabel(lbl);
-        }
+        in.setTaints(Taint.withLabel(lbl));
         ret.taint = Taint.withLabel(lbl);
         ret.val = in;
     }
@@ -289,7 +284,7 @@ public final class MultiTainter {
         if(str == null) {
             return null;
         }
-        return str.valuePHOSPHOR_WRAPPER.taints;
+        return str.valuePHOSPHOR_WRAPPER.toTaintArray();
     }
 
     @SuppressWarnings("unused")
@@ -346,15 +341,14 @@ public final class MultiTainter {
     public static Taint getMergedTaint(Object obj) {
         //TODO reference taints?
         if(obj instanceof LazyReferenceArrayObjTags) {
-            Object[] ar = ((LazyReferenceArrayObjTags) obj).val;
-            Taint[] taints = new Taint[ar.length];
-            int i = 0;
-            for(Object el : ar) {
-                taints[i] = getMergedTaint(el);
+            LazyReferenceArrayObjTags ar = (LazyReferenceArrayObjTags) obj;
+            Taint[] taints = new Taint[ar.val.length];
+            for(int i = 0; i < taints.length; i++) {
+                taints[i] = getMergedTaint(ar.getBoxed(i));
             }
             return Taint.combineTaintArray(taints);
         } else if(obj instanceof LazyArrayObjTags) {
-            return Taint.combineTaintArray(((LazyArrayObjTags) obj).taints);
+            return ((LazyArrayObjTags) obj).getMergedTaint();
         } else if(obj instanceof Object[]) {
             throw new IllegalStateException("Object[] should not exist!");
         } else {
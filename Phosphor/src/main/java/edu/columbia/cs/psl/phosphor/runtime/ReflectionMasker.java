@@ -485,10 +485,10 @@ public class ReflectionMasker {
             for(Object providedArg : providedArgs.val) {
                 // Class<?> targetParamClass = paramTypes[targetParamIndex];
                 targetArgs.val[targetParamIndex++] = providedArg;
-                if(providedArgs.taints == null) {
+                if(!providedArgs.hasTaints()) {
                     targetArgs.val[targetParamIndex++] = Taint.emptyTaint();
                 } else {
-                    targetArgs.val[targetParamIndex++] = providedArgs.taints[idx];
+                    targetArgs.val[targetParamIndex++] = providedArgs.getTaintOrEmpty(idx);
                 }
                 idx++;
             }
@@ -41,12 +41,7 @@ public class RuntimeBoxUnboxPropagator {
             } else {
                 nChars = stringSize(l);
             }
-            if(ta.taints == null) {
-                ta.taints = new Taint[ta.val.length];
-            }
-            for(int k = idx - nChars; k < idx; k++) {
-                ta.taints[k] = lt;
-            }
+            ta.fillTaint(idx - nChars, idx, lt);
         }
     }
 
@@ -59,12 +54,7 @@ public class RuntimeBoxUnboxPropagator {
             } else {
                 nChars = stringSize(i);
             }
-            if(ta.taints == null) {
-                ta.taints = new Taint[ta.val.length];
-            }
-            for(int k = idx - nChars; k < Math.min(idx, ta.taints.length); k++) {
-                ta.taints[k] = it;
-            }
+            ta.fillTaint(idx - nChars, Math.min(idx, ta.getLength()), it);
         }
     }
 
@@ -1114,7 +1104,7 @@ public class RuntimeBoxUnboxPropagator {
         if(str == null) {
             return null;
         } else {
-            Taint charsTaint = MultiTainter.getMergedTaint(TaintSourceWrapper.getStringValueTag(str));
+            Taint charsTaint = TaintSourceWrapper.getStringValueMergedTaint(str);
             return Taint.combineTags(referenceTaint, charsTaint);
         }
     }
@@ -1126,7 +1116,7 @@ public class RuntimeBoxUnboxPropagator {
         if(str == null) {
             return Taint.emptyTaint();
         } else {
-            Taint charsTaint = MultiTainter.getMergedTaint(TaintSourceWrapper.getStringValueTag(str));
+            Taint charsTaint = TaintSourceWrapper.getStringValueMergedTaint(str);
             Taint result = Taint.combineTags(strTaint, charsTaint);
             if(result == null) {
                 return tag;
@@ -10,7 +10,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 /* Ensures that calls methods in Unsafe that set or retrieve the value of a field of a Java heap object set and
- * retrieve both the original field and its associated taint field if it has one. */
+ * retrieve both the original field and its associated taint field if it has one. Calls that set, retrieve, copy or
+ * manage memory outside of the Java heap by absolute address set and retrieve the tags of that memory, which are stored
+ * in an AddressTaintMap. */
 public class RuntimeUnsafePropagator {
 
     private RuntimeUnsafePropagator() {
@@ -20,6 +22,9 @@ public class RuntimeUnsafePropagator {
     /* Used to disambiguate between a static field of a given type and an instance field of java.lang.Class */
     static long LAST_INSTANCE_OFFSET_JAVA_LANG_CLASS = Unsafe.INVALID_FIELD_OFFSET;
 
+    /* Stores the tags of memory outside of the Java heap, such as the memory of direct buffers */
+    static final AddressTaintMap OFF_HEAP_TAINTS = new AddressTaintMap();
+
     /* Stores pairs containing the offset of an original, non-static primitive or primitive array field for the specified
      * class and the offset of the tag field associated with that original field. */
     private static SinglyLinkedList<OffsetPair> getOffsetPairs(Unsafe unsafe, Class<?> targetClazz) {
@@ -120,8 +125,14 @@ public class RuntimeUnsafePropagator {
     }
 
     /* If prealloc is a wrapped primitive type, set it's taint to be the value of the field at the specified offset in the
-     * other specified object. Otherwise returns the value of the field at the specified offset in the specified object. */
+     * other specified object. Otherwise returns the value of the field at the specified offset in the specified object.
+     * If the specified object is null the offset is an absolute address and prealloc's taint is set to the tag of the
+     * memory at that address. */
     private static void getTag(Unsafe unsafe, Object obj, long originalOffset, TaintedPrimitiveWithObjTag prealloc, SpecialAccessPolicy policy) {
+        if(obj == null) {
+            prealloc.taint = OFF_HEAP_TAINTS.get(originalOffset, widthOf(prealloc));
+            return;
+        }
         prealloc.taint = Taint.emptyTaint();
         OffsetPair pair = getOffsetPair(unsafe, obj, originalOffset);
         if(pair != null && pair.tagFieldOffset != Unsafe.INVALID_FIELD_OFFSET) {
@@ -226,11 +237,14 @@ public class RuntimeUnsafePropagator {
 
     /* If the specified Object value is a wrapped primitive type, puts it's taint into the field at the specified offset in the
      * other specified object. Otherwise if the specified Object value is null or a lazy array wrapper put the specified Object
-     * value into the field at the specified offset in the other specified object. */
-    private static void putTag(Unsafe unsafe, Object obj, long offset, Taint tag, SpecialAccessPolicy policy) {
+     * value into the field at the specified offset in the other specified object. If the specified object is null the
+     * offset is an absolute address and the specified tag is stored for the specified number of bytes at that address. */
+    private static void putTag(Unsafe unsafe, Object obj, long offset, Taint tag, SpecialAccessPolicy policy, int width) {
         OffsetPair pair = null;
         if(obj != null) {
             pair = getOffsetPair(unsafe, obj, offset);
+        } else {
+            putOffHeapTag(offset, width, tag);
         }
         if(pair != null) {
             switch(policy) {
@@ -387,33 +401,108 @@ public class RuntimeUnsafePropagator {
             long scale = unsafe.arrayIndexScale(clazz);
             // Calculate the index based off the offset
             int index = (int) ((offset - baseOffset) / scale);
-            if(tags.taints == null && valueTaint != null && !valueTaint.isEmpty()) {
-                tags.taints = new Taint[tags.getLength()];
-            }
-            if(tags.taints != null) {
-                tags.taints[index] = valueTaint;
-            }
+            tags.setTaint(index, valueTaint);
         }
     }
 
-    public static void copyMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object src, Taint srcTaint, long srcAddress, Taint srcAddressTaint, Object dest, Taint destTaint, long destAddress, Taint destAddressTaint, long length, Taint lengthTaint) {
-        if(src instanceof LazyArrayObjTags) {
-            src = ((LazyArrayObjTags) src).getVal();
+    /* Stores the specified tag for the specified number of bytes at the specified absolute address. */
+    private static void putOffHeapTag(long address, int width, Taint tag) {
+        if((tag != null && !tag.isEmpty()) || OFF_HEAP_TAINTS.size() > 0) {
+            OFF_HEAP_TAINTS.fill(address, address + width, tag);
+        }
+    }
+
+    /* Returns the number of bytes of the primitive type wrapped by the specified object. */
+    private static int widthOf(TaintedPrimitiveWithObjTag prealloc) {
+        if(prealloc instanceof TaintedLongWithObjTag || prealloc instanceof TaintedDoubleWithObjTag) {
+            return 8;
+        } else if(prealloc instanceof TaintedIntWithObjTag || prealloc instanceof TaintedFloatWithObjTag) {
+            return 4;
+        } else if(prealloc instanceof TaintedCharWithObjTag || prealloc instanceof TaintedShortWithObjTag) {
+            return 2;
+        } else {
+            return 1;
         }
-        if(dest instanceof LazyArrayObjTags) {
-            dest = ((LazyArrayObjTags) dest).getVal();
+    }
+
+    /* Copies the tags of the specified number of bytes from the specified source to the specified destination, where a
+     * null source or destination means that the offset is an absolute address. Copies between memory outside of the Java
+     * heap and the elements of a primitive array copy the tags of whole elements. */
+    private static void copyMemoryTags(Unsafe unsafe, Object src, long srcOffset, Object dest, long destOffset, long length) {
+        if(src == null && dest == null) {
+            if(OFF_HEAP_TAINTS.size() > 0) {
+                OFF_HEAP_TAINTS.copy(srcOffset, destOffset, length);
+            }
+        } else if(src instanceof LazyArrayObjTags && dest == null) {
+            LazyArrayObjTags array = (LazyArrayObjTags) src;
+            if(array.hasTaints() || OFF_HEAP_TAINTS.size() > 0) {
+                int width = unsafe.arrayIndexScale(array.getVal().getClass());
+                OFF_HEAP_TAINTS.copyFromArray(array, array.unsafeIndexFor(unsafe, srcOffset), (int) (length / width), width, destOffset);
+            }
+        } else if(src == null && dest instanceof LazyArrayObjTags) {
+            LazyArrayObjTags array = (LazyArrayObjTags) dest;
+            if(array.hasTaints() || OFF_HEAP_TAINTS.size() > 0) {
+                int width = unsafe.arrayIndexScale(array.getVal().getClass());
+                OFF_HEAP_TAINTS.copyToArray(srcOffset, array, array.unsafeIndexFor(unsafe, destOffset), (int) (length / width), width);
+            }
         }
-        unsafe.copyMemory(src, srcAddress, dest, destAddress, length);
+    }
+
+    public static void copyMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object src, Taint srcTaint, long srcAddress, Taint srcAddressTaint, Object dest, Taint destTaint, long destAddress, Taint destAddressTaint, long length, Taint lengthTaint) {
+        Object srcVal = src instanceof LazyArrayObjTags ? ((LazyArrayObjTags) src).getVal() : src;
+        Object destVal = dest instanceof LazyArrayObjTags ? ((LazyArrayObjTags) dest).getVal() : dest;
+        unsafe.copyMemory(srcVal, srcAddress, destVal, destAddress, length);
+        copyMemoryTags(unsafe, src, srcAddress, dest, destAddress, length);
     }
 
     public static void copyMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long srcAddress, Taint srcAddressTaint, long destAddress, Taint destAddressTaint, long length, Taint lengthTaint) {
         unsafe.copyMemory(srcAddress, destAddress, length);
+        copyMemoryTags(unsafe, null, srcAddress, null, destAddress, length);
+    }
+
+    public static void setMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, long bytes, Taint bytesTaint, byte value, Taint valueTaint) {
+        if(obj instanceof LazyArrayObjTags) {
+            LazyArrayObjTags array = (LazyArrayObjTags) obj;
+            unsafe.setMemory(array.getVal(), offset, bytes, value);
+            if(bytes > 0 && ((valueTaint != null && !valueTaint.isEmpty()) || array.hasTaints())) {
+                array.fillTaint(array.unsafeIndexFor(unsafe, offset), array.unsafeIndexFor(unsafe, offset + bytes - 1) + 1, valueTaint);
+            }
+        } else {
+            unsafe.setMemory(obj, offset, bytes, value);
+            if(obj == null && ((valueTaint != null && !valueTaint.isEmpty()) || OFF_HEAP_TAINTS.size() > 0)) {
+                OFF_HEAP_TAINTS.fill(offset, offset + bytes, valueTaint);
+            }
+        }
+    }
+
+    public static void setMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, long bytes, Taint bytesTaint, byte value, Taint valueTaint) {
+        setMemory$$PHOSPHORTAGGED(unsafe, unsafeTaint, null, null, address, addressTaint, bytes, bytesTaint, value, valueTaint);
+    }
+
+    public static TaintedLongWithObjTag allocateMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long bytes, Taint bytesTaint, TaintedLongWithObjTag ret) {
+        ret.val = unsafe.allocateMemory(bytes);
+        ret.taint = Taint.emptyTaint();
+        OFF_HEAP_TAINTS.allocated(ret.val, bytes);
+        return ret;
+    }
+
+    public static TaintedLongWithObjTag reallocateMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, long bytes, Taint bytesTaint, TaintedLongWithObjTag ret) {
+        ret.val = unsafe.reallocateMemory(address, bytes);
+        ret.taint = Taint.emptyTaint();
+        OFF_HEAP_TAINTS.reallocated(address, ret.val, bytes);
+        return ret;
+    }
+
+    /* Called by the cleaner of a direct buffer, among others, so the tags of the freed memory are removed here. */
+    public static void freeMemory$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint) {
+        unsafe.freeMemory(address);
+        OFF_HEAP_TAINTS.freed(address);
     }
 
     public static TaintedBooleanWithObjTag compareAndSwapObject$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, Object expected, Taint expectedTaint, Object value, Taint valueTaint, TaintedBooleanWithObjTag ret) {
         ret.taint = Taint.emptyTaint();
         if(obj instanceof LazyReferenceArrayObjTags) {
-            ret.val = unsafe.compareAndSwapObject(((LazyReferenceArrayObjTags) obj).val, offset, expected, value);
+            ret.val = ((LazyReferenceArrayObjTags) obj).compareAndSwap(unsafe, offset, expected, value);
             if(ret.val) {
                 swapArrayElementTag(unsafe, (LazyArrayObjTags) obj, offset, valueTaint);
             }
@@ -601,24 +690,24 @@ public class RuntimeUnsafePropagator {
     public static void putByte$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, byte val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putByte(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putByte(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 1);
         }
     }
 
     public static void putByteVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, byte val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putByteVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putByte(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 1);
         }
     }
 
@@ -647,24 +736,24 @@ public class RuntimeUnsafePropagator {
     public static void putBoolean$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, boolean val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putBoolean(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putBoolean(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 1);
         }
     }
 
     public static void putBooleanVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, boolean val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putBooleanVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putBoolean(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 1);
         }
     }
 
@@ -693,24 +782,24 @@ public class RuntimeUnsafePropagator {
     public static void putChar$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, char val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putChar(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putChar(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 2);
         }
     }
 
     public static void putCharVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, char val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putCharVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putChar(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 2);
         }
     }
 
@@ -739,24 +828,24 @@ public class RuntimeUnsafePropagator {
     public static void putFloat$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, float val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putFloat(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putFloat(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 4);
         }
     }
 
     public static void putFloatVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, float val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putFloatVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putFloat(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 4);
         }
     }
 
@@ -785,24 +874,24 @@ public class RuntimeUnsafePropagator {
     public static void putOrderedInt$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, int val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putOrderedInt(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putOrderedInt(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.ORDERED);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.ORDERED, 4);
         }
     }
 
     public static void putInt$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, int val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putInt(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putInt(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 4);
         }
     }
 
@@ -810,12 +899,12 @@ public class RuntimeUnsafePropagator {
 
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putIntVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putInt(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 4);
         }
     }
 
@@ -844,24 +933,24 @@ public class RuntimeUnsafePropagator {
     public static void putDouble$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, double val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putDouble(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putDouble(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 8);
         }
     }
 
     public static void putDoubleVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, double val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putDoubleVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putDouble(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 8);
         }
     }
 
@@ -890,24 +979,24 @@ public class RuntimeUnsafePropagator {
     public static void putShort$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, short val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putShort(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putShort(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 2);
         }
     }
 
     public static void putShortVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, short val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putShortVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putShort(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 2);
         }
     }
 
@@ -936,36 +1025,36 @@ public class RuntimeUnsafePropagator {
     public static void putLong$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, long val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putLong(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putLong(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 8);
         }
     }
 
     public static void putOrderedLong$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, long val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putOrderedLong(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putOrderedLong(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.ORDERED);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.ORDERED, 8);
         }
     }
 
     public static void putLongVolatile$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, Object obj, Taint objTaint, long offset, Taint offsetTaint, long val, Taint valTaint) {
         if(obj instanceof LazyArrayObjTags) {
             unsafe.putLongVolatile(((LazyArrayObjTags) obj).getVal(), offset, val);
-            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).taints != null) {
+            if((valTaint != null && !valTaint.isEmpty()) || ((LazyArrayObjTags) obj).hasTaints()) {
                 ((LazyArrayObjTags) obj).setTaint(((LazyArrayObjTags) obj).unsafeIndexFor(unsafe, offset), valTaint);
             }
         } else {
             unsafe.putLong(obj, offset, val);
-            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE);
+            putTag(unsafe, obj, offset, valTaint, SpecialAccessPolicy.NONE, 8);
         }
     }
 
@@ -993,6 +1082,83 @@ public class RuntimeUnsafePropagator {
         return ret;
     }
 
+    public static void putByte$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, byte val, Taint valTaint) {
+        unsafe.putByte(address, val);
+        putOffHeapTag(address, 1, valTaint);
+    }
+
+    public static TaintedByteWithObjTag getByte$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedByteWithObjTag ret) {
+        ret.val = unsafe.getByte(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 1);
+        return ret;
+    }
+
+    public static void putChar$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, char val, Taint valTaint) {
+        unsafe.putChar(address, val);
+        putOffHeapTag(address, 2, valTaint);
+    }
+
+    public static TaintedCharWithObjTag getChar$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedCharWithObjTag ret) {
+        ret.val = unsafe.getChar(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 2);
+        return ret;
+    }
+
+    public static void putShort$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, short val, Taint valTaint) {
+        unsafe.putShort(address, val);
+        putOffHeapTag(address, 2, valTaint);
+    }
+
+    public static TaintedShortWithObjTag getShort$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedShortWithObjTag ret) {
+        ret.val = unsafe.getShort(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 2);
+        return ret;
+    }
+
+    public static void putInt$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, int val, Taint valTaint) {
+        unsafe.putInt(address, val);
+        putOffHeapTag(address, 4, valTaint);
+    }
+
+    public static TaintedIntWithObjTag getInt$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedIntWithObjTag ret) {
+        ret.val = unsafe.getInt(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 4);
+        return ret;
+    }
+
+    public static void putFloat$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, float val, Taint valTaint) {
+        unsafe.putFloat(address, val);
+        putOffHeapTag(address, 4, valTaint);
+    }
+
+    public static TaintedFloatWithObjTag getFloat$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedFloatWithObjTag ret) {
+        ret.val = unsafe.getFloat(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 4);
+        return ret;
+    }
+
+    public static void putLong$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, long val, Taint valTaint) {
+        unsafe.putLong(address, val);
+        putOffHeapTag(address, 8, valTaint);
+    }
+
+    public static TaintedLongWithObjTag getLong$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedLongWithObjTag ret) {
+        ret.val = unsafe.getLong(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 8);
+        return ret;
+    }
+
+    public static void putDouble$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, double val, Taint valTaint) {
+        unsafe.putDouble(address, val);
+        putOffHeapTag(address, 8, valTaint);
+    }
+
+    public static TaintedDoubleWithObjTag getDouble$$PHOSPHORTAGGED(Unsafe unsafe, Taint unsafeTaint, long address, Taint addressTaint, TaintedDoubleWithObjTag ret) {
+        ret.val = unsafe.getDouble(address);
+        ret.taint = OFF_HEAP_TAINTS.get(address, 8);
+        return ret;
+    }
+
     private enum SpecialAccessPolicy {
         VOLATILE,
         ORDERED,
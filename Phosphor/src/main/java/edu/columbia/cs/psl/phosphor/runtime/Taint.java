@@ -12,8 +12,6 @@ import static edu.columbia.cs.psl.phosphor.instrumenter.TaintMethodRecord.*;
 
 public abstract class Taint<T> implements Serializable {
 
-    // Singleton instance of PowerSetTree used to create new SetNodes
-    private static PowerSetTree setTree = PowerSetTree.getInstance();
     public static boolean IGNORE_TAINTING = false;
 
     @SuppressWarnings("unused")
@@ -26,7 +24,7 @@ public abstract class Taint<T> implements Serializable {
     /* Constructs a new taint object whose label set is the union of the label sets of this and the specified taint object. */
     public abstract Taint<T> union(Taint<T> other);
 
-    /* Returns an array containing this taint's labels or label indices if the BitSet representation is used. */
+    /* Returns an array containing this taint's labels. */
     public abstract Object[] getLabels();
 
     @SuppressWarnings("unused")
@@ -38,7 +36,16 @@ public abstract class Taint<T> implements Serializable {
 
     @SuppressWarnings("unchecked")
     public static <T> Taint<T> withLabel(T label) {
-        return setTree.makeSingletonSet(label);
+        if(Configuration.BIT_SET_TAINT_CAPACITY > 0 && LabelEpoch.getCurrent() == null) {
+            Taint<T> bitSetTaint = BitSetTaint.withLabel(label);
+            if(bitSetTaint != null) {
+                return bitSetTaint;
+            }
+        }
+        if(Configuration.INLINE_SMALL_TAINTS) {
+            return PowerSetTree.getInstance().makeInlineSingletonSet(label);
+        }
+        return PowerSetTree.getInstance().makeSingletonSet(label);
     }
 
     @SuppressWarnings("unused")
@@ -50,11 +57,11 @@ public abstract class Taint<T> implements Serializable {
 
     @SuppressWarnings("unchecked")
     public static <E> Taint<E> emptyTaint() {
-        return (Taint<E>) setTree.emptySet();
+        return (Taint<E>) PowerSetTree.getInstance().emptySet();
     }
 
-    /* Returns an array containing this taint's labels or label indices if the BitSet representation is used. The runtime
-     * type of the returned array is that of the specified array. */
+    /* Returns an array containing this taint's labels. The runtime type of the returned array is that of the specified
+     * array. */
     @SuppressWarnings("unchecked")
     public T[] getLabels(T[] arr) {
         Object[] labels = getLabels();
@@ -156,6 +163,9 @@ public abstract class Taint<T> implements Serializable {
 
     @InvokedViaInstrumentation(record = COMBINE_TAGS)
     public static <T> Taint<T> combineTags(Taint<T> t1, Taint<T> t2) {
+        if(Configuration.TAINT_STATISTICS) {
+            TaintStatistics.recordCombineTags();
+        }
         if(t1 == Taint.emptyTaint() && t2 == Taint.emptyTaint()) {
             return Taint.emptyTaint();
         } else if(t2 == null || t2.isEmpty()) {
@@ -165,6 +175,9 @@ public abstract class Taint<T> implements Serializable {
         } else if(t1.equals(t2) || IGNORE_TAINTING) {
             return t1;
         } else {
+            if(Configuration.TAINT_STATISTICS) {
+                TaintStatistics.recordCombineTagsUnion();
+            }
             Taint<T> r = t1.union(t2);
             if(Configuration.derivedTaintListener != null) {
                 Configuration.derivedTaintListener.doubleDepCreated(t1, t2, r);
@@ -201,18 +214,7 @@ public abstract class Taint<T> implements Serializable {
         if(taints == null) {
             return null;
         } else {
-            // SetNode representation is being used
-            PowerSetTree.SetNode result = setTree.emptySet();
-            // The last label set union'd into result's label set
-            PowerSetTree.SetNode prevLabelSet = setTree.emptySet();
-            for(Taint taint : taints) {
-                PowerSetTree.SetNode node = (PowerSetTree.SetNode) taint;
-                if(node != null && node != prevLabelSet) {
-                    result = result.union(node);
-                    prevLabelSet = node;
-                }
-            }
-            return result;
+            return TaintArrayMerger.merge(taints);
         }
     }
 
@@ -241,19 +243,22 @@ public abstract class Taint<T> implements Serializable {
             str.valuePHOSPHOR_WRAPPER = new LazyCharArrayObjTags(str.value);
             tags = str.valuePHOSPHOR_WRAPPER;
         }
-        if (tags.taints == null) {
-            tags.taints = new Taint[str.length()];
+        if(!tags.hasTaints() || tags.getUniformTaint() != null) {
+            tags.setTaints(combineTags(tags.getUniformTaint(), ctrl));
+            return;
         }
+        Taint[] taints = tags.getDenseTaints();
         // SetNode representation is being used
         Taint originalPreviousTaint = null;
-        for(int i = 0; i < tags.taints.length; i++) {
-            if(originalPreviousTaint != null && originalPreviousTaint.equals(tags.taints[i])) {
-                tags.taints[i] = tags.taints[i - 1];
+        for(int i = 0; i < taints.length; i++) {
+            if(originalPreviousTaint != null && originalPreviousTaint.equals(taints[i])) {
+                taints[i] = taints[i - 1];
             } else {
-                originalPreviousTaint = tags.taints[i];
-                tags.taints[i] = combineTags(tags.taints[i], ctrl);
+                originalPreviousTaint = taints[i];
+                taints[i] = combineTags(taints[i], ctrl);
             }
         }
+        tags.taintsChanged();
     }
 
     public static boolean isEmpty(Taint in) {
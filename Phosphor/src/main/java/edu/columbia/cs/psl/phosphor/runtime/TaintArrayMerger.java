@@ -0,0 +1,156 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/* Computes the union of the label sets of the taint tags in an array. Large arrays of tags typically contain a small
+ * number of distinct tags each of which is repeated many times, for example the tags of the bytes of a buffer read from a
+ * handful of tainted sources. The distinct tags of each range of the array are collected by identity before any unions
+ * are performed and are then combined pairwise as a balanced tree of unions rather than being folded into a single
+ * accumulating set. Arrays longer than Configuration.PARALLEL_TAINT_MERGE_THRESHOLD are split into ranges of that length
+ * that are merged in parallel using the common fork-join pool. Parallel merging is off by default. */
+final class TaintArrayMerger {
+
+    // The initial number of slots in the tables used to collect distinct tags, must be a power of two
+    private static final int INITIAL_CAPACITY = 16;
+
+    private TaintArrayMerger() {
+        // Prevents this class from being instantiated
+    }
+
+    /* Returns a taint tag whose label set is the union of the label sets of the non-null tags in the specified array. */
+    static <T> Taint<T> merge(Taint<T>[] taints) {
+        int threshold = Configuration.PARALLEL_TAINT_MERGE_THRESHOLD;
+        if(threshold > 0 && taints.length > threshold && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return merge(taints, ForkJoinPool.commonPool(), threshold);
+        }
+        return mergeRange(taints, 0, taints.length);
+    }
+
+    /* Returns a taint tag whose label set is the union of the label sets of the non-null tags in the specified array,
+     * splitting the array into ranges of at most the specified positive length that are merged in the specified pool. */
+    static <T> Taint<T> merge(Taint<T>[] taints, ForkJoinPool pool, int threshold) {
+        return pool.invoke(new MergeTask<>(taints, 0, taints.length, threshold));
+    }
+
+    /* Returns a taint tag whose label set is the union of the label sets of the non-null tags in the specified range of
+     * the specified array. */
+    private static <T> Taint<T> mergeRange(Taint<T>[] taints, int start, int end) {
+        DistinctTaints<T> distinct = new DistinctTaints<>();
+        Taint<T> prev = null;
+        for(int i = start; i < end; i++) {
+            Taint<T> taint = taints[i];
+            // Runs of the same tag are common, checking against the previous tag avoids hashing most elements
+            if(taint != null && taint != prev) {
+                distinct.add(taint);
+                prev = taint;
+            }
+        }
+        return distinct.size == 0 ? Taint.<T>emptyTaint() : unionAll(distinct.elements, 0, distinct.size);
+    }
+
+    /* Returns the union of the tags in the specified non-empty range of the specified array. Unions are performed as a
+     * balanced tree so that each label is copied into a larger set only a logarithmic number of times. */
+    private static <T> Taint<T> unionAll(Taint<T>[] taints, int start, int end) {
+        if(end - start == 1) {
+            return taints[start];
+        }
+        int mid = (start + end) >>> 1;
+        return union(unionAll(taints, start, mid), unionAll(taints, mid, end));
+    }
+
+    private static <T> Taint<T> union(Taint<T> t1, Taint<T> t2) {
+        return t1.isEmpty() ? t2 : t1.union(t2);
+    }
+
+    /* Merges a range of an array of tags by splitting it in half until the length of the range is at most a threshold. */
+    private static final class MergeTask<T> extends RecursiveTask<Taint<T>> {
+
+        private static final long serialVersionUID = -3106584532843546391L;
+        private final Taint<T>[] taints;
+        private final int start;
+        private final int end;
+        // The maximum length of a range that is merged without being split
+        private final int threshold;
+
+        MergeTask(Taint<T>[] taints, int start, int end, int threshold) {
+            this.taints = taints;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Taint<T> compute() {
+            if(end - start <= threshold) {
+                return mergeRange(taints, start, end);
+            }
+            int mid = (start + end) >>> 1;
+            MergeTask<T> left = new MergeTask<>(taints, start, mid, threshold);
+            left.fork();
+            Taint<T> right = new MergeTask<>(taints, mid, end, threshold).compute();
+            return union(left.join(), right);
+        }
+    }
+
+    /* Insertion-ordered set of non-empty tags that compares tags by identity. */
+    private static final class DistinctTaints<T> {
+
+        // Open-addressing table of the tags in this set, its length is a power of two
+        private Taint<T>[] table;
+        // The tags in this set in the order in which they were added
+        private Taint<T>[] elements;
+        // The number of tags in this set
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        DistinctTaints() {
+            table = new Taint[INITIAL_CAPACITY];
+            elements = new Taint[INITIAL_CAPACITY >> 1];
+        }
+
+        /* Adds the specified tag to this set if it is not empty and is not already in this set. */
+        void add(Taint<T> taint) {
+            int mask = table.length - 1;
+            int i = spread(System.identityHashCode(taint)) & mask;
+            for(Taint<T> t = table[i]; t != null; t = table[i]) {
+                if(t == taint) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            if(taint.isEmpty()) {
+                return;
+            }
+            table[i] = taint;
+            elements[size++] = taint;
+            if(size == elements.length) {
+                grow();
+            }
+        }
+
+        /* Doubles the capacity of this set. Keeps the load factor of the table at most one half. */
+        @SuppressWarnings("unchecked")
+        private void grow() {
+            Taint<T>[] newElements = new Taint[elements.length << 1];
+            System.arraycopy(elements, 0, newElements, 0, size);
+            elements = newElements;
+            table = new Taint[table.length << 1];
+            int mask = table.length - 1;
+            for(int j = 0; j < size; j++) {
+                int i = spread(System.identityHashCode(elements[j])) & mask;
+                while(table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = elements[j];
+            }
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -35,15 +35,20 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
     public void combineTaintsOnArray(Object inputArray, Taint tag) {
         if(inputArray instanceof LazyArrayObjTags) {
             LazyArrayObjTags array = ((LazyArrayObjTags) inputArray);
-            if(array.taints == null) {
-                array.taints = new Taint[array.getLength()];
-            }
-            for(int i = 0; i < array.getLength(); i++) {
-                if(array.taints[i] == null) {
-                    array.taints[i] = tag;
-                } else {
-                    array.taints[i] = array.taints[i].union(tag);
+            if(!array.hasTaints()) {
+                array.setTaints(tag);
+            } else if(array.getUniformTaint() != null) {
+                array.setTaints(array.getUniformTaint().union(tag));
+            } else {
+                Taint[] taints = array.getDenseTaints();
+                for(int i = 0; i < taints.length; i++) {
+                    if(taints[i] == null) {
+                        taints[i] = tag;
+                    } else {
+                        taints[i] = taints[i].union(tag);
+                    }
                 }
+                array.taintsChanged();
             }
         } else if(inputArray instanceof Object[]) {
             for(int i = 0; i < ((Object[]) inputArray).length; i++) {
@@ -139,8 +144,12 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
 
     @SuppressWarnings("unchecked")
     public LazyArrayObjTags autoTaint(LazyArrayObjTags ret, Taint<? extends AutoTaintLabel> tag) {
-        Taint[] taintArray = ret.taints;
-        if(taintArray != null) {
+        if(!ret.hasTaints()) {
+            ret.setTaints(tag);
+        } else if(ret.getUniformTaint() != null) {
+            ret.setTaints(ret.getUniformTaint().union(tag));
+        } else {
+            Taint[] taintArray = ret.getDenseTaints();
             for(int i = 0; i < taintArray.length; i++) {
                 if(taintArray[i] == null) {
                     taintArray[i] = tag;
@@ -148,12 +157,12 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
                     taintArray[i] = taintArray[i].union(tag);
                 }
             }
-        } else {
-            ret.setTaints(tag);
+            ret.taintsChanged();
         }
         if(ret instanceof LazyReferenceArrayObjTags) {
-            for(Object o : ((LazyReferenceArrayObjTags) ret).val) {
-                autoTaint(o, tag);
+            LazyReferenceArrayObjTags ar = (LazyReferenceArrayObjTags) ret;
+            for(int i = 0; i < ar.val.length; i++) {
+                autoTaint(ar.getBoxed(i), tag);
             }
         }
         return ret;
@@ -182,10 +191,14 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
     @SuppressWarnings("unchecked")
     public void checkTaint(Object obj, String baseSink, String actualSink) {
         if(obj instanceof String) {
-            Taint[] taints = getStringValueTaints((String) obj);
-            if(taints != null) {
+            LazyCharArrayObjTags tags = getStringValueTag((String) obj);
+            if(tags != null && tags.getUniformTaint() != null) {
+                taintViolation(tags.getUniformTaint(), obj, baseSink, actualSink);
+            } else if(tags != null && hasNonEmptyTaint(tags.getMergedTaint())) {
+                // The merged tag is cached by the String's value, so checking a String without tags is constant time
                 Set<String> reported = new HashSet<>();
-                for(Taint t : taints) {
+                for(int i = 0; i < tags.getLength(); i++) {
+                    Taint t = tags.getTaintOrEmpty(i);
                     if(t != null) {
                         String _t = new String(t.toString().getBytes());
                         if(reported.add(_t)) {
@@ -200,16 +213,21 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
             }
         } else if(obj instanceof LazyArrayObjTags) {
             LazyArrayObjTags tags = ((LazyArrayObjTags) obj);
-            if(tags.taints != null) {
-                for(Object i : tags.taints) {
-                    if(i != null) {
-                        taintViolation((Taint<T>) i, obj, baseSink, actualSink);
+            if(tags.getUniformTaint() != null) {
+                taintViolation(tags.getUniformTaint(), obj, baseSink, actualSink);
+            } else if(tags.hasTaints()) {
+                // Read the tags without getDenseTaints so that tags shared with other arrays are not copied
+                for(int i = 0; i < tags.getLength(); i++) {
+                    Taint t = tags.getTaintOrEmpty(i);
+                    if(t != null) {
+                        taintViolation((Taint<T>) t, obj, baseSink, actualSink);
                     }
                 }
             }
             if(obj instanceof LazyReferenceArrayObjTags) {
-                for(Object each : ((LazyReferenceArrayObjTags) obj).val) {
-                    checkTaint(each, baseSink, actualSink);
+                LazyReferenceArrayObjTags ar = (LazyReferenceArrayObjTags) obj;
+                for(int i = 0; i < ar.val.length; i++) {
+                    checkTaint(ar.getBoxed(i), baseSink, actualSink);
                 }
             }
         } else if(obj instanceof Object[]) {
@@ -227,6 +245,10 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
         }
     }
 
+    private static boolean hasNonEmptyTaint(Taint tag) {
+        return tag != null && !tag.isEmpty();
+    }
+
     public void taintViolation(Taint<T> tag, Object obj, String baseSink, String actualSink) {
         throw new TaintSinkError(tag, obj);
     }
@@ -256,7 +278,14 @@ public class TaintSourceWrapper<T extends AutoTaintLabel> {
         }
     }
 
+    /* Returns a tag containing the labels of the tags of the specified String's characters or null if none of its
+     * characters has a tag. The merged tag is cached by the wrapper of the String's value. */
+    public static Taint getStringValueMergedTaint(String str) {
+        LazyCharArrayObjTags tags = getStringValueTag(str);
+        return tags == null ? null : tags.getMergedTaint();
+    }
+
     public static Taint[] getStringValueTaints(String str) {
-        return getStringValueTag(str).taints;
+        return getStringValueTag(str).toTaintArray();
     }
 }
@@ -0,0 +1,152 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import edu.columbia.cs.psl.phosphor.struct.StripedCounter;
+import sun.misc.Unsafe;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/* Collects statistics about the taint tracking performed at runtime and exposes them as an MBean. Counters are only
+ * updated while Configuration.TAINT_STATISTICS is true; callers check the flag before calling the record methods of
+ * this class so that this class is not even initialized while statistics are disabled. The number of nodes of the
+ * PowerSetTree is maintained by striped counters in the tree, so reading it does not walk the tree. */
+public final class TaintStatistics implements TaintStatisticsMBean {
+
+    // The name under which the MBean is registered with the platform MBean server
+    public static final String OBJECT_NAME = "edu.columbia.cs.psl.phosphor:type=TaintStatistics";
+    private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+    // The number of bytes in the header of an array of references
+    private static final long ARRAY_BASE = UNSAFE.arrayBaseOffset(Object[].class);
+    // The number of bytes used to store each element of an array of references
+    private static final long ARRAY_SCALE = UNSAFE.arrayIndexScale(Object[].class);
+    // The number of calls to Taint.combineTags
+    private static final StripedCounter combineTagsCalls = new StripedCounter();
+    // The number of calls to Taint.combineTags that computed a union
+    private static final StripedCounter combineTagsUnions = new StripedCounter();
+    // The number of taint tag arrays allocated for LazyArrayObjTags
+    private static final StripedCounter taintArrayAllocations = new StripedCounter();
+    // The estimated number of bytes of taint tag arrays allocated for LazyArrayObjTags
+    private static final StripedCounter taintArrayBytes = new StripedCounter();
+    // The greatest depth of a control flow stack that has been recorded
+    private static volatile int maxControlFlowDepth = 0;
+    // The value of System.nanoTime when the counters were last reset
+    private static volatile long startTime = System.nanoTime();
+
+    /* Registers an instance of this class with the platform MBean server. Prints a warning if the MBean could not be
+     * registered. */
+    public static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new TaintStatistics(), new ObjectName(OBJECT_NAME));
+        } catch(Exception e) {
+            System.err.println("Failed to register Phosphor taint statistics MBean: " + e);
+        }
+    }
+
+    /* Records a call to Taint.combineTags. */
+    public static void recordCombineTags() {
+        combineTagsCalls.increment();
+    }
+
+    /* Records a call to Taint.combineTags that computed the union of two distinct non-empty tags. */
+    public static void recordCombineTagsUnion() {
+        combineTagsUnions.increment();
+    }
+
+    /* Records the allocation of an array of taint tags with the specified length. */
+    public static void recordTaintArrayAllocation(int length) {
+        taintArrayAllocations.increment();
+        // Objects are aligned to eight bytes
+        taintArrayBytes.add((ARRAY_BASE + length * ARRAY_SCALE + 7) & ~7L);
+    }
+
+    /* Records that a control flow stack reached the specified depth. */
+    public static void recordControlFlowDepth(int depth) {
+        if(depth > maxControlFlowDepth) {
+            synchronized(TaintStatistics.class) {
+                if(depth > maxControlFlowDepth) {
+                    maxControlFlowDepth = depth;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Configuration.TAINT_STATISTICS;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        Configuration.TAINT_STATISTICS = enabled;
+    }
+
+    @Override
+    public long getTreeNodeCount() {
+        return PowerSetTree.getInstance().getNodeCount();
+    }
+
+    @Override
+    public long getTreeRankCount() {
+        return PowerSetTree.getInstance().getRankCount();
+    }
+
+    @Override
+    public long getCombineTagsCount() {
+        return combineTagsCalls.sum();
+    }
+
+    @Override
+    public long getCombineTagsUnionCount() {
+        return combineTagsUnions.sum();
+    }
+
+    @Override
+    public double getCombineTagsRate() {
+        return perSecond(combineTagsCalls.sum());
+    }
+
+    @Override
+    public double getCombineTagsUnionRate() {
+        return perSecond(combineTagsUnions.sum());
+    }
+
+    @Override
+    public long getTaintArrayAllocationCount() {
+        return taintArrayAllocations.sum();
+    }
+
+    @Override
+    public long getTaintArrayAllocationBytes() {
+        return taintArrayBytes.sum();
+    }
+
+    @Override
+    public int getBoxedPrimitiveTagCount() {
+        return BoxedPrimitiveStoreWithObjTags.tags.approximateSize();
+    }
+
+    @Override
+    public int getControlFlowStackMaxDepth() {
+        return maxControlFlowDepth;
+    }
+
+    @Override
+    public void reset() {
+        synchronized(TaintStatistics.class) {
+            combineTagsCalls.reset();
+            combineTagsUnions.reset();
+            taintArrayAllocations.reset();
+            taintArrayBytes.reset();
+            maxControlFlowDepth = 0;
+            startTime = System.nanoTime();
+        }
+    }
+
+    /* Returns the average number of events per second since the counters were last reset given the number of events. */
+    private static double perSecond(long count) {
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0 ? 0 : count * 1e9 / elapsed;
+    }
+}
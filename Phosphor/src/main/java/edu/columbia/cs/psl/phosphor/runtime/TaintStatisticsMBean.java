@@ -0,0 +1,48 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+/* Management interface for the statistics reported by TaintStatistics. */
+public interface TaintStatisticsMBean {
+
+    /* Returns whether statistics for combineTags calls, taint array allocations and control flow depths are being
+     * collected. */
+    boolean isEnabled();
+
+    /* Enables or disables the collection of statistics for combineTags calls, taint array allocations and control flow
+     * depths. */
+    void setEnabled(boolean enabled);
+
+    /* Returns the number of nodes added to the PowerSetTree minus the number of nodes reclaimed from it while statistics
+     * were enabled. */
+    long getTreeNodeCount();
+
+    /* Returns the number of labels that have been assigned a rank by the PowerSetTree. */
+    long getTreeRankCount();
+
+    /* Returns the number of calls to Taint.combineTags. */
+    long getCombineTagsCount();
+
+    /* Returns the number of calls to Taint.combineTags that computed the union of two distinct non-empty tags. */
+    long getCombineTagsUnionCount();
+
+    /* Returns the average number of calls to Taint.combineTags per second since the statistics were last reset. */
+    double getCombineTagsRate();
+
+    /* Returns the average number of calls to Taint.combineTags that computed a union per second since the statistics
+     * were last reset. */
+    double getCombineTagsUnionRate();
+
+    /* Returns the number of arrays of taint tags allocated for LazyArrayObjTags. */
+    long getTaintArrayAllocationCount();
+
+    /* Returns the estimated number of bytes of arrays of taint tags allocated for LazyArrayObjTags. */
+    long getTaintArrayAllocationBytes();
+
+    /* Returns the number of boxed primitives whose tags are stored by BoxedPrimitiveStoreWithObjTags. */
+    int getBoxedPrimitiveTagCount();
+
+    /* Returns the greatest number of taint tags that were on a single control flow stack at the same time. */
+    int getControlFlowStackMaxDepth();
+
+    /* Sets the values of the counters to zero. */
+    void reset();
+}
@@ -0,0 +1,36 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+
+/* Provides Phosphor's internal data structures with access to sun.misc.Unsafe so that they can perform atomic operations
+ * without calling into (potentially instrumented) classes from java.util.concurrent. */
+public final class UnsafeUtils {
+
+    private static final Unsafe UNSAFE = findUnsafe();
+
+    private UnsafeUtils() {
+        // Prevents this class from being instantiated
+    }
+
+    /* Returns the Unsafe instance. */
+    public static Unsafe getUnsafe() {
+        return UNSAFE;
+    }
+
+    private static Unsafe findUnsafe() {
+        try {
+            return Unsafe.getUnsafe();
+        } catch(SecurityException e) {
+            // Phosphor was not loaded by the bootstrap class loader (e.g., in unit tests)
+            try {
+                Field f = Unsafe.class.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                return (Unsafe) f.get(null);
+            } catch(ReflectiveOperationException e2) {
+                throw new Error(e2);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+
+/* Stores the tags of memory outside of the Java heap, which is accessed by absolute address, as runs of addresses that
+ * share a tag (see TaintRuns). Addresses not covered by any run do not have a tag. The number of runs is not limited.
+ *
+ * The size of each block of memory allocated through Unsafe is recorded so that the tags of a block can be removed when
+ * the block is freed, which for a direct buffer happens when the buffer's cleaner runs. The tags of a newly allocated
+ * block are also removed so that a block never inherits the tags of an earlier block at the same address. The sizes
+ * are recorded in a table of primitives that has its own lock, so recording an allocation neither boxes its address
+ * nor acquires the lock of the runs.
+ *
+ * The runs are modified only while holding the lock of this object, but they can be read by get without holding the lock
+ * while they are being modified. A fill that would not change the tag of any byte, such as clearing the tags of bytes
+ * that have none, returns without acquiring the lock. */
+public final class AddressTaintMap extends TaintRuns {
+
+    // The initial number of runs that can be stored without growing the arrays of runs
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The size in bytes of each block of memory that was allocated and not yet freed, keyed by the block's address
+    private final Allocations allocations = new Allocations();
+
+    public AddressTaintMap() {
+        super(Integer.MAX_VALUE, INITIAL_CAPACITY);
+    }
+
+    /* Returns the number of runs. */
+    public int size() {
+        return size;
+    }
+
+    /* Returns a tag containing the labels of the tags of the bytes in the range [address, address + length) or the
+     * empty tag if none of those bytes has a tag. Does not acquire the lock of this object unless the runs are modified
+     * while they are being read. */
+    public Taint get(long address, long length) {
+        Taint tag = read(address, address + length);
+        return tag == null ? Taint.emptyTaint() : tag;
+    }
+
+    /* Sets the tags of the bytes in the range [start, end) to the specified tag. A null or empty tag removes the tags of
+     * the bytes in the range. Only acquires the lock of this object if the tag of some byte in the range changes. */
+    public void fill(long start, long end, Taint tag) {
+        if(start >= end) {
+            return;
+        }
+        if(tag != null && tag.isEmpty()) {
+            tag = null;
+        }
+        if(isUniform(start, end, tag)) {
+            return;
+        }
+        synchronized(this) {
+            fillRange(start, end, tag);
+        }
+    }
+
+    /* Gives the bytes in the range [dest, dest + length) the tags that the bytes in the range [src, src + length) had
+     * before the call. The ranges may overlap. */
+    public synchronized void copy(long src, long dest, long length) {
+        if(length <= 0 || src == dest) {
+            return;
+        }
+        long srcEnd = src + length;
+        int first = firstRunEndingAfter(src);
+        int count = 0;
+        while(first + count < size && starts[first + count] < srcEnd) {
+            count++;
+        }
+        long[] copiedStarts = new long[count];
+        long[] copiedEnds = new long[count];
+        Taint[] copiedTags = new Taint[count];
+        for(int i = 0; i < count; i++) {
+            copiedStarts[i] = Math.max(starts[first + i], src) - src + dest;
+            copiedEnds[i] = Math.min(ends[first + i], srcEnd) - src + dest;
+            copiedTags[i] = tags[first + i];
+        }
+        fill(dest, dest + length, null);
+        for(int i = 0; i < count; i++) {
+            fill(copiedStarts[i], copiedEnds[i], copiedTags[i]);
+        }
+    }
+
+    /* Gives each of the count elements of the specified array starting at index destIndex the tag of the width bytes
+     * starting at the address of the element's position in the range [address, address + count * width). An element
+     * that covers bytes with different tags gets a tag containing the labels of all of their tags. */
+    public synchronized void copyToArray(long address, LazyArrayObjTags dest, int destIndex, int count, int width) {
+        long end = address + (long) count * width;
+        dest.fillTaint(destIndex, destIndex + count, null);
+        for(int i = firstRunEndingAfter(address); i < size && starts[i] < end; i++) {
+            long runStart = Math.max(starts[i], address) - address;
+            long runEnd = Math.min(ends[i], end) - address;
+            int from = (int) (runStart / width);
+            int to = (int) ((runEnd + width - 1) / width);
+            dest.fillTaint(destIndex + from, destIndex + to, tags[i]);
+            // Elements covering a boundary of the run may also cover bytes of other runs
+            if(runStart % width != 0) {
+                dest.setTaint(destIndex + from, orEmpty(find(address + (long) from * width, address + (long) (from + 1) * width)));
+            }
+            if(runEnd % width != 0) {
+                dest.setTaint(destIndex + to - 1, orEmpty(find(address + (long) (to - 1) * width, address + (long) to * width)));
+            }
+        }
+    }
+
+    /* Gives the width bytes at each element's position in the range [address, address + count * width) the tag of the
+     * corresponding one of the count elements of the specified array starting at index srcIndex. */
+    public synchronized void copyFromArray(LazyArrayObjTags src, int srcIndex, int count, int width, long address) {
+        long end = address + (long) count * width;
+        fill(address, end, null);
+        if(count <= 0 || !src.hasTaints()) {
+            return;
+        }
+        Taint uniform = src.getUniformTaint();
+        if(uniform != null) {
+            fill(address, end, uniform);
+            return;
+        }
+        int runStart = 0;
+        Taint runTag = src.getTaintOrEmpty(srcIndex);
+        for(int i = 1; i <= count; i++) {
+            Taint tag = i < count ? src.getTaintOrEmpty(srcIndex + i) : null;
+            if(i == count || tag != runTag) {
+                fill(address + (long) runStart * width, address + (long) i * width, runTag);
+                runStart = i;
+                runTag = tag;
+            }
+        }
+    }
+
+    /* Records that a block of the specified number of bytes was allocated at the specified address and removes any tags
+     * left in its range by memory that was previously at that address. */
+    public void allocated(long address, long bytes) {
+        if(address != 0) {
+            fill(address, address + bytes, null);
+            allocations.put(address, bytes);
+        }
+    }
+
+    /* Records that the block at the specified old address was resized to the specified number of bytes and moved to the
+     * specified address, moving the tags of the block with it. */
+    public synchronized void reallocated(long oldAddress, long address, long bytes) {
+        long oldBytes = oldAddress == 0 ? -1 : allocations.remove(oldAddress);
+        long kept = oldBytes == -1 ? 0 : Math.min(oldBytes, bytes);
+        if(oldBytes != -1 && oldAddress != address) {
+            copy(oldAddress, address, kept);
+            fill(oldAddress, oldAddress + oldBytes, null);
+        } else if(oldBytes != -1 && oldBytes > bytes) {
+            fill(address + bytes, address + oldBytes, null);
+        }
+        if(address != 0) {
+            fill(address + kept, address + bytes, null);
+            allocations.put(address, bytes);
+        }
+    }
+
+    /* Records that the block at the specified address was freed and removes the tags of its bytes. Does nothing if the
+     * block was not allocated through Unsafe while this map was recording allocations. */
+    public void freed(long address) {
+        long bytes = allocations.remove(address);
+        if(bytes != -1) {
+            fill(address, address + bytes, null);
+        }
+    }
+
+    private static Taint orEmpty(Taint tag) {
+        return tag == null ? Taint.emptyTaint() : tag;
+    }
+
+    /* Maps the addresses of allocated blocks to their sizes in an open-addressing hash table of primitives. Address zero
+     * marks an empty slot, which is never the address of an allocated block. */
+    private static final class Allocations {
+        // The initial number of slots, a power of two
+        private static final int INITIAL_CAPACITY = 64;
+
+        // The address of the block in each slot or zero if the slot is empty
+        private long[] addresses = new long[INITIAL_CAPACITY];
+        // The size in bytes of the block in each slot
+        private long[] sizes = new long[INITIAL_CAPACITY];
+        // The number of blocks
+        private int count;
+
+        /* Records the size of the block at the specified non-zero address. */
+        synchronized void put(long address, long bytes) {
+            int i = slotOf(addresses, address);
+            sizes[i] = bytes;
+            if(addresses[i] == 0) {
+                addresses[i] = address;
+                if(++count << 1 > addresses.length) {
+                    rehash(addresses.length << 1);
+                }
+            }
+        }
+
+        /* Removes the block at the specified address and returns its size or -1 if there is no such block. Entries after
+         * the removed one are shifted back into its slot so that no probe sequence is broken. */
+        synchronized long remove(long address) {
+            if(address == 0) {
+                return -1;
+            }
+            int i = slotOf(addresses, address);
+            if(addresses[i] == 0) {
+                return -1;
+            }
+            long bytes = sizes[i];
+            int mask = addresses.length - 1;
+            int hole = i;
+            for(int j = (i + 1) & mask; addresses[j] != 0; j = (j + 1) & mask) {
+                int home = hash(addresses[j]) & mask;
+                if(((j - home) & mask) >= ((j - hole) & mask)) {
+                    addresses[hole] = addresses[j];
+                    sizes[hole] = sizes[j];
+                    hole = j;
+                }
+            }
+            addresses[hole] = 0;
+            count--;
+            return bytes;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldAddresses = addresses;
+            long[] oldSizes = sizes;
+            addresses = new long[capacity];
+            sizes = new long[capacity];
+            for(int i = 0; i < oldAddresses.length; i++) {
+                if(oldAddresses[i] != 0) {
+                    int j = slotOf(addresses, oldAddresses[i]);
+                    addresses[j] = oldAddresses[i];
+                    sizes[j] = oldSizes[i];
+                }
+            }
+        }
+
+        /* Returns the slot of the specified table that holds the specified address or the empty slot at which it would
+         * be inserted. */
+        private static int slotOf(long[] addresses, long address) {
+            int mask = addresses.length - 1;
+            int i = hash(address) & mask;
+            while(addresses[i] != 0 && addresses[i] != address) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private static int hash(long address) {
+            return TaintDictionary.spread((int) (address ^ (address >>> 32)));
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/* Represents a set of labels as a BitSet over a bounded universe of labels. Each distinct label is assigned a dense index
+ * the first time that it is used to create a taint, so that unions and superset checks operate on whole words of bits.
+ * BitSetTaints are immutable; like InlineSets they are not unique, two BitSetTaints representing the same set are equal
+ * with respect to the equals method but not necessarily referentially equal.
+ *
+ * Once every index of the universe has been assigned, labels without an index are represented by the PowerSetTree instead.
+ * Operations that combine a BitSetTaint with a set from the tree move the BitSetTaint's labels into the tree. */
+public final class BitSetTaint extends Taint {
+
+    private static final long serialVersionUID = 2890447281617392064L;
+    // The index currently used to assign label indices, null until the first BitSetTaint is created
+    private static volatile LabelIndex currentIndex = null;
+
+    // The index used to assign indices to this set's labels
+    private transient LabelIndex index;
+    // The indices of the labels in this set, never modified after construction
+    private transient BitSet bits;
+    // Used during deserialization to hold the set that should replace the deserialized instance
+    private transient Taint resolved;
+
+    private BitSetTaint(LabelIndex index, BitSet bits) {
+        this.index = index;
+        this.bits = bits;
+    }
+
+    /* Returns a BitSetTaint representing the set containing only the specified label or null if the specified label is
+     * null or no index is available for it. */
+    public static BitSetTaint withLabel(Object label) {
+        if(label == null) {
+            return null;
+        }
+        LabelIndex labelIndex = getLabelIndex();
+        return labelIndex == null ? null : labelIndex.getSingleton(label);
+    }
+
+    /* Returns the index used to assign indices to labels of new BitSetTaints or null if BitSetTaints are disabled. */
+    private static LabelIndex getLabelIndex() {
+        LabelIndex labelIndex = currentIndex;
+        int capacity = Configuration.BIT_SET_TAINT_CAPACITY;
+        if(labelIndex != null && labelIndex.capacity == capacity) {
+            return labelIndex;
+        } else if(capacity <= 0) {
+            return null;
+        }
+        synchronized(BitSetTaint.class) {
+            if(currentIndex == null || currentIndex.capacity != capacity) {
+                if(currentIndex != null) {
+                    currentIndex.retired = true;
+                }
+                currentIndex = new LabelIndex(capacity);
+            }
+            return currentIndex;
+        }
+    }
+
+    /* Discards all label indices. BitSetTaints created before this method is called become quasi-empty sets. */
+    public static synchronized void resetLabels() {
+        if(currentIndex != null) {
+            currentIndex.retired = true;
+            currentIndex = null;
+        }
+    }
+
+    /* Returns whether this set's label indices were discarded. */
+    @Override
+    public boolean isEmpty() {
+        return index.retired;
+    }
+
+    /* Returns the number of labels in this set. */
+    public int size() {
+        return isEmpty() ? 0 : bits.size();
+    }
+
+    @Override
+    public boolean containsLabel(Object label) {
+        if(label == null) {
+            return true;
+        } else if(isEmpty()) {
+            return false;
+        }
+        int i = index.indexOf(label);
+        return i >= 0 && bits.contains(i);
+    }
+
+    @Override
+    public boolean containsOnlyLabels(Object[] labels) {
+        if(labels.length != size()) {
+            return false;
+        }
+        for(Object label : labels) {
+            if(!containsLabel(label)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object[] getLabels() {
+        if(isEmpty()) {
+            return new Object[0];
+        }
+        return toList().toArray();
+    }
+
+    /* Returns a set that represents the union of this set with the specified other set. Does not change the elements
+     * contained by either original set. */
+    @Override
+    public Taint union(Taint other) {
+        if(isEmpty()) {
+            return other == null || other.isEmpty() ? PowerSetTree.getInstance().emptySet() : other;
+        } else if(other == null || other == this || other.isEmpty()) {
+            return this;
+        } else if(other instanceof BitSetTaint && ((BitSetTaint) other).index == index) {
+            BitSetTaint o = (BitSetTaint) other;
+            if(bits.isSuperset(o.bits)) {
+                return this;
+            } else if(o.bits.isSuperset(bits)) {
+                return o;
+            }
+            return new BitSetTaint(index, BitSet.union(bits, o.bits));
+        } else {
+            return toSetNode().union(other);
+        }
+    }
+
+    @Override
+    public boolean isSuperset(Taint other) {
+        if(other == null || other.isEmpty()) {
+            return true;
+        } else if(isEmpty()) {
+            return false;
+        } else if(other instanceof BitSetTaint && ((BitSetTaint) other).index == index) {
+            return bits.isSuperset(((BitSetTaint) other).bits);
+        }
+        for(Object label : other.getLabels()) {
+            if(!containsLabel(label)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Returns the node of the PowerSetTree that represents the same set as this set. */
+    public PowerSetTree.SetNode toSetNode() {
+        PowerSetTree.SetNode result = PowerSetTree.getInstance().emptySet();
+        if(!isEmpty()) {
+            for(Object label : toList()) {
+                // Labels represented by BitSetTaints do not belong to epochs
+                result = result.add(label, null);
+            }
+        }
+        return result;
+    }
+
+    /* Returns a list containing the labels in this set in increasing order of index. */
+    public SinglyLinkedList<Object> toList() {
+        SinglyLinkedList<Object> list = new SinglyLinkedList<>();
+        if(!isEmpty()) {
+            IntSinglyLinkedList indices = bits.toList();
+            while(!indices.isEmpty()) {
+                list.enqueue(index.getLabel(indices.dequeue()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        return "Taint [Labels = [" + toList() + "]";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        } else if(!(o instanceof BitSetTaint)) {
+            return false;
+        }
+        BitSetTaint other = (BitSetTaint) o;
+        return index == other.index && bits.equals(other.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return bits.hashCode();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        SinglyLinkedList<Object> labels = (SinglyLinkedList<Object>) in.readObject();
+        Taint ret = Taint.emptyTaint();
+        for(Object o : labels) {
+            ret = Taint.combineTags(ret, Taint.withLabel(o));
+        }
+        this.resolved = ret;
+    }
+
+    private Object readResolve() {
+        return this.resolved;
+    }
+
+    /* Assigns dense indices to up to a fixed number of distinct labels. Labels are compared using the equals method.
+     * Lookups of labels and indices do not lock: the slots of the table and of the array of labels are only written while
+     * holding this index's monitor and are read and written as volatile. */
+    private static final class LabelIndex {
+
+        private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+        private static final long ARRAY_BASE = UNSAFE.arrayBaseOffset(Object[].class);
+        private static final int ARRAY_SHIFT = 31 - Integer.numberOfLeadingZeros(UNSAFE.arrayIndexScale(Object[].class));
+
+        // The maximum number of labels that can be assigned an index
+        private final int capacity;
+        // Open-addressing table of the labels that have been assigned indices, its length is a power of two at least
+        // twice the capacity
+        private final Entry[] table;
+        // The labels that have been assigned indices, the label at some position was assigned that position as its index
+        private final Object[] labels;
+        // The number of labels that have been assigned an index
+        private int size;
+        // Whether this index has been discarded
+        private volatile boolean retired;
+
+        private LabelIndex(int capacity) {
+            this.capacity = capacity;
+            this.table = new Entry[Integer.highestOneBit(capacity) << 2];
+            this.labels = new Object[capacity];
+        }
+
+        private static Object getVolatile(Object[] array, int i) {
+            return UNSAFE.getObjectVolatile(array, ARRAY_BASE + ((long) i << ARRAY_SHIFT));
+        }
+
+        private static void putVolatile(Object[] array, int i, Object value) {
+            UNSAFE.putObjectVolatile(array, ARRAY_BASE + ((long) i << ARRAY_SHIFT), value);
+        }
+
+        /* Returns the entry for the specified label or null if the label has not been assigned an index. */
+        private Entry getEntry(Object label) {
+            int mask = table.length - 1;
+            for(int i = spread(label.hashCode()) & mask; ; i = (i + 1) & mask) {
+                Entry entry = (Entry) getVolatile(table, i);
+                if(entry == null) {
+                    return null;
+                } else if(entry.label.equals(label)) {
+                    return entry;
+                }
+            }
+        }
+
+        /* Returns the index assigned to the specified label or -1 if the label has not been assigned an index. */
+        private int indexOf(Object label) {
+            Entry entry = getEntry(label);
+            return entry == null ? -1 : entry.index;
+        }
+
+        /* Returns the singleton set for the specified label, assigning the label an index if necessary. Returns null if
+         * the label does not have an index and all indices have been assigned. */
+        private BitSetTaint getSingleton(Object label) {
+            Entry entry = getEntry(label);
+            if(entry == null) {
+                entry = assignIndex(label);
+            }
+            return entry == null ? null : entry.singleton;
+        }
+
+        private synchronized Entry assignIndex(Object label) {
+            int mask = table.length - 1;
+            int i = spread(label.hashCode()) & mask;
+            for(; table[i] != null; i = (i + 1) & mask) {
+                if(table[i].label.equals(label)) {
+                    return table[i];
+                }
+            }
+            if(size == capacity) {
+                return null;
+            }
+            BitSet bits = new BitSet(capacity);
+            bits.add(size);
+            Entry entry = new Entry(label, size, new BitSetTaint(this, bits));
+            // The label is published before its entry, so a set obtained through the entry always finds its label
+            putVolatile(labels, size, label);
+            putVolatile(table, i, entry);
+            size++;
+            return entry;
+        }
+
+        /* Returns the label assigned to the specified index. */
+        private Object getLabel(int i) {
+            return getVolatile(labels, i);
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /* Immutable record of the index assigned to a label. Fields are final so that entries read without locking are
+     * seen fully constructed. */
+    private static final class Entry {
+
+        private final Object label;
+        private final int index;
+        // The set containing only the label
+        private final BitSetTaint singleton;
+
+        private Entry(Object label, int index, BitSetTaint singleton) {
+            this.label = label;
+            this.index = index;
+            this.singleton = singleton;
+        }
+    }
+}
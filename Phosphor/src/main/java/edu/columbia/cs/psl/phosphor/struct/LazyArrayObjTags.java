@@ -1,20 +1,53 @@
 package edu.columbia.cs.psl.phosphor.struct;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.control.ControlFlowStack;
 import edu.columbia.cs.psl.phosphor.runtime.MultiTainter;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.TaintStatistics;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
 import sun.misc.Unsafe;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
+/* Stores the tags of the elements of an array. The tags can be read and written by multiple threads concurrently:
+ *   - the storage for the tags is allocated and replaced with compare-and-swap operations, so concurrent first writes to
+ *     the elements of an array agree on a single storage and do not lose one another's tags
+ *   - reads never acquire a lock, and neither do writes to a dense array of tags that is not shared with another array
+ *   - writes to encoded tags acquire the lock of the encoded storage, never the lock of this object, which may be held
+ *     by the application
+ * Writes that replace the tag of every element at once, through setTaints or a copy of every element of another array,
+ * are not atomic with respect to concurrent writes to single elements, which may be lost. */
 public abstract class LazyArrayObjTags implements Cloneable, Serializable {
 
     private static final long serialVersionUID = -2635717960621951243L;
+    // The minimum length of an array whose element tags are range-encoded instead of being stored in a dense array
+    private static final int MIN_RANGE_ENCODED_LENGTH = 64;
+    // The minimum length of an array whose element tags are dictionary-encoded instead of being stored in a dense array,
+    // below this length the dictionary uses more memory than it saves
+    private static final int MIN_DICTIONARY_ENCODED_LENGTH = 32;
+    // Written in place of the number of elements to mark element tags written in the run-encoded format, see RunEncoder
+    private static final int RUN_ENCODED = -2;
 
     public Taint[] taints;
+    // Encoded tags of this array's elements, used instead of taints. One of:
+    //   - a Taint shared by every one of this array's elements, for arrays whose elements were all tainted at once, for
+    //     example by a source
+    //   - a TaintRanges, for arrays whose elements are tainted in a few contiguous ranges
+    //   - a TaintDictionary, for arrays whose elements have few distinct tags
+    // If taints is non-null then taints holds the element tags and this field is ignored. Changes from one encoding to
+    // another replace this field with a single compare-and-swap; changes to a dense array set taints before clearing
+    // this field, so a reader that finds this field null after finding taints null reads taints again.
+    transient volatile Object encodedTaints;
+    // True if taints or the range-encoded or dictionary-encoded tags may also be referenced by another array, in which
+    // case they are copied before any of this array's element tags are changed. Once set, this flag is only cleared when
+    // this array stops referencing the shared storage. Volatile so that a write made on another thread after a clone
+    // always sees the flag set by the clone and copies the storage instead of changing the clone's tags.
+    transient volatile boolean sharedTaints;
     public Taint lengthTaint = Taint.emptyTaint();
     // Used to mark this object as visited when searching
     public int $$PHOSPHOR_MARK = Integer.MIN_VALUE;
@@ -26,6 +59,25 @@ public abstract class LazyArrayObjTags implements Cloneable, Serializable {
     public LazyArrayObjTags() {
     }
 
+    /* Returns a new array of the specified length for storing the tags of an array's elements. */
+    public static Taint[] allocateTaints(int length) {
+        if(Configuration.TAINT_STATISTICS) {
+            TaintStatistics.recordTaintArrayAllocation(length);
+        }
+        return new Taint[length];
+    }
+
+    /* Returns a copy of the specified array of element tags or null if the specified array is null. */
+    public static Taint[] cloneTaints(Taint[] taints) {
+        if(taints == null) {
+            return null;
+        }
+        if(Configuration.TAINT_STATISTICS) {
+            TaintStatistics.recordTaintArrayAllocation(taints.length);
+        }
+        return taints.clone();
+    }
+
     public abstract Object getVal();
 
     public abstract int getLength();
@@ -36,15 +88,21 @@ public abstract class LazyArrayObjTags implements Cloneable, Serializable {
 
     public void setTaints(Taint tag) {
         if(getVal() != null && getLength() != 0) {
-            if(taints == null) {
-                taints = new Taint[getLength()];
-            }
-            for(int i = 0; i < taints.length; i++) {
-                taints[i] = tag;
-            }
+            // Every element's tag is replaced, so any existing storage can be dropped
+            encodedTaints = tag == null || tag.isEmpty() ? null : tag;
+            taints = null;
+            sharedTaints = false;
+            taintsChanged();
         }
     }
 
+    /* Must be called after the tags of this array's elements are changed through the array returned by getDenseTaints
+     * or ensureDenseTaints, so that summaries of the tags cached by the array, such as the merged tag of a char array,
+     * are recomputed. Changes made through the other methods of this class call it themselves. Subclasses that cache
+     * such summaries override it to clear them. */
+    public void taintsChanged() {
+    }
+
     protected void checkAIOOB(Taint idxTaint, int idx, ControlFlowStack ctrl) {
         if(idx >= getLength()) {
             ArrayIndexOutOfBoundsException ex = new ArrayIndexOutOfBoundsException("" + idx);
@@ -98,10 +156,272 @@ public abstract class LazyArrayObjTags implements Cloneable, Serializable {
      * FOR INTERNAL USE ONLY
      **/
     public Taint getTaintOrEmpty(int idx) {
-        if(taints == null) {
-            return Taint.emptyTaint();
+        Taint[] dense = taints;
+        if(dense == null) {
+            Object encoded = encodedTaints;
+            if(encoded instanceof Taint) {
+                if(idx < 0 || idx >= getLength()) {
+                    throw new ArrayIndexOutOfBoundsException(idx);
+                }
+                return (Taint) encoded;
+            } else if(encoded instanceof TaintDictionary) {
+                return ((TaintDictionary) encoded).get(idx);
+            } else if(encoded instanceof TaintRanges) {
+                return ((TaintRanges) encoded).get(idx);
+            }
+            // The encoded tags may have been converted to a dense array after taints was read
+            dense = taints;
+            if(dense == null) {
+                return Taint.emptyTaint();
+            }
         }
-        return taints[idx];
+        return dense[idx];
+    }
+
+    /* Returns whether any element of this array may have a non-empty tag. */
+    public boolean hasTaints() {
+        return taints != null || encodedTaints != null;
+    }
+
+    /* Returns the tag shared by every element of this array if this array is known to have a single tag for all of its
+     * elements, otherwise returns null. */
+    public Taint getUniformTaint() {
+        Object encoded = encodedTaints;
+        return encoded instanceof Taint && taints == null ? (Taint) encoded : null;
+    }
+
+    /* Returns a dense array containing the tag of each element of this array, converting a uniform tag,
+     * dictionary-encoded tags or range-encoded tags to a dense array if necessary. Returns null if no element of this
+     * array has a tag. The returned array is this array's storage for element tags; code that reads or writes the tags
+     * of elements through the taints field must call this method first, and code that writes tags through the returned
+     * array must call taintsChanged afterwards. */
+    public Taint[] getDenseTaints() {
+        while(true) {
+            Taint[] dense = taints;
+            if(dense != null) {
+                if(!sharedTaints) {
+                    return dense;
+                }
+                unshareTaints(dense);
+            } else {
+                Object encoded = encodedTaints;
+                if(encoded != null) {
+                    convertToDense(encoded);
+                } else if(taints == null) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    /* Returns a new array containing the tag of each element of this array or null if no element of this array has a
+     * tag. Unlike getDenseTaints, leaves the storage for the tags of this array's elements as it is, so the returned
+     * array can be read or modified without affecting this array. */
+    public Taint[] toTaintArray() {
+        if(!hasTaints()) {
+            return null;
+        }
+        Taint[] result = new Taint[getLength()];
+        for(int i = 0; i < result.length; i++) {
+            result[i] = getTaintOrEmpty(i);
+        }
+        return result;
+    }
+
+    /* Returns a dense array containing the tag of each element of this array, converting a uniform tag,
+     * dictionary-encoded tags or range-encoded tags to a dense array or allocating a new dense array if necessary. */
+    public Taint[] ensureDenseTaints() {
+        Taint[] dense = getDenseTaints();
+        while(dense == null) {
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.TAINTS, null, allocateTaints(getLength()));
+            dense = getDenseTaints();
+        }
+        return dense;
+    }
+
+    /* Returns a tag containing the labels of the tags of all of this array's elements or null if no element of this
+     * array has a tag. */
+    public Taint getMergedTaint() {
+        Taint[] dense = taints;
+        if(dense == null) {
+            Object encoded = encodedTaints;
+            if(encoded instanceof Taint) {
+                return (Taint) encoded;
+            } else if(encoded instanceof TaintDictionary) {
+                return Taint.combineTaintArray(((TaintDictionary) encoded).getUsedTags());
+            } else if(encoded instanceof TaintRanges) {
+                return Taint.combineTaintArray(((TaintRanges) encoded).getRunTags());
+            }
+            dense = taints;
+            if(dense == null) {
+                return null;
+            }
+        }
+        return Taint.combineTaintArray(dense);
+    }
+
+    /* Returns whether the tags of the elements of an array of the specified length should be range-encoded when they are
+     * first set. */
+    private static boolean isRangeEncodable(int length) {
+        return Configuration.RANGE_ENCODED_TAINTS && length >= MIN_RANGE_ENCODED_LENGTH;
+    }
+
+    /* Returns whether the tags of the elements of an array of the specified length should be dictionary-encoded instead
+     * of being stored in a dense array. */
+    private static boolean isDictionaryEncodable(int length) {
+        return Configuration.DICTIONARY_ENCODED_TAINTS && length >= MIN_DICTIONARY_ENCODED_LENGTH;
+    }
+
+    /* Copies the tags of this array's elements to the specified array, which must have the same length as this array, and
+     * returns the specified array. */
+    protected <A extends LazyArrayObjTags> A cloneTaintsTo(A copy) {
+        ((LazyArrayObjTags) copy).shareTaintsOf(this);
+        return copy;
+    }
+
+    /* Replaces the tags of this array's elements with the tags of the elements of the specified array, which must have
+     * the same length as this array. The storage for the tags is shared by both arrays until either array changes the
+     * tag of one of its elements. */
+    private void shareTaintsOf(LazyArrayObjTags src) {
+        if(src == this) {
+            return;
+        }
+        Object encoded = src.encodedTaints;
+        Taint[] dense = src.taints;
+        boolean shared = dense != null || encoded instanceof TaintRanges || encoded instanceof TaintDictionary;
+        if(shared) {
+            src.sharedTaints = true;
+        }
+        sharedTaints = shared;
+        taints = dense;
+        encodedTaints = encoded;
+        taintsChanged();
+    }
+
+    /* Replaces the specified storage for this array's element tags, which may be shared with other arrays, with a copy
+     * that is only referenced by this array unless the storage was replaced concurrently. */
+    private void unshareTaints(Object storage) {
+        synchronized(storage) {
+            if(!sharedTaints) {
+                return;
+            }
+            boolean replaced;
+            if(storage instanceof Taint[]) {
+                Taint[] copy = cloneTaints((Taint[]) storage);
+                replaced = Fields.UNSAFE.compareAndSwapObject(this, Fields.TAINTS, storage, copy);
+            } else {
+                Object copy = storage instanceof TaintRanges ? ((TaintRanges) storage).copy()
+                        : ((TaintDictionary) storage).copy();
+                replaced = Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, storage, copy);
+            }
+            if(replaced) {
+                sharedTaints = false;
+            }
+        }
+    }
+
+    /* Copies the tags of the elements of src in the range [srcPos, srcPos + length) to the elements of dest in the range
+     * [destPos, destPos + length). The ranges must be valid indices for the arrays. The tags are copied at the level of
+     * the representations of the arrays where possible:
+     *   - a copy of every element of src to every element of dest shares the tags of src with dest instead of copying
+     *     them
+     *   - a copy from an array without tags does not allocate storage for the tags of dest if dest has no tags
+     *   - a copy from an array with a uniform tag or range-encoded tags fills ranges of dest without materializing the
+     *     tags of src
+     *   - a copy of elements whose tags are all null to an array without tags does not allocate storage for the tags of
+     *     dest
+     *   - a copy from an array with dictionary-encoded tags to an array without tags copies the codes of the elements */
+    public static void copyTaints(LazyArrayObjTags src, int srcPos, LazyArrayObjTags dest, int destPos, int length) {
+        if(length <= 0) {
+            return;
+        } else if(srcPos == 0 && destPos == 0 && length == src.getLength() && length == dest.getLength()) {
+            dest.shareTaintsOf(src);
+            return;
+        }
+        Taint[] srcTaints = src.taints;
+        Object encoded = srcTaints == null ? src.encodedTaints : null;
+        if(srcTaints == null && encoded == null) {
+            srcTaints = src.taints;
+        }
+        if(srcTaints == null && encoded == null) {
+            dest.fillTaint(destPos, destPos + length, null);
+        } else if(encoded instanceof Taint) {
+            dest.fillTaint(destPos, destPos + length, (Taint) encoded);
+        } else if(encoded instanceof TaintRanges) {
+            // Copy the runs first so that they are not modified while they are being copied
+            copyRuns(((TaintRanges) encoded).copy(), srcPos, dest, destPos, length);
+        } else if(srcTaints != null && (dest.taints != null || !dest.hasTaints())) {
+            if(dest.taints == null && isUntainted(srcTaints, srcPos, length)) {
+                return;
+            }
+            // ensureDenseTaints copies the tags of dest if they are shared; the tags of src are only read, so there is
+            // no need to copy them if they are shared
+            Taint[] destTaints = dest.ensureDenseTaints();
+            System.arraycopy(srcTaints, srcPos, destTaints, destPos, length);
+            dest.taintsChanged();
+        } else if(encoded instanceof TaintDictionary && !dest.hasTaints() && isDictionaryEncodable(dest.getLength())
+                && Fields.UNSAFE.compareAndSwapObject(dest, Fields.ENCODED_TAINTS, null,
+                ((TaintDictionary) encoded).copyRange(srcPos, dest.getLength(), destPos, length))) {
+            dest.taintsChanged();
+        } else if(src == dest && srcPos < destPos) {
+            // Copy backwards so that the tags of overlapping elements are read before they are overwritten
+            for(int i = length - 1; i >= 0; i--) {
+                dest.setTaint(destPos + i, src.getTaintOrEmpty(srcPos + i));
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                dest.setTaint(destPos + i, src.getTaintOrEmpty(srcPos + i));
+            }
+        }
+    }
+
+    /* Copies the tags of the elements in the range [srcPos, srcPos + length) of the array whose tags are stored in the
+     * specified runs to the elements of dest in the range [destPos, destPos + length), one run at a time. */
+    private static void copyRuns(TaintRanges runs, int srcPos, LazyArrayObjTags dest, int destPos, int length) {
+        int srcEnd = srcPos + length;
+        int offset = destPos - srcPos;
+        int pos = srcPos;
+        for(int i = runs.firstRunEndingAfter(srcPos); i < runs.size() && runs.start(i) < srcEnd; i++) {
+            int start = Math.max(runs.start(i), srcPos);
+            int end = Math.min(runs.end(i), srcEnd);
+            if(start > pos) {
+                dest.fillTaint(pos + offset, start + offset, null);
+            }
+            dest.fillTaint(start + offset, end + offset, runs.tag(i));
+            pos = end;
+        }
+        if(pos < srcEnd) {
+            dest.fillTaint(pos + offset, srcEnd + offset, null);
+        }
+    }
+
+    /* Returns whether every tag in the range [start, start + length) of the specified array is null or empty. */
+    private static boolean isUntainted(Taint[] taints, int start, int length) {
+        for(int i = start; i < start + length; i++) {
+            if(taints[i] != null && !taints[i].isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Sets the tags of this array's elements in the range [from, to) to the specified tag. A null tag removes the tags
+     * of the elements in the range. Filling a range of an array without tags with a null or empty tag does not allocate
+     * storage for the tags of the array and filling a range of an array with range-encoded or dictionary-encoded tags
+     * keeps the tags encoded where possible. */
+    public void fillTaint(int from, int to, Taint tag) {
+        if(from < 0) {
+            throw new ArrayIndexOutOfBoundsException(from);
+        } else if(to > getLength()) {
+            throw new ArrayIndexOutOfBoundsException(to);
+        } else if(from >= to) {
+            return;
+        } else if(from == 0 && to == getLength()) {
+            setTaints(tag);
+            return;
+        }
+        storeTaints(from, to, tag);
+        taintsChanged();
     }
 
     public int unsafeIndexFor(Unsafe unsafe, long offset) {
@@ -114,34 +434,447 @@ public abstract class LazyArrayObjTags implements Cloneable, Serializable {
     }
 
     public void setTaint(int idx, Taint valTaint) {
-        if(taints == null) {
-            taints = new Taint[getLength()];
+        Taint[] dense = taints;
+        if(dense != null && !sharedTaints) {
+            dense[idx] = valTaint;
+        } else {
+            storeTaints(idx, idx + 1, valTaint);
         }
-        taints[idx] = valTaint;
+        taintsChanged();
     }
 
-    private void writeObject(ObjectOutputStream stream) throws IOException {
-        if(taints == null) {
-            stream.writeInt(-1);
+    /* Sets the tags of this array's elements in the range [from, to), which must not be empty, to the specified tag,
+     * allocating, unsharing or converting the storage for the tags as necessary. Each storage change is published with
+     * a compare-and-swap or made while holding the lock of the replaced storage, after which the tags are stored into
+     * whichever storage is current. */
+    private void storeTaints(int from, int to, Taint tag) {
+        while(true) {
+            Taint[] dense = taints;
+            if(dense != null) {
+                if(!sharedTaints) {
+                    for(int i = from; i < to; i++) {
+                        dense[i] = tag;
+                    }
+                    return;
+                } else if(to - from == 1 && dense[from] == tag) {
+                    return;
+                }
+                unshareTaints(dense);
+                continue;
+            }
+            Object encoded = encodedTaints;
+            if(encoded == null) {
+                if(taints == null) {
+                    if(tag == null || tag.isEmpty()) {
+                        // Untainted elements do not need storage
+                        return;
+                    }
+                    allocateTaintStorage();
+                }
+            } else if(encoded instanceof Taint) {
+                if(encoded == tag) {
+                    return;
+                }
+                materializeUniformTaint((Taint) encoded);
+            } else if(storeEncodedTaints(encoded, from, to, tag)) {
+                return;
+            }
+        }
+    }
+
+    /* Sets the tags of the elements in the range [from, to) in the specified range-encoded or dictionary-encoded tags of
+     * this array's elements. Returns false if the encoded tags are no longer this array's storage, if they were shared
+     * with another array or if they could not store the tags, in which case they are replaced as necessary and the
+     * caller should try again. */
+    private boolean storeEncodedTaints(Object encoded, int from, int to, Taint tag) {
+        if(to - from == 1 && encoded instanceof TaintDictionary && !sharedTaints
+                && ((TaintDictionary) encoded).trySet(from, tag)) {
+            // The tag was already in the dictionary, so the code was stored without locking; it only needs to be stored
+            // again if the dictionary stopped being this array's storage while it was being stored
+            return encodedTaints == encoded && taints == null;
+        }
+        synchronized(encoded) {
+            if(encodedTaints != encoded || taints != null) {
+                return false;
+            }
+            boolean single = to - from == 1;
+            if(encoded instanceof TaintRanges) {
+                TaintRanges runs = (TaintRanges) encoded;
+                if(sharedTaints) {
+                    if(single && runs.get(from) == tag) {
+                        return true;
+                    }
+                    unshareTaints(runs);
+                    return false;
+                } else if(single ? runs.set(from, tag) : runs.fill(from, to, tag)) {
+                    return true;
+                }
+                // The ranges are too fragmented, switch to a dictionary or a dense array
+                TaintDictionary converted = isDictionaryEncodable(getLength()) ? runs.toDictionary() : null;
+                if(converted == null) {
+                    convertToDense(runs);
+                } else {
+                    Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, runs, converted);
+                }
+            } else {
+                TaintDictionary dictionary = (TaintDictionary) encoded;
+                if(sharedTaints) {
+                    if(single && dictionary.get(from) == tag) {
+                        return true;
+                    }
+                    unshareTaints(dictionary);
+                    return false;
+                } else if(single ? dictionary.set(from, tag) : dictionary.fill(from, to, tag)) {
+                    return true;
+                }
+                // The dictionary is full, switch to a dense array
+                convertToDense(dictionary);
+            }
+            return false;
+        }
+    }
+
+    /* Allocates the initial storage for the tags of this array's elements unless another thread allocated storage for
+     * them first: range-encoded tags for long arrays, dictionary-encoded tags for shorter arrays and a dense array of
+     * tags otherwise. */
+    private void allocateTaintStorage() {
+        if(isRangeEncodable(getLength())) {
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, null, new TaintRanges(getLength()));
+        } else if(isDictionaryEncodable(getLength())) {
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, null, new TaintDictionary(getLength()));
+        } else {
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.TAINTS, null, allocateTaints(getLength()));
+        }
+    }
+
+    /* Replaces the specified uniform tag of this array with range-encoded, dictionary-encoded or dense tags before the
+     * tag of a single element is changed unless the uniform tag was replaced concurrently. */
+    private void materializeUniformTaint(Taint uniform) {
+        if(isRangeEncodable(getLength())) {
+            TaintRanges runs = new TaintRanges(getLength());
+            runs.fill(0, getLength(), uniform);
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, uniform, runs);
+        } else if(isDictionaryEncodable(getLength())) {
+            TaintDictionary dictionary = new TaintDictionary(getLength());
+            dictionary.fill(0, getLength(), uniform);
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, uniform, dictionary);
+        } else {
+            convertToDense(uniform);
+        }
+    }
+
+    /* Replaces the specified encoded tags of this array's elements with a dense array of tags unless they were replaced
+     * concurrently. The dense array is published before the encoded tags are cleared. */
+    private void convertToDense(Object encoded) {
+        if(encoded instanceof Taint) {
+            Taint[] dense = allocateTaints(getLength());
+            for(int i = 0; i < dense.length; i++) {
+                dense[i] = (Taint) encoded;
+            }
+            publishDenseTaints(encoded, dense);
         } else {
-            stream.writeInt(taints.length);
-            for(Taint el : taints) {
-                stream.writeObject(el);
+            synchronized(encoded) {
+                if(encodedTaints != encoded || taints != null) {
+                    return;
+                }
+                Taint[] dense = encoded instanceof TaintRanges ? ((TaintRanges) encoded).toDense()
+                        : ((TaintDictionary) encoded).toDense();
+                // The new dense array is not shared with any other array
+                sharedTaints = false;
+                publishDenseTaints(encoded, dense);
+            }
+        }
+    }
+
+    /* Publishes the specified dense array as the storage for this array's element tags in place of the specified encoded
+     * tags. */
+    private void publishDenseTaints(Object encoded, Taint[] dense) {
+        if(Fields.UNSAFE.compareAndSwapObject(this, Fields.TAINTS, null, dense)
+                && !Fields.UNSAFE.compareAndSwapObject(this, Fields.ENCODED_TAINTS, encoded, null)) {
+            // The tag of every element was replaced by setTaints while the encoded tags were being converted
+            Fields.UNSAFE.compareAndSwapObject(this, Fields.TAINTS, dense, null);
+        }
+    }
+
+    /* Writes the tags of this array's elements in the run-encoded format, or -1 if no element of this array has a
+     * tag. */
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+        Taint[] dense = taints;
+        Object encoded = dense == null ? encodedTaints : null;
+        if(dense == null && encoded == null) {
+            dense = taints;
+        }
+        RunEncoder runs = new RunEncoder();
+        if(dense != null) {
+            for(Taint tag : dense) {
+                runs.add(tag, 1);
+            }
+        } else if(encoded instanceof Taint) {
+            runs.add((Taint) encoded, getLength());
+        } else if(encoded instanceof TaintRanges) {
+            TaintRanges copy = ((TaintRanges) encoded).copy();
+            int pos = 0;
+            for(int i = 0; i < copy.size(); i++) {
+                runs.add(null, copy.start(i) - pos);
+                runs.add(copy.tag(i), copy.end(i) - copy.start(i));
+                pos = copy.end(i);
             }
+            runs.add(null, getLength() - pos);
+        } else if(encoded instanceof TaintDictionary) {
+            for(int i = 0; i < getLength(); i++) {
+                runs.add(getTaintOrEmpty(i), 1);
+            }
+        } else {
+            stream.writeInt(-1);
+            return;
         }
-        // stream.writeObject(taints);
+        runs.write(stream);
     }
 
+    /* Reads the tags of this array's elements in the run-encoded format or in the format written by earlier versions,
+     * which is the number of elements followed by the tag of each element. */
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
         int len = stream.readInt();
-        if(len == -1) {
+        if(len == RUN_ENCODED) {
+            readRuns(stream);
+        } else if(len == -1) {
             taints = null;
+        } else if(len < 0) {
+            throw new InvalidObjectException("Invalid number of element tags");
         } else {
-            taints = new Taint[len];
+            taints = allocateTaints(len);
             for(int i = 0; i < len; i++) {
                 taints[i] = (Taint) stream.readObject();
             }
         }
-        // taints = (Taint[]) stream.readObject();
+    }
+
+    /* Reads tags written in the run-encoded format and stores them the same way that writes to the elements would. The
+     * length of this array is not known yet while its superclass state is read, so the number of elements written with
+     * the tags is used instead. */
+    private void readRuns(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        int length = stream.readInt();
+        int numTags = stream.readInt();
+        if(length < 0 || numTags < 0 || numTags > length) {
+            throw new InvalidObjectException("Invalid number of elements or distinct element tags");
+        }
+        Taint[] tags = new Taint[numTags + 1];
+        for(int i = 1; i < tags.length; i++) {
+            tags[i] = (Taint) stream.readObject();
+        }
+        int numRuns = stream.readInt();
+        if(numRuns < 0 || numRuns > length) {
+            throw new InvalidObjectException("Invalid number of runs of element tags");
+        }
+        int[] runLengths = new int[numRuns];
+        int[] runCodes = new int[numRuns];
+        RunEncoder.readRuns(stream, tags.length, runLengths, runCodes);
+        TaintRanges runs = isRangeEncodable(length) ? new TaintRanges(length) : null;
+        TaintDictionary dictionary = runs == null && isDictionaryEncodable(length) ? new TaintDictionary(length) : null;
+        Taint[] dense = null;
+        Taint last = null;
+        int start = 0;
+        for(int i = 0; i < numRuns; i++) {
+            int end = start + runLengths[i];
+            int code = runCodes[i];
+            if(end < start || end > length || code < 0 || code >= tags.length) {
+                throw new InvalidObjectException("Invalid run of element tags");
+            }
+            Taint tag = tags[code];
+            if(tag != null) {
+                last = tag;
+                if(runs != null && !runs.fill(start, end, tag)) {
+                    dictionary = isDictionaryEncodable(length) ? runs.toDictionary() : null;
+                    dense = dictionary == null ? runs.toDense() : null;
+                    runs = null;
+                }
+                if(runs == null && dictionary != null && !dictionary.fill(start, end, tag)) {
+                    dense = dictionary.toDense();
+                    dictionary = null;
+                }
+                if(runs == null && dictionary == null) {
+                    if(dense == null) {
+                        dense = allocateTaints(length);
+                    }
+                    for(int j = start; j < end; j++) {
+                        dense[j] = tag;
+                    }
+                }
+            }
+            start = end;
+        }
+        if(start != length) {
+            throw new InvalidObjectException("Element tags do not cover every element");
+        } else if(last == null) {
+            taints = null;
+        } else if(numRuns == 1) {
+            encodedTaints = last;
+        } else if(dense != null) {
+            taints = dense;
+        } else {
+            encodedTaints = runs != null ? runs : dictionary;
+        }
+    }
+
+    /* Collects the tags of the consecutive elements of an array as runs of elements with the same tag and writes them in
+     * the run-encoded format:
+     *   - RUN_ENCODED
+     *   - the number of elements
+     *   - the number of distinct non-null tags followed by each of those tags, so each tag is serialized once
+     *   - the number of runs followed by the number of elements and the code of the tag of each run, where code zero is
+     *     the null tag and code i is the ith distinct tag. Codes are written as bytes, shorts or ints depending on the
+     *     number of distinct tags. The runs are written in blocks of raw bytes. */
+    private static final class RunEncoder {
+
+        // The greatest number of runs written or read at a time
+        private static final int RUNS_PER_BLOCK = 1024;
+
+        // The tag of each code, the tag of code zero is null
+        private Taint[] tags = new Taint[8];
+        // The number of codes including the null code
+        private int numTags = 1;
+        // Open-addressing hash table mapping tags, by identity, to their codes; empty slots are zero
+        private int[] slots = new int[16];
+        // The number of elements in each run
+        private int[] lengths = new int[8];
+        // The code of the tag of each run
+        private int[] runCodes = new int[8];
+        private int numRuns;
+        private int numElements;
+
+        /* Adds the specified number of consecutive elements with the specified tag. */
+        void add(Taint tag, int count) {
+            if(count <= 0) {
+                return;
+            }
+            numElements += count;
+            if(numRuns > 0 && tags[runCodes[numRuns - 1]] == tag) {
+                lengths[numRuns - 1] += count;
+                return;
+            }
+            if(numRuns == lengths.length) {
+                lengths = grow(lengths);
+                runCodes = grow(runCodes);
+            }
+            lengths[numRuns] = count;
+            runCodes[numRuns++] = codeOf(tag);
+        }
+
+        private int codeOf(Taint tag) {
+            if(tag == null) {
+                return 0;
+            }
+            int mask = slots.length - 1;
+            int i = TaintDictionary.spread(System.identityHashCode(tag)) & mask;
+            for(int code = slots[i]; code != 0; code = slots[i]) {
+                if(tags[code] == tag) {
+                    return code;
+                }
+                i = (i + 1) & mask;
+            }
+            if(numTags == tags.length) {
+                Taint[] grown = new Taint[tags.length << 1];
+                System.arraycopy(tags, 0, grown, 0, numTags);
+                tags = grown;
+            }
+            int code = numTags++;
+            tags[code] = tag;
+            slots[i] = code;
+            if(numTags << 1 > slots.length) {
+                slots = new int[slots.length << 1];
+                mask = slots.length - 1;
+                for(int c = 1; c < numTags; c++) {
+                    int j = TaintDictionary.spread(System.identityHashCode(tags[c])) & mask;
+                    while(slots[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    slots[j] = c;
+                }
+            }
+            return code;
+        }
+
+        void write(ObjectOutputStream stream) throws IOException {
+            stream.writeInt(RUN_ENCODED);
+            stream.writeInt(numElements);
+            stream.writeInt(numTags - 1);
+            for(int i = 1; i < numTags; i++) {
+                stream.writeObject(tags[i]);
+            }
+            stream.writeInt(numRuns);
+            int width = codeWidth(numTags);
+            byte[] block = new byte[(4 + width) * Math.min(numRuns, RUNS_PER_BLOCK)];
+            for(int i = 0; i < numRuns;) {
+                int pos = 0;
+                for(; i < numRuns && pos < block.length; i++) {
+                    pos = put(block, pos, lengths[i], 4);
+                    pos = put(block, pos, runCodes[i], width);
+                }
+                stream.write(block, 0, pos);
+            }
+        }
+
+        /* Reads as many runs as the length of the specified arrays, which must have the same length, into the
+         * specified arrays for a run-encoded array with the specified number of codes including the null code. */
+        static void readRuns(ObjectInputStream stream, int numTags, int[] lengths, int[] codes) throws IOException {
+            int width = codeWidth(numTags);
+            byte[] block = new byte[(4 + width) * Math.min(lengths.length, RUNS_PER_BLOCK)];
+            for(int i = 0; i < lengths.length;) {
+                int size = (4 + width) * Math.min(lengths.length - i, RUNS_PER_BLOCK);
+                stream.readFully(block, 0, size);
+                for(int pos = 0; pos < size; pos += 4 + width, i++) {
+                    lengths[i] = get(block, pos, 4);
+                    codes[i] = get(block, pos + 4, width);
+                }
+            }
+        }
+
+        /* Returns the number of bytes used to write each code of a run-encoded array with the specified number of
+         * codes including the null code. */
+        private static int codeWidth(int numTags) {
+            return numTags <= 1 << 8 ? 1 : numTags <= 1 << 16 ? 2 : 4;
+        }
+
+        /* Writes the specified number of low-order bytes of the specified value to the specified position of the
+         * specified block, most significant byte first, and returns the position after the last byte written. */
+        private static int put(byte[] block, int pos, int value, int width) {
+            for(int shift = (width - 1) << 3; shift >= 0; shift -= 8) {
+                block[pos++] = (byte) (value >>> shift);
+            }
+            return pos;
+        }
+
+        /* Returns the value of the specified number of bytes at the specified position of the specified block, most
+         * significant byte first. */
+        private static int get(byte[] block, int pos, int width) {
+            int value = 0;
+            for(int i = 0; i < width; i++) {
+                value = value << 8 | block[pos + i] & 0xFF;
+            }
+            return value;
+        }
+
+        private static int[] grow(int[] array) {
+            int[] grown = new int[array.length << 1];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            return grown;
+        }
+    }
+
+    /* The offsets of the fields of LazyArrayObjTags that are updated with compare-and-swap operations, held in a
+     * separate class so that they are only looked up once the tags of an array's elements are first stored. */
+    private static final class Fields {
+
+        private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+        private static final long TAINTS = offsetOf("taints");
+        private static final long ENCODED_TAINTS = offsetOf("encodedTaints");
+
+        private static long offsetOf(String name) {
+            try {
+                return UNSAFE.objectFieldOffset(LazyArrayObjTags.class.getDeclaredField(name));
+            } catch(NoSuchFieldException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
     }
 }
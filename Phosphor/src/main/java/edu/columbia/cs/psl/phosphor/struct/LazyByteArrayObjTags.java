@@ -42,17 +42,12 @@ public final class LazyByteArrayObjTags extends LazyArrayObjTags {
 
     @Override
     public Object clone() {
-        return new LazyByteArrayObjTags(val.clone(), (taints != null) ? taints.clone() : null);
+        return cloneTaintsTo(new LazyByteArrayObjTags(val.clone()));
     }
 
     public void set(int idx, byte val, Taint tag) {
         this.val[idx] = val;
-        if(taints == null && tag != null && !tag.isEmpty()) {
-            taints = new Taint[this.val.length];
-        }
-        if(taints != null) {
-            taints[idx] = tag;
-        }
+        setTaint(idx, tag);
     }
 
     @InvokedViaInstrumentation(record = TAINTED_BYTE_ARRAY_GET)
@@ -69,7 +64,7 @@ public final class LazyByteArrayObjTags extends LazyArrayObjTags {
 
     public TaintedByteWithObjTag get(int idx, TaintedByteWithObjTag ret) {
         ret.val = val[idx];
-        ret.taint = (taints == null) ? Taint.emptyTaint() : taints[idx];
+        ret.taint = getTaintOrEmpty(idx);
         return ret;
     }
 
@@ -100,9 +95,7 @@ public final class LazyByteArrayObjTags extends LazyArrayObjTags {
             stream.writeInt(-1);
         } else {
             stream.writeInt(val.length);
-            for (byte el : val) {
-                stream.writeByte(el);
-            }
+            PrimitiveArrayStreams.write(stream, val, val.length);
         }
     }
 
@@ -111,10 +104,7 @@ public final class LazyByteArrayObjTags extends LazyArrayObjTags {
         if (len == -1) {
             val = null;
         } else {
-            val = new byte[len];
-            for (int i = 0; i < len; i++) {
-                val[i] = stream.readByte();
-            }
+            val = PrimitiveArrayStreams.read(stream, new byte[len], len);
         }
     }
 }
@@ -3,6 +3,8 @@ package edu.columbia.cs.psl.phosphor.struct;
 import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.instrumenter.InvokedViaInstrumentation;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -11,11 +13,26 @@ import java.io.ObjectOutputStream;
 import static edu.columbia.cs.psl.phosphor.instrumenter.TaintMethodRecord.TAINTED_CHAR_ARRAY_GET;
 import static edu.columbia.cs.psl.phosphor.instrumenter.TaintMethodRecord.TAINTED_CHAR_ARRAY_SET;
 
+/* Wraps a char array and the tags of its elements. Because the value of a String is wrapped by one of these, the tag
+ * containing the labels of the tags of all of the elements is cached the first time that it is requested, so that
+ * repeatedly parsing or checking a String does not merge the tags of its characters each time. Any change to the tags
+ * of the elements clears the cached tag. */
 public final class LazyCharArrayObjTags extends LazyArrayObjTags {
 
     private static final long serialVersionUID = -2087734134268751452L;
+    // Cached in place of the merged tag of an array none of whose elements has a tag
+    private static final Object NO_MERGED_TAINT = new Object();
+    // True once MergedTaintField has been initialized. Until then cached merged tags are cleared with volatile writes
+    // instead of ordered writes, since the tags of char arrays change while the JVM is starting, before the Unsafe
+    // instance used by ordered writes can be initialized.
+    private static volatile boolean orderedClears;
 
     public char[] val;
+    // The merged tag of the elements, NO_MERGED_TAINT if no element has a tag, the thread computing the merged tag while
+    // it is being computed or null if it has not been computed since the tags of the elements last changed. A change to
+    // the tags clears this after making the change, so a merged tag computed concurrently with a change is only cached
+    // if the computation started after the change was made.
+    private transient volatile Object mergedTaint;
 
     public LazyCharArrayObjTags(int len) {
         val = new char[len];
@@ -42,17 +59,12 @@ public final class LazyCharArrayObjTags extends LazyArrayObjTags {
 
     @Override
     public Object clone() {
-        return new LazyCharArrayObjTags(val.clone(), (taints != null) ? taints.clone() : null);
+        return cloneTaintsTo(new LazyCharArrayObjTags(val.clone()));
     }
 
     public void set(int idx, char val, Taint tag) {
         this.val[idx] = val;
-        if(taints == null && tag != null && !tag.isEmpty()) {
-            taints = new Taint[this.val.length];
-        }
-        if(taints != null) {
-            taints[idx] = tag;
-        }
+        setTaint(idx, tag);
     }
 
     @InvokedViaInstrumentation(record = TAINTED_CHAR_ARRAY_GET)
@@ -69,7 +81,7 @@ public final class LazyCharArrayObjTags extends LazyArrayObjTags {
 
     public TaintedCharWithObjTag get(int idx, TaintedCharWithObjTag ret) {
         ret.val = val[idx];
-        ret.taint = (taints == null) ? Taint.emptyTaint() : taints[idx];
+        ret.taint = getTaintOrEmpty(idx);
         return ret;
     }
 
@@ -77,6 +89,47 @@ public final class LazyCharArrayObjTags extends LazyArrayObjTags {
         return val.length;
     }
 
+    /* Returns a tag containing the labels of the tags of all of this array's elements or null if no element of this
+     * array has a tag, computing it only if it has not been computed since the tags of the elements last changed. */
+    @Override
+    public Taint getMergedTaint() {
+        Object cached = mergedTaint;
+        if(cached instanceof Taint) {
+            return (Taint) cached;
+        } else if(cached == NO_MERGED_TAINT) {
+            return null;
+        }
+        Unsafe unsafe = MergedTaintField.UNSAFE;
+        long offset = MergedTaintField.OFFSET;
+        Thread token = Thread.currentThread();
+        boolean caching = cached == null && unsafe.compareAndSwapObject(this, offset, null, token);
+        Taint merged = super.getMergedTaint();
+        if(caching) {
+            // Fails if the tags changed while they were being merged
+            unsafe.compareAndSwapObject(this, offset, token, merged == null ? NO_MERGED_TAINT : merged);
+        }
+        return merged;
+    }
+
+    /* Clears the cached merged tag after the tags of the elements changed. An ordered write suffices: a computation that
+     * observes it also observes the change, and one that does not has its result rejected when it tries to cache it. */
+    @Override
+    public void taintsChanged() {
+        if(orderedClears) {
+            MergedTaintField.UNSAFE.putOrderedObject(this, MergedTaintField.OFFSET, null);
+        } else {
+            mergedTaint = null;
+        }
+    }
+
+    /* Looks up the offset of the mergedTaint field if it has not already been looked up, so that cached merged tags are
+     * cleared with ordered writes from then on. Must not be called while the JVM is starting. */
+    public static void initializeOrderedClears() {
+        if(!orderedClears) {
+            MergedTaintField.initialize();
+        }
+    }
+
     @Override
     public Object getVal() {
         return val;
@@ -100,9 +153,7 @@ public final class LazyCharArrayObjTags extends LazyArrayObjTags {
             stream.writeInt(-1);
         } else {
             stream.writeInt(val.length);
-            for (char el : val) {
-                stream.writeChar(el);
-            }
+            PrimitiveArrayStreams.write(stream, val, val.length);
         }
     }
 
@@ -111,12 +162,29 @@ public final class LazyCharArrayObjTags extends LazyArrayObjTags {
         if (len == -1) {
             val = null;
         } else {
-            val = new char[len];
-            for (int i = 0; i < len; i++) {
-                val[i] = stream.readChar();
-            }
+            val = PrimitiveArrayStreams.read(stream, new char[len], len);
         }
     }
-}
 
+    /* The offset of the mergedTaint field, held in a separate class so that it is only looked up once a merged tag is
+     * first computed or initializeOrderedClears is called. Char arrays are wrapped while java.lang.String is being
+     * initialized, before sun.misc.Unsafe can be initialized. */
+    private static final class MergedTaintField {
+
+        private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+        private static final long OFFSET;
 
+        static {
+            try {
+                OFFSET = UNSAFE.objectFieldOffset(LazyCharArrayObjTags.class.getDeclaredField("mergedTaint"));
+            } catch(NoSuchFieldException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+            orderedClears = true;
+        }
+
+        /* Does nothing, calling it initializes this class. */
+        private static void initialize() {
+        }
+    }
+}
@@ -42,17 +42,12 @@ public final class LazyFloatArrayObjTags extends LazyArrayObjTags {
 
     @Override
     public Object clone() {
-        return new LazyFloatArrayObjTags(val.clone(), (taints != null) ? taints.clone() : null);
+        return cloneTaintsTo(new LazyFloatArrayObjTags(val.clone()));
     }
 
     public void set(int idx, float val, Taint tag) {
         this.val[idx] = val;
-        if(taints == null && tag != null && !tag.isEmpty()) {
-            taints = new Taint[this.val.length];
-        }
-        if(taints != null) {
-            taints[idx] = tag;
-        }
+        setTaint(idx, tag);
     }
 
     @InvokedViaInstrumentation(record = TAINTED_FLOAT_ARRAY_GET)
@@ -69,7 +64,7 @@ public final class LazyFloatArrayObjTags extends LazyArrayObjTags {
 
     public TaintedFloatWithObjTag get(int idx, TaintedFloatWithObjTag ret) {
         ret.val = val[idx];
-        ret.taint = (taints == null) ? Taint.emptyTaint() : taints[idx];
+        ret.taint = getTaintOrEmpty(idx);
         return ret;
     }
 
@@ -100,9 +95,7 @@ public final class LazyFloatArrayObjTags extends LazyArrayObjTags {
             stream.writeInt(-1);
         } else {
             stream.writeInt(val.length);
-            for (float el : val) {
-                stream.writeFloat(el);
-            }
+            PrimitiveArrayStreams.write(stream, val, val.length);
         }
     }
 
@@ -111,10 +104,7 @@ public final class LazyFloatArrayObjTags extends LazyArrayObjTags {
         if (len == -1) {
             val = null;
         } else {
-            val = new float[len];
-            for (int i = 0; i < len; i++) {
-                val[i] = stream.readFloat();
-            }
+            val = PrimitiveArrayStreams.read(stream, new float[len], len);
         }
     }
 }
@@ -42,17 +42,12 @@ public final class LazyIntArrayObjTags extends LazyArrayObjTags {
 
     @Override
     public Object clone() {
-        return new LazyIntArrayObjTags(val.clone(), (taints != null) ? taints.clone() : null);
+        return cloneTaintsTo(new LazyIntArrayObjTags(val.clone()));
     }
 
     public void set(int idx, int val, Taint tag) {
         this.val[idx] = val;
-        if(taints == null && tag != null && !tag.isEmpty()) {
-            taints = new Taint[this.val.length];
-        }
-        if(taints != null) {
-            taints[idx] = tag;
-        }
+        setTaint(idx, tag);
     }
 
     @InvokedViaInstrumentation(record = TAINTED_INT_ARRAY_GET)
@@ -69,7 +64,7 @@ public final class LazyIntArrayObjTags extends LazyArrayObjTags {
 
     public TaintedIntWithObjTag get(int idx, TaintedIntWithObjTag ret) {
         ret.val = val[idx];
-        ret.taint = (taints == null) ? Taint.emptyTaint() : taints[idx];
+        ret.taint = getTaintOrEmpty(idx);
         return ret;
     }
 
@@ -100,9 +95,7 @@ public final class LazyIntArrayObjTags extends LazyArrayObjTags {
             stream.writeInt(-1);
         } else {
             stream.writeInt(val.length);
-            for (int el : val) {
-                stream.writeInt(el);
-            }
+            PrimitiveArrayStreams.write(stream, val, val.length);
         }
     }
 
@@ -111,10 +104,7 @@ public final class LazyIntArrayObjTags extends LazyArrayObjTags {
         if (len == -1) {
             val = null;
         } else {
-            val = new int[len];
-            for (int i = 0; i < len; i++) {
-                val[i] = stream.readInt();
-            }
+            val = PrimitiveArrayStreams.read(stream, new int[len], len);
         }
     }
 }
@@ -4,7 +4,9 @@ import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.control.ControlFlowStack;
 import edu.columbia.cs.psl.phosphor.instrumenter.InvokedViaInstrumentation;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
 import edu.columbia.cs.psl.phosphor.struct.multid.MultiDTaintedArray;
+import sun.misc.Unsafe;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -14,11 +16,23 @@ import java.lang.reflect.Array;
 import static edu.columbia.cs.psl.phosphor.instrumenter.TaintMethodRecord.TAINTED_REFERENCE_ARRAY_GET;
 import static edu.columbia.cs.psl.phosphor.instrumenter.TaintMethodRecord.TAINTED_REFERENCE_ARRAY_SET;
 
+/* Wraps an array of references. If val is an array of arrays, such as a double[][], it holds the inner arrays
+ * themselves instead of their wrappers, which it cannot store. Such an array is created by the lazy variants of the
+ * MULTIANEWARRAY methods of MultiDTaintedArray so that allocating a multi-dimensional array does not allocate a wrapper
+ * for every inner array and so that getVal returns the multi-dimensional array without copying it. The wrapper of an
+ * inner array is created the first time that instrumented code reads the inner array and is kept in a side table so
+ * that later reads return the same wrapper, together with the tags of its elements. */
 public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
 
     private static final long serialVersionUID = -4189650314277328488L;
-
     public Object[] val;
+    // The wrappers of the inner arrays held by val if val is an array of arrays, allocated on first use. The wrapper at
+    // an index is only used while it wraps the array at the same index of val, so a wrapper is never returned for an
+    // inner array that replaced the array it wraps. Slots are only written while holding the lock of this table.
+    private transient volatile LazyArrayObjTags[] boxes;
+    // The length taints given to the wrappers of the inner arrays of each dimension below val, outermost first, or null
+    // if the inner arrays do not have length taints
+    private Taint[] innerLengthTaints;
 
     public LazyReferenceArrayObjTags(int len) {
         // val = new Object[len];
@@ -39,9 +53,26 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
         this.lengthTaint = lenTaint;
     }
 
+    /* Wraps an array of arrays whose inner arrays are wrapped on first access. The wrappers of the inner arrays of each
+     * dimension below the specified array are given the length taint at the same position of the specified length
+     * taints, outermost first. */
+    public LazyReferenceArrayObjTags(Taint lenTaint, Object[] array, Taint[] innerLengthTaints) {
+        this.val = array;
+        this.lengthTaint = lenTaint;
+        this.innerLengthTaints = hasTaint(innerLengthTaints, 0) ? innerLengthTaints : null;
+    }
+
     @Override
     public Object clone() {
-        return new LazyReferenceArrayObjTags(val.clone(), (taints != null) ? taints.clone() : null);
+        LazyReferenceArrayObjTags copy = new LazyReferenceArrayObjTags(val.clone());
+        copy.innerLengthTaints = innerLengthTaints;
+        LazyArrayObjTags[] b = boxes;
+        if(b != null) {
+            synchronized(b) {
+                copy.boxes = b.clone();
+            }
+        }
+        return cloneTaintsTo(copy);
     }
 
     @InvokedViaInstrumentation(record = TAINTED_REFERENCE_ARRAY_SET)
@@ -50,19 +81,154 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
     }
 
     public void setUninst(int idx, Object val) {
-        this.val[idx] = MultiDTaintedArray.boxOnly1D(val);
+        this.val[idx] = holdsInnerArrays() ? val : MultiDTaintedArray.boxOnly1D(val);
     }
 
     public void set(int idx, Object val, Taint tag) {
-        this.val[idx] = val;
-        if(taints == null && tag != null && !tag.isEmpty()) {
-            taints = new Taint[this.val.length];
+        store(idx, val);
+        setTaint(idx, tag);
+    }
+
+    /* Stores the specified element as instrumented code sees it at the specified index of val, keeping its wrapper if
+     * it is the wrapper of an inner array and val is an array of arrays. */
+    private void store(int idx, Object element) {
+        if(element instanceof LazyArrayObjTags && holdsInnerArrays()) {
+            LazyArrayObjTags[] b = getBoxes();
+            synchronized(b) {
+                Boxes.UNSAFE.putObjectVolatile(b, Boxes.BASE + idx * Boxes.SCALE, element);
+                this.val[idx] = ((LazyArrayObjTags) element).getVal();
+            }
+        } else {
+            this.val[idx] = element;
         }
-        if(taints != null) {
-            taints[idx] = tag;
+    }
+
+    /* Copies the elements of src in the range [srcPos, srcPos + length) to the elements of dest in the range [destPos,
+     * destPos + length) as System.arraycopy would copy the arrays that instrumented code sees. An array of arrays holds
+     * its inner arrays unwrapped while an array allocated by ANEWARRAY holds wrappers, so inner arrays are wrapped or
+     * unwrapped as necessary when the two arrays differ, and the wrappers of the copied inner arrays, which hold the
+     * tags of their elements, are carried into dest. Does not copy the tags of the copied elements themselves. */
+    public static void copyElements(LazyReferenceArrayObjTags src, int srcPos, LazyReferenceArrayObjTags dest, int destPos, int length) {
+        boolean srcInner = src.holdsInnerArrays();
+        boolean destInner = dest.holdsInnerArrays();
+        if(!srcInner && !destInner) {
+            System.arraycopy(src.val, srcPos, dest.val, destPos, length);
+            return;
+        }
+        if(srcPos < 0 || destPos < 0 || length < 0 || srcPos > src.val.length - length || destPos > dest.val.length - length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        if(srcInner && destInner) {
+            // Read the wrappers before the copy in case src and dest are the same array
+            LazyArrayObjTags[] wrappers = null;
+            LazyArrayObjTags[] b = src.boxes;
+            if(b != null) {
+                wrappers = new LazyArrayObjTags[length];
+                for(int i = 0; i < length; i++) {
+                    long offset = Boxes.BASE + (srcPos + i) * Boxes.SCALE;
+                    LazyArrayObjTags box = (LazyArrayObjTags) Boxes.UNSAFE.getObjectVolatile(b, offset);
+                    wrappers[i] = box != null && box.getVal() == src.val[srcPos + i] ? box : null;
+                }
+            }
+            System.arraycopy(src.val, srcPos, dest.val, destPos, length);
+            if(wrappers != null) {
+                LazyArrayObjTags[] destBoxes = dest.getBoxes();
+                synchronized(destBoxes) {
+                    for(int i = 0; i < length; i++) {
+                        if(wrappers[i] != null) {
+                            long offset = Boxes.BASE + (destPos + i) * Boxes.SCALE;
+                            Boxes.UNSAFE.putObjectVolatile(destBoxes, offset, wrappers[i]);
+                        }
+                    }
+                }
+            }
+        } else if(srcInner) {
+            for(int i = 0; i < length; i++) {
+                dest.val[destPos + i] = src.getBoxed(srcPos + i);
+            }
+        } else {
+            for(int i = 0; i < length; i++) {
+                dest.store(destPos + i, src.val[srcPos + i]);
+            }
+        }
+    }
+
+    /* Atomically sets the element at the specified offset of val to the specified value if it is the expected value.
+     * The expected value and the value may be wrappers of inner arrays if val is an array of arrays. */
+    public boolean compareAndSwap(Unsafe unsafe, long offset, Object expected, Object value) {
+        if(!holdsInnerArrays()) {
+            return unsafe.compareAndSwapObject(val, offset, expected, value);
+        }
+        LazyArrayObjTags[] b = getBoxes();
+        synchronized(b) {
+            if(!unsafe.compareAndSwapObject(val, offset, MultiDTaintedArray.unbox1D(expected), MultiDTaintedArray.unbox1D(value))) {
+                return false;
+            } else if(value instanceof LazyArrayObjTags) {
+                Boxes.UNSAFE.putObjectVolatile(b, Boxes.BASE + unsafeIndexFor(unsafe, offset) * Boxes.SCALE, value);
+            }
+            return true;
         }
     }
 
+    /* Returns the element at the specified index as instrumented code sees it, that is the wrapper of the element if the
+     * element is an inner array of an array of arrays. The wrapper of an inner array is created the first time that it
+     * is returned. */
+    public Object getBoxed(int idx) {
+        Object element = val[idx];
+        if(element == null || !element.getClass().isArray()) {
+            // Wrappers are not arrays
+            return element;
+        }
+        LazyArrayObjTags[] b = boxes;
+        if(b != null) {
+            LazyArrayObjTags box = (LazyArrayObjTags) Boxes.UNSAFE.getObjectVolatile(b, Boxes.BASE + idx * Boxes.SCALE);
+            if(box != null && box.getVal() == element) {
+                return box;
+            }
+        }
+        return holdsInnerArrays() ? box(idx) : element;
+    }
+
+    /* Returns the wrapper of the inner array at the specified index of val, creating it if the inner array does not have
+     * one. */
+    private LazyArrayObjTags box(int idx) {
+        LazyArrayObjTags[] b = getBoxes();
+        synchronized(b) {
+            Object element = val[idx];
+            long offset = Boxes.BASE + idx * Boxes.SCALE;
+            LazyArrayObjTags box = (LazyArrayObjTags) Boxes.UNSAFE.getObjectVolatile(b, offset);
+            if(box == null || box.getVal() != element) {
+                box = (LazyArrayObjTags) MultiDTaintedArray.boxOnly1D(element);
+                Taint[] taints = innerLengthTaints;
+                if(taints != null) {
+                    box.lengthTaint = taints[0];
+                    if(box instanceof LazyReferenceArrayObjTags && hasTaint(taints, 1)) {
+                        Taint[] rest = new Taint[taints.length - 1];
+                        System.arraycopy(taints, 1, rest, 0, rest.length);
+                        ((LazyReferenceArrayObjTags) box).innerLengthTaints = rest;
+                    }
+                }
+                Boxes.UNSAFE.putObjectVolatile(b, offset, box);
+            }
+            return box;
+        }
+    }
+
+    /* Returns the side table of the wrappers of the inner arrays of val, allocating it if necessary. */
+    private LazyArrayObjTags[] getBoxes() {
+        LazyArrayObjTags[] b = boxes;
+        if(b == null) {
+            Boxes.UNSAFE.compareAndSwapObject(this, Boxes.OFFSET, null, new LazyArrayObjTags[val.length]);
+            b = boxes;
+        }
+        return b;
+    }
+
+    /* Returns whether val is an array of arrays, which holds inner arrays instead of their wrappers. */
+    private boolean holdsInnerArrays() {
+        return val.getClass().getComponentType().isArray();
+    }
+
     @InvokedViaInstrumentation(record = TAINTED_REFERENCE_ARRAY_GET)
     public TaintedReferenceWithObjTag get(Taint referenceTaint, int idx, Taint idxTaint, TaintedReferenceWithObjTag ret) {
         return Configuration.derivedTaintListener.arrayGet(this, idxTaint, idx, ret, null);
@@ -77,8 +243,8 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
     }
 
     public TaintedReferenceWithObjTag get(int idx, TaintedReferenceWithObjTag ret) {
-        ret.val = val[idx];
-        ret.taint = (taints == null) ? Taint.emptyTaint() : taints[idx];
+        ret.val = getBoxed(idx);
+        ret.taint = getTaintOrEmpty(idx);
         return ret;
     }
 
@@ -94,6 +260,7 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
     public void ensureVal(Object[] v) {
         if(v != val) {
             val = v;
+            boxes = null;
         }
     }
 
@@ -102,8 +269,9 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
             stream.writeInt(-1);
         } else {
             stream.writeInt(val.length);
-            for(Object el : val) {
-                stream.writeObject(el);
+            for(int i = 0; i < val.length; i++) {
+                // Inner arrays are written wrapped so that the tags of their elements are written with them
+                stream.writeObject(getBoxed(i));
             }
         }
     }
@@ -163,6 +331,18 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
         return val.getClass();
     }
 
+    /* Returns whether any of the specified taints at or after the specified index is non-empty. */
+    private static boolean hasTaint(Taint[] taints, int start) {
+        if(taints != null) {
+            for(int i = start; i < taints.length; i++) {
+                if(taints[i] != null && !taints[i].isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public static LazyReferenceArrayObjTags factory(Taint referenceTaint, Object[] array) {
         if(array == null) {
             return null;
@@ -176,4 +356,23 @@ public final class LazyReferenceArrayObjTags extends LazyArrayObjTags {
         }
         return null;
     }
+
+    /* The offsets used to access the wrappers of the inner arrays, held in a separate class so that they are only
+     * looked up once the wrapper of an inner array is first read or stored. Arrays are wrapped while java.lang.String
+     * is being initialized, before sun.misc.Unsafe can be initialized. */
+    private static final class Boxes {
+
+        private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+        private static final long OFFSET = offsetOf("boxes");
+        private static final long BASE = UNSAFE.arrayBaseOffset(LazyArrayObjTags[].class);
+        private static final long SCALE = UNSAFE.arrayIndexScale(LazyArrayObjTags[].class);
+
+        private static long offsetOf(String name) {
+            try {
+                return UNSAFE.objectFieldOffset(LazyReferenceArrayObjTags.class.getDeclaredField(name));
+            } catch(NoSuchFieldException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
 }
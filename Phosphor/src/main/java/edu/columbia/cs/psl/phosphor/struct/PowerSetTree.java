@@ -1,12 +1,17 @@
 package edu.columbia.cs.psl.phosphor.struct;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.LabelEpoch;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
 
 /* Provides access to a thread-safe collection of sets of objects by maintaining a trie-like tree structure. The set
  * represented by some node in the tree contains the objects associated with the keys of every node on the path from that
@@ -15,24 +20,52 @@ import java.util.Iterator;
  *
  * Each element in some set represented in the structure is assigned a consistent, unique rank which is used
  * to total order set elements. Ranks strictly decrease along any path from a node to the root of the tree, that is a node
- * will only have child nodes with higher ranks that its own. */
+ * will only have child nodes with higher ranks that its own.
+ *
+ * The tree is safe for concurrent use by threads that create new label combinations. Child nodes are found without
+ * locking and are published into their parent's child table via compare-and-swap. Ranks are assigned by a registry that is
+ * striped by hash code so that threads registering unrelated labels do not contend with one another.
+ *
+ * Sets with at most InlineSet.MAX_LABELS elements can alternatively be represented by InlineSets, which store their
+ * ranked elements directly in fields instead of as a path in the tree. Operations on sets accept either representation
+ * as well as BitSetTaints.
+ *
+ * Child nodes and ranked objects are weakly referenced by the tree. The references are registered with a queue so that
+ * once their referents are garbage collected the slots that they occupy can be reclaimed and their ranks recycled. The
+ * queue is drained in small batches whenever objects are registered and can additionally be drained by a daemon thread
+ * started via startSweeper.
+ *
+ * Each element of a set belongs to the LabelEpoch that was current for the thread that registered it, if any. Elements
+ * belonging to retired epochs are treated as absent from every set. */
 public class PowerSetTree {
 
+    // The number of independently locked stripes in the rank registry, must be a power of two
+    private static final int RANK_STRIPES = 16;
+    // The number of entries in each node's union cache, must be a power of two
+    private static final int UNION_CACHE_SIZE = 4;
+    // The maximum number of collected references reclaimed each time an object is registered
+    private static final int SWEEP_BATCH_SIZE = 8;
+    // Epoch summary of sets whose elements all belong to epochs but not all to the same epoch
+    private static final Object MIXED_EPOCHS = new Object();
+    // Epoch summary of sets with some elements that belong to epochs and some that do not
+    private static final Object PARTIAL_EPOCHS = new Object();
+
     // Root of the tree, represents the empty set
     private final SetNode root;
-    // Used to lazily reused ranks after the object assigned the rank is garbage collected
-    private final IntSinglyLinkedList rankQueue;
-    // Maps hash codes to a list of pairs of containing an object with that hashcode and a unique rank for that object.
-    private IntObjectAMT<SinglyLinkedList<RankReference>> rankMap;
-    // The next new rank that should be assigned to an object
-    private int nextRank;
+    // Stripes of the rank registry, an object's stripe is selected by its hash code
+    private final RankStripe[] rankStripes;
+    // Incremented each time the tree is reset, InlineSets created before the most recent reset are considered to be empty
+    private volatile int generation;
+    // Daemon thread that reclaims collected references, null if the sweeper has not been started
+    private Sweeper sweeper;
 
     /* Constructs a new empty pool. Initializes the root node that represents the empty set. */
     private PowerSetTree() {
         this.root = new SetNode(null, null);
-        this.rankMap = new IntObjectAMT<>();
-        this.rankQueue = new IntSinglyLinkedList();
-        this.nextRank = Integer.MIN_VALUE;
+        this.rankStripes = new RankStripe[RANK_STRIPES];
+        for(int i = 0; i < rankStripes.length; i++) {
+            rankStripes[i] = new RankStripe(i);
+        }
     }
 
     /* Resets the tree to its initial state, turning all reachable SetNodes into quasi-empty sets.
@@ -40,9 +73,12 @@ public class PowerSetTree {
     * runs. If so, there is no guarantee that they will see taints emptied until after this method returns.
     * */
     public synchronized void reset() {
-        this.rankMap.clear();
-        this.rankQueue.clear();
-        this.nextRank = Integer.MIN_VALUE;
+        for(RankStripe stripe : rankStripes) {
+            stripe.clear();
+        }
+        // Make all existing InlineSets and BitSetTaints quasi-empty sets
+        this.generation++;
+        BitSetTaint.resetLabels();
         // Make all reachable nodes quasi-empty sets
         SinglyLinkedList<SetNode> nodeStack = new SinglyLinkedList<>();
         nodeStack.push(root);
@@ -55,51 +91,190 @@ public class PowerSetTree {
         }
     }
 
-    /* If a rank can be reused from the rankQueue, returns that rank. Otherwise returns and increments nextRank. */
-    private int getAvailableRank() {
-        if(!rankQueue.isEmpty()) {
-            // Try to reuse a rank
-            return rankQueue.pop();
-        } else {
-            // There are no available ranks to be reused
-            return nextRank++;
+    /* Scrambles the bits of the specified rank for use as a hash table index, ranks tend to be sequential. */
+    private static int spread(int rank) {
+        int h = rank * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Returns the record object for objects equal to the specified object belonging to the calling thread's current
+     * epoch. */
+    private RankedObject getRankedObject(Object object) {
+        return getRankedObject(object, LabelEpoch.getCurrent());
+    }
+
+    /* Returns the record object for objects equal to the specified object belonging to the specified epoch, creating and
+     * registering a new record if an equal object is not already registered for that epoch. This record contains the an
+     * object equal to the specified object and the rank assigned to objects equal to the specified object. */
+    private RankedObject getRankedObject(Object object, LabelEpoch epoch) {
+        for(int i = 0; i < SWEEP_BATCH_SIZE; i++) {
+            Reference<?> ref = CollectedReferences.QUEUE.poll();
+            if(ref == null) {
+                break;
+            }
+            reclaim(ref);
         }
+        int hash = object.hashCode();
+        return getRankStripe(hash).getRankedObject(object, hash, epoch);
     }
 
-    /* Stores the specified object in the rankMap if an equal object is not already represented in the list. Returns
-     * the record object for objects equal to the specified object. This record contains the an object equal to the specified
-     * object and the rank assigned to objects equal to the specified object. */
-    private synchronized RankedObject getRankedObject(Object object) {
+    /* Returns the record object for objects equal to the specified object that do not belong to an epoch or null if no
+     * such object is registered. */
+    private RankedObject findRankedObject(Object object) {
         int hash = object.hashCode();
-        if(!rankMap.contains(hash)) {
-            SinglyLinkedList<RankReference> list = new SinglyLinkedList<>();
-            rankMap.put(hash, list);
-            RankedObject ret = new RankedObject(object, getAvailableRank());
-            list.push(new RankReference(ret));
-            return ret;
-        } else {
-            SinglyLinkedList<RankReference> list = rankMap.get(hash);
-            Iterator<RankReference> it = list.iterator();
-            while(it.hasNext()) {
-                RankReference ref = it.next();
-                RankedObject ro = ref.get();
-                if(ro == null) {
-                    // Remove reference with garbage collected referent from list
-                    it.remove();
-                    // Push the rank of the garbage collected object onto the stack so that it can be reused
-                    rankQueue.push(ref.rank);
-                } else if(object.equals(ro.object)) {
-                    // Existing rank for the specified object was found
-                    return ro;
+        return getRankStripe(hash).findRankedObject(object, hash);
+    }
+
+    /* Returns whether every one of the specified elements is equal to one of the specified unique labels and every one of
+     * the labels is equal to one of the elements. Used when equal elements belonging to different epochs may both be
+     * present in a set. */
+    private static boolean containsExactly(SinglyLinkedList<Object> elements, Object[] labels) {
+        for(Object element : elements) {
+            boolean found = false;
+            for(int i = 0; i < labels.length && !found; i++) {
+                found = element.equals(labels[i]);
+            }
+            if(!found) {
+                return false;
+            }
+        }
+        for(Object label : labels) {
+            boolean found = false;
+            for(Object element : elements) {
+                if(element.equals(label)) {
+                    found = true;
+                    break;
                 }
             }
-            // No existing rank for the specified object was found
-            RankedObject ret = new RankedObject(object, getAvailableRank());
-            list.push(new RankReference(ret));
-            return ret;
+            if(!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Returns the bit that represents objects with the specified rank in set signatures. */
+    private static long signatureBit(int rank) {
+        return 1L << (spread(rank) & 63);
+    }
+
+    /* Returns the stripe of the rank registry for objects with the specified hash code. */
+    private RankStripe getRankStripe(int hash) {
+        return rankStripes[(hash ^ (hash >>> 16)) & (RANK_STRIPES - 1)];
+    }
+
+    /* Reclaims the table slot occupied by the specified reference whose referent has been garbage collected. */
+    private void reclaim(Reference<?> ref) {
+        if(ref instanceof ChildReference) {
+            if(Configuration.TAINT_STATISTICS) {
+                Statistics.reclaimedNodes.increment();
+            }
+            ((ChildReference) ref).parent.pruneChildren();
+        } else if(ref instanceof RankReference) {
+            RankReference rankRef = (RankReference) ref;
+            getRankStripe(rankRef.hash).expunge(rankRef);
         }
     }
 
+    /* Reclaims the slots of all references whose referents have been garbage collected and that have been enqueued but not
+     * yet reclaimed. Returns the number of references that were reclaimed. */
+    public int sweep() {
+        int count = 0;
+        for(Reference<?> ref = CollectedReferences.QUEUE.poll(); ref != null; ref = CollectedReferences.QUEUE.poll()) {
+            reclaim(ref);
+            count++;
+        }
+        return count;
+    }
+
+    /* Starts a daemon thread that reclaims references as soon as their referents are garbage collected, if one is not
+     * already running. */
+    public synchronized void startSweeper() {
+        if(sweeper == null) {
+            sweeper = new Sweeper(this);
+            sweeper.start();
+        }
+    }
+
+    /* Stops the daemon thread started by startSweeper, if it is running. */
+    public synchronized void stopSweeper() {
+        if(sweeper != null) {
+            sweeper.interrupt();
+            sweeper = null;
+        }
+    }
+
+    /* Returns the number of nodes other than the root that are reachable in the tree and have not been garbage collected.
+     * Walks the entire tree and acquires the lock of every child table, so it is meant for diagnostics rather than for
+     * polling. */
+    public long getLiveNodeCount() {
+        return countSlots()[0];
+    }
+
+    /* Returns the number of slots in child tables and the rank registry that are occupied by references whose referents
+     * were garbage collected. Walks the entire tree. */
+    public long getDeadSlotCount() {
+        long dead = countSlots()[1];
+        for(RankStripe stripe : rankStripes) {
+            dead += stripe.countDeadSlots();
+        }
+        return dead;
+    }
+
+    /* Returns the number of nodes other than the root that were created minus the number of nodes whose collection was
+     * processed by the sweeper or a sweep, both counted while Configuration.TAINT_STATISTICS was true. Unlike
+     * getLiveNodeCount, does not walk the tree. */
+    public long getNodeCount() {
+        return Statistics.createdNodes.sum() - Statistics.reclaimedNodes.sum();
+    }
+
+    /* Returns the number of objects registered in the rank registry, including garbage collected objects whose entries
+     * have not yet been expunged. */
+    public long getRankCount() {
+        long count = 0;
+        for(RankStripe stripe : rankStripes) {
+            count += stripe.getSize();
+        }
+        return count;
+    }
+
+    /* Returns the number of times that the rank of a garbage collected object was assigned to a new object while
+     * Configuration.TAINT_STATISTICS was true. */
+    public long getRecycledRankCount() {
+        return Statistics.recycledRanks.sum();
+    }
+
+    /* Returns an array containing the number of live child slots and the number of dead child slots in the tree's child
+     * tables. */
+    private long[] countSlots() {
+        long[] counts = new long[2];
+        SinglyLinkedList<SetNode> nodeStack = new SinglyLinkedList<>();
+        nodeStack.push(root);
+        while(!nodeStack.isEmpty()) {
+            SetNode node = nodeStack.pop();
+            ChildTable table = node.children;
+            if(table != null) {
+                table.countSlots(counts);
+            }
+            for(SetNode child : node.getChildren()) {
+                nodeStack.push(child);
+            }
+        }
+        return counts;
+    }
+
+    /* Returns the number of unions whose result was found in a node's union cache while Configuration.TAINT_STATISTICS
+     * was true. */
+    public long getUnionCacheHits() {
+        return Statistics.unionCacheHits.sum();
+    }
+
+    /* Returns the number of unions of two non-empty, distinct sets whose result was not found in a node's union cache
+     * while Configuration.TAINT_STATISTICS was true. */
+    public long getUnionCacheMisses() {
+        return Statistics.unionCacheMisses.sum();
+    }
+
     /* Returns the node representing the empty set. */
     public SetNode emptySet() {
         return root;
@@ -114,6 +289,16 @@ public class PowerSetTree {
         return root.addChild(getRankedObject(element));
     }
 
+    /* Returns an InlineSet representing the set containing only the specified element or the node representing the empty
+     * set if the specified element is null. */
+    public Taint makeInlineSingletonSet(Object element) {
+        if(element == null) {
+            // Null elements cannot be added to sets; return the node representing the empty set
+            return emptySet();
+        }
+        return new InlineSet(new RankedObject[]{getRankedObject(element)}, 1, generation);
+    }
+
     /* Returns the singleton instance of PowerSetTree. */
     public static PowerSetTree getInstance() {
         return PowerSetTreeSingleton.INSTANCE;
@@ -132,25 +317,56 @@ public class PowerSetTree {
         private transient volatile SetNode parent;
         // Stores child nodes that represent the union of the set represented by this node with a singleton set containing
         // the key of the child node. Children is null until at least one child node is added.
-        private transient IntObjectAMT<WeakReference<SetNode>> children;
+        private transient volatile ChildTable children;
+        // Direct-mapped cache of the results of previous unions of this set with other sets, indexed by the rank of the
+        // other set's key. Null until this node is first used as the receiver of a union with a distinct non-empty set.
+        private transient volatile UnionCacheEntry[] unionCache;
+        // Bloom-style summary of the ranks of the elements of the set represented by this node. Each element sets the
+        // bit selected by its rank, so a set whose signature lacks some element's bit cannot contain that element.
+        private transient long signature;
+        // The number of elements in the set represented by this node
+        private transient int depth;
+        // Summary of the epochs of the elements of the set represented by this node: null if no element belongs to an
+        // epoch, the epoch if every element belongs to the same epoch, MIXED_EPOCHS if every element belongs to an epoch
+        // but not all to the same one and PARTIAL_EPOCHS if some but not all elements belong to epochs
+        private transient Object scope;
+        // Whether every element of this set is known to belong to a retired epoch. Epochs are never unretired, so once
+        // set this remains true.
+        private transient boolean retired;
+        // The epoch retirement count at which some element of this set was last found not to belong to a retired epoch,
+        // -1 if none was. Read and written without synchronization: both this and retired only ever record facts.
+        private transient int unretiredAt = -1;
 
         /* Constructs a new set node with no child nodes. */
         private SetNode(RankedObject key, SetNode parent) {
             this.key = key;
             this.parent = parent;
             this.children = null;
+            if(parent != null) {
+                this.signature = parent.signature | signatureBit(key.rank);
+                this.depth = parent.depth + 1;
+                this.scope = parent.parent == null ? key.epoch : combineScopes(parent.scope, key.epoch);
+            }
+        }
+
+        /* Returns the epoch summary of a set formed by adding an element belonging to the specified epoch to a non-empty
+         * set with the specified summary. */
+        private static Object combineScopes(Object scope, LabelEpoch epoch) {
+            if(scope == PARTIAL_EPOCHS || scope == epoch) {
+                return scope;
+            } else if(scope == null || epoch == null) {
+                return PARTIAL_EPOCHS;
+            } else {
+                return MIXED_EPOCHS;
+            }
         }
 
         /* Returns all non-null child nodes of this node. */
         private synchronized SinglyLinkedList<SetNode> getChildren() {
             SinglyLinkedList<SetNode> list = new SinglyLinkedList<>();
-            if (children != null) {
-                for (WeakReference<SetNode> ref : children.values()) {
-                    SetNode node = ref.get();
-                    if (node != null) {
-                        list.enqueue(node);
-                    }
-                }
+            ChildTable table = children;
+            if(table != null) {
+                table.collectChildren(list);
             }
             return list;
         }
@@ -160,41 +376,117 @@ public class PowerSetTree {
             this.key = null;
             this.parent = null;
             this.children = null;
+            this.unionCache = null;
+            this.signature = 0;
+            this.depth = 0;
+            this.scope = null;
+        }
+
+        /* Returns the cached result of the union of this set with the specified other set or null if no live result is
+         * cached. */
+        private SetNode getCachedUnion(SetNode other) {
+            UnionCacheEntry[] cache = unionCache;
+            if(cache != null) {
+                UnionCacheEntry entry = cache[spread(other.key.rank) & (UNION_CACHE_SIZE - 1)];
+                if(entry != null && entry.get() == other) {
+                    return entry.result.get();
+                }
+            }
+            return null;
+        }
+
+        /* Records the specified result as the union of this set with the specified other set, evicting any entry for a
+         * different set with the same cache index. */
+        private void cacheUnion(SetNode other, SetNode result) {
+            UnionCacheEntry[] cache = unionCache;
+            if(cache == null) {
+                // Racing initializations may each install a cache; losing one only costs a few misses
+                cache = new UnionCacheEntry[UNION_CACHE_SIZE];
+                unionCache = cache;
+            }
+            cache[spread(other.key.rank) & (UNION_CACHE_SIZE - 1)] = new UnionCacheEntry(other, result);
         }
 
         /* Adds a new entry to this node's map of child nodes for the specified key if one does not already exist.
-         * Returns the child node for the specified key. */
+         * Returns the child node for the specified key. Does not lock this node unless its child table needs to be
+         * replaced with a larger one. */
         private SetNode addChild(RankedObject childKey) {
-            synchronized (this) {
-                if (children == null) {
-                    // Initialize the child map
-                    children = new IntObjectAMT<>();
-                }
-                if (!children.contains(childKey.rank)) {
-                    // There is no entry for child key
-                    SetNode node = new SetNode(childKey, this);
-                    children.put(childKey.rank, new WeakReference<>(node));
-                    return node;
-                } else {
-                    SetNode childNode = children.get(childKey.rank).get();
-                    if (childNode != null) {
-                        // There is an existing non-garbage collected entry for the child key
-                        return childNode;
-                    } else {
-                        // The entry for the child key has been garbage collected
-                        SetNode node = new SetNode(childKey, this);
-                        children.put(childKey.rank, new WeakReference<>(node));
-                        return node;
+            while(true) {
+                ChildTable table = children;
+                if(table == null) {
+                    synchronized(this) {
+                        if(children == null) {
+                            // Initialize the child map
+                            children = new ChildTable(ChildTable.INITIAL_CAPACITY);
+                        }
+                    }
+                    continue;
+                }
+                SetNode child = table.getOrCreate(this, childKey);
+                if(child != null) {
+                    return child;
+                }
+                // The table is full or is being replaced
+                synchronized(this) {
+                    if(children == table) {
+                        children = table.transfer();
+                    }
+                }
+            }
+        }
+
+        /* Records that one of this node's children was garbage collected. Replaces the child table with one containing only
+         * the live children once at least half of the table's entries are dead. */
+        private void pruneChildren() {
+            ChildTable table = children;
+            if(table != null && table.recordDeadEntry()) {
+                synchronized(this) {
+                    if(children == table) {
+                        children = table.transfer();
                     }
                 }
             }
         }
 
-        /* Returns whether this node represents the empty set or a quasi-empty set. */
+        /* Returns whether this node represents the empty set or a quasi-empty set. A set whose elements all belong to
+         * retired epochs is quasi-empty. */
         public boolean isEmpty() {
+            return this.parent == null || (scope != null && scope != PARTIAL_EPOCHS && allElementsRetired());
+        }
+
+        /* Returns whether this node is the root of the tree or a node emptied by a reset of the tree. */
+        private boolean isRoot() {
             return this.parent == null;
         }
 
+        /* Returns whether every element of the set represented by this non-root node belongs to a retired epoch. */
+        private boolean allElementsRetired() {
+            if(scope instanceof LabelEpoch) {
+                return ((LabelEpoch) scope).isRetired();
+            } else if(retired) {
+                return true;
+            }
+            // Read the count before walking the path so that a retirement during the walk makes the result stale
+            int retirements = LabelEpoch.getRetirementCount();
+            if(unretiredAt == retirements) {
+                return false;
+            }
+            for(SetNode cur = this; !cur.isRoot(); cur = cur.parent) {
+                if(!cur.key.isRetired()) {
+                    unretiredAt = retirements;
+                    return false;
+                }
+            }
+            retired = true;
+            return true;
+        }
+
+        /* Returns whether some but not necessarily all of the elements of the set represented by this node might belong
+         * to retired epochs. Such elements must be skipped when the elements of the set are examined. */
+        private boolean mayHaveRetiredElements() {
+            return scope == MIXED_EPOCHS || scope == PARTIAL_EPOCHS;
+        }
+
         @Override
         public String toString() {
             return "Taint [Labels = [" + toList() + "]";
@@ -214,19 +506,43 @@ public class PowerSetTree {
         }
 
         /* Returns a node that represents the set union of the set represented by this node with the set represented by
-         * the specified other node. Does not change the elements contained by the sets represented by either original node */
+         * the specified other node or InlineSet. Does not change the elements contained by the sets represented by either
+         * original set */
         public SetNode union(Taint _other) {
             if (_other == null) {
                 return this;
             }
+            if (_other instanceof InlineSet) {
+                // Move the other set into the tree so that it can be merged with this set's path
+                _other = ((InlineSet) _other).toSetNode();
+            } else if (_other instanceof BitSetTaint) {
+                _other = ((BitSetTaint) _other).toSetNode();
+            }
             SetNode other = (SetNode) _other;
-            SinglyLinkedList<RankedObject> mergedList = new SinglyLinkedList<>();
             // If the this set is empty ensure the node representing the empty set is used
             SetNode cur = this.isEmpty() ? PowerSetTree.getInstance().emptySet() : this;
             // If the other set is empty ensure the node representing the empty set is used
             other = other.isEmpty() ? PowerSetTree.getInstance().emptySet() : other;
+            if(cur == other || other.isRoot()) {
+                return cur;
+            } else if(cur.isRoot()) {
+                return other;
+            }
+            SetNode cached = cur.getCachedUnion(other);
+            if(cached != null) {
+                if(Configuration.TAINT_STATISTICS) {
+                    Statistics.unionCacheHits.increment();
+                }
+                return cached;
+            }
+            if(Configuration.TAINT_STATISTICS) {
+                Statistics.unionCacheMisses.increment();
+            }
+            SetNode receiver = cur;
+            SetNode operand = other;
+            SinglyLinkedList<RankedObject> mergedList = new SinglyLinkedList<>();
             // Maintain a sorted list of objects popped off from the two sets until one set is exhausted
-            while (!cur.isEmpty() && !other.isEmpty()) {
+            while (!cur.isRoot() && !other.isRoot()) {
                 if (cur == other) {
                     break;
                 } else if (cur.key.rank == other.key.rank) {
@@ -242,27 +558,36 @@ public class PowerSetTree {
                 }
             }
             // Find the node for the non-exhausted set
-            SetNode result = cur.isEmpty() ? other : cur;
+            SetNode result = cur.isRoot() ? other : cur;
             // Move down the path in the tree for the merged list adding child nodes as necessary
             while (!mergedList.isEmpty()) {
                 result = result.addChild(mergedList.pop());
             }
+            receiver.cacheUnion(operand, result);
             return result;
         }
 
         /* Return a node representing the set union of the set represented by this node and the singleton set containing
-         * the specified element. Does not change the elements contained by the set represented by this node. */
+         * the specified element. The element belongs to the calling thread's current epoch, if any. Does not change the
+         * elements contained by the set represented by this node. */
         public SetNode add(Object element) {
+            return add(element, LabelEpoch.getCurrent());
+        }
+
+        /* Return a node representing the set union of the set represented by this node and the singleton set containing
+         * the specified element belonging to the specified epoch. Does not change the elements contained by the set
+         * represented by this node. */
+        SetNode add(Object element, LabelEpoch epoch) {
             if (element == null) {
                 return this;
             }
-            RankedObject obj = PowerSetTree.getInstance().getRankedObject(element);
+            RankedObject obj = PowerSetTree.getInstance().getRankedObject(element, epoch);
             SinglyLinkedList<RankedObject> list = new SinglyLinkedList<>();
             // If the this set is empty ensure the node representing the empty set is used
             SetNode cur = this.isEmpty() ? PowerSetTree.getInstance().emptySet() : this;
             // Maintain a sorted list of objects popped off from this set until the right place to insert the new element
             // is found
-            while (!cur.isEmpty()) {
+            while (!cur.isRoot()) {
                 if (cur.key.rank == obj.rank) {
                     // The specified element was already in the list
                     return this;
@@ -282,13 +607,43 @@ public class PowerSetTree {
             return cur;
         }
 
+        @Override
+        public boolean containsOnlyLabels(Object[] labels) {
+            if (LabelEpoch.isInUse() || scope == PARTIAL_EPOCHS) {
+                // The depth of a set that mixes labels with and without epochs includes its retired labels
+                return containsExactly(toList(), labels);
+            } else if (labels.length != (isEmpty() ? 0 : depth)) {
+                return false;
+            }
+            for (Object label : labels) {
+                if (!containsLabel(label)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         /* Returns whether the set represented by this node contains the specified element. */
         public boolean contains(Object element) {
             if (element == null || isEmpty()) {
                 return false;
+            } else if (LabelEpoch.isInUse()) {
+                // Elements equal to the specified element may belong to several epochs, compare the elements themselves
+                for (SetNode cur = this; !cur.isRoot(); cur = cur.parent) {
+                    if (cur.key.object.equals(element) && !cur.key.isRetired()) {
+                        return true;
+                    }
+                }
+                return false;
             }
-            for (SetNode cur = this; !cur.isEmpty(); cur = cur.parent) {
-                if (cur.key.object.equals(element)) {
+            RankedObject obj = PowerSetTree.getInstance().findRankedObject(element);
+            if (obj == null || (signature & signatureBit(obj.rank)) == 0) {
+                // No set contains the element or this set's signature rules it out
+                return false;
+            }
+            // Ranks decrease along the path to the root, so stop once they fall below the element's rank
+            for (SetNode cur = this; !cur.isRoot() && cur.key.rank >= obj.rank; cur = cur.parent) {
+                if (cur.key.rank == obj.rank) {
                     return true;
                 }
             }
@@ -298,13 +653,26 @@ public class PowerSetTree {
         /* Returns whether the set represented by this node is a superset of the set represented by the specified other
          * node. */
         public boolean isSuperset(Taint _other) {
-            if (_other == null) {
+            if (_other == null || _other.isEmpty()) {
                 return true;
+            } else if (isEmpty()) {
+                return false;
+            } else if (mayHaveRetiredElements() || _other instanceof BitSetTaint) {
+                return containsAll(_other);
+            } else if (_other instanceof InlineSet) {
+                InlineSet inline = (InlineSet) _other;
+                return inline.hasRetiredElements() ? containsAll(inline) : isSuperset(inline);
             }
             SetNode other = (SetNode) _other;
+            if (other.mayHaveRetiredElements()) {
+                return containsAll(other);
+            } else if ((other.signature & ~signature) != 0 || other.depth > depth) {
+                // The other set has an element whose bit is missing from this set's signature or more elements
+                return false;
+            }
             SetNode cur = this;
-            while (!other.isEmpty()) {
-                if (cur.isEmpty()) {
+            while (!other.isRoot()) {
+                if (cur.isRoot()) {
                     return false;
                 }
                 if (cur == other) {
@@ -321,17 +689,58 @@ public class PowerSetTree {
             return true;
         }
 
-        /* Returns a list containing the elements of the set represented by this node. */
+        /* Returns whether the set represented by this non-empty node is a superset of the set represented by the
+         * specified non-empty InlineSet. */
+        private boolean isSuperset(InlineSet other) {
+            long otherSignature = 0;
+            for (int i = 0; i < other.size; i++) {
+                otherSignature |= signatureBit(other.getKey(i).rank);
+            }
+            if ((otherSignature & ~signature) != 0) {
+                return false;
+            }
+            SetNode cur = this;
+            // Match the other set's elements from highest to lowest rank against the path from this node to the root
+            for (int i = other.size - 1; i >= 0; i--) {
+                int rank = other.getKey(i).rank;
+                while (!cur.isRoot() && cur.key.rank > rank) {
+                    cur = cur.parent;
+                }
+                if (cur.isRoot() || cur.key.rank != rank) {
+                    return false;
+                }
+                cur = cur.parent;
+            }
+            return true;
+        }
+
+        /* Returns whether the set represented by this node contains every label of the specified set. */
+        private boolean containsAll(Taint other) {
+            for (Object label : other.getLabels()) {
+                if (!contains(label)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /* Returns a list containing the elements of the set represented by this node, excluding elements that belong to
+         * retired epochs. */
         public SinglyLinkedList<Object> toList() {
             SinglyLinkedList<Object> list = new SinglyLinkedList<>();
+            if (isEmpty()) {
+                return list;
+            }
+            boolean filter = mayHaveRetiredElements();
             // Walk to the root adding the objects associated with the nodes' key values to the list
-            for (SetNode cur = this; !cur.isEmpty(); cur = cur.parent) {
-                list.push(cur.key.object);
+            for (SetNode cur = this; !cur.isRoot(); cur = cur.parent) {
+                if (!filter || !cur.key.isRetired()) {
+                    list.push(cur.key.object);
+                }
             }
             return list;
         }
 
-
         private void writeObject(ObjectOutputStream out) throws IOException {
             out.defaultWriteObject();
             out.writeObject(toList());
@@ -352,6 +761,730 @@ public class PowerSetTree {
         }
     }
 
+    /* Represents a set with between one and MAX_LABELS elements by storing the set's ranked elements directly in fields
+     * sorted by increasing rank. Unlike SetNodes, InlineSets are not unique: two InlineSets representing the same set are
+     * equal with respect to the equals method but not necessarily referentially equal. The union of InlineSets whose
+     * result has more than MAX_LABELS elements is represented by a SetNode. */
+    public static final class InlineSet extends Taint {
+
+        private static final long serialVersionUID = -4396158519457209137L;
+        // The maximum number of elements stored in an InlineSet
+        public static final int MAX_LABELS = 4;
+        // The elements of the set in increasing order of rank, keys at indices greater than or equal to size are null
+        private transient RankedObject key0;
+        private transient RankedObject key1;
+        private transient RankedObject key2;
+        private transient RankedObject key3;
+        // The number of elements in the set
+        private transient int size;
+        // The generation of the tree in which this set was created
+        private transient int generation;
+        // Used during deserialization to hold the set that should replace the deserialized instance
+        private transient Taint resolved;
+
+        /* Constructs a new set containing the first size elements of the specified array, which must be sorted by
+         * increasing rank. */
+        private InlineSet(RankedObject[] keys, int size, int generation) {
+            this.size = size;
+            this.generation = generation;
+            this.key0 = keys[0];
+            this.key1 = size > 1 ? keys[1] : null;
+            this.key2 = size > 2 ? keys[2] : null;
+            this.key3 = size > 3 ? keys[3] : null;
+        }
+
+        /* Returns the element of this set at the specified index in increasing order of rank. */
+        private RankedObject getKey(int index) {
+            switch(index) {
+                case 0:
+                    return key0;
+                case 1:
+                    return key1;
+                case 2:
+                    return key2;
+                default:
+                    return key3;
+            }
+        }
+
+        /* Returns whether this set was created before the most recent reset of the tree or all of its elements belong to
+         * retired epochs. */
+        @Override
+        public boolean isEmpty() {
+            if(generation != PowerSetTree.getInstance().generation) {
+                return true;
+            }
+            for(int i = 0; i < size; i++) {
+                if(!getKey(i).isRetired()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean containsOnlyLabels(Object[] labels) {
+            if(LabelEpoch.isInUse()) {
+                return containsExactly(toList(), labels);
+            }
+            return super.containsOnlyLabels(labels);
+        }
+
+        /* Returns whether some of the elements of this set belong to retired epochs. */
+        private boolean hasRetiredElements() {
+            for(int i = 0; i < size; i++) {
+                if(getKey(i).isRetired()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /* Returns whether this set contains an element with the specified rank. */
+        private boolean containsRank(int rank) {
+            for(int i = 0; i < size; i++) {
+                if(getKey(i).rank == rank) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean containsLabel(Object label) {
+            if(label == null) {
+                return true;
+            } else if(isEmpty()) {
+                return false;
+            }
+            for(int i = 0; i < size; i++) {
+                if(getKey(i).object.equals(label) && !getKey(i).isRetired()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Object[] getLabels() {
+            return toList().toArray();
+        }
+
+        /* Returns a set that represents the union of this set with the specified other set. Does not change the elements
+         * contained by either original set. */
+        @Override
+        public Taint union(Taint other) {
+            if(isEmpty()) {
+                return other == null || other.isEmpty() ? PowerSetTree.getInstance().emptySet() : other;
+            } else if(other == null || other == this || other.isEmpty()) {
+                return this;
+            } else if(other instanceof InlineSet) {
+                return union((InlineSet) other);
+            } else if(other instanceof BitSetTaint) {
+                return toSetNode().union(other);
+            } else {
+                return ((SetNode) other).union(this);
+            }
+        }
+
+        /* Returns a set that represents the union of this set with the specified other non-empty InlineSet. */
+        private Taint union(InlineSet other) {
+            RankedObject[] merged = new RankedObject[size + other.size];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while(i < size && j < other.size) {
+                RankedObject a = getKey(i);
+                RankedObject b = other.getKey(j);
+                if(a.rank == b.rank) {
+                    merged[n++] = a;
+                    i++;
+                    j++;
+                } else if(a.rank < b.rank) {
+                    merged[n++] = a;
+                    i++;
+                } else {
+                    merged[n++] = b;
+                    j++;
+                }
+            }
+            while(i < size) {
+                merged[n++] = getKey(i++);
+            }
+            while(j < other.size) {
+                merged[n++] = other.getKey(j++);
+            }
+            if(n == size) {
+                // The other set is a subset of this set
+                return this;
+            } else if(n == other.size) {
+                // This set is a subset of the other set
+                return other;
+            } else if(n <= MAX_LABELS) {
+                return new InlineSet(merged, n, generation);
+            }
+            SetNode result = PowerSetTree.getInstance().emptySet();
+            for(int k = 0; k < n; k++) {
+                result = result.addChild(merged[k]);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isSuperset(Taint other) {
+            if(other == null || other.isEmpty()) {
+                return true;
+            } else if(isEmpty()) {
+                return false;
+            } else if(other instanceof BitSetTaint || hasRetiredElements()
+                    || (other instanceof InlineSet && ((InlineSet) other).hasRetiredElements())
+                    || (other instanceof SetNode && ((SetNode) other).mayHaveRetiredElements())) {
+                for(Object label : other.getLabels()) {
+                    if(!containsLabel(label)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if(other instanceof InlineSet) {
+                InlineSet o = (InlineSet) other;
+                if(o.size > size) {
+                    return false;
+                }
+                for(int i = 0; i < o.size; i++) {
+                    if(!containsRank(o.getKey(i).rank)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else {
+                int count = 0;
+                for(SetNode cur = (SetNode) other; !cur.isRoot(); cur = cur.parent) {
+                    if(++count > size || !containsRank(cur.key.rank)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        /* Returns the node of the tree that represents the same set as this set. */
+        private SetNode toSetNode() {
+            SetNode result = PowerSetTree.getInstance().emptySet();
+            if(!isEmpty()) {
+                for(int i = 0; i < size; i++) {
+                    result = result.addChild(getKey(i));
+                }
+            }
+            return result;
+        }
+
+        /* Returns a list containing the elements of this set, excluding elements that belong to retired epochs. */
+        public SinglyLinkedList<Object> toList() {
+            SinglyLinkedList<Object> list = new SinglyLinkedList<>();
+            if(!isEmpty()) {
+                for(int i = 0; i < size; i++) {
+                    if(!getKey(i).isRetired()) {
+                        list.enqueue(getKey(i).object);
+                    }
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public String toString() {
+            return "Taint [Labels = [" + toList() + "]";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) {
+                return true;
+            } else if(!(o instanceof InlineSet)) {
+                return false;
+            }
+            InlineSet other = (InlineSet) o;
+            if(size != other.size || generation != other.generation) {
+                return false;
+            }
+            for(int i = 0; i < size; i++) {
+                if(getKey(i) != other.getKey(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = generation;
+            for(int i = 0; i < size; i++) {
+                result = 31 * result + getKey(i).rank;
+            }
+            return result;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeObject(toList());
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            SinglyLinkedList<Object> labels = (SinglyLinkedList<Object>) in.readObject();
+            Taint ret = Taint.emptyTaint();
+            for(Object o : labels) {
+                ret = Taint.combineTags(ret, Taint.withLabel(o));
+            }
+            this.resolved = ret;
+        }
+
+        private Object readResolve() {
+            return this.resolved;
+        }
+    }
+
+    /* Open-addressing hash table that maps ranks to weakly-referenced child nodes. Lookups never lock. New entries
+     * are published into empty slots or slots whose referent was garbage collected via compare-and-swap. Entries are
+     * never removed from a table; instead, when a table becomes too full its owner replaces it while holding the owner's
+     * monitor. During a replacement every slot of the old table is swapped to MOVED, so an insertion into the old table
+     * either happens before its slot is copied or fails and is retried against the replacement table. */
+    private static final class ChildTable {
+
+        // The capacity of a node's first child table
+        private static final int INITIAL_CAPACITY = 4;
+        // Placeholder for slots of a table that has been replaced
+        private static final ChildReference MOVED = new ChildReference(null, 0, null, null);
+        private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+        private static final long SLOTS_BASE = UNSAFE.arrayBaseOffset(ChildReference[].class);
+        private static final int SLOTS_SHIFT = 31 - Integer.numberOfLeadingZeros(UNSAFE.arrayIndexScale(ChildReference[].class));
+        private static final long SIZE_BASE = UNSAFE.arrayBaseOffset(int[].class);
+        private static final long DEAD_OFFSET = SIZE_BASE + UNSAFE.arrayIndexScale(int[].class);
+
+        // Slots of the table, accessed with volatile semantics
+        private final ChildReference[] slots;
+        // Holds the number of non-null slots in the table followed by the number of entries reported to be dead. Kept in
+        // array cells rather than fields so that they can be atomically incremented without looking up field offsets
+        // reflectively.
+        private final int[] size = new int[2];
+
+        private ChildTable(int capacity) {
+            this.slots = new ChildReference[capacity];
+        }
+
+        private ChildReference getSlot(int i) {
+            return (ChildReference) UNSAFE.getObjectVolatile(slots, SLOTS_BASE + ((long) i << SLOTS_SHIFT));
+        }
+
+        private boolean casSlot(int i, ChildReference expected, ChildReference value) {
+            return UNSAFE.compareAndSwapObject(slots, SLOTS_BASE + ((long) i << SLOTS_SHIFT), expected, value);
+        }
+
+        /* Returns the live child of the specified parent for the specified key, creating and publishing a new child if
+         * necessary. Returns null if this table is full or has been replaced. */
+        private SetNode getOrCreate(SetNode parent, RankedObject key) {
+            int mask = slots.length - 1;
+            SetNode created = null;
+            ChildReference createdRef = null;
+            int i = spread(key.rank) & mask;
+            int probes = 0;
+            while(probes < slots.length) {
+                ChildReference ref = getSlot(i);
+                if(ref == MOVED) {
+                    return null;
+                } else if(ref == null || ref.rank == key.rank) {
+                    SetNode existing = ref == null ? null : ref.get();
+                    if(existing != null) {
+                        return existing;
+                    } else if(ref == null && (UNSAFE.getIntVolatile(size, SIZE_BASE) + 1) * 4 > slots.length * 3) {
+                        // Adding a new entry would overfill the table
+                        return null;
+                    }
+                    if(created == null) {
+                        created = new SetNode(key, parent);
+                        createdRef = new ChildReference(created, key.rank, parent, CollectedReferences.QUEUE);
+                    }
+                    if(casSlot(i, ref, createdRef)) {
+                        if(Configuration.TAINT_STATISTICS) {
+                            Statistics.createdNodes.increment();
+                        }
+                        if(ref == null) {
+                            UNSAFE.getAndAddInt(size, SIZE_BASE, 1);
+                        }
+                        return created;
+                    }
+                    // Lost a race for the slot, re-examine it
+                } else {
+                    probes++;
+                    i = (i + 1) & mask;
+                }
+            }
+            return null;
+        }
+
+        /* Marks every slot of this table as MOVED and returns a new table containing this table's live entries. Must
+         * only be called by a thread holding the owning node's monitor. */
+        private ChildTable transfer() {
+            SinglyLinkedList<ChildReference> live = new SinglyLinkedList<>();
+            for(int i = 0; i < slots.length; i++) {
+                ChildReference ref;
+                do {
+                    ref = getSlot(i);
+                } while(!casSlot(i, ref, MOVED));
+                if(ref != null && ref.get() != null) {
+                    live.push(ref);
+                }
+            }
+            int capacity = INITIAL_CAPACITY;
+            while((live.size() + 1) * 2 > capacity) {
+                capacity <<= 1;
+            }
+            ChildTable table = new ChildTable(capacity);
+            int mask = capacity - 1;
+            for(ChildReference ref : live) {
+                int i = spread(ref.rank) & mask;
+                while(table.slots[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table.slots[i] = ref;
+            }
+            table.size[0] = live.size();
+            return table;
+        }
+
+        /* Records that the referent of one of this table's entries was garbage collected. Returns true if at least half of
+         * the table's entries are now known to be dead. Entries that were already dropped or replaced when they are
+         * reported are still counted, which can only cause the table to be rebuilt early. */
+        private boolean recordDeadEntry() {
+            int dead = UNSAFE.getAndAddInt(size, DEAD_OFFSET, 1) + 1;
+            return dead * 2 >= UNSAFE.getIntVolatile(size, SIZE_BASE);
+        }
+
+        /* Adds the number of live entries and the number of dead entries in this table to the first and second elements
+         * of the specified array. */
+        private void countSlots(long[] counts) {
+            for(int i = 0; i < slots.length; i++) {
+                ChildReference ref = getSlot(i);
+                if(ref != null && ref != MOVED) {
+                    counts[ref.get() == null ? 1 : 0]++;
+                }
+            }
+        }
+
+        /* Adds the live child nodes in this table to the specified list. */
+        private void collectChildren(SinglyLinkedList<SetNode> list) {
+            for(int i = 0; i < slots.length; i++) {
+                ChildReference ref = getSlot(i);
+                if(ref != null && ref != MOVED) {
+                    SetNode node = ref.get();
+                    if(node != null) {
+                        list.enqueue(node);
+                    }
+                }
+            }
+        }
+    }
+
+    /* Entry in a node's union cache. Weakly references both the other operand of the union and the union's result so that
+     * caching a union never prevents either node from being garbage collected. */
+    private static final class UnionCacheEntry extends WeakReference<SetNode> {
+
+        // The result of the union of the node owning this entry with the referent
+        private final WeakReference<SetNode> result;
+
+        UnionCacheEntry(SetNode other, SetNode result) {
+            super(other);
+            this.result = new WeakReference<>(result);
+        }
+    }
+
+    /* Weak reference to a child node that remembers the rank of the child's key and the node whose child table holds the
+     * reference. */
+    private static final class ChildReference extends WeakReference<SetNode> {
+
+        // The rank of the key of the referent
+        private final int rank;
+        // The parent of the referent
+        private final SetNode parent;
+
+        ChildReference(SetNode referent, int rank, SetNode parent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.rank = rank;
+            this.parent = parent;
+        }
+    }
+
+    /* A stripe of the rank registry. Maps objects to their ranks with an open-addressing hash table that uses linear
+     * probing. Each slot holds a weak reference to a ranked object and, in a parallel array, the hash code of that object
+     * so that probes only dereference entries whose hash code matches. Entries whose ranked object was garbage collected
+     * are expunged incrementally: each insertion checks a few slots at a moving cursor, probes remove dead entries with
+     * matching hash codes, and growing the table drops all dead entries. Ranks freed by expunged entries are reused for
+     * objects in this stripe.
+     *
+     * The table is only modified while holding the stripe's monitor. Lookups that do not register objects read it without
+     * locking: every modification makes the version odd while it is in progress and even again once it is complete, and
+     * a lookup whose version changed while it read the table is repeated while holding the monitor. */
+    private static final class RankStripe {
+
+        // The number of slots in a new table, must be a power of two
+        private static final int INITIAL_CAPACITY = 16;
+        // The shift used to index a new table, 32 minus log base 2 of INITIAL_CAPACITY
+        private static final int INITIAL_SHIFT = 28;
+        // The number of slots checked for dead entries each time an object is registered
+        private static final int EXPUNGE_STEPS = 2;
+
+        // Used to lazily reused ranks after the object assigned the rank is garbage collected
+        private final IntSinglyLinkedList rankQueue = new IntSinglyLinkedList();
+        // The index of this stripe, stripes assign ranks from disjoint sequences
+        private final int index;
+        // Weak references to the ranked objects registered in this stripe, null for empty slots
+        private RankReference[] refs;
+        // The hash code of the object registered in the corresponding slot of refs
+        private int[] hashes;
+        // The shift applied to scrambled hash codes to produce a slot index, 32 minus log base 2 of the table length
+        private int shift;
+        // The number of non-null slots in the table
+        private int size;
+        // The next slot to be checked for a dead entry
+        private int expungeCursor;
+        // The next new rank that should be assigned to an object
+        private int nextRank;
+        // Incremented before and after each modification of the table, odd while a modification is in progress
+        private volatile int version;
+
+        /* Creates a stripe with an empty table. The table is set up directly instead of by clear because the stripes are
+         * created while java.lang.String is being initialized, before the fence in clear can initialize sun.misc.Unsafe
+         * and the call to numberOfLeadingZeros in allocate can initialize java.lang.Integer. */
+        private RankStripe(int index) {
+            this.index = index;
+            this.refs = new RankReference[INITIAL_CAPACITY];
+            this.hashes = new int[INITIAL_CAPACITY];
+            this.shift = INITIAL_SHIFT;
+            this.nextRank = Integer.MIN_VALUE + index;
+        }
+
+        /* If a rank can be reused from the rankQueue, returns that rank. Otherwise returns and advances nextRank. Stripe
+         * i assigns ranks congruent to i modulo RANK_STRIPES so that ranks are unique across stripes. */
+        private int getAvailableRank() {
+            if(!rankQueue.isEmpty()) {
+                // Try to reuse a rank
+                if(Configuration.TAINT_STATISTICS) {
+                    Statistics.recycledRanks.increment();
+                }
+                return rankQueue.pop();
+            } else {
+                // There are no available ranks to be reused
+                int rank = nextRank;
+                nextRank += RANK_STRIPES;
+                return rank;
+            }
+        }
+
+        /* Returns the home slot for the specified hash code. Uses the high bits of the scrambled hash code because the low
+         * bits of the hash codes in a stripe are correlated with the stripe's index. */
+        private int slotFor(int hash) {
+            return (hash * 0x9E3779B9) >>> shift;
+        }
+
+        /* Stores the specified object in the table if an equal object is not already registered. Returns the record
+         * object for objects equal to the specified object. */
+        private synchronized RankedObject getRankedObject(Object object, int hash, LabelEpoch epoch) {
+            int mask = refs.length - 1;
+            int i = slotFor(hash);
+            for(RankReference ref = refs[i]; ref != null; ref = refs[i]) {
+                if(hashes[i] == hash) {
+                    RankedObject ro = ref.get();
+                    if(ro == null) {
+                        // Another entry may be shifted into this slot, so check it again
+                        removeAt(i);
+                        continue;
+                    } else if(ro.epoch == epoch && object.equals(ro.object)) {
+                        // Existing rank for the specified object was found
+                        return ro;
+                    }
+                }
+                i = (i + 1) & mask;
+            }
+            // No existing rank for the specified object was found
+            RankedObject ret = new RankedObject(object, getAvailableRank(), epoch);
+            int stamp = beginModification();
+            refs[i] = new RankReference(ret, hash, CollectedReferences.QUEUE);
+            hashes[i] = hash;
+            size++;
+            version = stamp + 2;
+            expungeIncrementally();
+            if(size * 2 > refs.length) {
+                resize();
+            }
+            return ret;
+        }
+
+        /* Returns the record object for objects equal to the specified object or null if no equal object is registered in
+         * this stripe. Does not acquire the monitor of this stripe unless the table is modified while it is being read. */
+        private RankedObject findRankedObject(Object object, int hash) {
+            int stamp = version;
+            if((stamp & 1) == 0) {
+                RankedObject ro = find(object, hash);
+                UnsafeUtils.getUnsafe().loadFence();
+                if(stamp == version) {
+                    return ro;
+                }
+            }
+            synchronized(this) {
+                return find(object, hash);
+            }
+        }
+
+        /* Probes the table for an object equal to the specified object that does not belong to an epoch. Each field of
+         * this stripe is read once and probes are bounded by the length of the table, so that a probe made while the
+         * table is being modified returns, though not necessarily with the right result, instead of failing. */
+        private RankedObject find(Object object, int hash) {
+            RankReference[] r = refs;
+            int[] h = hashes;
+            int length = Math.min(r.length, h.length);
+            int mask = length - 1;
+            int i = ((hash * 0x9E3779B9) >>> shift) & mask;
+            for(int probes = 0; probes < length; probes++, i = (i + 1) & mask) {
+                RankReference ref = r[i];
+                if(ref == null) {
+                    break;
+                } else if(h[i] == hash) {
+                    RankedObject ro = ref.get();
+                    if(ro != null && ro.epoch == null && object.equals(ro.object)) {
+                        return ro;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /* Marks the start of a modification of the table and returns the version before it. The modification must set
+         * the version to the returned value plus two once it is complete. */
+        private int beginModification() {
+            int stamp = version;
+            version = stamp + 1;
+            UnsafeUtils.getUnsafe().storeFence();
+            return stamp;
+        }
+
+        /* Removes the entry holding the specified reference if it is still in the table. */
+        private synchronized void expunge(RankReference ref) {
+            int mask = refs.length - 1;
+            for(int i = slotFor(ref.hash); refs[i] != null; i = (i + 1) & mask) {
+                if(refs[i] == ref) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        /* Returns the number of non-null slots in the table. */
+        private synchronized int getSize() {
+            return size;
+        }
+
+        /* Returns the number of entries in the table whose ranked object was garbage collected. */
+        private synchronized int countDeadSlots() {
+            int count = 0;
+            for(RankReference ref : refs) {
+                if(ref != null && ref.get() == null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /* Checks the next EXPUNGE_STEPS slots at the expunge cursor for dead entries, removing any that are found. */
+        private void expungeIncrementally() {
+            int mask = refs.length - 1;
+            for(int step = 0; step < EXPUNGE_STEPS; step++) {
+                RankReference ref = refs[expungeCursor];
+                if(ref != null && ref.get() == null) {
+                    // Leave the cursor in place; an entry may have been shifted into the slot
+                    removeAt(expungeCursor);
+                } else {
+                    expungeCursor = (expungeCursor + 1) & mask;
+                }
+            }
+        }
+
+        /* Removes the entry in the specified slot and makes its rank available for reuse. Entries later in the same probe
+         * sequence are shifted back so that every entry remains reachable from its home slot without tombstones. */
+        private void removeAt(int i) {
+            int stamp = beginModification();
+            rankQueue.push(refs[i].rank);
+            refs[i] = null;
+            size--;
+            int mask = refs.length - 1;
+            int hole = i;
+            for(int j = (i + 1) & mask; refs[j] != null; j = (j + 1) & mask) {
+                int home = slotFor(hashes[j]);
+                // The entry at j can fill the hole unless its home slot lies cyclically in (hole, j]
+                boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+                if(!stays) {
+                    refs[hole] = refs[j];
+                    hashes[hole] = hashes[j];
+                    refs[j] = null;
+                    hole = j;
+                }
+            }
+            version = stamp + 2;
+        }
+
+        /* Replaces the table with one that contains only the live entries of the current table. The new table is twice
+         * as large unless dropping dead entries left the current table at most one quarter full. */
+        private void resize() {
+            int stamp = beginModification();
+            RankReference[] oldRefs = refs;
+            int[] oldHashes = hashes;
+            int live = 0;
+            for(int i = 0; i < oldRefs.length; i++) {
+                if(oldRefs[i] != null) {
+                    if(oldRefs[i].get() == null) {
+                        rankQueue.push(oldRefs[i].rank);
+                        oldRefs[i] = null;
+                    } else {
+                        live++;
+                    }
+                }
+            }
+            int length = live * 4 > oldRefs.length ? oldRefs.length << 1 : oldRefs.length;
+            allocate(length);
+            int mask = length - 1;
+            for(int i = 0; i < oldRefs.length; i++) {
+                if(oldRefs[i] != null) {
+                    int j = slotFor(oldHashes[i]);
+                    while(refs[j] != null) {
+                        j = (j + 1) & mask;
+                    }
+                    refs[j] = oldRefs[i];
+                    hashes[j] = oldHashes[i];
+                }
+            }
+            size = live;
+            version = stamp + 2;
+        }
+
+        /* Replaces the table with an empty table with the specified power of two length. */
+        private void allocate(int length) {
+            refs = new RankReference[length];
+            hashes = new int[length];
+            shift = Integer.numberOfLeadingZeros(length) + 1;
+            size = 0;
+            expungeCursor = 0;
+        }
+
+        /* Removes all registered objects and reusable ranks. */
+        private synchronized void clear() {
+            int stamp = beginModification();
+            allocate(INITIAL_CAPACITY);
+            rankQueue.clear();
+            nextRank = Integer.MIN_VALUE + index;
+            version = stamp + 2;
+        }
+    }
+
     /* Record type that associates an object with a unique integer. Used to maintain a consistent rank value for a
      * particular object. */
     private static class RankedObject {
@@ -360,11 +1493,19 @@ public class PowerSetTree {
         private Object object;
         // Unique integer used to order the object in sets
         private int rank;
+        // The epoch that the object belongs to or null if it does not belong to an epoch
+        private final LabelEpoch epoch;
 
-        /* Constructs a new ranked object with the specified rank and object. */
-        private RankedObject(Object object, int rank) {
+        /* Constructs a new ranked object with the specified rank and object belonging to the specified epoch. */
+        private RankedObject(Object object, int rank, LabelEpoch epoch) {
             this.object = object;
             this.rank = rank;
+            this.epoch = epoch;
+        }
+
+        /* Returns whether the object belongs to a retired epoch. */
+        private boolean isRetired() {
+            return epoch != null && epoch.isRetired();
         }
 
         /* Returns a nicely formatted string representation of the object and its rank. */
@@ -379,11 +1520,14 @@ public class PowerSetTree {
     private static class RankReference extends WeakReference<RankedObject> {
 
         // The rank assigned to the referent
-        int rank;
+        private final int rank;
+        // The hash code of the referent's object, used to find the reference's slot in the rank registry
+        private final int hash;
 
-        RankReference(RankedObject referent) {
-            super(referent);
+        RankReference(RankedObject referent, int hash, ReferenceQueue<Object> queue) {
+            super(referent, queue);
             this.rank = referent.rank;
+            this.hash = hash;
         }
 
         @Override
@@ -392,6 +1536,52 @@ public class PowerSetTree {
         }
     }
 
+    /* Holds the tree's counters. Kept separate from PowerSetTree so that they are not created while the tree itself is
+     * being initialized during JVM startup. */
+    private static class Statistics {
+        // The number of unions whose result was found in a union cache
+        private static final StripedCounter unionCacheHits = new StripedCounter();
+        // The number of unions whose result had to be computed by merging paths in the tree
+        private static final StripedCounter unionCacheMisses = new StripedCounter();
+        // The number of ranks assigned to new objects after being freed by garbage collected objects
+        private static final StripedCounter recycledRanks = new StripedCounter();
+        // The number of nodes that have been added to the tree
+        private static final StripedCounter createdNodes = new StripedCounter();
+        // The number of nodes whose references have been reclaimed after they were garbage collected
+        private static final StripedCounter reclaimedNodes = new StripedCounter();
+    }
+
+    /* Daemon thread that reclaims references from the queue as their referents are garbage collected. */
+    private static final class Sweeper extends Thread {
+
+        private final PowerSetTree tree;
+
+        Sweeper(PowerSetTree tree) {
+            super("Phosphor-PowerSetTree-Sweeper");
+            this.tree = tree;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while(!isInterrupted()) {
+                try {
+                    tree.reclaim(CollectedReferences.QUEUE.remove());
+                } catch(InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /* Inner class used to create the queue that receives references to child nodes and ranked objects once their
+     * referents have been garbage collected. The queue is only created once the first reference is registered or
+     * reclaimed because the tree itself is created while java.lang.String is being initialized, before the JDK classes
+     * used by ReferenceQueue can be initialized. */
+    private static class CollectedReferences {
+        private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    }
+
     /* Inner class used to create the singleton instance of PowerSetTree. */
     private static class PowerSetTreeSingleton {
         private static final PowerSetTree INSTANCE = new PowerSetTree();
@@ -0,0 +1,85 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteOrder;
+
+/* Writes and reads the elements of primitive arrays to and from object streams in blocks instead of one element at a
+ * time. The bytes written are the same as those written by the DataOutput method for the element type of the array
+ * applied to each element in turn, that is each element is written big-endian and a boolean is written as a single byte
+ * that is zero or one, so arrays written one element at a time can be read by these methods and the other way around.
+ * The only difference is that the bits of NaN floating-point values are written as they are instead of being collapsed
+ * to the canonical NaN. */
+final class PrimitiveArrayStreams {
+
+    private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+    private static final long BYTE_ARRAY_BASE = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    // The greatest number of bytes copied through the buffer at a time
+    private static final int BUFFER_SIZE = 8192;
+
+    private PrimitiveArrayStreams() {
+        // Prevents this class from being instantiated
+    }
+
+    /* Writes the first length elements of the specified primitive array to the specified stream. */
+    static void write(ObjectOutputStream stream, Object array, int length) throws IOException {
+        long base = UNSAFE.arrayBaseOffset(array.getClass());
+        int width = UNSAFE.arrayIndexScale(array.getClass());
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(width, (long) length * width))];
+        int perBuffer = buffer.length / width;
+        for(int i = 0; i < length; i += perBuffer) {
+            int bytes = Math.min(perBuffer, length - i) * width;
+            copyBigEndian(array, base + (long) i * width, buffer, BYTE_ARRAY_BASE, bytes, width);
+            stream.write(buffer, 0, bytes);
+        }
+    }
+
+    /* Reads length elements from the specified stream into the specified primitive array, which must have at least
+     * length elements, and returns the specified array. */
+    static <A> A read(ObjectInputStream stream, A array, int length) throws IOException {
+        long base = UNSAFE.arrayBaseOffset(array.getClass());
+        int width = UNSAFE.arrayIndexScale(array.getClass());
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(width, (long) length * width))];
+        int perBuffer = buffer.length / width;
+        boolean booleans = array instanceof boolean[];
+        for(int i = 0; i < length; i += perBuffer) {
+            int bytes = Math.min(perBuffer, length - i) * width;
+            stream.readFully(buffer, 0, bytes);
+            if(booleans) {
+                // Any non-zero byte is read as true, as by readBoolean
+                for(int j = 0; j < bytes; j++) {
+                    buffer[j] = buffer[j] == 0 ? (byte) 0 : (byte) 1;
+                }
+            }
+            copyBigEndian(buffer, BYTE_ARRAY_BASE, array, base + (long) i * width, bytes, width);
+        }
+        return array;
+    }
+
+    /* Copies the specified number of bytes of elements of the specified width, reversing the order of the bytes of each
+     * element if the native byte order is little-endian. Reversing the bytes is its own inverse, so this converts
+     * elements to big-endian bytes and back. Offsets are multiples of the width from the base of an array, so each
+     * element is accessed at an aligned address. */
+    private static void copyBigEndian(Object src, long srcOffset, Object dest, long destOffset, int bytes, int width) {
+        if(!LITTLE_ENDIAN || width == 1) {
+            UNSAFE.copyMemory(src, srcOffset, dest, destOffset, bytes);
+        } else if(width == 2) {
+            for(int i = 0; i < bytes; i += 2) {
+                UNSAFE.putShort(dest, destOffset + i, Short.reverseBytes(UNSAFE.getShort(src, srcOffset + i)));
+            }
+        } else if(width == 4) {
+            for(int i = 0; i < bytes; i += 4) {
+                UNSAFE.putInt(dest, destOffset + i, Integer.reverseBytes(UNSAFE.getInt(src, srcOffset + i)));
+            }
+        } else {
+            for(int i = 0; i < bytes; i += 8) {
+                UNSAFE.putLong(dest, destOffset + i, Long.reverseBytes(UNSAFE.getLong(src, srcOffset + i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
+
+/* Thread-safe counter intended for statistics that are updated frequently but read rarely. Updates are spread across
+ * several padded cells selected by the identity of the current thread so that threads running on different cores rarely
+ * write to the same cache line. */
+public final class StripedCounter {
+
+    private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+    private static final long CELLS_BASE = UNSAFE.arrayBaseOffset(long[].class);
+    // The number of cells that counts are spread across, must be a power of two
+    private static final int NUM_CELLS = 16;
+    // The distance in longs between the start of each cell, chosen so that each cell is on its own cache line
+    private static final int CELL_STRIDE = 8;
+
+    // Padded cells, the value of the counter is the sum of every CELL_STRIDE-th element
+    private final long[] cells = new long[NUM_CELLS * CELL_STRIDE];
+
+    /* Adds one to this counter. */
+    public void increment() {
+        add(1);
+    }
+
+    /* Adds the specified amount to this counter. */
+    public void add(long amount) {
+        int h = System.identityHashCode(Thread.currentThread());
+        int cell = (h ^ (h >>> 16)) & (NUM_CELLS - 1);
+        UNSAFE.getAndAddLong(cells, CELLS_BASE + ((long) cell * CELL_STRIDE << 3), amount);
+    }
+
+    /* Returns the current value of this counter. The returned value is not an atomic snapshot if this counter is being
+     * updated concurrently. */
+    public long sum() {
+        long sum = 0;
+        for(int i = 0; i < NUM_CELLS; i++) {
+            sum += UNSAFE.getLongVolatile(cells, CELLS_BASE + ((long) i * CELL_STRIDE << 3));
+        }
+        return sum;
+    }
+
+    /* Sets the value of this counter to zero. */
+    public void reset() {
+        for(int i = 0; i < NUM_CELLS; i++) {
+            UNSAFE.putLongVolatile(cells, CELLS_BASE + ((long) i * CELL_STRIDE << 3), 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
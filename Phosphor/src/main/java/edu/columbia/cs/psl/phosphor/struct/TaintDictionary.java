@@ -0,0 +1,297 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
+
+/* Stores the tags of the elements of an array as a dictionary of the distinct tags of the elements and an array of codes
+ * that holds the index in the dictionary of the tag of each element. Code zero always refers to the null tag. Codes are
+ * stored in a byte array while the dictionary has at most 256 entries and in a short array while it has at most 65536
+ * entries, so the codes use a quarter or half of the memory of a dense array of references to tags on a 64-bit JVM with
+ * compressed references and an eighth or a quarter without them.
+ *
+ * Tags are added to the dictionary the first time they are stored and are never removed. Modifications fail once a tag
+ * would need to be added to a full dictionary, at which point the caller is expected to convert the codes to a dense
+ * array of tags using toDense.
+ *
+ * Entries are only added while holding the lock of this object. The code of an element can be set to an existing entry
+ * by trySet without holding the lock, and the dictionary can be read by get without holding the lock while it is being
+ * modified. */
+final class TaintDictionary {
+
+    private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+    // The greatest number of entries of a dictionary whose codes are stored in a byte array
+    private static final int MAX_BYTE_CODES = 1 << 8;
+    // The greatest number of entries of a dictionary
+    private static final int MAX_SHORT_CODES = 1 << 16;
+    // The initial number of entries that can be stored without growing the dictionary
+    private static final int INITIAL_CAPACITY = 8;
+
+    // The length of the array whose element tags are stored
+    private final int length;
+    // The code of each element, a byte array if the dictionary has at most MAX_BYTE_CODES entries, otherwise a short
+    // array
+    private Object codes;
+    // The tag of each code, the tag of code zero is null
+    private Taint[] entries;
+    // The number of entries including the null entry
+    private int size;
+    // Open-addressing hash table mapping tags, by identity, to their codes; empty slots are zero
+    private int[] slots;
+    // Incremented before and after each entry is added to the dictionary, so it is odd while an entry is being added. A
+    // read that did not hold the lock is only used if this did not change while it read the dictionary. Setting the
+    // code of an element to an existing entry writes a single element of codes and does not change this.
+    private volatile int version;
+
+    TaintDictionary(int length) {
+        this.length = length;
+        this.codes = new byte[length];
+        this.entries = new Taint[INITIAL_CAPACITY];
+        this.size = 1;
+        this.slots = new int[INITIAL_CAPACITY << 1];
+    }
+
+    private TaintDictionary(TaintDictionary other) {
+        this.length = other.length;
+        this.codes = other.codes instanceof byte[] ? ((byte[]) other.codes).clone() : ((short[]) other.codes).clone();
+        this.entries = other.entries.clone();
+        this.size = other.size;
+        this.slots = other.slots.clone();
+    }
+
+    /* Returns a copy of this dictionary that can be modified independently of this dictionary. */
+    synchronized TaintDictionary copy() {
+        return new TaintDictionary(this);
+    }
+
+    /* Returns a new dictionary for an array of the specified length whose elements in the range [destPos, destPos +
+     * count) have the tags of the elements of this dictionary in the range [srcPos, srcPos + count) and whose other
+     * elements do not have tags. The new dictionary starts with the entries of this dictionary, so the codes of the
+     * elements can be copied as they are. */
+    synchronized TaintDictionary copyRange(int srcPos, int destLength, int destPos, int count) {
+        TaintDictionary copy = new TaintDictionary(destLength);
+        copy.entries = entries.clone();
+        copy.size = size;
+        copy.slots = slots.clone();
+        if(!(codes instanceof byte[])) {
+            copy.codes = new short[destLength];
+        }
+        System.arraycopy(codes, srcPos, copy.codes, destPos, count);
+        return copy;
+    }
+
+    /* Returns the tag of the element at the specified index or null if the element does not have a tag. Does not acquire
+     * the lock of this object unless an entry is added to the dictionary while it is being read. */
+    Taint get(int index) {
+        int stamp = version;
+        if((stamp & 1) == 0) {
+            Taint tag = find(index);
+            UNSAFE.loadFence();
+            if(stamp == version) {
+                return tag;
+            }
+        }
+        synchronized(this) {
+            return find(index);
+        }
+    }
+
+    /* Returns the tag of the element at the specified index. The code is checked against the entries that were read, so
+     * that a read made while an entry is being added returns, though not necessarily with the right tag, instead of
+     * failing. */
+    private Taint find(int index) {
+        int code = codeAt(codes, index);
+        Taint[] e = entries;
+        return code < e.length ? e[code] : null;
+    }
+
+    /* Sets the tag of the element at the specified index to a tag that is already in the dictionary without acquiring the
+     * lock of this object. Returns false if the tag is not in the dictionary or if an entry was added while the code was
+     * being stored, which may have moved the codes to a new array, in which case the caller should call set while
+     * holding the lock. */
+    boolean trySet(int index, Taint tag) {
+        if(index < 0 || index >= length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        int stamp = version;
+        if((stamp & 1) != 0) {
+            return false;
+        }
+        Object c = codes;
+        int code = tag == null ? 0 : lookup(tag);
+        UNSAFE.loadFence();
+        if(code < 0 || stamp != version) {
+            return false;
+        }
+        if(c instanceof byte[]) {
+            ((byte[]) c)[index] = (byte) code;
+        } else {
+            ((short[]) c)[index] = (short) code;
+        }
+        UNSAFE.fullFence();
+        return stamp == version;
+    }
+
+    /* Returns the code of the specified non-null tag or -1 if it is not in the dictionary. The code is checked against
+     * the entries that were read, so that a lookup made while an entry is being added returns instead of failing. */
+    private int lookup(Taint tag) {
+        int[] s = slots;
+        Taint[] e = entries;
+        int mask = s.length - 1;
+        int i = spread(System.identityHashCode(tag)) & mask;
+        for(int code = s[i]; code != 0; code = s[i]) {
+            if(code < e.length && e[code] == tag) {
+                return code;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /* Sets the tag of the element at the specified index. Returns false without modifying the tags if the tag is not in
+     * the dictionary and the dictionary is full. Must be called while holding the lock of this object. */
+    boolean set(int index, Taint tag) {
+        if(index < 0 || index >= length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        int code = codeOf(tag);
+        if(code < 0) {
+            return false;
+        }
+        Object c = codes;
+        if(c instanceof byte[]) {
+            ((byte[]) c)[index] = (byte) code;
+        } else {
+            ((short[]) c)[index] = (short) code;
+        }
+        return true;
+    }
+
+    /* Sets the tags of the elements in the range [start, end) to the specified tag. Returns false without modifying the
+     * tags if the tag is not in the dictionary and the dictionary is full. Must be called while holding the lock of this
+     * object. */
+    boolean fill(int start, int end, Taint tag) {
+        int code = codeOf(tag);
+        if(code < 0) {
+            return false;
+        }
+        Object c = codes;
+        if(c instanceof byte[]) {
+            byte[] bytes = (byte[]) c;
+            for(int i = start; i < end; i++) {
+                bytes[i] = (byte) code;
+            }
+        } else {
+            short[] shorts = (short[]) c;
+            for(int i = start; i < end; i++) {
+                shorts[i] = (short) code;
+            }
+        }
+        return true;
+    }
+
+    /* Returns the code of the specified tag, adding the tag to the dictionary if necessary. Returns -1 if the tag is not
+     * in the dictionary and the dictionary is full. */
+    private int codeOf(Taint tag) {
+        if(tag == null) {
+            return 0;
+        }
+        int mask = slots.length - 1;
+        int i = spread(System.identityHashCode(tag)) & mask;
+        for(int code = slots[i]; code != 0; code = slots[i]) {
+            if(entries[code] == tag) {
+                return code;
+            }
+            i = (i + 1) & mask;
+        }
+        if(size == MAX_SHORT_CODES) {
+            return -1;
+        }
+        int stamp = version;
+        version = stamp + 1;
+        UNSAFE.storeFence();
+        if(size == MAX_BYTE_CODES) {
+            widen();
+        }
+        if(size == entries.length) {
+            Taint[] grown = new Taint[Math.min(MAX_SHORT_CODES, size << 1)];
+            System.arraycopy(entries, 0, grown, 0, size);
+            entries = grown;
+        }
+        int code = size++;
+        entries[code] = tag;
+        slots[i] = code;
+        if(size << 1 > slots.length) {
+            rehash(slots.length << 1);
+        }
+        version = stamp + 2;
+        return code;
+    }
+
+    /* Moves the codes from the byte array to a short array so that the dictionary can hold more than MAX_BYTE_CODES
+     * entries. */
+    private void widen() {
+        byte[] bytes = (byte[]) codes;
+        short[] shorts = new short[length];
+        for(int i = 0; i < length; i++) {
+            shorts[i] = (short) (bytes[i] & 0xFF);
+        }
+        codes = shorts;
+    }
+
+    /* Rebuilds the hash table of tags with the specified number of slots, which must be a power of two. */
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for(int code = 1; code < size; code++) {
+            int i = spread(System.identityHashCode(entries[code])) & mask;
+            while(slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = code;
+        }
+    }
+
+    /* Returns a dense array containing the tag of every element. */
+    synchronized Taint[] toDense() {
+        Taint[] dense = LazyArrayObjTags.allocateTaints(length);
+        Object c = codes;
+        for(int i = 0; i < length; i++) {
+            dense[i] = entries[codeAt(c, i)];
+        }
+        return dense;
+    }
+
+    /* Returns an array containing the distinct tags that are the tag of at least one element. */
+    synchronized Taint[] getUsedTags() {
+        boolean[] used = new boolean[size];
+        int count = 0;
+        Object c = codes;
+        for(int i = 0; i < length && count < size - 1; i++) {
+            int code = codeAt(c, i);
+            if(code != 0 && !used[code]) {
+                used[code] = true;
+                count++;
+            }
+        }
+        Taint[] result = new Taint[count];
+        for(int code = 1, j = 0; code < size; code++) {
+            if(used[code]) {
+                result[j++] = entries[code];
+            }
+        }
+        return result;
+    }
+
+    /* Returns the code at the specified index of the specified byte or short array of codes. */
+    private static int codeAt(Object codes, int index) {
+        return codes instanceof byte[] ? ((byte[]) codes)[index] & 0xFF : ((short[]) codes)[index] & 0xFFFF;
+    }
+
+    /* Spreads the bits of the specified identity hash code so that tags hash well into a table of a power of two
+     * slots. */
+    static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
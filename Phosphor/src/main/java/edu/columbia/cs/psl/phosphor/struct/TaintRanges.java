@@ -0,0 +1,118 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+
+/* Stores the tags of the elements of an array as a sorted list of disjoint runs, each of which assigns a single tag to a
+ * contiguous range of indices [start, end). Elements not covered by any run have a null tag. Adjacent runs with the same
+ * tag are coalesced, so an array whose elements were tainted by a small number of bulk operations is represented by a
+ * small number of runs regardless of its length.
+ *
+ * Modifications fail once the number of runs would exceed a limit proportional to the length of the array, at which
+ * point the caller is expected to convert the runs to a dense array of tags using toDense.
+ *
+ * The runs are modified only while holding the lock of this object, but they can be read by get without holding the lock
+ * while they are being modified. */
+final class TaintRanges extends TaintRuns {
+
+    // The initial number of runs that can be stored without growing the arrays of runs
+    private static final int INITIAL_CAPACITY = 4;
+    // The maximum number of runs is the length of the array divided by this value. A run uses about twenty bytes, so at
+    // that point each run covers on average a range whose dictionary-encoded representation would use a little less
+    // space than the run and whose dense representation would use about three times as much.
+    private static final int MIN_ELEMENTS_PER_RUN = 16;
+
+    // The length of the array whose element tags are stored
+    private final int length;
+
+    TaintRanges(int length) {
+        super(Math.max(1, length / MIN_ELEMENTS_PER_RUN), INITIAL_CAPACITY);
+        this.length = length;
+    }
+
+    /* Returns a copy of these runs that can be modified independently of these runs. */
+    synchronized TaintRanges copy() {
+        TaintRanges copy = new TaintRanges(length);
+        copy.copyRunsOf(this);
+        return copy;
+    }
+
+    /* Returns the number of runs. */
+    int size() {
+        return size;
+    }
+
+    /* Returns the inclusive start index of the specified run. */
+    int start(int run) {
+        return (int) starts[run];
+    }
+
+    /* Returns the exclusive end index of the specified run. */
+    int end(int run) {
+        return (int) ends[run];
+    }
+
+    /* Returns the tag of the specified run. */
+    Taint tag(int run) {
+        return tags[run];
+    }
+
+    /* Returns the tag of the element at the specified index or null if the element does not have a tag. Does not acquire
+     * the lock of this object unless the runs are modified while they are being read. */
+    Taint get(int index) {
+        checkIndex(index);
+        return read(index, index + 1);
+    }
+
+    /* Sets the tag of the element at the specified index. Returns false without modifying the runs if the runs are too
+     * fragmented to store the tag. Must be called while holding the lock of this object. */
+    boolean set(int index, Taint tag) {
+        checkIndex(index);
+        return setKey(index, tag);
+    }
+
+    /* Sets the tags of the elements in the range [start, end) to the specified tag. A null tag removes the tags of the
+     * elements in the range. Returns false without modifying the runs if the runs are too fragmented to store the
+     * tags. Must be called while holding the lock of this object. */
+    boolean fill(int start, int end, Taint tag) {
+        return fillRange(start, end, tag);
+    }
+
+    /* Throws an ArrayIndexOutOfBoundsException if the specified index is not a valid index for the array, as an access
+     * to a dense array of tags would. */
+    private void checkIndex(int index) {
+        if(index < 0 || index >= length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+    }
+
+    /* Returns a dense array containing the tag of every element. */
+    synchronized Taint[] toDense() {
+        Taint[] dense = LazyArrayObjTags.allocateTaints(length);
+        for(int i = 0; i < size; i++) {
+            Taint tag = tags[i];
+            for(int j = (int) starts[i]; j < ends[i]; j++) {
+                dense[j] = tag;
+            }
+        }
+        return dense;
+    }
+
+    /* Returns a dictionary containing the tag of every element or null if the runs have too many distinct tags to be
+     * stored in a dictionary. */
+    synchronized TaintDictionary toDictionary() {
+        TaintDictionary dictionary = new TaintDictionary(length);
+        for(int i = 0; i < size; i++) {
+            if(!dictionary.fill((int) starts[i], (int) ends[i], tags[i])) {
+                return null;
+            }
+        }
+        return dictionary;
+    }
+
+    /* Returns an array containing the tag of each run. */
+    synchronized Taint[] getRunTags() {
+        Taint[] result = new Taint[size];
+        System.arraycopy(tags, 0, result, 0, size);
+        return result;
+    }
+}
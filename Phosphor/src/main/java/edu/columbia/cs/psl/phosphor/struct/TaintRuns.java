@@ -0,0 +1,370 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.runtime.UnsafeUtils;
+import sun.misc.Unsafe;
+
+/* Stores tags as a sorted list of disjoint runs, each of which assigns a single tag to a contiguous range of keys
+ * [start, end). Keys not covered by any run have a null tag. Adjacent runs with the same tag are coalesced, so keys
+ * tainted by a small number of bulk operations are represented by a small number of runs regardless of how many keys
+ * they cover. Looking up the tag of a key is a binary search over the runs. The keys are the indices of the elements of
+ * an array for TaintRanges and absolute addresses for AddressTaintMap.
+ *
+ * Modifications fail once the number of runs would exceed the limit given to the constructor.
+ *
+ * The runs are modified only while holding the lock of this object, but they can be read by read and isUniform without
+ * holding the lock while they are being modified. */
+abstract class TaintRuns {
+
+    private static final Unsafe UNSAFE = UnsafeUtils.getUnsafe();
+
+    // The maximum number of runs that can be stored
+    private final int maxRuns;
+    // The inclusive start key of each run, sorted in increasing order
+    long[] starts;
+    // The exclusive end key of each run
+    long[] ends;
+    // The tag of each run
+    Taint[] tags;
+    // The number of runs
+    int size;
+    // Incremented before and after each modification of the runs, so it is odd while the runs are being modified. A
+    // read that did not hold the lock is only used if this did not change while it read the runs.
+    private volatile int version;
+    // The index of the last run that started at or before the last key whose tag was read, checked before searching the
+    // runs so that sequential reads do not each perform a binary search
+    private int hint = -1;
+
+    TaintRuns(int maxRuns, int initialCapacity) {
+        this.maxRuns = maxRuns;
+        this.starts = new long[initialCapacity];
+        this.ends = new long[initialCapacity];
+        this.tags = new Taint[initialCapacity];
+    }
+
+    /* Replaces these runs with a copy of the specified runs. Must be called while holding the lock of the specified
+     * runs. */
+    void copyRunsOf(TaintRuns other) {
+        starts = copyOf(other.starts, other.starts.length);
+        ends = copyOf(other.ends, other.ends.length);
+        tags = new Taint[other.tags.length];
+        System.arraycopy(other.tags, 0, tags, 0, other.size);
+        size = other.size;
+    }
+
+    /* Returns a tag containing the labels of the tags of the keys in the range [start, end) or null if none of those keys
+     * has a tag. Does not acquire the lock of this object unless the runs are modified while they are being read. */
+    final Taint read(long start, long end) {
+        int stamp = version;
+        if((stamp & 1) == 0) {
+            Taint tag = find(start, end);
+            UNSAFE.loadFence();
+            if(stamp == version) {
+                return tag;
+            }
+        }
+        synchronized(this) {
+            return find(start, end);
+        }
+    }
+
+    /* Returns a tag containing the labels of the tags of the keys in the range [start, end) or null if none of those keys
+     * has a tag. Each field of these runs is read once and every index is checked against the arrays that were read, so
+     * that a read made while the runs are being modified returns, though not necessarily with the right tag, instead of
+     * failing. */
+    final Taint find(long start, long end) {
+        long[] s = starts;
+        long[] e = ends;
+        Taint[] t = tags;
+        int n = Math.min(size, Math.min(s.length, Math.min(e.length, t.length)));
+        int i = hint;
+        if(i < -1 || i >= n || (i >= 0 && s[i] > start) || (i + 1 < n && s[i + 1] <= start)) {
+            i = search(s, n, start);
+            hint = i;
+        }
+        Taint result = i >= 0 && start < e[i] ? t[i] : null;
+        for(int j = i + 1; j < n && s[j] < end; j++) {
+            result = result == null ? t[j] : Taint.combineTags(result, t[j]);
+        }
+        return result;
+    }
+
+    /* Returns whether every key in the non-empty range [start, end) has the specified tag, where a null tag means that
+     * no run overlaps the range. Does not acquire the lock of this object unless the runs are modified while they are
+     * being read, so a modification that would not change any tag can be skipped without acquiring the lock. */
+    final boolean isUniform(long start, long end, Taint tag) {
+        int stamp = version;
+        if((stamp & 1) == 0) {
+            long[] s = starts;
+            long[] e = ends;
+            Taint[] t = tags;
+            int n = Math.min(size, Math.min(s.length, Math.min(e.length, t.length)));
+            int i = search(s, n, start);
+            boolean uniform;
+            if(tag == null) {
+                uniform = (i < 0 || e[i] <= start) && (i + 1 >= n || s[i + 1] >= end);
+            } else {
+                uniform = i >= 0 && t[i] == tag && e[i] >= end;
+            }
+            UNSAFE.loadFence();
+            if(stamp == version) {
+                return uniform;
+            }
+        }
+        return false;
+    }
+
+    /* Sets the tag of the specified key. Returns false without modifying the runs if storing the tag would exceed the
+     * maximum number of runs. Must be called while holding the lock of this object.
+     *
+     * Unlike fillRange, which rebuilds the runs around the range, this adjusts the bounds of the run that covers the key
+     * and of the runs adjacent to it in place and only shifts the runs after it when a run is split or removed. */
+    final boolean setKey(long key, Taint tag) {
+        int i = findRun(key);
+        boolean covered = i >= 0 && key < ends[i];
+        if((covered ? tags[i] : null) == tag) {
+            return true;
+        }
+        boolean head = covered && starts[i] == key;
+        boolean tail = covered && ends[i] == key + 1;
+        // The runs that end just before and start just after the key, which absorb it if they have its tag
+        int left = covered ? (head ? i - 1 : -1) : i;
+        int right = covered ? (tail ? i + 1 : size) : i + 1;
+        boolean joinLeft = tag != null && left >= 0 && ends[left] == key && tags[left] == tag;
+        boolean joinRight = tag != null && right < size && starts[right] == key + 1 && tags[right] == tag;
+        int added;
+        if(!covered) {
+            added = joinLeft && joinRight ? -1 : (joinLeft || joinRight ? 0 : 1);
+        } else if(head && tail) {
+            added = joinLeft && joinRight ? -2 : (joinLeft || joinRight || tag == null ? -1 : 0);
+        } else if(head) {
+            added = joinLeft || tag == null ? 0 : 1;
+        } else if(tail) {
+            added = joinRight || tag == null ? 0 : 1;
+        } else {
+            added = tag == null ? 1 : 2;
+        }
+        if(size + added > maxRuns) {
+            return false;
+        }
+        int stamp = beginModification();
+        if(!covered) {
+            if(joinLeft && joinRight) {
+                ends[left] = ends[right];
+                close(right, 1);
+            } else if(joinLeft) {
+                ends[left] = key + 1;
+            } else if(joinRight) {
+                starts[right] = key;
+            } else {
+                open(i + 1, 1);
+                setRun(i + 1, key, key + 1, tag);
+            }
+        } else if(head && tail) {
+            if(joinLeft && joinRight) {
+                ends[left] = ends[right];
+                close(i, 2);
+            } else if(joinLeft) {
+                ends[left] = key + 1;
+                close(i, 1);
+            } else if(joinRight) {
+                starts[right] = key;
+                close(i, 1);
+            } else if(tag == null) {
+                close(i, 1);
+            } else {
+                tags[i] = tag;
+            }
+        } else if(head) {
+            if(joinLeft) {
+                ends[left] = key + 1;
+            } else if(tag != null) {
+                open(i, 1);
+                setRun(i, key, key + 1, tag);
+                i++;
+            }
+            starts[i] = key + 1;
+        } else if(tail) {
+            ends[i] = key;
+            if(joinRight) {
+                starts[right] = key;
+            } else if(tag != null) {
+                open(i + 1, 1);
+                setRun(i + 1, key, key + 1, tag);
+            }
+        } else {
+            // Split the run around the key
+            long end = ends[i];
+            Taint old = tags[i];
+            ends[i] = key;
+            if(tag == null) {
+                open(i + 1, 1);
+                setRun(i + 1, key + 1, end, old);
+            } else {
+                open(i + 1, 2);
+                setRun(i + 1, key, key + 1, tag);
+                setRun(i + 2, key + 1, end, old);
+            }
+        }
+        version = stamp + 2;
+        return true;
+    }
+
+    /* Sets the tags of the keys in the range [start, end) to the specified tag. A null tag removes the tags of the keys
+     * in the range. Returns false without modifying the runs if storing the tags would exceed the maximum number of
+     * runs. Must be called while holding the lock of this object. */
+    final boolean fillRange(long start, long end, Taint tag) {
+        if(start >= end) {
+            return true;
+        }
+        int first = firstRunEndingAfter(start);
+        // One past the last run that starts before end
+        int last = findRun(end - 1) + 1;
+        if(tag == null && first >= last) {
+            return true;
+        }
+        // Build the runs that replace the runs in [first, last)
+        long[] newStarts = new long[3];
+        long[] newEnds = new long[3];
+        Taint[] newTags = new Taint[3];
+        int count = 0;
+        if(first < last && starts[first] < start) {
+            newStarts[count] = starts[first];
+            newEnds[count] = start;
+            newTags[count++] = tags[first];
+        }
+        if(tag != null) {
+            newStarts[count] = start;
+            newEnds[count] = end;
+            newTags[count++] = tag;
+        }
+        if(first < last && ends[last - 1] > end) {
+            newStarts[count] = end;
+            newEnds[count] = ends[last - 1];
+            newTags[count++] = tags[last - 1];
+        }
+        // Coalesce the new runs with one another and then with the runs adjacent to the replaced range
+        int merged = 0;
+        for(int i = 1; i < count; i++) {
+            if(newTags[i] == newTags[merged] && newStarts[i] == newEnds[merged]) {
+                newEnds[merged] = newEnds[i];
+            } else {
+                merged++;
+                newStarts[merged] = newStarts[i];
+                newEnds[merged] = newEnds[i];
+                newTags[merged] = newTags[i];
+            }
+        }
+        count = count == 0 ? 0 : merged + 1;
+        if(count > 0 && first > 0 && ends[first - 1] == newStarts[0] && tags[first - 1] == newTags[0]) {
+            first--;
+            newStarts[0] = starts[first];
+        }
+        if(count > 0 && last < size && starts[last] == newEnds[count - 1] && tags[last] == newTags[count - 1]) {
+            newEnds[count - 1] = ends[last];
+            last++;
+        }
+        int newSize = size - (last - first) + count;
+        if(newSize > maxRuns) {
+            return false;
+        }
+        replace(first, last, newStarts, newEnds, newTags, count);
+        return true;
+    }
+
+    /* Replaces the runs in [first, last) with the first count specified runs. */
+    private void replace(int first, int last, long[] newStarts, long[] newEnds, Taint[] newTags, int count) {
+        int stamp = beginModification();
+        if(last - first < count) {
+            open(last, count - (last - first));
+        } else if(last - first > count) {
+            close(first + count, last - first - count);
+        }
+        System.arraycopy(newStarts, 0, starts, first, count);
+        System.arraycopy(newEnds, 0, ends, first, count);
+        System.arraycopy(newTags, 0, tags, first, count);
+        version = stamp + 2;
+    }
+
+    /* Marks the start of a modification of the runs and returns the version before it. The modification must set the
+     * version to the returned value plus two once it is complete. */
+    private int beginModification() {
+        int stamp = version;
+        version = stamp + 1;
+        UNSAFE.storeFence();
+        return stamp;
+    }
+
+    /* Shifts the runs from the specified index on to make room for the specified number of runs at that index, growing
+     * the arrays of runs if necessary. Must be called during a modification. */
+    private void open(int at, int count) {
+        int newSize = size + count;
+        if(newSize > starts.length) {
+            int capacity = (int) Math.min(maxRuns, Math.max(newSize, (long) starts.length << 1));
+            starts = copyOf(starts, capacity);
+            ends = copyOf(ends, capacity);
+            Taint[] grown = new Taint[capacity];
+            System.arraycopy(tags, 0, grown, 0, size);
+            tags = grown;
+        }
+        int tail = size - at;
+        System.arraycopy(starts, at, starts, at + count, tail);
+        System.arraycopy(ends, at, ends, at + count, tail);
+        System.arraycopy(tags, at, tags, at + count, tail);
+        size = newSize;
+    }
+
+    /* Removes the specified number of runs starting at the specified index, shifting the runs after them back. Must be
+     * called during a modification. */
+    private void close(int at, int count) {
+        int tail = size - at - count;
+        System.arraycopy(starts, at + count, starts, at, tail);
+        System.arraycopy(ends, at + count, ends, at, tail);
+        System.arraycopy(tags, at + count, tags, at, tail);
+        for(int i = size - count; i < size; i++) {
+            // Release references to tags of runs that were shifted out of use
+            tags[i] = null;
+        }
+        size -= count;
+    }
+
+    private void setRun(int i, long start, long end, Taint tag) {
+        starts[i] = start;
+        ends[i] = end;
+        tags[i] = tag;
+    }
+
+    /* Returns the index of the first run that ends after the specified key or the number of runs if there is no such
+     * run. */
+    final int firstRunEndingAfter(long key) {
+        int i = findRun(key);
+        return i >= 0 && key < ends[i] ? i : i + 1;
+    }
+
+    /* Returns the index of the last run that starts at or before the specified key or -1 if there is no such run. */
+    final int findRun(long key) {
+        return search(starts, size, key);
+    }
+
+    /* Returns the index of the last of the first count specified start keys that is at or before the specified key or -1
+     * if there is no such start key. */
+    private static int search(long[] starts, int count, long key) {
+        int low = 0;
+        int high = count - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            if(starts[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static long[] copyOf(long[] array, int capacity) {
+        long[] copy = new long[capacity];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, capacity));
+        return copy;
+    }
+}
@@ -21,6 +21,12 @@ public class WeakIdentityHashMap<K, V> implements Serializable {
         return map.size();
     }
 
+    /* Returns the number of entries in this map without expunging entries whose keys were garbage collected. Does not
+     * modify this map, so it can be used to monitor a map that is being used by other threads. */
+    public int approximateSize() {
+        return map.size();
+    }
+
     public boolean isEmpty() {
         expungeStaleEntries();
         return map.isEmpty();
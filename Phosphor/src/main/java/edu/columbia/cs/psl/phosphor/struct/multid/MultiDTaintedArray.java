@@ -82,6 +82,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_B_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        byte[][] val = new byte[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new byte[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_B_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new byte[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_B_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        byte[][][] val = new byte[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new byte[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_B_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        byte[][][] val = new byte[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            byte[][] d = new byte[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new byte[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_B_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        byte[][][][] val = new byte[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            byte[][][] d = new byte[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new byte[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyBooleanArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -127,6 +171,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        boolean[][] val = new boolean[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new boolean[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new boolean[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        boolean[][][] val = new boolean[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new boolean[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        boolean[][][] val = new boolean[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            boolean[][] d = new boolean[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new boolean[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_Z_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        boolean[][][][] val = new boolean[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            boolean[][][] d = new boolean[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new boolean[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyCharArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -172,6 +260,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        char[][] val = new char[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new char[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new char[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        char[][][] val = new char[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new char[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        char[][][] val = new char[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            char[][] d = new char[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new char[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_C_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        char[][][][] val = new char[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            char[][][] d = new char[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new char[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyFloatArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -217,6 +349,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        float[][] val = new float[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new float[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new float[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        float[][][] val = new float[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new float[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        float[][][] val = new float[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            float[][] d = new float[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new float[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_F_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        float[][][][] val = new float[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            float[][][] d = new float[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new float[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyIntArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -262,6 +438,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        int[][] val = new int[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new int[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new int[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        int[][][] val = new int[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new int[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        int[][][] val = new int[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            int[][] d = new int[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new int[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_I_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        int[][][][] val = new int[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            int[][][] d = new int[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new int[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyDoubleArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -307,6 +527,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        double[][] val = new double[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new double[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new double[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        double[][][] val = new double[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new double[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        double[][][] val = new double[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            double[][] d = new double[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new double[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_D_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        double[][][][] val = new double[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            double[][][] d = new double[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new double[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyShortArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -352,6 +616,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        short[][] val = new short[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new short[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new short[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        short[][][] val = new short[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new short[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        short[][][] val = new short[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            short[][] d = new short[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new short[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_S_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        short[][][][] val = new short[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            short[][][] d = new short[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new short[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_2DIMS(int dim1, Taint t1, int dim2, Taint t2) {
         LazyReferenceArrayObjTags ret = new LazyReferenceArrayObjTags(t1, new LazyLongArrayObjTags[dim1]);
         for(int i = 0; i < dim1; i++) {
@@ -397,6 +705,50 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        long[][] val = new long[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new long[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new long[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        long[][][] val = new long[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new long[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        long[][][] val = new long[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            long[][] d = new long[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new long[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_J_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        long[][][][] val = new long[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            long[][][] d = new long[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new long[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
     // ============ END GENERATED =============
 
     public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_4DIMS(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
@@ -447,6 +799,28 @@ public abstract class MultiDTaintedArray {
         return ret;
     }
 
+    /* The element type of the arrays allocated by the lazy REFERENCE variants that are not passed the component class is
+     * not known, so they allocate the wrappers of the inner arrays like the eager variants do. */
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        return MULTIANEWARRAY_REFERENCE_4DIMS(dim1, t1, dim2, t2, dim3, t3);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        return MULTIANEWARRAY_REFERENCE_3DIMS(dim1, t1, dim2, t2);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3, Class<?> component) {
+        return new LazyReferenceArrayObjTags(t1, (Object[]) Array.newInstance(component, dim1, dim2, dim3), new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, Class<?> component) {
+        return new LazyReferenceArrayObjTags(t1, (Object[]) Array.newInstance(component, dim1, dim2), new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_REFERENCE_2DIMS_LAZY(int dim1, Taint t1, Class<?> component) {
+        return new LazyReferenceArrayObjTags(t1, (Object[]) Array.newInstance(Array.newInstance(component, 0).getClass(), dim1));
+    }
+
 
     public static Object unbox1D(final Object in) {
         if(in instanceof LazyArrayObjTags) {
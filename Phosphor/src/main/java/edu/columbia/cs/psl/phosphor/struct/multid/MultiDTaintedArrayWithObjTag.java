@@ -1,5 +1,6 @@
 package edu.columbia.cs.psl.phosphor.struct.multid;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
 import edu.columbia.cs.psl.phosphor.struct.*;
 import org.objectweb.asm.Type;
@@ -293,6 +294,10 @@ public abstract class MultiDTaintedArrayWithObjTag {
     }
 
     public static Object unboxVal(final Object _in, final int componentType, final int dims) {
+        if(dims > 0 && _in.getClass().getComponentType().isArray()) {
+            // An array of arrays held by a LazyReferenceArrayObjTags already holds unwrapped inner arrays
+            return _in;
+        }
 
         if(dims == 0) {
             switch(componentType) {
@@ -555,6 +560,9 @@ public abstract class MultiDTaintedArrayWithObjTag {
                 }
             } else if(in.getClass().getComponentType().isArray() && in.getClass().getComponentType().getComponentType().isPrimitive()) {
                 //THIS array is an prim[][] array
+                if(Configuration.LAZY_MULTI_D_ARRAYS) {
+                    return new LazyReferenceArrayObjTags((Object[]) in);
+                }
                 Object[] _in = (Object[]) in;
 
                 Class tmp = in.getClass();
@@ -672,6 +680,9 @@ public abstract class MultiDTaintedArrayWithObjTag {
             }
         } else if(in.getClass().getComponentType().isArray() && in.getClass().getComponentType().getComponentType().isPrimitive()) {
             //THIS array is an prim[][] array
+            if(Configuration.LAZY_MULTI_D_ARRAYS) {
+                return new LazyReferenceArrayObjTags((Object[]) in);
+            }
             Object[] _in = (Object[]) in;
 
             Class tmp = in.getClass();
@@ -752,6 +763,10 @@ public abstract class MultiDTaintedArrayWithObjTag {
     }
 
     public static Object initWithEmptyTaints(final Object[] ar, final int componentType, final int dims) {
+        if(Configuration.LAZY_MULTI_D_ARRAYS) {
+            // The inner arrays are wrapped when they are first read
+            return new LazyReferenceArrayObjTags(Taint.emptyTaint(), ar);
+        }
         if(dims == 2) {
             LazyReferenceArrayObjTags ret;
             switch(componentType) {
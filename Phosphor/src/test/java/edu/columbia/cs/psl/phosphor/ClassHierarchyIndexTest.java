@@ -0,0 +1,114 @@
+package edu.columbia.cs.psl.phosphor;
+
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.HashMap;
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ClassHierarchyIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ClassNode classNode(String name, String superName, String... interfaces) {
+        ClassNode cn = new ClassNode();
+        cn.name = name;
+        cn.superName = superName;
+        cn.interfaces = new java.util.ArrayList<>(Arrays.asList(interfaces));
+        return cn;
+    }
+
+    /* Checks that the class nodes read from an index have the names, supertypes and method signatures of the class
+     * nodes that were written to it. */
+    @Test
+    public void testReadReturnsWrittenHierarchy() throws IOException {
+        Map<String, ClassNode> classes = new HashMap<>();
+        classes.put("java/lang/Object", classNode("java/lang/Object", null));
+        ClassNode list = classNode("example/MyList", "java/lang/Object", "java/util/List", "java/io/Serializable");
+        list.methods.add(new MethodNode(Opcodes.ACC_PUBLIC, "read", "(I)Ljava/lang/Object;", null,
+                new String[]{"java/io/IOException"}));
+        list.methods.add(new MethodNode(Opcodes.ACC_PRIVATE, "<init>", "()V", null, null));
+        classes.put(list.name, list);
+        File index = folder.newFile("hierarchy.idx");
+        byte[] fingerprint = new byte[]{1, 2, 3};
+        ClassHierarchyIndex.write(index, fingerprint, classes);
+        Map<String, ClassNode> read = new HashMap<>();
+        assertTrue(ClassHierarchyIndex.read(index, fingerprint, read));
+        assertEquals(2, read.size());
+        assertNull(read.get("java/lang/Object").superName);
+        ClassNode readList = read.get("example/MyList");
+        assertEquals("java/lang/Object", readList.superName);
+        assertEquals(Arrays.asList("java/util/List", "java/io/Serializable"), readList.interfaces);
+        assertEquals(2, readList.methods.size());
+        MethodNode method = readList.methods.get(0);
+        assertEquals(Opcodes.ACC_PUBLIC, method.access);
+        assertEquals("read", method.name);
+        assertEquals("(I)Ljava/lang/Object;", method.desc);
+        assertEquals(Arrays.asList("java/io/IOException"), method.exceptions);
+        assertTrue(readList.methods.get(1).exceptions.isEmpty());
+    }
+
+    /* Checks that an index is not used for inputs with a different fingerprint or if it is not a valid index. */
+    @Test
+    public void testStaleOrCorruptIndexIsIgnored() throws IOException {
+        Map<String, ClassNode> classes = new HashMap<>();
+        classes.put("java/lang/Object", classNode("java/lang/Object", null));
+        File index = folder.newFile("hierarchy.idx");
+        ClassHierarchyIndex.write(index, new byte[]{1}, classes);
+        Map<String, ClassNode> read = new HashMap<>();
+        assertFalse(ClassHierarchyIndex.read(index, new byte[]{2}, read));
+        assertFalse(ClassHierarchyIndex.read(new File(folder.getRoot(), "missing.idx"), new byte[]{1}, read));
+        File truncated = folder.newFile("truncated.idx");
+        try(FileOutputStream out = new FileOutputStream(truncated)) {
+            out.write(java.nio.file.Files.readAllBytes(index.toPath()), 0, 20);
+        }
+        assertFalse(ClassHierarchyIndex.read(truncated, new byte[]{1}, read));
+        assertTrue(read.isEmpty());
+    }
+
+    /* Checks that the fingerprint of a directory of inputs changes when a class file is added or changed and does not
+     * change for other files. */
+    @Test
+    public void testFingerprintTracksClassFiles() throws IOException {
+        File input = folder.newFolder("input");
+        File classFile = new File(input, "A.class");
+        assertTrue(classFile.createNewFile());
+        byte[] initial = ClassHierarchyIndex.fingerprint(input);
+        assertArrayEquals(initial, ClassHierarchyIndex.fingerprint(input));
+        assertTrue(new File(input, "notes.txt").createNewFile());
+        assertArrayEquals(initial, ClassHierarchyIndex.fingerprint(input));
+        try(FileOutputStream out = new FileOutputStream(classFile)) {
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE});
+        }
+        byte[] changed = ClassHierarchyIndex.fingerprint(input);
+        assertFalse(Arrays.equals(initial, changed));
+        assertTrue(new File(input, "B.jar").createNewFile());
+        assertFalse(Arrays.equals(changed, ClassHierarchyIndex.fingerprint(input)));
+    }
+
+    /* Checks that the fingerprint of the inputs changes when a jar of the extra classpath changes. */
+    @Test
+    public void testFingerprintTracksExtraClasspath() throws IOException {
+        File input = folder.newFolder("input");
+        File dependency = folder.newFile("dependency.jar");
+        File[] classpath = new File[]{dependency};
+        byte[] initial = ClassHierarchyIndex.fingerprint(input, classpath);
+        assertArrayEquals(initial, ClassHierarchyIndex.fingerprint(input, classpath));
+        assertFalse(Arrays.equals(initial, ClassHierarchyIndex.fingerprint(input)));
+        try(FileOutputStream out = new FileOutputStream(dependency)) {
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE});
+        }
+        assertFalse(Arrays.equals(initial, ClassHierarchyIndex.fingerprint(input, classpath)));
+    }
+}
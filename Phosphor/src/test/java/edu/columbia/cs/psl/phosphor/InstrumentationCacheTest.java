@@ -0,0 +1,65 @@
+package edu.columbia.cs.psl.phosphor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] classBytes(int i) {
+        return ByteBuffer.allocate(12).putInt(0xCAFEBABE).putInt(i).putInt(i * 31).array();
+    }
+
+    /* Checks that a class added to the cache is found by its key, by the same cache and by a cache later opened in the
+     * same directory with the same options, and is not found by a cache opened with different options. */
+    @Test
+    public void testCachedClassesArePersisted() throws Exception {
+        File dir = folder.newFolder();
+        InstrumentationCache cache = InstrumentationCache.open(dir, "opt=1");
+        assertNotNull(cache);
+        byte[] original = classBytes(1);
+        byte[] key = cache.key(original);
+        assertArrayEquals(key, cache.key(original));
+        assertNull(cache.get(key));
+        cache.put(key, new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(key));
+        assertNull(cache.get(cache.key(classBytes(2))));
+        cache.close();
+        InstrumentationCache reopened = InstrumentationCache.open(dir, "opt=1");
+        assertArrayEquals(new byte[]{1, 2, 3}, reopened.get(reopened.key(original)));
+        reopened.close();
+        InstrumentationCache other = InstrumentationCache.open(dir, "opt=2");
+        assertNull(other.get(other.key(original)));
+        other.close();
+    }
+
+    /* Checks that a cache sees the classes added by another cache in the same directory, including after the other
+     * cache has replaced the index with a larger one. */
+    @Test
+    public void testClassesAddedByAnotherCacheAreFound() throws Exception {
+        File dir = folder.newFolder();
+        InstrumentationCache first = InstrumentationCache.open(dir, null);
+        InstrumentationCache second = InstrumentationCache.open(dir, null);
+        first.put(first.key(classBytes(0)), classBytes(-1));
+        assertArrayEquals(classBytes(-1), second.get(second.key(classBytes(0))));
+        int n = 40000;
+        for(int i = 1; i < n; i++) {
+            first.put(first.key(classBytes(i)), classBytes(-i));
+        }
+        for(int i = 1; i < n; i += 97) {
+            assertArrayEquals(classBytes(-i), second.get(second.key(classBytes(i))));
+        }
+        second.put(second.key(classBytes(n)), classBytes(-n));
+        assertArrayEquals(classBytes(-n), first.get(first.key(classBytes(n))));
+        first.close();
+        second.close();
+    }
+}
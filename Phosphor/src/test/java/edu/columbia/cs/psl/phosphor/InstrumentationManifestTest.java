@@ -0,0 +1,103 @@
+package edu.columbia.cs.psl.phosphor;
+
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.HashMap;
+import edu.columbia.cs.psl.phosphor.struct.harmony.util.Map;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Options;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationManifestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, int value) throws IOException {
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            out.write(value);
+        }
+    }
+
+    /* Checks that an output is only reported as unchanged by a run with the same configuration as the run that wrote
+     * it if its input has the same contents and the output still exists. */
+    @Test
+    public void testUnchangedInputsAreDetected() throws IOException {
+        File outputDir = folder.newFolder("out");
+        File a = folder.newFile("A.class");
+        File b = folder.newFile("B.jar");
+        write(a, 1);
+        write(b, 2);
+        File aOut = new File(outputDir, "A.class");
+        File bOut = new File(outputDir, "lib/B.jar");
+        InstrumentationManifest first = InstrumentationManifest.open(outputDir, "config");
+        assertFalse(first.isUnchanged(a, aOut));
+        assertFalse(first.isUnchanged(b, bOut));
+        write(aOut, 3);
+        assertTrue(bOut.getParentFile().mkdir());
+        write(bOut, 4);
+        first.save();
+        assertTrue(new File(outputDir, InstrumentationManifest.FILE_NAME).isFile());
+        InstrumentationManifest second = InstrumentationManifest.open(outputDir, "config");
+        assertFalse(new File(outputDir, InstrumentationManifest.FILE_NAME).exists());
+        assertTrue(second.isUnchanged(a, aOut));
+        write(b, 5);
+        assertFalse(second.isUnchanged(b, bOut));
+        second.save();
+        InstrumentationManifest third = InstrumentationManifest.open(outputDir, "config");
+        assertTrue(third.isUnchanged(b, bOut));
+        assertTrue(aOut.delete());
+        assertFalse(third.isUnchanged(a, aOut));
+        third.save();
+        InstrumentationManifest fourth = InstrumentationManifest.open(outputDir, "other");
+        assertFalse(fourth.isUnchanged(b, bOut));
+    }
+
+    /* Checks that the configuration changes when the signature of a class changes. */
+    @Test
+    public void testConfigurationDependsOnClassSignatures() throws Exception {
+        CommandLine line = new DefaultParser().parse(new Options(), new String[0]);
+        Map<String, ClassNode> classes = new HashMap<>();
+        ClassNode cn = new ClassNode();
+        cn.name = "example/A";
+        cn.superName = "java/lang/Object";
+        classes.put(cn.name, cn);
+        String initial = InstrumentationManifest.configurationOf(line, classes);
+        assertEquals(initial, InstrumentationManifest.configurationOf(line, classes));
+        cn.methods.add(new MethodNode(Opcodes.ACC_PUBLIC, "run", "()V", null, null));
+        assertNotEquals(initial, InstrumentationManifest.configurationOf(line, classes));
+    }
+
+    /* Checks that the configuration changes when a jar of the extra classpath changes but not when an input changes. */
+    @Test
+    public void testConfigurationDependsOnExtraClasspath() throws Exception {
+        File input = folder.newFolder("input");
+        File inputClass = new File(input, "A.class");
+        write(inputClass, 1);
+        File dependency = folder.newFile("dependency.jar");
+        write(dependency, 1);
+        File other = folder.newFile("other.jar");
+        write(other, 1);
+        String[] args = new String[]{input.getPath(), folder.newFolder("output").getPath(), dependency.getPath(), other.getPath()};
+        CommandLine line = new DefaultParser().parse(new Options(), args);
+        Map<String, ClassNode> classes = new HashMap<>();
+        String initial = InstrumentationManifest.configurationOf(line, classes);
+        write(inputClass, 2);
+        assertTrue(inputClass.setLastModified(inputClass.lastModified() - 10000));
+        assertEquals(initial, InstrumentationManifest.configurationOf(line, classes));
+        try(FileOutputStream out = new FileOutputStream(dependency, true)) {
+            out.write(2);
+        }
+        assertNotEquals(initial, InstrumentationManifest.configurationOf(line, classes));
+    }
+}
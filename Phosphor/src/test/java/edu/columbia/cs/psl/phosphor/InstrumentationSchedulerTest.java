@@ -0,0 +1,73 @@
+package edu.columbia.cs.psl.phosphor;
+
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationSchedulerTest {
+
+    private static Callable<Integer> recordingTask(final BlockingQueue<Integer> order, final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                order.add(value);
+                return value;
+            }
+        };
+    }
+
+    /* Blocks the only thread of the specified scheduler until the returned latch is released. */
+    private static CountDownLatch block(InstrumentationScheduler scheduler) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+        started.await();
+        return release;
+    }
+
+    /* Checks that queued tasks are run largest first and that tasks of the same size are run in submission order. */
+    @Test
+    public void testLargestTasksRunFirst() throws Exception {
+        InstrumentationScheduler scheduler = new InstrumentationScheduler(1);
+        try {
+            CountDownLatch release = block(scheduler);
+            BlockingQueue<Integer> order = new LinkedBlockingQueue<>();
+            Future<Integer> last = scheduler.submit(recordingTask(order, 1), 10);
+            scheduler.submit(recordingTask(order, 2), 300);
+            scheduler.submit(recordingTask(order, 3), 20);
+            scheduler.submit(recordingTask(order, 4), 300);
+            release.countDown();
+            assertEquals(1, (int) last.get(10, TimeUnit.SECONDS));
+            assertArrayEquals(new Integer[]{2, 4, 3, 1}, order.toArray(new Integer[0]));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /* Checks that a thread waiting for a queued task runs queued tasks itself instead of blocking. */
+    @Test
+    public void testAwaitRunsQueuedTasks() throws Exception {
+        InstrumentationScheduler scheduler = new InstrumentationScheduler(1);
+        CountDownLatch release = block(scheduler);
+        try {
+            BlockingQueue<Integer> order = new LinkedBlockingQueue<>();
+            Future<Integer> small = scheduler.submit(recordingTask(order, 1), 1);
+            scheduler.submit(recordingTask(order, 2), 2);
+            assertEquals(1, (int) InstrumentationScheduler.await(scheduler, small));
+            assertArrayEquals(new Integer[]{2, 1}, order.toArray(new Integer[0]));
+            assertEquals(1, scheduler.getActiveCount());
+        } finally {
+            release.countDown();
+            scheduler.shutdownNow();
+        }
+    }
+}
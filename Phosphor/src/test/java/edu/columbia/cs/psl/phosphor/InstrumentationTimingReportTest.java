@@ -0,0 +1,83 @@
+package edu.columbia.cs.psl.phosphor;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationTimingReportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void resetReport() {
+        InstrumentationTimingReport.reset();
+    }
+
+    /* Checks that the times recorded for a class on the thread that instruments it and added to its record afterwards
+     * are written to the report, with the slowest classes first. */
+    @Test
+    public void testRecordedTimesAreWritten() throws Exception {
+        InstrumentationTimingReport.enable();
+        InstrumentationTimingReport.ClassTiming fast = InstrumentationTimingReport.begin("example/Fast.class");
+        InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.INSTRUMENT, System.nanoTime() - 1000000);
+        InstrumentationTimingReport.end(fast);
+        InstrumentationTimingReport.ClassTiming slow = InstrumentationTimingReport.begin("example/Slow.class");
+        InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.ANALYZE, System.nanoTime() - 2000000);
+        InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.INSTRUMENT, System.nanoTime() - 50000000);
+        InstrumentationTimingReport.end(slow);
+        slow.add(InstrumentationTimingReport.Phase.WRITE, 3000000);
+        // Times recorded outside of a record are ignored
+        InstrumentationTimingReport.record(InstrumentationTimingReport.Phase.READ, System.nanoTime() - 4000000);
+        File report = folder.newFile("times.csv");
+        InstrumentationTimingReport.write(report);
+        List<String> lines = Files.readAllLines(report.toPath(), StandardCharsets.UTF_8);
+        assertEquals("class,read_ms,analyze_ms,frames_ms,instrument_ms,write_ms,total_ms", lines.get(0));
+        int slowIndex = -1;
+        int fastIndex = -1;
+        for(int i = 1; i < lines.size(); i++) {
+            if(lines.get(i).startsWith("example/Slow.class,")) {
+                slowIndex = i;
+            } else if(lines.get(i).startsWith("example/Fast.class,")) {
+                fastIndex = i;
+            }
+        }
+        assertTrue(slowIndex > 0 && fastIndex > slowIndex);
+        String[] slowColumns = lines.get(slowIndex).split(",");
+        assertEquals(0, Double.parseDouble(slowColumns[1]), 0);
+        assertTrue(Double.parseDouble(slowColumns[2]) >= 2);
+        assertEquals(0, Double.parseDouble(slowColumns[3]), 0);
+        assertTrue(Double.parseDouble(slowColumns[4]) >= 50);
+        assertEquals(3, Double.parseDouble(slowColumns[5]), 0);
+    }
+
+    /* Checks that the summary lists the requested number of slowest classes and that nothing is recorded once the
+     * report is reset. */
+    @Test
+    public void testSummaryListsSlowestClasses() {
+        InstrumentationTimingReport.enable();
+        InstrumentationTimingReport.ClassTiming fast = InstrumentationTimingReport.begin("example/Fast.class");
+        InstrumentationTimingReport.end(fast);
+        InstrumentationTimingReport.ClassTiming slow = InstrumentationTimingReport.begin("example/Slow.class");
+        InstrumentationTimingReport.end(slow);
+        slow.add(InstrumentationTimingReport.Phase.INSTRUMENT, 5000000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InstrumentationTimingReport.printSummary(new PrintStream(out, true), 1);
+        String summary = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(summary.contains("instrument=5.000ms"));
+        assertTrue(summary.contains("example/Slow.class"));
+        assertFalse(summary.contains("example/Fast.class"));
+        InstrumentationTimingReport.reset();
+        assertNull(InstrumentationTimingReport.begin("example/Other.class"));
+    }
+}
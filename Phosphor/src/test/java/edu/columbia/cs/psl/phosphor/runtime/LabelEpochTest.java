@@ -0,0 +1,135 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class LabelEpochTest {
+
+    @After
+    public void clearCurrentEpoch() {
+        LabelEpoch.setCurrent(null);
+    }
+
+    /* Creates a taint containing the specified labels by combining singleton taints. */
+    private static Taint taintWithLabels(Object... labels) {
+        Taint result = Taint.emptyTaint();
+        for(Object label : labels) {
+            result = Taint.combineTags(result, Taint.withLabel(label));
+        }
+        return result;
+    }
+
+    /* Checks that ending an epoch empties both small and large taints whose labels all belong to that epoch. */
+    @Test
+    public void testEndedEpochEmptiesTaints() {
+        LabelEpoch epoch = LabelEpoch.begin("request");
+        Taint small = taintWithLabels("a", "b");
+        Taint large = taintWithLabels("a", "b", "c", "d", "e", "f");
+        assertTrue(small instanceof PowerSetTree.InlineSet);
+        assertTrue(large instanceof PowerSetTree.SetNode);
+        epoch.end();
+        assertNull(LabelEpoch.getCurrent());
+        assertTrue(small.isEmpty());
+        assertTrue(large.isEmpty());
+        assertFalse(large.containsLabel("a"));
+        Taint other = Taint.withLabel("other");
+        assertSame(other, Taint.combineTags(large, other));
+        assertTrue(large.union(other).containsOnlyLabels(new Object[]{"other"}));
+    }
+
+    /* Checks that equal labels created in different epochs are independent of one another. */
+    @Test
+    public void testEpochsAreIsolated() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            LabelEpoch first = new LabelEpoch("first");
+            LabelEpoch second = new LabelEpoch("second");
+            Future<Taint> firstTaint = executor.submit(() -> {
+                LabelEpoch.setCurrent(first);
+                return taintWithLabels("user", "session", "x", "y", "z");
+            });
+            Future<Taint> secondTaint = executor.submit(() -> {
+                LabelEpoch.setCurrent(second);
+                return taintWithLabels("user", "session", "x", "y", "z");
+            });
+            Taint t1 = firstTaint.get();
+            Taint t2 = secondTaint.get();
+            first.retire();
+            assertTrue(t1.isEmpty());
+            assertFalse(t2.isEmpty());
+            assertTrue(t2.containsOnlyLabels(new Object[]{"user", "session", "x", "y", "z"}));
+            second.retire();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /* Checks that retiring an epoch removes only its labels from taints that also contain other labels. */
+    @Test
+    public void testRetiredLabelsAreHiddenFromMixedTaints() {
+        Taint global = taintWithLabels("g1", "g2", "g3");
+        LabelEpoch epoch = LabelEpoch.begin("request");
+        Taint scoped = taintWithLabels("s1", "s2", "s3");
+        LabelEpoch.setCurrent(null);
+        Taint mixed = global.union(scoped);
+        assertTrue(mixed.containsOnlyLabels(new Object[]{"g1", "g2", "g3", "s1", "s2", "s3"}));
+        epoch.retire();
+        assertFalse(mixed.isEmpty());
+        assertFalse(mixed.containsLabel("s1"));
+        assertTrue(mixed.containsLabel("g1"));
+        assertTrue(mixed.containsOnlyLabels(new Object[]{"g1", "g2", "g3"}));
+        assertEquals(3, mixed.getLabels().length);
+        assertTrue(mixed.isSuperset(global));
+        assertTrue(global.isSuperset(mixed));
+        assertTrue(mixed.isSuperset(scoped));
+    }
+
+    /* Checks that a taint whose labels belong to several epochs is empty once all of those epochs are retired. */
+    @Test
+    public void testTaintFromSeveralEpochsEmptyWhenAllRetired() {
+        LabelEpoch first = LabelEpoch.begin("first");
+        Taint t1 = taintWithLabels("p", "q", "r");
+        LabelEpoch second = LabelEpoch.begin("second");
+        Taint t2 = taintWithLabels("p", "s", "t");
+        Taint union = t1.union(t2);
+        assertTrue(union.containsOnlyLabels(new Object[]{"p", "q", "r", "s", "t"}));
+        first.retire();
+        assertFalse(union.isEmpty());
+        assertTrue(union.containsOnlyLabels(new Object[]{"p", "s", "t"}));
+        second.retire();
+        assertTrue(union.isEmpty());
+    }
+
+    /* Checks that epochs stop being in use once every epoch that was made current is retired and that taints mixing
+     * labels with and without epochs are still examined correctly afterwards. */
+    @Test
+    public void testNotInUseOnceAllEpochsRetired() {
+        Taint global = taintWithLabels("h1", "h2", "h3");
+        LabelEpoch first = LabelEpoch.begin("first");
+        Taint scoped = taintWithLabels("u1", "u2", "u3");
+        LabelEpoch second = LabelEpoch.begin("second");
+        LabelEpoch.setCurrent(null);
+        Taint mixed = global.union(scoped);
+        assertTrue(LabelEpoch.isInUse());
+        first.end();
+        assertTrue(LabelEpoch.isInUse());
+        second.retire();
+        second.retire();
+        assertFalse(LabelEpoch.isInUse());
+        assertFalse(mixed.isEmpty());
+        assertTrue(mixed.containsLabel("h1"));
+        assertFalse(mixed.containsLabel("u1"));
+        assertTrue(mixed.containsOnlyLabels(new Object[]{"h1", "h2", "h3"}));
+        assertTrue(scoped.isEmpty());
+    }
+}
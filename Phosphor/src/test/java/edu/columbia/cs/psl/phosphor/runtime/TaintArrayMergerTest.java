@@ -0,0 +1,91 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.struct.LazyIntArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.LazyReferenceArrayObjTags;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class TaintArrayMergerTest {
+
+    // The number of distinct labels in the arrays of tags used by the tests
+    private static final int LABELS = 50;
+
+    @After
+    public void restoreThreshold() {
+        Configuration.PARALLEL_TAINT_MERGE_THRESHOLD = 0;
+    }
+
+    /* Returns an array of the specified length containing runs of tags for a fixed set of labels interspersed with null
+     * and empty tags. */
+    private static Taint<Object>[] makeTaints(int length) {
+        Taint<Object>[] singletons = new Taint[LABELS];
+        for(int i = 0; i < LABELS; i++) {
+            singletons[i] = Taint.withLabel(i);
+        }
+        Taint<Object>[] taints = new Taint[length];
+        for(int i = 0; i < length; i++) {
+            if(i % 7 == 0) {
+                taints[i] = i % 2 == 0 ? null : Taint.emptyTaint();
+            } else {
+                taints[i] = singletons[(i / 11) % LABELS];
+            }
+        }
+        return taints;
+    }
+
+    private static Object[] expectedLabels() {
+        Object[] expected = new Object[LABELS];
+        for(int i = 0; i < LABELS; i++) {
+            expected[i] = i;
+        }
+        return expected;
+    }
+
+    /* Checks that arrays that contain only null and empty tags are merged into an empty tag. */
+    @Test
+    public void testMergeWithoutLabels() {
+        assertNull(Taint.combineTaintArray(null));
+        assertTrue(Taint.combineTaintArray(new Taint[0]).isEmpty());
+        assertTrue(Taint.combineTaintArray(new Taint[]{null, Taint.emptyTaint(), null}).isEmpty());
+    }
+
+    /* Checks that an array of a single distinct tag is merged into that tag. */
+    @Test
+    public void testMergeSingleDistinctTag() {
+        Taint<String> taint = Taint.withLabel("a").union(Taint.withLabel("b"));
+        assertSame(taint, Taint.combineTaintArray(new Taint[]{null, taint, taint, Taint.emptyTaint(), taint}));
+    }
+
+    /* Checks that arrays are merged into the same set when merged by the calling thread and when merged in parallel. The
+     * parallel merge runs in a pool of its own so that it is split into tasks even on a machine with a single CPU. */
+    @Test
+    public void testSequentialAndParallelMergesAgree() {
+        Taint<Object>[] taints = makeTaints(100_000);
+        Taint<Object> sequential = Taint.combineTaintArray(taints);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Taint<Object> parallel = TaintArrayMerger.merge(taints, pool, 1000);
+            assertTrue(sequential.containsOnlyLabels(expectedLabels()));
+            assertTrue(parallel.containsOnlyLabels(expectedLabels()));
+            // The merge was run by the workers of the pool rather than by the calling thread
+            assertTrue(pool.getPoolSize() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* Checks that the merged taint of an array of arrays contains the labels of the tags of every element array. */
+    @Test
+    public void testMergedTaintOfReferenceArray() {
+        LazyIntArrayObjTags first = new LazyIntArrayObjTags(new int[3], new Taint[]{null, Taint.withLabel("x"), null});
+        LazyIntArrayObjTags second = new LazyIntArrayObjTags(new int[2], new Taint[]{Taint.withLabel("y"), null});
+        LazyReferenceArrayObjTags arrays = new LazyReferenceArrayObjTags(new Object[]{first, null, second});
+        assertTrue(MultiTainter.getMergedTaint(arrays).containsOnlyLabels(new Object[]{"x", "y"}));
+    }
+}
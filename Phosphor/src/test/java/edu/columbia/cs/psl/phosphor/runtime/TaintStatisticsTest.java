@@ -0,0 +1,97 @@
+package edu.columbia.cs.psl.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.struct.LazyIntArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class TaintStatisticsTest {
+
+    private final TaintStatistics statistics = new TaintStatistics();
+
+    @Before
+    public void enableStatistics() {
+        statistics.reset();
+        statistics.setEnabled(true);
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setEnabled(false);
+        statistics.reset();
+    }
+
+    /* Checks that calls to combineTags are counted only while statistics are enabled. */
+    @Test
+    public void testCombineTagsCounted() {
+        Taint<String> t1 = Taint.withLabel("a");
+        Taint<String> t2 = Taint.withLabel("b");
+        Taint.combineTags(t1, t2);
+        Taint.combineTags(t1, Taint.<String>emptyTaint());
+        assertEquals(2, statistics.getCombineTagsCount());
+        assertEquals(1, statistics.getCombineTagsUnionCount());
+        assertTrue(statistics.getCombineTagsRate() > 0);
+        statistics.setEnabled(false);
+        Taint.combineTags(t1, t2);
+        assertEquals(2, statistics.getCombineTagsCount());
+    }
+
+    /* Checks that the lazily allocated tag arrays of tainted arrays too short to be range- or dictionary-encoded are
+     * counted. */
+    @Test
+    public void testTaintArrayAllocationsCounted() {
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(16);
+        array.set(0, 1, null);
+        assertEquals(0, statistics.getTaintArrayAllocationCount());
+        array.set(1, 1, Taint.withLabel("x"));
+        LazyIntArrayObjTags copy = (LazyIntArrayObjTags) array.clone();
+        // The clone shares the original's tags until one of its tags is changed
+        assertEquals(1, statistics.getTaintArrayAllocationCount());
+        copy.set(2, 1, Taint.withLabel("y"));
+        assertEquals(2, statistics.getTaintArrayAllocationCount());
+        assertTrue(statistics.getTaintArrayAllocationBytes() >= 2 * 16 * 4);
+    }
+
+    /* Checks that the tree's node count increases when new sets are created while statistics are enabled, that it does
+     * not change while they are disabled and that the rank count increases when new labels are added. Nodes of
+     * unreachable sets from earlier tests may be reclaimed at any time while statistics are enabled, so the node count
+     * is only required to grow by most of the new sets. */
+    @Test
+    public void testTreeCounts() {
+        PowerSetTree.getInstance().sweep();
+        long nodes = statistics.getTreeNodeCount();
+        long ranks = statistics.getTreeRankCount();
+        Object[] sets = new Object[100];
+        for(int i = 0; i < sets.length; i++) {
+            sets[i] = PowerSetTree.getInstance().makeSingletonSet(new Object());
+        }
+        assertTrue(statistics.getTreeNodeCount() - nodes > sets.length / 2);
+        assertEquals(ranks + sets.length, statistics.getTreeRankCount());
+        statistics.setEnabled(false);
+        nodes = statistics.getTreeNodeCount();
+        Object held = PowerSetTree.getInstance().makeSingletonSet(new Object());
+        assertEquals(nodes, statistics.getTreeNodeCount());
+        assertNotNull(held);
+    }
+
+    /* Checks that the statistics can be read through the platform MBean server. */
+    @Test
+    public void testRegisteredMBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(TaintStatistics.OBJECT_NAME);
+        if(!server.isRegistered(name)) {
+            TaintStatistics.register();
+        }
+        TaintStatistics.recordControlFlowDepth(7);
+        assertEquals(7, server.getAttribute(name, "ControlFlowStackMaxDepth"));
+        assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+    }
+}
@@ -0,0 +1,133 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AddressTaintMapTest {
+
+    private static final long BASE = 1L << 40;
+
+    /* Checks that a sequence of random fills and copies produces the same tags as the same operations applied to a dense
+     * array of tags, one per byte. */
+    @Test
+    public void testRandomOperationsMatchDenseArray() {
+        Random random = new Random(7);
+        Taint[] labels = new Taint[]{null, Taint.withLabel("a"), Taint.withLabel("b"), Taint.withLabel("c")};
+        int length = 512;
+        for(int trial = 0; trial < 20; trial++) {
+            AddressTaintMap map = new AddressTaintMap();
+            Taint[] expected = new Taint[length];
+            for(int op = 0; op < 40; op++) {
+                int start = random.nextInt(length);
+                int end = start + random.nextInt(length - start + 1);
+                if(random.nextBoolean()) {
+                    Taint tag = labels[random.nextInt(labels.length)];
+                    map.fill(BASE + start, BASE + end, tag);
+                    for(int i = start; i < end; i++) {
+                        expected[i] = tag;
+                    }
+                } else {
+                    int dest = random.nextInt(length - (end - start) + 1);
+                    map.copy(BASE + start, BASE + dest, end - start);
+                    System.arraycopy(expected.clone(), start, expected, dest, end - start);
+                }
+                for(int i = 0; i < length; i++) {
+                    Taint actual = map.get(BASE + i, 1);
+                    assertSame(expected[i] == null ? Taint.emptyTaint() : expected[i], actual);
+                }
+            }
+        }
+    }
+
+    /* Checks that reading several bytes unions the tags of the runs they overlap. */
+    @Test
+    public void testWideReadUnionsOverlappingRuns() {
+        AddressTaintMap map = new AddressTaintMap();
+        map.fill(BASE + 2, BASE + 3, Taint.withLabel("low"));
+        map.fill(BASE + 5, BASE + 6, Taint.withLabel("high"));
+        assertTrue(map.get(BASE, 8).containsOnlyLabels(new Object[]{"low", "high"}));
+        assertTrue(map.get(BASE, 4).containsOnlyLabels(new Object[]{"low"}));
+        assertTrue(map.get(BASE + 8, 8).isEmpty());
+    }
+
+    /* Checks that tags are copied between memory and the elements of an array element by element, and that an element
+     * covering bytes with different tags gets the union of their tags. */
+    @Test
+    public void testCopyToAndFromArray() {
+        AddressTaintMap map = new AddressTaintMap();
+        LazyIntArrayObjTags src = new LazyIntArrayObjTags(new int[4]);
+        src.setTaint(1, Taint.withLabel("one"));
+        src.setTaint(2, Taint.withLabel("two"));
+        map.copyFromArray(src, 0, 4, 4, BASE);
+        assertTrue(map.get(BASE, 4).isEmpty());
+        assertTrue(map.get(BASE + 4, 4).containsOnlyLabels(new Object[]{"one"}));
+        assertEquals(2, map.size());
+        LazyIntArrayObjTags dest = new LazyIntArrayObjTags(new int[4]);
+        map.copyToArray(BASE + 2, dest, 0, 3, 4);
+        assertTrue(dest.getTaintOrEmpty(0).containsOnlyLabels(new Object[]{"one"}));
+        assertTrue(dest.getTaintOrEmpty(1).containsOnlyLabels(new Object[]{"one", "two"}));
+        assertTrue(dest.getTaintOrEmpty(2).containsOnlyLabels(new Object[]{"two"}));
+        assertNull(dest.getTaintOrEmpty(3));
+    }
+
+    /* Checks that freeing a block removes its tags, that allocating a block removes stale tags and that reallocating a
+     * block moves its tags. */
+    @Test
+    public void testAllocationsTrackTags() {
+        AddressTaintMap map = new AddressTaintMap();
+        map.fill(BASE, BASE + 4, Taint.withLabel("stale"));
+        map.allocated(BASE, 16);
+        assertEquals(0, map.size());
+        map.fill(BASE + 8, BASE + 16, Taint.withLabel("live"));
+        map.reallocated(BASE, BASE + 64, 32);
+        assertTrue(map.get(BASE, 16).isEmpty());
+        assertTrue(map.get(BASE + 72, 8).containsOnlyLabels(new Object[]{"live"}));
+        map.freed(BASE + 64);
+        assertEquals(0, map.size());
+        map.fill(BASE, BASE + 4, Taint.withLabel("untracked"));
+        map.freed(BASE);
+        assertEquals(1, map.size());
+    }
+
+    /* Checks that the tags of every block are removed when it is freed after many blocks were allocated and freed in a
+     * random order, which grows the table of allocations and shifts its entries on removal. */
+    @Test
+    public void testManyAllocationsAreFreed() {
+        AddressTaintMap map = new AddressTaintMap();
+        Random random = new Random(11);
+        int blocks = 1000;
+        java.util.List<Long> addresses = new java.util.ArrayList<>();
+        for(int i = 0; i < blocks; i++) {
+            long address = BASE + (long) i * 4096;
+            map.allocated(address, 64);
+            map.fill(address, address + 1 + random.nextInt(64), Taint.withLabel(i));
+            addresses.add(address);
+        }
+        java.util.Collections.shuffle(addresses, random);
+        for(int i = 0; i < blocks; i++) {
+            long address = addresses.get(i);
+            assertFalse(map.get(address, 1).isEmpty());
+            map.freed(address);
+            assertTrue(map.get(address, 64).isEmpty());
+            assertEquals(blocks - i - 1, map.size());
+        }
+    }
+
+    /* Checks that fills that would not change any tag leave the runs as they are. */
+    @Test
+    public void testFillWithoutChangeKeepsRuns() {
+        AddressTaintMap map = new AddressTaintMap();
+        Taint tag = Taint.withLabel("a");
+        map.fill(BASE, BASE + 16, tag);
+        map.fill(BASE + 4, BASE + 8, tag);
+        map.fill(BASE + 16, BASE + 32, null);
+        map.fill(BASE + 2, BASE + 3, Taint.emptyTaint());
+        assertEquals(2, map.size());
+        assertTrue(map.get(BASE + 2, 1).isEmpty());
+        assertSame(tag, map.get(BASE + 3, 1));
+    }
+}
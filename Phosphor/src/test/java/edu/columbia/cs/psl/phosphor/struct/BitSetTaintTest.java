@@ -0,0 +1,90 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class BitSetTaintTest extends TaintTest {
+
+    // The number of labels in the universe used by the tests
+    private static final int CAPACITY = 40;
+
+    @Before
+    public void enableBitSetTaints() {
+        BitSetTaint.resetLabels();
+        Configuration.BIT_SET_TAINT_CAPACITY = CAPACITY;
+    }
+
+    @After
+    public void disableBitSetTaints() {
+        Configuration.BIT_SET_TAINT_CAPACITY = 0;
+        BitSetTaint.resetLabels();
+    }
+
+    /* Checks that taints created while the universe has unassigned indices are BitSetTaints and that unions of them
+     * contain the labels of both operands. */
+    @Test
+    public void testUnionOfBitSetTaints() {
+        Taint t1 = Taint.withLabel("a").union(Taint.withLabel("b"));
+        Taint t2 = Taint.withLabel("c");
+        assertTrue(t1 instanceof BitSetTaint);
+        Taint result = t1.union(t2);
+        assertTrue(result instanceof BitSetTaint);
+        assertTrue(result.containsOnlyLabels(new Object[]{"a", "b", "c"}));
+        assertTrue(result.isSuperset(t1));
+        assertFalse(t1.isSuperset(result));
+        assertSame(result, result.union(t1));
+        assertEquals(result, t2.union(Taint.withLabel("b")).union(Taint.withLabel("a")));
+    }
+
+    /* Checks that labels beyond the capacity of the universe are represented by the tree and that sets of the two
+     * representations can be combined in either order. */
+    @Test
+    public void testUniverseOverflowFallsBackToTree() {
+        for(int i = 0; i < CAPACITY; i++) {
+            assertTrue(Taint.withLabel(i) instanceof BitSetTaint);
+        }
+        Taint overflow = Taint.withLabel(CAPACITY);
+        assertFalse(overflow instanceof BitSetTaint);
+        Taint bitSetTaint = Taint.withLabel(1).union(Taint.withLabel(2));
+        Object[] expected = new Object[]{1, 2, CAPACITY};
+        assertTrue(bitSetTaint.union(overflow).containsOnlyLabels(expected));
+        assertTrue(overflow.union(bitSetTaint).containsOnlyLabels(expected));
+        assertTrue(bitSetTaint.union(overflow).isSuperset(bitSetTaint));
+        assertTrue(overflow.union(bitSetTaint).isSuperset(bitSetTaint));
+        assertFalse(bitSetTaint.isSuperset(overflow));
+    }
+
+    /* Checks that BitSetTaints are combined correctly with taints from the tree created while BitSetTaints were disabled. */
+    @Test
+    public void testMixedRepresentations() {
+        Configuration.BIT_SET_TAINT_CAPACITY = 0;
+        Taint inline = Taint.withLabel("x");
+        Taint node = PowerSetTree.getInstance().makeSingletonSet("y");
+        Configuration.BIT_SET_TAINT_CAPACITY = CAPACITY;
+        Taint bitSetTaint = Taint.withLabel("z");
+        Object[] expected = new Object[]{"x", "y", "z"};
+        assertTrue(bitSetTaint.union(inline).union(node).containsOnlyLabels(expected));
+        assertTrue(inline.union(bitSetTaint).union(node).containsOnlyLabels(expected));
+        assertTrue(node.union(bitSetTaint).union(inline).containsOnlyLabels(expected));
+        assertTrue(Taint.combineTaintArray(new Taint[]{node, bitSetTaint, inline}).containsOnlyLabels(expected));
+        assertTrue(node.union(bitSetTaint).isSuperset(bitSetTaint));
+        assertTrue(inline.union(bitSetTaint).isSuperset(bitSetTaint));
+    }
+
+    /* Checks that resetting the tree empties existing BitSetTaints and allows their indices to be reused. */
+    @Test
+    public void testResetTree() {
+        Taint t1 = Taint.withLabel("p").union(Taint.withLabel("q"));
+        PowerSetTree.getInstance().reset();
+        assertTrue(t1.isEmpty());
+        Taint t2 = Taint.withLabel("r");
+        assertTrue(t2 instanceof BitSetTaint);
+        assertTrue(Taint.combineTags(t1, t2).containsOnlyLabels(new Object[]{"r"}));
+    }
+}
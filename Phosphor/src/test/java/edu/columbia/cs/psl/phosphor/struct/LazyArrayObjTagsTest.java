@@ -1,12 +1,38 @@
 package edu.columbia.cs.psl.phosphor.struct;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.TaintUtils;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.xml.bind.DatatypeConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
 import static org.junit.Assert.*;
 
 public class LazyArrayObjTagsTest {
 
+    private static final String LEGACY_CHAR_ARRAY = "rO0ABXNyADhlZHUuY29sdW1iaWEuY3MucHNsLnBob3NwaG9yLnN0cnVjdC5MYXp5Q2hhckFycmF5"
+            + "T2JqVGFnc+MG4N29dBGkAwABWwADdmFsdAACW0N4cgA0ZWR1LmNvbHVtYmlhLmNzLnBzbC5waG9zcGhvci5zdHJ1Y3QuTGF6eUFycmF5"
+            + "T2JqVGFnc9tsDHq9Avb1AwADSQAPJCRQSE9TUEhPUl9NQVJLTAALbGVuZ3RoVGFpbnR0ACxMZWR1L2NvbHVtYmlhL2NzL3BzbC9waG9z"
+            + "cGhvci9ydW50aW1lL1RhaW50O1sABnRhaW50c3QALVtMZWR1L2NvbHVtYmlhL2NzL3BzbC9waG9zcGhvci9ydW50aW1lL1RhaW50O3hw"
+            + "dwQAAAAIcHBzcgA6ZWR1LmNvbHVtYmlhLmNzLnBzbC5waG9zcGhvci5zdHJ1Y3QuUG93ZXJTZXRUcmVlJElubGluZVNldML9tR5PciTP"
+            + "AwAAeHIAKmVkdS5jb2x1bWJpYS5jcy5wc2wucGhvc3Bob3IucnVudGltZS5UYWludBgt2EG+SE5TAgAAeHBzcgA0ZWR1LmNvbHVtYmlh"
+            + "LmNzLnBzbC5waG9zcGhvci5zdHJ1Y3QuU2luZ2x5TGlua2VkTGlzdKW62BRoJOIsAgADSQAEc2l6ZUwABGhlYWR0ADtMZWR1L2NvbHVt"
+            + "YmlhL2NzL3BzbC9waG9zcGhvci9zdHJ1Y3QvU2luZ2x5TGlua2VkTGlzdCROb2RlO0wABHRhaWxxAH4ACnhwAAAAAXNyADllZHUuY29s"
+            + "dW1iaWEuY3MucHNsLnBob3NwaG9yLnN0cnVjdC5TaW5nbHlMaW5rZWRMaXN0JE5vZGW/mxChkBb6nQIAAkwABGl0ZW10ABJMamF2YS9s"
+            + "YW5nL09iamVjdDtMAARuZXh0cQB+AAp4cHQABmxlZ2FjeXBxAH4ADnhxAH4ACHBwcQB+AAhweHcUAAAACABsAGUAZwBhAGMAeQAhACF4";
+
     /** Equals method utilizes underlying array value **/
     @Test
     public void deepEqualIfUnderlyingValIsDeepEqual() {
@@ -17,4 +43,583 @@ public class LazyArrayObjTagsTest {
 
         Assert.assertEquals(lazyArrayObjTags1, lazyArrayObjTags2);
     }
-}
\ No newline at end of file
+
+    /* Checks that the tags of a long array tainted in a few ranges are range-encoded and read back correctly. */
+    @Test
+    public void testLongArrayTagsAreRangeEncoded() {
+        Taint tag = Taint.withLabel("buffer");
+        LazyByteArrayObjTags array = new LazyByteArrayObjTags(new byte[1 << 16]);
+        array.setTaints(tag);
+        array.set(100, (byte) 1, null);
+        assertNull(array.taints);
+        assertTrue(array.encodedTaints instanceof TaintRanges);
+        assertTrue(array.hasTaints());
+        assertSame(tag, array.get(99, new TaintedByteWithObjTag()).taint);
+        assertNull(array.get(100, new TaintedByteWithObjTag()).taint);
+        assertSame(tag, array.getTaintOrEmpty(array.getLength() - 1));
+        assertTrue(array.getMergedTaint().containsOnlyLabels(new Object[]{"buffer"}));
+    }
+
+    /* Checks that range-encoded tags are converted to dictionary-encoded tags once they become fragmented. */
+    @Test
+    public void testFragmentedRangesBecomeDictionary() {
+        Taint tag = Taint.withLabel("fragment");
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[256]);
+        for(int i = 0; i < array.getLength(); i += 2) {
+            array.set(i, i, tag);
+        }
+        assertNull(array.taints);
+        assertTrue(array.encodedTaints instanceof TaintDictionary);
+        for(int i = 0; i < array.getLength(); i++) {
+            assertSame(i % 2 == 0 ? tag : null, array.getTaintOrEmpty(i));
+        }
+        assertSame(tag, array.getMergedTaint());
+    }
+
+    /* Checks that fragmented range-encoded tags are converted to a dense array if dictionaries are disabled. */
+    @Test
+    public void testFragmentedRangesBecomeDenseWithoutDictionaries() {
+        Configuration.DICTIONARY_ENCODED_TAINTS = false;
+        try {
+            Taint tag = Taint.withLabel("fragment");
+            LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[256]);
+            for(int i = 0; i < array.getLength(); i += 2) {
+                array.set(i, i, tag);
+            }
+            assertNotNull(array.taints);
+            assertFalse(array.encodedTaints instanceof TaintDictionary);
+            assertSame(tag, array.getTaintOrEmpty(254));
+        } finally {
+            Configuration.DICTIONARY_ENCODED_TAINTS = true;
+        }
+    }
+
+    /* Checks that an array with more distinct tags than fit in a dictionary is converted to a dense array. */
+    @Test
+    public void testFullDictionaryBecomesDense() {
+        int length = (1 << 16) + 1;
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[length]);
+        Taint[] tags = new Taint[length];
+        for(int i = 0; i < length; i++) {
+            tags[i] = Taint.withLabel(i);
+            array.set(i, i, tags[i]);
+        }
+        assertNotNull(array.taints);
+        assertFalse(array.encodedTaints instanceof TaintDictionary);
+        for(int i = 0; i < length; i += 997) {
+            assertSame(tags[i], array.getTaintOrEmpty(i));
+        }
+    }
+
+    /* Checks that clones of arrays with range-encoded tags can be modified independently. */
+    @Test
+    public void testCloneCopiesRanges() {
+        Taint tag = Taint.withLabel("original");
+        LazyCharArrayObjTags array = new LazyCharArrayObjTags(new char[128]);
+        array.setTaints(tag);
+        LazyCharArrayObjTags copy = (LazyCharArrayObjTags) array.clone();
+        copy.setTaint(0, null);
+        assertSame(tag, array.getTaintOrEmpty(0));
+        assertNull(copy.getTaintOrEmpty(0));
+        assertSame(tag, copy.getTaintOrEmpty(1));
+    }
+
+    /* Checks that range-encoded tags survive serialization. */
+    @Test
+    public void testSerializeRangeEncodedTags() throws Exception {
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[100]);
+        array.setTaint(10, Taint.withLabel("serialized"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(array);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            LazyIntArrayObjTags result = (LazyIntArrayObjTags) in.readObject();
+            assertTrue(result.getTaintOrEmpty(10).containsOnlyLabels(new Object[]{"serialized"}));
+            assertNull(result.getTaintOrEmpty(11));
+        }
+    }
+
+    /* Checks that the tags of arrays whose tags are uniform, range-encoded, dictionary-encoded or dense survive
+     * serialization and that elements with the same tag share a single deserialized tag. */
+    @Test
+    public void testSerializeEveryRepresentation() throws Exception {
+        Random random = new Random(17);
+        Taint[] labels = new Taint[300];
+        for(int i = 0; i < labels.length; i++) {
+            labels[i] = Taint.withLabel("label" + i);
+        }
+        LazyIntArrayObjTags uniform = new LazyIntArrayObjTags(new int[100]);
+        uniform.setTaints(labels[0]);
+        LazyIntArrayObjTags ranges = new LazyIntArrayObjTags(new int[1000]);
+        ranges.fillTaint(10, 200, labels[1]);
+        ranges.fillTaint(500, 510, labels[2]);
+        LazyIntArrayObjTags dictionary = new LazyIntArrayObjTags(new int[48]);
+        LazyIntArrayObjTags wideDictionary = new LazyIntArrayObjTags(new int[2000]);
+        LazyIntArrayObjTags dense = new LazyIntArrayObjTags(new int[8]);
+        for(LazyIntArrayObjTags array : new LazyIntArrayObjTags[]{dictionary, wideDictionary, dense}) {
+            for(int i = 0; i < array.getLength(); i++) {
+                array.val[i] = random.nextInt();
+                array.setTaint(i, i % 3 == 0 ? null : labels[random.nextInt(labels.length)]);
+            }
+        }
+        for(LazyIntArrayObjTags array : new LazyIntArrayObjTags[]{uniform, ranges, dictionary, wideDictionary, dense}) {
+            LazyIntArrayObjTags result = roundTrip(array);
+            assertArrayEquals(array.val, result.val);
+            for(int i = 0; i < array.getLength(); i++) {
+                assertSameLabels(array.getTaintOrEmpty(i), result.getTaintOrEmpty(i));
+            }
+        }
+        LazyIntArrayObjTags result = roundTrip(ranges);
+        assertSame(result.getTaintOrEmpty(10), result.getTaintOrEmpty(199));
+        assertNotNull(roundTrip(uniform).getUniformTaint());
+        assertFalse(roundTrip(new LazyIntArrayObjTags(new int[4])).hasTaints());
+    }
+
+    /* Checks that arrays serialized in the format that wrote every element's tag and value separately can still be
+     * read. */
+    @Test
+    public void testDeserializeLegacyFormat() throws Exception {
+        // A LazyCharArrayObjTags for "legacy!!" whose elements 2, 3 and 6 are tainted with the label "legacy"
+        byte[] serialized = DatatypeConverter.parseBase64Binary(LEGACY_CHAR_ARRAY);
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            LazyCharArrayObjTags result = (LazyCharArrayObjTags) in.readObject();
+            assertEquals("legacy!!", new String(result.val));
+            for(int i = 0; i < result.getLength(); i++) {
+                if(i == 2 || i == 3 || i == 6) {
+                    assertTrue(result.getTaintOrEmpty(i).containsOnlyLabels(new Object[]{"legacy"}));
+                } else {
+                    assertNull(result.getTaintOrEmpty(i));
+                }
+            }
+        }
+    }
+
+    /* Checks that the values of arrays of every primitive type survive serialization, including arrays that are
+     * written in several blocks. */
+    @Test
+    public void testSerializePrimitiveValues() throws Exception {
+        Random random = new Random(3);
+        int length = 5000;
+        boolean[] booleans = new boolean[length];
+        byte[] bytes = new byte[length];
+        char[] chars = new char[length];
+        short[] shorts = new short[length];
+        int[] ints = new int[length];
+        long[] longs = new long[length];
+        float[] floats = new float[length];
+        double[] doubles = new double[length];
+        for(int i = 0; i < length; i++) {
+            booleans[i] = random.nextBoolean();
+            bytes[i] = (byte) random.nextInt();
+            chars[i] = (char) random.nextInt();
+            shorts[i] = (short) random.nextInt();
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+            floats[i] = random.nextFloat();
+            doubles[i] = random.nextDouble();
+        }
+        assertArrayEquals(booleans, roundTrip(new LazyBooleanArrayObjTags(booleans)).val);
+        assertArrayEquals(bytes, roundTrip(new LazyByteArrayObjTags(bytes)).val);
+        assertArrayEquals(chars, roundTrip(new LazyCharArrayObjTags(chars)).val);
+        assertArrayEquals(shorts, roundTrip(new LazyShortArrayObjTags(shorts)).val);
+        assertArrayEquals(ints, roundTrip(new LazyIntArrayObjTags(ints)).val);
+        assertArrayEquals(longs, roundTrip(new LazyLongArrayObjTags(longs)).val);
+        assertArrayEquals(floats, roundTrip(new LazyFloatArrayObjTags(floats)).val, 0f);
+        assertArrayEquals(doubles, roundTrip(new LazyDoubleArrayObjTags(doubles)).val, 0d);
+        assertNull(roundTrip(new LazyIntArrayObjTags((int[]) null)).val);
+        assertEquals(0, roundTrip(new LazyIntArrayObjTags(new int[0])).val.length);
+    }
+
+    /* Checks that reading run-encoded tags whose number of elements or of distinct tags is negative or larger than
+     * possible fails before allocating storage for them. */
+    @Test
+    public void testReadRejectsInvalidRunCounts() throws Exception {
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[100]);
+        array.setTaint(10, Taint.withLabel("serialized"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(array);
+        }
+        byte[] valid = bytes.toByteArray();
+        // The run-encoded marker, the number of elements and the number of distinct tags
+        byte[] header = new byte[]{-1, -1, -1, -2, 0, 0, 0, 100, 0, 0, 0, 1};
+        int offset = indexOf(valid, header);
+        assertTrue(offset >= 0);
+        int[][] counts = new int[][]{{100, -1}, {-5, 1}, {100, Integer.MAX_VALUE}, {100, 101}};
+        for(int[] count : counts) {
+            byte[] corrupt = valid.clone();
+            ByteBuffer.wrap(corrupt, offset + 4, 8).putInt(count[0]).putInt(count[1]);
+            try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(corrupt))) {
+                in.readObject();
+                fail("Read tags with " + count[0] + " elements and " + count[1] + " distinct tags");
+            } catch(InvalidObjectException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for(int i = 0; i + pattern.length <= bytes.length; i++) {
+            int j = 0;
+            while(j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if(j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private static void assertSameLabels(Taint expected, Taint actual) {
+        if(expected == null) {
+            assertNull(actual);
+        } else {
+            assertTrue(actual.containsOnlyLabels(expected.getLabels()));
+        }
+    }
+
+    /* Checks that tainting every element of an array stores a single tag until an element is given a different tag. */
+    @Test
+    public void testUniformTaint() {
+        Taint tag = Taint.withLabel("source");
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[8]);
+        array.setTaints(tag);
+        assertSame(tag, array.getUniformTaint());
+        assertNull(array.taints);
+        array.set(3, 1, tag);
+        assertSame(tag, array.getUniformTaint());
+        assertSame(tag, array.get(7, new TaintedIntWithObjTag()).taint);
+        assertSame(tag, array.getMergedTaint());
+        array.set(3, 1, null);
+        assertNull(array.getUniformTaint());
+        assertNotNull(array.taints);
+        assertNull(array.getTaintOrEmpty(3));
+        assertSame(tag, array.getTaintOrEmpty(4));
+        array.setTaints(Taint.emptyTaint());
+        assertFalse(array.hasTaints());
+    }
+
+    /* Checks that reading the tag of an element outside of an array with a uniform tag throws an exception. */
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testUniformTaintIndexOutOfBounds() {
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[8]);
+        array.setTaints(Taint.withLabel("source"));
+        array.getTaintOrEmpty(8);
+    }
+
+    /* Checks that copying from an array with a uniform tag does not materialize the tags of either array unless only part
+     * of the destination is replaced. */
+    @Test
+    public void testArraycopyUniformTaint() {
+        Taint tag = Taint.withLabel("copied");
+        LazyByteArrayObjTags src = new LazyByteArrayObjTags(new byte[16]);
+        src.setTaints(tag);
+        LazyByteArrayObjTags whole = new LazyByteArrayObjTags(new byte[16]);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(src, null, 0, null, whole, null, 0, null, 16, null);
+        assertSame(tag, src.getUniformTaint());
+        assertSame(tag, whole.getUniformTaint());
+        LazyByteArrayObjTags part = new LazyByteArrayObjTags(new byte[16]);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(src, null, 4, null, part, null, 2, null, 8, null);
+        assertSame(tag, src.getUniformTaint());
+        assertNull(part.getTaintOrEmpty(1));
+        assertSame(tag, part.getTaintOrEmpty(2));
+        assertSame(tag, part.getTaintOrEmpty(9));
+        assertNull(part.getTaintOrEmpty(10));
+    }
+
+    /* Checks that a clone shares the dense tags of the original array until either array changes a tag. */
+    @Test
+    public void testCloneSharesTaintsUntilWritten() {
+        Taint a = Taint.withLabel("a");
+        Taint b = Taint.withLabel("b");
+        LazyIntArrayObjTags original = new LazyIntArrayObjTags(new int[4], new Taint[]{a, null, a, null});
+        LazyIntArrayObjTags copy = (LazyIntArrayObjTags) original.clone();
+        assertSame(original.taints, copy.taints);
+        copy.setTaint(0, a);
+        assertSame(original.taints, copy.taints);
+        copy.setTaint(1, b);
+        assertNotSame(original.taints, copy.taints);
+        assertNull(original.getTaintOrEmpty(1));
+        assertSame(b, copy.getTaintOrEmpty(1));
+        Taint[] before = original.taints;
+        original.setTaint(2, b);
+        assertNotSame(before, original.taints);
+        assertSame(a, copy.getTaintOrEmpty(2));
+        assertSame(b, original.getTaintOrEmpty(2));
+    }
+
+    /* Checks that writes made to an array on another thread after it was cloned do not change the clone's tags, for both
+     * dense and range-encoded tags. */
+    @Test
+    public void testCloneUnchangedByWritesFromAnotherThread() throws InterruptedException {
+        final Taint a = Taint.withLabel("a");
+        final Taint b = Taint.withLabel("b");
+        for(int length : new int[]{4, 1024}) {
+            Taint[] tags = new Taint[length];
+            for(int i = 0; i < length; i += 2) {
+                tags[i] = a;
+            }
+            final LazyIntArrayObjTags original = new LazyIntArrayObjTags(new int[length], tags);
+            LazyIntArrayObjTags copy = (LazyIntArrayObjTags) original.clone();
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    original.setTaint(1, b);
+                    original.fillTaint(2, original.getLength(), b);
+                }
+            });
+            writer.start();
+            writer.join();
+            assertSame(b, original.getTaintOrEmpty(1));
+            assertSame(b, original.getTaintOrEmpty(length - 1));
+            for(int i = 0; i < length; i++) {
+                if(i % 2 == 0) {
+                    assertSame(a, copy.getTaintOrEmpty(i));
+                } else {
+                    assertNull(copy.getTaintOrEmpty(i));
+                }
+            }
+        }
+    }
+
+    /* Checks that copying every element of an array shares its tags with the destination until either array changes a
+     * tag. */
+    @Test
+    public void testArraycopyWholeArraySharesTaints() {
+        Taint a = Taint.withLabel("a");
+        LazyCharArrayObjTags src = new LazyCharArrayObjTags(new char[3], new Taint[]{null, a, null});
+        LazyCharArrayObjTags dest = new LazyCharArrayObjTags(new char[3], new Taint[]{a, a, a});
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(src, null, 0, null, dest, null, 0, null, 3, null);
+        assertSame(src.taints, dest.taints);
+        Taint[] shared = src.taints;
+        dest.getDenseTaints()[0] = a;
+        assertNull(shared[0]);
+        assertSame(a, dest.getTaintOrEmpty(0));
+    }
+
+    /* Checks that copies between arrays with every representation of tags, including overlapping copies within an
+     * array, produce the same tags as copies between dense arrays of tags. */
+    @Test
+    public void testCopyTaintsMatchesDenseCopy() {
+        Random random = new Random(11);
+        Taint[] labels = new Taint[]{null, Taint.withLabel("a"), Taint.withLabel("b"), Taint.withLabel("c")};
+        int[] lengths = new int[]{16, 48, 300};
+        for(int trial = 0; trial < 500; trial++) {
+            LazyIntArrayObjTags src = new LazyIntArrayObjTags(new int[lengths[random.nextInt(lengths.length)]]);
+            Taint[] expectedSrc = randomlyTaint(random, labels, src);
+            LazyIntArrayObjTags dest;
+            Taint[] expectedDest;
+            if(random.nextInt(4) == 0) {
+                dest = src;
+                expectedDest = expectedSrc;
+            } else {
+                dest = new LazyIntArrayObjTags(new int[lengths[random.nextInt(lengths.length)]]);
+                expectedDest = randomlyTaint(random, labels, dest);
+            }
+            int length = random.nextInt(Math.min(src.getLength(), dest.getLength()) + 1);
+            int srcPos = random.nextInt(src.getLength() - length + 1);
+            int destPos = random.nextInt(dest.getLength() - length + 1);
+            LazyArrayObjTags.copyTaints(src, srcPos, dest, destPos, length);
+            System.arraycopy(expectedSrc, srcPos, expectedDest, destPos, length);
+            assertTags(expectedDest, dest);
+            assertTags(expectedSrc, src);
+        }
+    }
+
+    /* Applies a random sequence of whole-array, range and element taints to the specified array and returns the
+     * expected tags of its elements. */
+    private static Taint[] randomlyTaint(Random random, Taint[] labels, LazyArrayObjTags array) {
+        Taint[] expected = new Taint[array.getLength()];
+        int ops = random.nextInt(4);
+        for(int op = 0; op < ops; op++) {
+            Taint tag = labels[random.nextInt(labels.length)];
+            int start = random.nextInt(array.getLength());
+            switch(random.nextInt(3)) {
+                case 0:
+                    array.setTaints(tag);
+                    Arrays.fill(expected, tag);
+                    break;
+                case 1:
+                    int end = start + random.nextInt(array.getLength() - start + 1);
+                    array.fillTaint(start, end, tag);
+                    Arrays.fill(expected, start, end, tag);
+                    break;
+                default:
+                    for(int i = start; i < array.getLength(); i += 1 + random.nextInt(3)) {
+                        Taint t = labels[random.nextInt(labels.length)];
+                        array.setTaint(i, t);
+                        expected[i] = t;
+                    }
+            }
+        }
+        return expected;
+    }
+
+    private static void assertTags(Taint[] expected, LazyArrayObjTags array) {
+        for(int i = 0; i < expected.length; i++) {
+            Taint actual = array.getTaintOrEmpty(i);
+            assertSame(expected[i], actual == null || actual.isEmpty() ? null : actual);
+        }
+    }
+
+    /* Checks that copying untainted elements to an array without tags does not allocate storage for its tags. */
+    @Test
+    public void testCopyUntaintedElementsDoesNotAllocate() {
+        LazyIntArrayObjTags src = new LazyIntArrayObjTags(new int[8], new Taint[]{Taint.withLabel("a"), null, null,
+                null, null, null, null, null});
+        LazyIntArrayObjTags dest = new LazyIntArrayObjTags(new int[8]);
+        LazyArrayObjTags.copyTaints(src, 1, dest, 0, 7);
+        assertFalse(dest.hasTaints());
+        LazyArrayObjTags.copyTaints(new LazyIntArrayObjTags(new int[8]), 0, dest, 0, 4);
+        assertFalse(dest.hasTaints());
+    }
+
+    /* Checks that filling and copying ranges of long arrays keeps their tags range-encoded. */
+    @Test
+    public void testFillAndCopyKeepRanges() {
+        Taint tag = Taint.withLabel("range");
+        LazyByteArrayObjTags src = new LazyByteArrayObjTags(new byte[4096]);
+        src.fillTaint(100, 200, tag);
+        LazyByteArrayObjTags dest = new LazyByteArrayObjTags(new byte[8192]);
+        LazyArrayObjTags.copyTaints(src, 0, dest, 1000, 4096);
+        assertTrue(src.encodedTaints instanceof TaintRanges);
+        assertTrue(dest.encodedTaints instanceof TaintRanges);
+        assertNull(dest.taints);
+        assertNull(dest.getTaintOrEmpty(1099));
+        assertSame(tag, dest.getTaintOrEmpty(1100));
+        assertSame(tag, dest.getTaintOrEmpty(1199));
+        assertNull(dest.getTaintOrEmpty(1200));
+    }
+
+    /* Checks that threads concurrently setting the tags of distinct elements of a fresh array, whose tags are stored
+     * densely, dictionary-encoded or range-encoded, do not lose one another's tags while another thread reads them. */
+    @Test
+    public void testConcurrentSetsOfDistinctElementsAreNotLost() throws InterruptedException {
+        final int numThreads = 4;
+        final Taint[] labels = new Taint[numThreads];
+        for(int t = 0; t < numThreads; t++) {
+            labels[t] = Taint.withLabel("thread" + t);
+        }
+        for(int length : new int[]{16, 48, 1024}) {
+            for(int round = 0; round < 50; round++) {
+                final LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[length]);
+                final CountDownLatch start = new CountDownLatch(1);
+                Thread[] threads = new Thread[numThreads + 1];
+                for(int t = 0; t < numThreads; t++) {
+                    final int offset = t;
+                    threads[t] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            awaitQuietly(start);
+                            for(int i = offset; i < array.getLength(); i += numThreads) {
+                                array.setTaint(i, labels[offset]);
+                            }
+                        }
+                    });
+                }
+                threads[numThreads] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        awaitQuietly(start);
+                        for(int i = 0; i < array.getLength(); i++) {
+                            Taint tag = array.getTaintOrEmpty(i);
+                            if(tag != null && tag != Taint.emptyTaint() && tag != labels[i % numThreads]) {
+                                throw new AssertionError("Read foreign tag at " + i);
+                            }
+                        }
+                    }
+                });
+                final Throwable[] failure = new Throwable[1];
+                for(Thread thread : threads) {
+                    thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                        @Override
+                        public void uncaughtException(Thread thread, Throwable e) {
+                            failure[0] = e;
+                        }
+                    });
+                    thread.start();
+                }
+                start.countDown();
+                for(Thread thread : threads) {
+                    thread.join();
+                }
+                assertNull(failure[0]);
+                for(int i = 0; i < length; i++) {
+                    assertSame(labels[i % numThreads], array.getTaintOrEmpty(i));
+                }
+            }
+        }
+    }
+
+    /* Checks that the merged tag of a char array is cached and that every way of changing the tags of its elements
+     * clears the cached tag. */
+    @Test
+    public void testMergedTaintOfCharArrayIsCachedUntilTagsChange() {
+        Taint a = Taint.withLabel("a");
+        Taint b = Taint.withLabel("b");
+        LazyCharArrayObjTags array = new LazyCharArrayObjTags(new char[8]);
+        assertNull(array.getMergedTaint());
+        array.setTaint(1, a);
+        Taint merged = array.getMergedTaint();
+        assertTrue(merged.containsOnlyLabels(new Object[]{"a"}));
+        assertSame(merged, array.getMergedTaint());
+        array.fillTaint(2, 4, b);
+        assertTrue(array.getMergedTaint().containsOnlyLabels(new Object[]{"a", "b"}));
+        array.fillTaint(0, 4, null);
+        assertTrue(array.getMergedTaint() == null || array.getMergedTaint().isEmpty());
+        LazyCharArrayObjTags src = new LazyCharArrayObjTags(new char[8]);
+        src.setTaint(5, b);
+        LazyArrayObjTags.copyTaints(src, 4, array, 4, 4);
+        assertTrue(array.getMergedTaint().containsOnlyLabels(new Object[]{"b"}));
+        Taint[] dense = array.ensureDenseTaints();
+        dense[0] = a;
+        array.taintsChanged();
+        assertTrue(array.getMergedTaint().containsOnlyLabels(new Object[]{"a", "b"}));
+        array.setTaints(null);
+        assertNull(array.getMergedTaint());
+    }
+
+    /* Checks that copying the tags of an array into a new array leaves the encoding of the array's tags as it is and that
+     * the copy is independent of the array. */
+    @Test
+    public void testToTaintArrayKeepsEncoding() {
+        Taint a = Taint.withLabel("a");
+        LazyIntArrayObjTags array = new LazyIntArrayObjTags(new int[256]);
+        assertNull(array.toTaintArray());
+        array.fillTaint(16, 32, a);
+        Object encoded = array.encodedTaints;
+        assertTrue(encoded instanceof TaintRanges);
+        Taint[] copy = array.toTaintArray();
+        assertSame(encoded, array.encodedTaints);
+        assertNull(array.taints);
+        assertEquals(256, copy.length);
+        assertNull(copy[15]);
+        assertSame(a, copy[16]);
+        copy[0] = a;
+        assertNull(array.getTaintOrEmpty(0));
+        array.setTaints(a);
+        assertSame(a, array.toTaintArray()[255]);
+        assertSame(a, array.getUniformTaint());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
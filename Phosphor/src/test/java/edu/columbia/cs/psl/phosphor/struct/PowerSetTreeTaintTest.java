@@ -1,9 +1,15 @@
 package edu.columbia.cs.psl.phosphor.struct;
 
+import edu.columbia.cs.psl.phosphor.Configuration;
 import edu.columbia.cs.psl.phosphor.runtime.Taint;
 import org.junit.Test;
 
-import static org.junit.Assert.assertTrue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
 
 @SuppressWarnings("unchecked")
 public class PowerSetTreeTaintTest extends TaintTest {
@@ -27,4 +33,239 @@ public class PowerSetTreeTaintTest extends TaintTest {
         t2 = t2.union(Taint.withLabel(4));
         assertTrue(t2.containsOnlyLabels(new Object[]{4}));
     }
+
+    /* Checks that threads concurrently creating the same label combinations are given the same nodes and that the
+     * resulting taints contain the correct labels. */
+    @Test
+    public void testConcurrentUnions() throws Exception {
+        int numThreads = 8;
+        int numLabels = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Future<Taint[]>[] futures = new Future[numThreads];
+            for(int t = 0; t < numThreads; t++) {
+                futures[t] = executor.submit(() -> {
+                    Taint[] results = new Taint[numLabels];
+                    Taint cur = Taint.emptyTaint();
+                    for(int i = 0; i < numLabels; i++) {
+                        cur = Taint.combineTags(cur, Taint.withLabel("label" + i));
+                        results[i] = cur.union(Taint.withLabel(-i));
+                    }
+                    return results;
+                });
+            }
+            Taint[] expected = futures[0].get();
+            for(int t = 1; t < numThreads; t++) {
+                Taint[] actual = futures[t].get();
+                for(int i = 0; i < numLabels; i++) {
+                    assertEquals(expected[i], actual[i]);
+                }
+            }
+            assertTrue(expected[2].containsOnlyLabels(new Object[]{"label0", "label1", "label2", -2}));
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /* Checks that repeating a union of the same two sets is answered by the receiver's union cache and returns the same
+     * node as the original union. */
+    @Test
+    public void testRepeatedUnionUsesCache() {
+        PowerSetTree tree = PowerSetTree.getInstance();
+        Taint t1 = tree.makeSingletonSet("cacheA").add("cacheB");
+        Taint t2 = tree.makeSingletonSet("cacheC");
+        Taint expected = t1.union(t2);
+        boolean statistics = Configuration.TAINT_STATISTICS;
+        Configuration.TAINT_STATISTICS = true;
+        try {
+            long hits = tree.getUnionCacheHits();
+            for(int i = 0; i < 10; i++) {
+                assertSame(expected, t1.union(t2));
+            }
+            assertEquals(hits + 10, tree.getUnionCacheHits());
+        } finally {
+            Configuration.TAINT_STATISTICS = statistics;
+        }
+        assertTrue(expected.containsOnlyLabels(new Object[]{"cacheA", "cacheB", "cacheC"}));
+    }
+
+    /* Checks that membership checks, which read the rank registry without locking, find labels that are registered
+     * while other threads grow the registry by registering new labels. */
+    @Test
+    public void testContainsWhileRegistryGrows() throws Exception {
+        PowerSetTree tree = PowerSetTree.getInstance();
+        int numThreads = 4;
+        int numLabels = 2000;
+        Taint[] sets = new Taint[numLabels];
+        for(int i = 0; i < numLabels; i++) {
+            sets[i] = tree.makeSingletonSet("member" + i).add("other" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Future<Boolean>[] futures = new Future[numThreads];
+            for(int t = 0; t < numThreads; t++) {
+                final int thread = t;
+                futures[t] = executor.submit(() -> {
+                    boolean found = true;
+                    for(int i = 0; i < numLabels; i++) {
+                        if(thread % 2 == 0) {
+                            tree.makeSingletonSet("grow" + thread + "_" + i);
+                        } else {
+                            found &= sets[i].containsLabel("member" + i) && !sets[i].containsLabel("member" + (i + 1));
+                        }
+                    }
+                    return found;
+                });
+            }
+            for(Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /* Checks that unions of tags with few labels are stored inline until they grow past the inline limit. */
+    @Test
+    public void testInlineSetGrowsIntoTree() {
+        Taint t = Taint.emptyTaint();
+        for(int i = 0; i < PowerSetTree.InlineSet.MAX_LABELS; i++) {
+            t = Taint.combineTags(t, Taint.withLabel("grow" + i));
+            assertTrue(t instanceof PowerSetTree.InlineSet);
+        }
+        t = Taint.combineTags(t, Taint.withLabel("grow" + PowerSetTree.InlineSet.MAX_LABELS));
+        assertTrue(t instanceof PowerSetTree.SetNode);
+        assertTrue(t.containsOnlyLabels(new Object[]{"grow0", "grow1", "grow2", "grow3", "grow4"}));
+    }
+
+    /* Checks that unions and superset checks work across InlineSets and SetNodes. */
+    @Test
+    public void testMixedRepresentations() {
+        PowerSetTree tree = PowerSetTree.getInstance();
+        Taint inline = Taint.withLabel("mixedA").union(Taint.withLabel("mixedB"));
+        Taint node = tree.makeSingletonSet("mixedA").add("mixedC");
+        assertTrue(inline instanceof PowerSetTree.InlineSet);
+        Taint union1 = inline.union(node);
+        Taint union2 = node.union(inline);
+        assertSame(union1, union2);
+        assertTrue(union1.containsOnlyLabels(new Object[]{"mixedA", "mixedB", "mixedC"}));
+        assertTrue(union1.isSuperset(inline));
+        assertTrue(union1.isSuperset(node));
+        assertFalse(inline.isSuperset(node));
+        assertFalse(node.isSuperset(inline));
+        assertTrue(inline.isSuperset(tree.makeSingletonSet("mixedB")));
+        assertTrue(tree.makeSingletonSet("mixedB").add("mixedA").isSuperset(inline));
+        assertTrue(inline.containsLabel("mixedB"));
+        assertFalse(inline.containsLabel("mixedC"));
+        assertEquals(inline, Taint.withLabel("mixedB").union(Taint.withLabel("mixedA")));
+    }
+
+    /* Checks that distinct labels with equal hash codes are given distinct ranks and that labels are still found after
+     * many labels that are no longer referenced have been expunged from the rank registry. */
+    @Test
+    public void testRankRegistryCollisionsAndExpunging() {
+        Taint colliding = Taint.emptyTaint();
+        for(int i = 0; i < 20; i++) {
+            colliding = Taint.combineTags(colliding, Taint.withLabel(new CollidingLabel(i)));
+        }
+        for(int round = 0; round < 5; round++) {
+            for(int i = 0; i < 20000; i++) {
+                Taint.withLabel("garbage" + round + "-" + i);
+            }
+            System.gc();
+        }
+        Object[] expected = new Object[20];
+        for(int i = 0; i < expected.length; i++) {
+            expected[i] = new CollidingLabel(i);
+            assertTrue(colliding.containsLabel(expected[i]));
+        }
+        assertTrue(colliding.containsOnlyLabels(expected));
+        Taint again = Taint.withLabel(new CollidingLabel(3)).union(Taint.withLabel(new CollidingLabel(17)));
+        assertTrue(colliding.isSuperset(again));
+    }
+
+    /* Checks that sweeping reclaims the child table slots of garbage collected nodes and that the ranks of garbage
+     * collected labels are recycled for new labels. */
+    @Test
+    public void testSweepReclaimsCollectedNodesAndRanks() throws InterruptedException {
+        PowerSetTree tree = PowerSetTree.getInstance();
+        PowerSetTree.SetNode base = tree.makeSingletonSet("sweepBase");
+        int numChildren = 1000;
+        for(int i = 0; i < numChildren; i++) {
+            base.add("sweep" + i);
+        }
+        long dead = 0;
+        for(int attempt = 0; attempt < 50 && dead < numChildren; attempt++) {
+            System.gc();
+            dead = tree.getDeadSlotCount();
+        }
+        assertTrue(dead >= numChildren);
+        for(int attempt = 0; attempt < 50 && tree.getDeadSlotCount() * 2 > dead; attempt++) {
+            tree.sweep();
+            Thread.sleep(10);
+        }
+        assertTrue(tree.getDeadSlotCount() * 2 <= dead);
+        boolean statistics = Configuration.TAINT_STATISTICS;
+        Configuration.TAINT_STATISTICS = true;
+        Taint fresh;
+        try {
+            long recycled = tree.getRecycledRankCount();
+            fresh = base.add("sweepFresh");
+            assertTrue(tree.getRecycledRankCount() > recycled);
+        } finally {
+            Configuration.TAINT_STATISTICS = statistics;
+        }
+        assertTrue(fresh.containsOnlyLabels(new Object[]{"sweepBase", "sweepFresh"}));
+        assertTrue(tree.getLiveNodeCount() > 0);
+    }
+
+    /* Checks membership, superset and exact label set queries on sets with enough labels to saturate their signatures. */
+    @Test
+    public void testDeepSetQueries() {
+        PowerSetTree tree = PowerSetTree.getInstance();
+        PowerSetTree.SetNode evens = tree.emptySet();
+        PowerSetTree.SetNode all = tree.emptySet();
+        Object[] evenLabels = new Object[100];
+        for(int i = 0; i < 200; i++) {
+            all = all.add("deep" + i);
+            if(i % 2 == 0) {
+                evens = evens.add("deep" + i);
+                evenLabels[i / 2] = "deep" + i;
+            }
+        }
+        for(int i = 0; i < 200; i++) {
+            assertEquals(i % 2 == 0, evens.containsLabel("deep" + i));
+            assertTrue(all.containsLabel("deep" + i));
+        }
+        assertFalse(evens.containsLabel("deepUnregistered"));
+        assertTrue(all.isSuperset(evens));
+        assertFalse(evens.isSuperset(all));
+        assertFalse(evens.isSuperset(tree.makeSingletonSet("deep1")));
+        assertTrue(evens.containsOnlyLabels(evenLabels));
+        evenLabels[0] = "deep1";
+        assertFalse(evens.containsOnlyLabels(evenLabels));
+        assertFalse(all.containsOnlyLabels(new Object[]{"deep0"}));
+    }
+
+    /* Label whose instances all share the same hash code. */
+    private static final class CollidingLabel {
+
+        private final int id;
+
+        CollidingLabel(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingLabel && ((CollidingLabel) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TaintDictionaryTest {
+
+    /* Checks that a sequence of random fills and sets produces the same tags as the same operations applied to a dense
+     * array, including after the codes are widened to hold more than 256 distinct tags. */
+    @Test
+    public void testRandomOperationsMatchDenseArray() {
+        Random random = new Random(7);
+        Taint[] labels = new Taint[300];
+        for(int i = 1; i < labels.length; i++) {
+            labels[i] = Taint.withLabel("label" + i);
+        }
+        int length = 500;
+        TaintDictionary dictionary = new TaintDictionary(length);
+        Taint[] expected = new Taint[length];
+        for(int op = 0; op < 2000; op++) {
+            Taint tag = labels[random.nextInt(labels.length)];
+            if(random.nextBoolean()) {
+                int index = random.nextInt(length);
+                assertTrue(dictionary.set(index, tag));
+                expected[index] = tag;
+            } else {
+                int start = random.nextInt(length);
+                int end = start + random.nextInt(Math.min(20, length - start) + 1);
+                assertTrue(dictionary.fill(start, end, tag));
+                for(int i = start; i < end; i++) {
+                    expected[i] = tag;
+                }
+            }
+        }
+        for(int i = 0; i < length; i++) {
+            assertSame(expected[i], dictionary.get(i));
+        }
+        assertArrayEquals(expected, dictionary.toDense());
+    }
+
+    /* Checks that only the tags that are still the tag of some element are reported as used. */
+    @Test
+    public void testUsedTags() {
+        Taint a = Taint.withLabel("a");
+        Taint b = Taint.withLabel("b");
+        TaintDictionary dictionary = new TaintDictionary(10);
+        dictionary.fill(0, 10, a);
+        dictionary.set(3, b);
+        assertArrayEquals(new Taint[]{a, b}, dictionary.getUsedTags());
+        dictionary.fill(0, 10, b);
+        assertArrayEquals(new Taint[]{b}, dictionary.getUsedTags());
+        dictionary.fill(0, 10, null);
+        assertEquals(0, dictionary.getUsedTags().length);
+    }
+
+    /* Checks that copies of a dictionary can be modified independently. */
+    @Test
+    public void testCopy() {
+        Taint a = Taint.withLabel("a");
+        TaintDictionary dictionary = new TaintDictionary(4);
+        dictionary.set(1, a);
+        TaintDictionary copy = dictionary.copy();
+        copy.set(1, null);
+        copy.set(2, a);
+        assertSame(a, dictionary.get(1));
+        assertNull(dictionary.get(2));
+        assertNull(copy.get(1));
+        assertSame(a, copy.get(2));
+    }
+
+    /* Checks that a range of elements copied to a new dictionary keeps its tags, for both byte and short codes. */
+    @Test
+    public void testCopyRange() {
+        for(int distinct : new int[]{3, 400}) {
+            TaintDictionary dictionary = new TaintDictionary(distinct);
+            Taint[] tags = new Taint[distinct];
+            for(int i = 0; i < distinct; i++) {
+                tags[i] = Taint.withLabel("copy" + i);
+                dictionary.set(i, tags[i]);
+            }
+            TaintDictionary copy = dictionary.copyRange(1, distinct + 5, 4, distinct - 1);
+            for(int i = 0; i < distinct + 5; i++) {
+                assertSame(i >= 4 && i < distinct + 3 ? tags[i - 3] : null, copy.get(i));
+            }
+            copy.set(0, tags[0]);
+            assertSame(tags[0], copy.get(0));
+            assertSame(tags[1], dictionary.get(1));
+        }
+    }
+
+    /* Checks that a set without the lock only stores tags that are already in the dictionary. */
+    @Test
+    public void testTrySetOnlyStoresExistingTags() {
+        Taint a = Taint.withLabel("a");
+        Taint b = Taint.withLabel("b");
+        TaintDictionary dictionary = new TaintDictionary(4);
+        assertFalse(dictionary.trySet(0, a));
+        assertNull(dictionary.get(0));
+        dictionary.set(1, a);
+        assertTrue(dictionary.trySet(0, a));
+        assertTrue(dictionary.trySet(1, null));
+        assertFalse(dictionary.trySet(2, b));
+        assertSame(a, dictionary.get(0));
+        assertNull(dictionary.get(1));
+        assertNull(dictionary.get(2));
+    }
+
+    /* Checks that codes stored without the lock are not lost when another thread adds entries to the dictionary and
+     * widens its codes. */
+    @Test
+    public void testLockFreeSetsSurviveWidening() throws InterruptedException {
+        final int length = 1000;
+        final TaintDictionary dictionary = new TaintDictionary(length);
+        final Taint shared = Taint.withLabel("shared");
+        dictionary.set(0, shared);
+        Thread adder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(int i = 1; i < length; i += 2) {
+                    synchronized(dictionary) {
+                        dictionary.set(i, Taint.withLabel("added" + i));
+                    }
+                }
+            }
+        });
+        adder.start();
+        for(int i = 0; i < length; i += 2) {
+            if(!dictionary.trySet(i, shared)) {
+                synchronized(dictionary) {
+                    dictionary.set(i, shared);
+                }
+            }
+        }
+        adder.join();
+        for(int i = 0; i < length; i += 2) {
+            assertSame(shared, dictionary.get(i));
+        }
+    }
+
+    /* Checks that setting the tag of an element outside of the array throws an exception as an access to a dense array
+     * would. */
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new TaintDictionary(10).set(10, Taint.withLabel("a"));
+    }
+}
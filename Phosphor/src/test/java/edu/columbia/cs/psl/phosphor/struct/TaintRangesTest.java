@@ -0,0 +1,113 @@
+package edu.columbia.cs.psl.phosphor.struct;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TaintRangesTest {
+
+    /* Checks that a sequence of random fills and sets produces the same tags as the same operations applied to a dense
+     * array, that adjacent runs with the same tag are coalesced and that operations that fail leave the runs
+     * unchanged. */
+    @Test
+    public void testRandomOperationsMatchDenseArray() {
+        Random random = new Random(42);
+        Taint[] labels = new Taint[]{null, Taint.withLabel("a"), Taint.withLabel("b"), Taint.withLabel("c")};
+        int length = 1000;
+        for(int trial = 0; trial < 20; trial++) {
+            TaintRanges ranges = new TaintRanges(length);
+            Taint[] expected = new Taint[length];
+            for(int op = 0; op < 40; op++) {
+                Taint tag = labels[random.nextInt(labels.length)];
+                int start = random.nextInt(length);
+                int end = random.nextBoolean() ? start + 1 : start + random.nextInt(length - start + 1);
+                boolean stored = end == start + 1 ? ranges.set(start, tag) : ranges.fill(start, end, tag);
+                if(stored) {
+                    for(int i = start; i < end; i++) {
+                        expected[i] = tag;
+                    }
+                }
+                for(int i = 0; i < length; i++) {
+                    assertSame(expected[i], ranges.get(i));
+                }
+                assertArrayEquals(expected, ranges.toDense());
+                assertTrue(ranges.size() <= countRuns(expected));
+            }
+        }
+    }
+
+    /* Checks that setting the tags of single elements, which adjusts runs in place, produces the same tags as a dense
+     * array and keeps adjacent runs with the same tag coalesced. */
+    @Test
+    public void testRandomSetsMatchDenseArray() {
+        Random random = new Random(7);
+        Taint[] labels = new Taint[]{null, Taint.withLabel("a"), Taint.withLabel("b")};
+        int length = 64 * 16;
+        for(int trial = 0; trial < 20; trial++) {
+            TaintRanges ranges = new TaintRanges(length);
+            Taint[] expected = new Taint[length];
+            for(int op = 0; op < 500; op++) {
+                Taint tag = labels[random.nextInt(labels.length)];
+                int index = random.nextInt(48);
+                if(ranges.set(index, tag)) {
+                    expected[index] = tag;
+                } else {
+                    assertTrue(ranges.size() >= 63);
+                }
+                assertArrayEquals(expected, ranges.toDense());
+                assertEquals(countRuns(expected), ranges.size());
+            }
+        }
+    }
+
+    /* Checks that filling a range with the tag of the runs around it merges them into a single run. */
+    @Test
+    public void testAdjacentRunsCoalesce() {
+        Taint tag = Taint.withLabel("x");
+        TaintRanges ranges = new TaintRanges(100);
+        assertTrue(ranges.fill(0, 10, tag));
+        assertTrue(ranges.fill(20, 30, tag));
+        assertEquals(2, ranges.size());
+        assertTrue(ranges.fill(10, 20, tag));
+        assertEquals(1, ranges.size());
+        assertTrue(ranges.set(5, null));
+        assertEquals(2, ranges.size());
+        assertNull(ranges.get(5));
+        assertSame(tag, ranges.get(29));
+        assertNull(ranges.get(30));
+    }
+
+    /* Checks that modifications that would fragment the runs beyond the limit fail without changing the runs. */
+    @Test
+    public void testFragmentationLimit() {
+        Taint tag = Taint.withLabel("y");
+        TaintRanges ranges = new TaintRanges(256);
+        int i = 0;
+        while(ranges.set(i, tag)) {
+            i += 2;
+        }
+        assertEquals(16, ranges.size());
+        assertNull(ranges.get(i));
+        assertSame(tag, ranges.get(i - 2));
+    }
+
+    /* Checks that accessing an index outside of the array throws an exception as an access to a dense array would. */
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new TaintRanges(10).get(10);
+    }
+
+    /* Returns the number of maximal runs of referentially equal non-null tags in the specified array. */
+    private static int countRuns(Taint[] tags) {
+        int runs = 0;
+        for(int i = 0; i < tags.length; i++) {
+            if(tags[i] != null && (i == 0 || tags[i - 1] != tags[i])) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.columbia.cs.psl.phosphor.struct.multid;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.TaintUtils;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyDoubleArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.LazyIntArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.LazyReferenceArrayObjTags;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MultiDTaintedArrayTest {
+
+    /* Checks that a lazily allocated two-dimensional array holds the inner arrays themselves and that reading an inner
+     * array returns the same wrapper each time, so the tags written through the wrapper are kept. */
+    @Test
+    public void testLazyArrayWrapsInnerArraysOnFirstRead() {
+        LazyReferenceArrayObjTags matrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(3, null, 4, null);
+        assertTrue(matrix.val instanceof double[][]);
+        double[][] raw = (double[][]) matrix.getVal();
+        assertEquals(4, raw[2].length);
+        LazyDoubleArrayObjTags row = (LazyDoubleArrayObjTags) matrix.getBoxed(1);
+        assertSame(raw[1], row.val);
+        row.setTaint(2, Taint.withLabel("cell"));
+        row.val[2] = 5.0;
+        assertSame(row, matrix.getBoxed(1));
+        assertEquals(5.0, raw[1][2], 0);
+        assertSame(raw, MultiDTaintedArray.unboxRaw(matrix));
+        Taint merged = row.getMergedTaint();
+        assertTrue(merged.containsOnlyLabels(new Object[]{"cell"}));
+    }
+
+    /* Checks that the length taints of the inner dimensions are given to the wrappers of the inner arrays of each
+     * dimension. */
+    @Test
+    public void testLazyArrayAppliesInnerLengthTaints() {
+        Taint outer = Taint.withLabel("outer");
+        Taint middle = Taint.withLabel("middle");
+        Taint inner = Taint.withLabel("inner");
+        LazyReferenceArrayObjTags cube = MultiDTaintedArray.MULTIANEWARRAY_I_3DIMS_LAZY(2, outer, 3, middle, 4, inner);
+        assertTrue(cube.val instanceof int[][][]);
+        assertSame(outer, cube.lengthTaint);
+        LazyReferenceArrayObjTags plane = (LazyReferenceArrayObjTags) cube.getBoxed(0);
+        assertSame(middle, plane.lengthTaint);
+        LazyIntArrayObjTags line = (LazyIntArrayObjTags) plane.getBoxed(2);
+        assertSame(inner, line.lengthTaint);
+        assertEquals(4, line.val.length);
+    }
+
+    /* Checks that storing a wrapper into a lazily allocated array stores the inner array and keeps the wrapper, and that
+     * a clone shares the wrappers of the inner arrays like it shares the inner arrays. */
+    @Test
+    public void testStoredWrapperIsKeptAndShared() {
+        LazyReferenceArrayObjTags matrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(2, null);
+        LazyDoubleArrayObjTags row = new LazyDoubleArrayObjTags(new double[]{1, 2});
+        row.setTaint(0, Taint.withLabel("stored"));
+        matrix.set(0, row, null);
+        assertSame(row.val, matrix.val[0]);
+        assertSame(row, matrix.getBoxed(0));
+        assertNull(matrix.getBoxed(1));
+        LazyReferenceArrayObjTags copy = (LazyReferenceArrayObjTags) matrix.clone();
+        assertSame(row, copy.getBoxed(0));
+        double[] replacement = new double[2];
+        ((double[][]) matrix.val)[0] = replacement;
+        LazyDoubleArrayObjTags replaced = (LazyDoubleArrayObjTags) matrix.getBoxed(0);
+        assertSame(replacement, replaced.val);
+        assertFalse(replaced.hasTaints());
+        assertSame(row, copy.getBoxed(0));
+    }
+
+    /* Checks that boxing a multi-dimensional primitive array in lazy mode wraps only the outer array. */
+    @Test
+    public void testBoxIfNecessaryDoesNotWalkLazily() {
+        boolean lazy = Configuration.LAZY_MULTI_D_ARRAYS;
+        Configuration.LAZY_MULTI_D_ARRAYS = true;
+        try {
+            double[][] raw = new double[][]{{1}, {2, 3}};
+            LazyReferenceArrayObjTags boxed = (LazyReferenceArrayObjTags) MultiDTaintedArray.boxIfNecessary(raw);
+            assertSame(raw, boxed.val);
+            assertSame(raw[1], ((LazyDoubleArrayObjTags) boxed.getBoxed(1)).val);
+        } finally {
+            Configuration.LAZY_MULTI_D_ARRAYS = lazy;
+        }
+    }
+
+    /* Checks that copying a tainted row between a lazily allocated matrix, an array of wrappers such as ANEWARRAY
+     * allocates and another lazily allocated matrix keeps the row's wrapper and with it the tags of its elements. */
+    @Test
+    public void testArraycopyKeepsTaintedRows() {
+        Taint cell = Taint.withLabel("cell");
+        LazyReferenceArrayObjTags matrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(2, null, 3, null);
+        LazyDoubleArrayObjTags row = (LazyDoubleArrayObjTags) matrix.getBoxed(1);
+        row.setTaint(2, cell);
+        LazyReferenceArrayObjTags rows = new LazyReferenceArrayObjTags(new LazyDoubleArrayObjTags[2]);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(matrix, null, 0, null, rows, null, 0, null, 2, null);
+        assertSame(row, rows.val[1]);
+        assertSame(((double[][]) matrix.val)[0], ((LazyDoubleArrayObjTags) rows.val[0]).val);
+        LazyReferenceArrayObjTags copy = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(2, null, 3, null);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(rows, null, 1, null, copy, null, 0, null, 1, null);
+        assertSame(row.val, copy.val[0]);
+        assertSame(cell, ((LazyDoubleArrayObjTags) copy.getBoxed(0)).getTaintOrEmpty(2));
+        LazyReferenceArrayObjTags other = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(2, null, 3, null);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(matrix, null, 1, null, other, null, 1, null, 1, null);
+        assertSame(row, other.getBoxed(1));
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(other, null, 1, null, other, null, 0, null, 1, null);
+        assertSame(row, other.getBoxed(0));
+    }
+
+    /* Checks that a copy outside of either array fails before copying anything, as System.arraycopy would. */
+    @Test
+    public void testArraycopyChecksBounds() {
+        LazyReferenceArrayObjTags matrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(2, null, 3, null);
+        LazyReferenceArrayObjTags rows = new LazyReferenceArrayObjTags(new LazyDoubleArrayObjTags[1]);
+        try {
+            TaintUtils.arraycopy$$PHOSPHORTAGGED(matrix, null, 0, null, rows, null, 0, null, 2, null);
+            fail();
+        } catch(ArrayIndexOutOfBoundsException e) {
+            assertNull(rows.val[0]);
+        }
+    }
+}
@@ -43,6 +43,50 @@ $template = '
         }
         return ret;
     }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_DESC_2DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        byte[][] val = new byte[dim1][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new byte[dim2];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_DESC_2DIMS_LAZY(int dim, Taint tag) {
+        return new LazyReferenceArrayObjTags(tag, new byte[dim][]);
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_DESC_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2) {
+        byte[][][] val = new byte[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            val[i] = new byte[dim2][];
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_DESC_3DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        byte[][][] val = new byte[dim1][][];
+        for(int i = 0; i < dim1; i++) {
+            byte[][] d = new byte[dim2][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new byte[dim3];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
+
+    public static LazyReferenceArrayObjTags MULTIANEWARRAY_DESC_4DIMS_LAZY(int dim1, Taint t1, int dim2, Taint t2, int dim3, Taint t3) {
+        byte[][][][] val = new byte[dim1][][][];
+        for(int i = 0; i < dim1; i++) {
+            byte[][][] d = new byte[dim2][][];
+            val[i] = d;
+            for(int j = 0; j < dim2; j++) {
+                d[j] = new byte[dim3][];
+            }
+        }
+        return new LazyReferenceArrayObjTags(t1, val, new Taint[]{t2, t3});
+    }
 ';
 $types = ["Byte", "Boolean", "Char", "Float", "Int", "Double", "Short", "Long"];
 foreach ($types as $typ) {
@@ -31,14 +31,10 @@ public class IgnoredTestUtil {
      * If the specified label is null clears the specified String's characters' tags */
     public static void setStringCharTaints(String str, Object label) {
         Taint<?> tag = label == null ? null : Taint.withLabel(label);
-        Taint<?>[] tags = new Taint[str.length()];
-        for (int i = 0; i < tags.length; i++) {
-            tags[i] = tag;
-        }
         try {
             Field taintField = String.class.getDeclaredField("valuePHOSPHOR_WRAPPER");
             LazyCharArrayObjTags taints = (LazyCharArrayObjTags) getUnsafe().getObject(str,unsafe.objectFieldOffset(taintField));
-            taints.taints = tags;
+            taints.setTaints(tag);
         } catch (NoSuchFieldException e) {
             e.printStackTrace();
         }
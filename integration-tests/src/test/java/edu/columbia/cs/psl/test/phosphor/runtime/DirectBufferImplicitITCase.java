@@ -0,0 +1,5 @@
+package edu.columbia.cs.psl.test.phosphor.runtime;
+
+public class DirectBufferImplicitITCase extends DirectBufferObjTagITCase {
+
+}
@@ -0,0 +1,57 @@
+package edu.columbia.cs.psl.test.phosphor.runtime;
+
+import edu.columbia.cs.psl.phosphor.runtime.MultiTainter;
+import edu.columbia.cs.psl.test.phosphor.BaseMultiTaintClass;
+import org.junit.Test;
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+public class DirectBufferObjTagITCase extends BaseMultiTaintClass {
+
+    private static Unsafe getUnsafe() throws Exception {
+        Field unsafeField = Unsafe.class.getDeclaredField("theUnsafe");
+        unsafeField.setAccessible(true);
+        return (Unsafe) unsafeField.get(null);
+    }
+
+    @Test
+    public void testDirectBufferPutGetKeepsTaint() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put(0, MultiTainter.taintedByte((byte) 7, "direct"));
+        buffer.put(1, (byte) 8);
+        assertNonNullTaint(MultiTainter.getTaint(buffer.get(0)));
+        assertNullOrEmpty(MultiTainter.getTaint(buffer.get(1)));
+    }
+
+    @Test
+    public void testDirectBufferBulkCopyKeepsTaint() {
+        byte[] src = new byte[]{1, 2, 3, 4};
+        src[2] = MultiTainter.taintedByte(src[2], "bulk");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(src.length);
+        buffer.put(src);
+        buffer.flip();
+        byte[] dest = new byte[src.length];
+        buffer.get(dest);
+        assertNullOrEmpty(MultiTainter.getTaint(dest[1]));
+        assertNonNullTaint(MultiTainter.getTaint(dest[2]));
+    }
+
+    @Test
+    public void testUnsafeRawMemoryKeepsTaint() throws Exception {
+        Unsafe unsafe = getUnsafe();
+        long address = unsafe.allocateMemory(16);
+        try {
+            unsafe.putInt(address, MultiTainter.taintedInt(5, "raw"));
+            unsafe.putLong(address + 8, 6L);
+            assertNonNullTaint(MultiTainter.getTaint(unsafe.getInt(address)));
+            assertNonNullTaint(MultiTainter.getTaint(unsafe.getByte(address + 3)));
+            assertNullOrEmpty(MultiTainter.getTaint(unsafe.getLong(address + 8)));
+            unsafe.copyMemory(address, address + 8, 4);
+            assertNonNullTaint(MultiTainter.getTaint(unsafe.getInt(address + 8)));
+        } finally {
+            unsafe.freeMemory(address);
+        }
+    }
+}
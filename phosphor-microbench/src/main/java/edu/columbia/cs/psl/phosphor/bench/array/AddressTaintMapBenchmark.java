@@ -0,0 +1,73 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.AddressTaintMap;
+import edu.columbia.cs.psl.phosphor.struct.LazyByteArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of reading the tags of memory outside of the Java heap, such as the memory of direct buffers, one
+ * value at a time and of copying the tags of a buffer to and from a byte array, when the tagged memory is split into
+ * different numbers of runs. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class AddressTaintMapBenchmark {
+
+    // The address of the first tagged buffer
+    private static final long BASE = 1L << 32;
+    // The number of bytes in each tagged buffer
+    private static final int BUFFER_SIZE = 4096;
+    // The number of tagged buffers, each of which is a separate run
+    @Param({"16", "4096"})
+    private int buffers;
+    // The tags of the buffers
+    private AddressTaintMap map;
+    // An array that the tags of a buffer are copied into and out of
+    private LazyByteArrayObjTags array;
+
+    @Setup(Level.Trial)
+    public void initMap() {
+        map = new AddressTaintMap();
+        for(int i = 0; i < buffers; i++) {
+            // Leave a gap between buffers so that they are not coalesced
+            map.fill(BASE + 2L * i * BUFFER_SIZE, BASE + (2L * i + 1) * BUFFER_SIZE, Taint.withLabel(i));
+        }
+        array = new LazyByteArrayObjTags(new byte[BUFFER_SIZE]);
+    }
+
+    /* Reads the tag of every int of the last buffer in turn, as reading the buffer through Unsafe does. */
+    @Benchmark
+    public int readSequential() {
+        long start = BASE + 2L * (buffers - 1) * BUFFER_SIZE;
+        int count = 0;
+        for(int i = 0; i < BUFFER_SIZE; i += 4) {
+            if(!map.get(start + i, 4).isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* Reads the tag of the first int of every buffer, each of which needs a search of the runs. */
+    @Benchmark
+    public int readScattered() {
+        int count = 0;
+        for(int i = 0; i < buffers; i++) {
+            if(!map.get(BASE + 2L * i * BUFFER_SIZE, 4).isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* Copies the tags of a buffer into a byte array and back, as a bulk get and put of a direct buffer do. */
+    @Benchmark
+    public LazyByteArrayObjTags copyThroughArray() {
+        map.copyToArray(BASE, array, 0, BUFFER_SIZE, 1);
+        map.copyFromArray(array, 0, BUFFER_SIZE, 1, BASE);
+        return array;
+    }
+}
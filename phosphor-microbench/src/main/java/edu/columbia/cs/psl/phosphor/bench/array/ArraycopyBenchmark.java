@@ -0,0 +1,46 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.TaintUtils;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyCharArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of copying part of a tainted char array into a larger array, as StringBuilder does when it appends
+ * a String, for sources without tags, with a uniform tag and with a distinct tag for each element. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class ArraycopyBenchmark {
+
+    // The number of elements copied
+    @Param({"16", "1024"})
+    private int length;
+    // How the elements of the source array are tainted
+    @Param({"none", "uniform", "elements"})
+    private String source;
+    // The array whose elements are copied
+    private LazyCharArrayObjTags src;
+
+    @Setup(Level.Trial)
+    public void initSource() {
+        src = new LazyCharArrayObjTags(new char[length]);
+        if(source.equals("uniform")) {
+            src.setTaints(Taint.withLabel("uniform"));
+        } else if(source.equals("elements")) {
+            for(int i = 0; i < length; i++) {
+                src.setTaint(i, Taint.withLabel(i));
+            }
+        }
+    }
+
+    /* Copies every element of the source array to the middle of a new array. */
+    @Benchmark
+    public LazyCharArrayObjTags copyIntoLargerArray() {
+        LazyCharArrayObjTags dest = new LazyCharArrayObjTags(new char[length * 2]);
+        TaintUtils.arraycopy$$PHOSPHORTAGGED(src, null, 0, null, dest, null, length / 2, null, length, null);
+        return dest;
+    }
+}
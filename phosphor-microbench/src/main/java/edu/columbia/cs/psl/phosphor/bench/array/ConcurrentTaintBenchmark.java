@@ -0,0 +1,110 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyIntArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of reading and writing the tags of the elements of an array from a single thread and from several
+ * threads sharing the array. Arrays of length 16 store their tags densely and arrays of length 1024 store them
+ * dictionary-encoded once they are written element by element. Compare the single-threaded get and set benchmarks with
+ * the shared group to check that reads stay free of locks and that the cost of a write stays flat. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Group)
+public class ConcurrentTaintBenchmark {
+
+    // The number of elements in the array
+    @Param({"16", "1024"})
+    private int length;
+    // The distinct tags written to the elements of the array
+    private Taint<Object>[] tags;
+    // An array shared by the threads of a group whose elements were tainted during setup
+    private LazyIntArrayObjTags array;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void initArray() {
+        tags = new Taint[8];
+        for(int i = 0; i < tags.length; i++) {
+            tags[i] = Taint.withLabel(i);
+        }
+        array = new LazyIntArrayObjTags(new int[length]);
+        for(int i = 0; i < length; i++) {
+            array.setTaint(i, tags[i % tags.length]);
+        }
+    }
+
+    /* Reads the tag of the next element of the array from a single thread. */
+    @Benchmark
+    @Group("get")
+    public Taint get(Cursor cursor) {
+        return read(cursor);
+    }
+
+    /* Writes the tag of the next element of the array from a single thread. */
+    @Benchmark
+    @Group("set")
+    public void set(Cursor cursor) {
+        write(cursor);
+    }
+
+    /* Reads the tag of the next element of the array while other threads read and write the array. */
+    @Benchmark
+    @Group("shared")
+    @GroupThreads(2)
+    public Taint sharedGet(Cursor cursor) {
+        return read(cursor);
+    }
+
+    /* Writes the tag of the next element of the array while other threads read and write the array. */
+    @Benchmark
+    @Group("shared")
+    @GroupThreads(2)
+    public void sharedSet(Cursor cursor) {
+        write(cursor);
+    }
+
+    /* Writes the tags of every element of a new array from a single thread, including the allocation of the storage for
+     * the tags. */
+    @Benchmark
+    @Group("taintNewArray")
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public LazyIntArrayObjTags taintNewArray() {
+        LazyIntArrayObjTags result = new LazyIntArrayObjTags(new int[length]);
+        for(int i = 0; i < length; i++) {
+            result.setTaint(i, tags[i % tags.length]);
+        }
+        return result;
+    }
+
+    private Taint read(Cursor cursor) {
+        return array.getTaintOrEmpty(cursor.next(length));
+    }
+
+    private void write(Cursor cursor) {
+        int i = cursor.next(length);
+        array.setTaint(i, tags[(i + cursor.round) % tags.length]);
+    }
+
+    /* The position of a thread in the array. */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        // The index of the element accessed next
+        private int index;
+        // The number of times the thread has passed over the whole array, so that writes change the tags of elements
+        private int round;
+
+        int next(int length) {
+            int i = index++;
+            if(index == length) {
+                index = 0;
+                round++;
+            }
+            return i;
+        }
+    }
+}
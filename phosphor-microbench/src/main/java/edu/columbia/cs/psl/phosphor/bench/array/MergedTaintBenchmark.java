@@ -0,0 +1,54 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyCharArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.LazyShortArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of merging the tags of the characters of a String whose characters each have their own tag, as
+ * parsing a number from the String or checking it at a sink does, with the merged tag cached by the char array wrapper
+ * and recomputed each time for a short array wrapper with the same tags. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class MergedTaintBenchmark {
+
+    // The number of characters in the String
+    @Param({"8", "64"})
+    private int length;
+    // The value of the String, whose merged tag is cached
+    private LazyCharArrayObjTags chars;
+    // An array with the same tags, whose merged tag is not cached
+    private LazyShortArrayObjTags shorts;
+
+    @Setup(Level.Trial)
+    public void initArrays() {
+        chars = new LazyCharArrayObjTags(new char[length]);
+        shorts = new LazyShortArrayObjTags(new short[length]);
+        for(int i = 0; i < length; i++) {
+            Taint tag = Taint.withLabel(i % 4);
+            chars.setTaint(i, tag);
+            shorts.setTaint(i, tag);
+        }
+    }
+
+    @Benchmark
+    public Taint mergeCached() {
+        return chars.getMergedTaint();
+    }
+
+    @Benchmark
+    public Taint mergeUncached() {
+        return shorts.getMergedTaint();
+    }
+
+    /* Changes the tag of a character and then merges the tags, which recomputes the merged tag. */
+    @Benchmark
+    public Taint setAndMerge() {
+        chars.setTaint(0, chars.getTaintOrEmpty(1));
+        return chars.getMergedTaint();
+    }
+}
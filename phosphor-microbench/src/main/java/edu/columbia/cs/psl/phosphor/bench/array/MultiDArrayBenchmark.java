@@ -0,0 +1,70 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.struct.LazyDoubleArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.LazyReferenceArrayObjTags;
+import edu.columbia.cs.psl.phosphor.struct.multid.MultiDTaintedArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of allocating a two-dimensional double array with the eager MULTIANEWARRAY methods, which wrap every
+ * row when the array is allocated, against the lazy methods, which wrap a row the first time that it is read, and the
+ * cost of reading an element of every row of an array allocated each way. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class MultiDArrayBenchmark {
+
+    // The number of rows of the array
+    @Param({"4096"})
+    private int rows;
+    // The number of elements of each row of the array
+    @Param({"4", "256"})
+    private int columns;
+    // Arrays allocated during setup, whose rows have all been read once
+    private LazyReferenceArrayObjTags eagerMatrix;
+    private LazyReferenceArrayObjTags lazyMatrix;
+
+    @Setup(Level.Trial)
+    public void initArrays() {
+        eagerMatrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS(rows, null, columns, null);
+        lazyMatrix = MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(rows, null, columns, null);
+        sumFirstColumn(lazyMatrix);
+    }
+
+    @Benchmark
+    public LazyReferenceArrayObjTags allocateEager() {
+        return MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS(rows, null, columns, null);
+    }
+
+    @Benchmark
+    public LazyReferenceArrayObjTags allocateLazy() {
+        return MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(rows, null, columns, null);
+    }
+
+    @Benchmark
+    public double readEager() {
+        return sumFirstColumn(eagerMatrix);
+    }
+
+    /* Reads an element of every row of a lazily allocated array whose rows have already been wrapped. */
+    @Benchmark
+    public double readLazy() {
+        return sumFirstColumn(lazyMatrix);
+    }
+
+    /* Allocates an array lazily and reads an element of every row, which wraps every row. */
+    @Benchmark
+    public double allocateAndReadLazy() {
+        return sumFirstColumn(MultiDTaintedArray.MULTIANEWARRAY_D_2DIMS_LAZY(rows, null, columns, null));
+    }
+
+    private double sumFirstColumn(LazyReferenceArrayObjTags matrix) {
+        double sum = 0;
+        for(int i = 0; i < rows; i++) {
+            sum += ((LazyDoubleArrayObjTags) matrix.getBoxed(i)).val[0];
+        }
+        return sum;
+    }
+}
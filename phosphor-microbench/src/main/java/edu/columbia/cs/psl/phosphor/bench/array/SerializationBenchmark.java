@@ -0,0 +1,99 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyCharArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of serializing a tainted char array with the bulk format of LazyArrayObjTags and its subclasses
+ * against the previous format, which wrote the tag of each element with writeObject and each char with writeChar. The
+ * previous format is reproduced by writeLegacy. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    // The number of elements in the array
+    @Param({"1048576"})
+    private int length;
+    // How the elements of the array are tainted: not at all, all with a single tag, in a few ranges or element by
+    // element with sixteen distinct tags
+    @Param({"none", "uniform", "ranges", "elements"})
+    private String tainting;
+    // The array that is serialized
+    private LazyCharArrayObjTags array;
+    // The array serialized in the bulk format
+    private byte[] serialized;
+    // Reused for the serialized bytes of each invocation
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void initArray() throws IOException {
+        array = new LazyCharArrayObjTags(new char[length]);
+        for(int i = 0; i < length; i++) {
+            array.val[i] = (char) ('a' + i % 26);
+        }
+        if(tainting.equals("uniform")) {
+            array.setTaints(Taint.withLabel("source"));
+        } else if(tainting.equals("ranges")) {
+            for(int i = 0; i < 8; i++) {
+                array.fillTaint(i * length / 8, i * length / 8 + length / 16, Taint.withLabel(i));
+            }
+        } else if(tainting.equals("elements")) {
+            Taint[] tags = new Taint[16];
+            for(int i = 0; i < tags.length; i++) {
+                tags[i] = Taint.withLabel(i);
+            }
+            for(int i = 0; i < length; i++) {
+                array.setTaint(i, tags[i % tags.length]);
+            }
+        }
+        serialized = write();
+    }
+
+    /* Serializes the array in the bulk format. */
+    @Benchmark
+    public byte[] write() throws IOException {
+        buffer.reset();
+        try(ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(array);
+        }
+        return buffer.toByteArray();
+    }
+
+    /* Serializes the tags and values of the array the way that the previous format did. */
+    @Benchmark
+    public byte[] writeLegacy() throws IOException {
+        buffer.reset();
+        try(ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            if(array.hasTaints()) {
+                out.writeInt(length);
+                for(int i = 0; i < length; i++) {
+                    out.writeObject(array.getTaintOrEmpty(i));
+                }
+            } else {
+                out.writeInt(-1);
+            }
+            out.writeInt(length);
+            for(char c : array.val) {
+                out.writeChar(c);
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    /* Deserializes the array from the bulk format. */
+    @Benchmark
+    public Object read() throws IOException, ClassNotFoundException {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyByteArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of tainting and reading the tags of a buffer whose elements are tagged individually with a small
+ * number of distinct tags, such as a buffer assembled from several tainted sources, with and without
+ * dictionary-encoded tags. Run with "-prof gc" to compare the memory allocated for the tags. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class TaintDictionaryBenchmark {
+
+    // The number of elements in the buffer
+    @Param({"65536", "1048576"})
+    private int length;
+    // The number of distinct tags of the elements of the buffer
+    @Param({"16", "1024"})
+    private int labels;
+    // Whether the tags of the buffer are dictionary-encoded
+    @Param({"true", "false"})
+    private boolean dictionary;
+    // The distinct tags of the elements of the buffer
+    private Taint<Object>[] tags;
+    // A buffer that was tainted during setup
+    private LazyByteArrayObjTags buffer;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void initBuffer() {
+        Configuration.DICTIONARY_ENCODED_TAINTS = dictionary;
+        tags = new Taint[labels];
+        for(int i = 0; i < labels; i++) {
+            tags[i] = Taint.withLabel(i);
+        }
+        buffer = taintElements();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConfiguration() {
+        Configuration.DICTIONARY_ENCODED_TAINTS = true;
+    }
+
+    /* Taints each element of a new buffer individually, cycling through the distinct tags. */
+    @Benchmark
+    public LazyByteArrayObjTags taintElements() {
+        LazyByteArrayObjTags result = new LazyByteArrayObjTags(new byte[length]);
+        for(int i = 0; i < length; i++) {
+            result.setTaint(i, tags[i % labels]);
+        }
+        return result;
+    }
+
+    /* Reads the tag of every element of the buffer. */
+    @Benchmark
+    public int readTags() {
+        int count = 0;
+        for(int i = 0; i < length; i++) {
+            if(buffer.getTaintOrEmpty(i) == tags[0]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+package edu.columbia.cs.psl.phosphor.bench.array;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.LazyByteArrayObjTags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of tainting and reading the tags of a large buffer, such as a byte array read from a tainted
+ * source, with and without range-encoded tags. Run with "-prof gc" to compare the memory allocated for the tags. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class TaintRangesBenchmark {
+
+    // The number of elements at the start of the buffer, such as a protocol header, that have a different tag
+    private static final int HEADER_LENGTH = 16;
+    // The number of elements in the buffer
+    @Param({"65536", "1048576"})
+    private int length;
+    // Whether the tags of the buffer are range-encoded
+    @Param({"true", "false"})
+    private boolean ranges;
+    // The tag of the body of the buffer
+    private Taint<Object> bodyTag;
+    // The tag of the header of the buffer
+    private Taint<Object> headerTag;
+    // A buffer that was tainted during setup
+    private LazyByteArrayObjTags buffer;
+
+    @Setup(Level.Trial)
+    public void initBuffer() {
+        Configuration.RANGE_ENCODED_TAINTS = ranges;
+        bodyTag = Taint.withLabel("body");
+        headerTag = Taint.withLabel("header");
+        buffer = taintBuffer();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConfiguration() {
+        Configuration.RANGE_ENCODED_TAINTS = true;
+    }
+
+    /* Taints a new buffer with the body tag and then re-tags its header element by element. */
+    @Benchmark
+    public LazyByteArrayObjTags taintBuffer() {
+        LazyByteArrayObjTags result = new LazyByteArrayObjTags(new byte[length]);
+        result.setTaints(bodyTag);
+        for(int i = 0; i < HEADER_LENGTH; i++) {
+            result.setTaint(i, headerTag);
+        }
+        return result;
+    }
+
+    /* Reads the tag of every element of the buffer. */
+    @Benchmark
+    public int readTags() {
+        int count = 0;
+        for(int i = 0; i < length; i++) {
+            if(buffer.getTaintOrEmpty(i) == bodyTag) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /* Merges the tags of every element of the buffer. */
+    @Benchmark
+    public Taint<Object> mergeTags() {
+        return buffer.getMergedTaint();
+    }
+}
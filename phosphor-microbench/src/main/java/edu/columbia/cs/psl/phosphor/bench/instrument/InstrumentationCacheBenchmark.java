@@ -0,0 +1,104 @@
+package edu.columbia.cs.psl.phosphor.bench.instrument;
+
+import edu.columbia.cs.psl.phosphor.InstrumentationCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of loading an instrumented class from the agent's cache directory with the indexed cache against
+ * the previous layout, which stored an MD5 file and a class file per class and computed digests under a global lock. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class InstrumentationCacheBenchmark {
+
+    // The number of cached classes
+    @Param({"4096"})
+    private int classes;
+    // The number of bytes of each uninstrumented class
+    @Param({"4096"})
+    private int classSize;
+    private File dir;
+    private byte[][] originals;
+    private InstrumentationCache cache;
+    private MessageDigest md5;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void initCaches() throws IOException, NoSuchAlgorithmException {
+        dir = Files.createTempDirectory("instrumentation-cache-bench").toFile();
+        File indexedDir = new File(dir, "indexed");
+        File filesDir = new File(dir, "files");
+        if(!indexedDir.mkdir() || !filesDir.mkdir()) {
+            throw new IOException("Unable to create cache directories in " + dir);
+        }
+        cache = InstrumentationCache.open(indexedDir, null);
+        md5 = MessageDigest.getInstance("MD5");
+        Random random = new Random(11);
+        originals = new byte[classes][classSize];
+        for(int i = 0; i < classes; i++) {
+            random.nextBytes(originals[i]);
+            byte[] instrumented = Arrays.copyOf(originals[i], classSize * 3);
+            cache.put(cache.key(originals[i]), instrumented);
+            try(FileOutputStream fos = new FileOutputStream(new File(filesDir, "C" + i + ".class"))) {
+                fos.write(instrumented);
+            }
+            try(FileOutputStream fos = new FileOutputStream(new File(filesDir, "C" + i + ".md5sum"))) {
+                fos.write(md5.digest(originals[i]));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCaches() {
+        cache.close();
+        deleteRecursively(dir);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] indexedCacheHit() {
+        int i = next++ % classes;
+        return cache.get(cache.key(originals[i]));
+    }
+
+    /* Looks a class up the way that the agent did before the indexed cache. */
+    @Benchmark
+    public byte[] fileCacheHit() throws IOException {
+        int i = next++ % classes;
+        File filesDir = new File(dir, "files");
+        byte[] cachedDigest = new byte[1024];
+        try(FileInputStream fis = new FileInputStream(new File(filesDir, "C" + i + ".md5sum"))) {
+            fis.read(cachedDigest);
+        }
+        byte[] checksum;
+        synchronized(md5) {
+            checksum = md5.digest(originals[i]);
+        }
+        for(int j = 0; j < checksum.length; j++) {
+            if(checksum[j] != cachedDigest[j]) {
+                return null;
+            }
+        }
+        return Files.readAllBytes(new File(filesDir, "C" + i + ".class").toPath());
+    }
+}
@@ -0,0 +1,131 @@
+package edu.columbia.cs.psl.phosphor.bench.instrument;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.Instrumenter;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/* Measures the cost of statically instrumenting a fat jar whose classes and resources are stored in uncompressed nested
+ * jars, like the jars built by Spring Boot. The fat jar is generated during setup. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class NestedJarBenchmark {
+
+    // The number of jars nested in the fat jar
+    @Param({"8"})
+    private int nestedJars;
+    // The number of classes in each nested jar
+    @Param({"256"})
+    private int classesPerJar;
+    // The number of kilobytes of resources in each nested jar
+    @Param({"4096"})
+    private int resourceKilobytes;
+    private File dir;
+    private File fatJar;
+    private File outputDir;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void initFatJar() throws IOException {
+        Configuration.init();
+        dir = Files.createTempDirectory("nested-jar-bench").toFile();
+        outputDir = new File(dir, "out");
+        if(!outputDir.mkdir()) {
+            throw new IOException("Unable to create " + outputDir);
+        }
+        fatJar = new File(dir, "app.jar");
+        Random random = new Random(7);
+        try(ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(fatJar))) {
+            zos.putNextEntry(new ZipEntry("BOOT-INF/classes/app/Main.class"));
+            zos.write(generateClass("app/Main"));
+            zos.closeEntry();
+            for(int i = 0; i < nestedJars; i++) {
+                byte[] nested = generateNestedJar(i, random);
+                ZipEntry entry = new ZipEntry("BOOT-INF/lib/lib" + i + ".jar");
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(nested.length);
+                CRC32 crc = new CRC32();
+                crc.update(nested);
+                entry.setCrc(crc.getValue());
+                zos.putNextEntry(entry);
+                zos.write(nested);
+                zos.closeEntry();
+            }
+        }
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFatJar() {
+        executor.shutdown();
+        new File(outputDir, fatJar.getName()).delete();
+        outputDir.delete();
+        fatJar.delete();
+        dir.delete();
+    }
+
+    private byte[] generateNestedJar(int index, Random random) throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try(ZipOutputStream zos = new ZipOutputStream(out)) {
+            for(int i = 0; i < classesPerJar; i++) {
+                String name = "lib" + index + "/C" + i;
+                zos.putNextEntry(new ZipEntry(name + ".class"));
+                zos.write(generateClass(name));
+                zos.closeEntry();
+            }
+            byte[] resource = new byte[1024];
+            zos.putNextEntry(new ZipEntry("lib" + index + "/data.bin"));
+            for(int i = 0; i < resourceKilobytes; i++) {
+                random.nextBytes(resource);
+                zos.write(resource);
+            }
+            zos.closeEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] generateClass(String name) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "sum", "([I)I", null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, 1);
+        for(int i = 0; i < 4; i++) {
+            mv.visitVarInsn(Opcodes.ILOAD, 1);
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitLdcInsn(i);
+            mv.visitInsn(Opcodes.IALOAD);
+            mv.visitInsn(Opcodes.IADD);
+            mv.visitVarInsn(Opcodes.ISTORE, 1);
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Benchmark
+    public long instrumentFatJar() {
+        Instrumenter.processZip(fatJar, outputDir, executor);
+        return new File(outputDir, fatJar.getName()).length();
+    }
+}
@@ -0,0 +1,72 @@
+package edu.columbia.cs.psl.phosphor.bench.set;
+
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class ConcurrentUnionBenchmark {
+
+    // The number of labels in each of the sets being combined
+    private static final int SET_SIZE = 8;
+    // Used to give each benchmark thread a disjoint range of labels
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    // Singleton used to create empty SetNodes
+    private final PowerSetTree setTree = PowerSetTree.getInstance();
+
+    @Benchmark
+    @Threads(1)
+    public PowerSetTree.SetNode setNodeUnionOneThread(ThreadLabels labels) {
+        return unionNewCombination(labels);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public PowerSetTree.SetNode setNodeUnionFourThreads(ThreadLabels labels) {
+        return unionNewCombination(labels);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public PowerSetTree.SetNode setNodeUnionMaxThreads(ThreadLabels labels) {
+        return unionNewCombination(labels);
+    }
+
+    /* Unions two sets whose combination has not been seen before, forcing new nodes and ranks to be created. */
+    private PowerSetTree.SetNode unionNewCombination(ThreadLabels labels) {
+        PowerSetTree.SetNode first = setTree.emptySet();
+        PowerSetTree.SetNode second = setTree.emptySet();
+        for(int i = 0; i < SET_SIZE; i++) {
+            first = first.add(labels.nextLabel());
+            second = second.add(labels.sharedLabels[ThreadLocalRandom.current().nextInt(labels.sharedLabels.length)]);
+        }
+        return first.union(second);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadLabels {
+
+        // Labels that every thread draws from, so that threads union into overlapping parts of the tree
+        private final Integer[] sharedLabels = new Integer[64];
+        // The next label unique to this thread
+        private long next;
+
+        @Setup(Level.Trial)
+        public void initLabels() {
+            for(int i = 0; i < sharedLabels.length; i++) {
+                sharedLabels[i] = -i - 1;
+            }
+            next = ((long) threadCount.getAndIncrement()) << 40;
+        }
+
+        private Long nextLabel() {
+            return next++;
+        }
+    }
+}
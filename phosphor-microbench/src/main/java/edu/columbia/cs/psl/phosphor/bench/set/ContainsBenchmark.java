@@ -0,0 +1,129 @@
+package edu.columbia.cs.psl.phosphor.bench.set;
+
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* Measures membership, superset and exact label set queries on SetNodes with many elements for queries that succeed and
+ * queries that fail. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class ContainsBenchmark {
+
+    // The number of sets queried by each invocation
+    private static final int NUM_SETS = 30;
+    // Singleton used to create SetNodes
+    private final PowerSetTree setTree = PowerSetTree.getInstance();
+    // The number of elements in each set
+    @Param({"8", "32", "64"})
+    private int setSize;
+    // The number of different possible unique elements
+    @Param({"10000"})
+    private int uniqueElementsSize;
+    // Sets being queried
+    private PowerSetTree.SetNode[] sets = new PowerSetTree.SetNode[NUM_SETS];
+    // The elements of each set
+    private Object[][] elements = new Object[NUM_SETS][];
+    // For each set, an element of the set and an element that is registered but not in the set
+    private Integer[] present = new Integer[NUM_SETS];
+    private Integer[] absent = new Integer[NUM_SETS];
+    // For each set, a subset of the set and a set with one element that is not in the set
+    private PowerSetTree.SetNode[] subsets = new PowerSetTree.SetNode[NUM_SETS];
+    private PowerSetTree.SetNode[] nonSubsets = new PowerSetTree.SetNode[NUM_SETS];
+
+    @Setup(Level.Trial)
+    public void initSets() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            int[] values = ThreadLocalRandom.current().ints(0, uniqueElementsSize).distinct().limit(setSize + 1).toArray();
+            sets[i] = setTree.emptySet();
+            subsets[i] = setTree.emptySet();
+            elements[i] = new Object[setSize];
+            for(int j = 0; j < setSize; j++) {
+                sets[i] = sets[i].add(values[j]);
+                elements[i][j] = values[j];
+                if(j % 2 == 0) {
+                    subsets[i] = subsets[i].add(values[j]);
+                }
+            }
+            present[i] = values[0];
+            absent[i] = values[setSize];
+            nonSubsets[i] = subsets[i].add(values[setSize]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int containsHitTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(sets[i].containsLabel(present[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int containsMissTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(sets[i].containsLabel(absent[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int supersetHitTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(sets[i].isSuperset(subsets[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int supersetMissTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(sets[i].isSuperset(nonSubsets[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int containsOnlyLabelsHitTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(sets[i].containsOnlyLabels(elements[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int containsOnlyLabelsMissTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(subsets[i].containsOnlyLabels(elements[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package edu.columbia.cs.psl.phosphor.bench.set;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import edu.columbia.cs.psl.phosphor.struct.PowerSetTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* Compares the add, union, superset, membership and label retrieval operations on sets with few elements when those sets are
+ * represented by InlineSets and when they are represented by SetNodes. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@SuppressWarnings("unchecked")
+public class InlineSetBenchmark {
+
+    // The number of sets of each type
+    private static final int NUM_SETS = 30;
+    // Singleton used to create SetNodes and InlineSets
+    private final PowerSetTree setTree = PowerSetTree.getInstance();
+    // The number of elements in each set
+    @Param({"1", "2", "4"})
+    private int setSize;
+    // The number of different possible unique elements
+    @Param({"10000"})
+    private int uniqueElementsSize;
+    // Items to be added to the sets
+    private Integer[] items = new Integer[NUM_SETS];
+    // Sets being tested
+    private Taint[] inlineSets = new Taint[NUM_SETS];
+    private Taint[] setNodes = new Taint[NUM_SETS];
+    // Singleton sets for the items
+    private Taint[] inlineItems = new Taint[NUM_SETS];
+    private Taint[] setNodeItems = new Taint[NUM_SETS];
+
+    @Setup(Level.Invocation)
+    public void initSets() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            inlineSets[i] = setTree.emptySet();
+            setNodes[i] = setTree.emptySet();
+            for(int el : ThreadLocalRandom.current().ints(0, uniqueElementsSize).distinct().limit(setSize).toArray()) {
+                inlineSets[i] = inlineSets[i].union(setTree.makeInlineSingletonSet(el));
+                setNodes[i] = ((PowerSetTree.SetNode) setNodes[i]).add(el);
+            }
+            items[i] = ThreadLocalRandom.current().nextInt(uniqueElementsSize);
+            inlineItems[i] = setTree.makeInlineSingletonSet(items[i]);
+            setNodeItems[i] = setTree.makeSingletonSet(items[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public Taint[] inlineSetAddTest() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            inlineSets[i] = inlineSets[i].union(inlineItems[i]);
+        }
+        return inlineSets;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public Taint[] setNodeAddTest() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            setNodes[i] = setNodes[i].union(setNodeItems[i]);
+        }
+        return setNodes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public Taint[] inlineSetUnionTest() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            inlineSets[i] = inlineSets[i].union(inlineSets[(i + 1) % NUM_SETS]);
+        }
+        return inlineSets;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public Taint[] setNodeUnionTest() {
+        for(int i = 0; i < NUM_SETS; i++) {
+            setNodes[i] = setNodes[i].union(setNodes[(i + 1) % NUM_SETS]);
+        }
+        return setNodes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int inlineSetContainsTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(inlineSets[i].containsLabel(items[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int setNodeContainsTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(setNodes[i].containsLabel(items[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int inlineSetSupersetTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(inlineSets[i].isSuperset(inlineSets[(i + 1) % NUM_SETS])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_SETS)
+    public int setNodeSupersetTest() {
+        int count = 0;
+        for(int i = 0; i < NUM_SETS; i++) {
+            if(setNodes[i].isSuperset(setNodes[(i + 1) % NUM_SETS])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public Object[] inlineSetGetLabelsTest() {
+        return inlineSets[0].getLabels();
+    }
+
+    @Benchmark
+    public Object[] setNodeGetLabelsTest() {
+        return setNodes[0].getLabels();
+    }
+}
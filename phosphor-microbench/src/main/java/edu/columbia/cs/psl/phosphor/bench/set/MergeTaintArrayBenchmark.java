@@ -0,0 +1,65 @@
+package edu.columbia.cs.psl.phosphor.bench.set;
+
+import edu.columbia.cs.psl.phosphor.Configuration;
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of merging the tags of a large tainted buffer, such as a byte array read from a small number of
+ * tainted sources, into a single tag. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class MergeTaintArrayBenchmark {
+
+    // The number of consecutive elements of the array that share the same tag
+    private static final int RUN_LENGTH = 512;
+    // The number of elements in the array of tags being merged
+    @Param({"1048576", "16777216"})
+    private int length;
+    // The number of distinct labels in the array of tags being merged
+    @Param({"8", "4096"})
+    private int labels;
+    // The length above which arrays are merged in parallel, zero to always merge on the calling thread
+    @Param({"0", "65536"})
+    private int threshold;
+    // The array of tags being merged
+    private Taint<Object>[] taints;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void initTaints() {
+        Configuration.PARALLEL_TAINT_MERGE_THRESHOLD = threshold;
+        Taint<Object>[] singletons = new Taint[labels];
+        for(int i = 0; i < labels; i++) {
+            singletons[i] = Taint.withLabel(i);
+        }
+        taints = new Taint[length];
+        for(int i = 0; i < length; i++) {
+            // Leave every other run untainted
+            int run = i / RUN_LENGTH;
+            taints[i] = run % 2 == 0 ? null : singletons[(run / 2) % labels];
+        }
+    }
+
+    @Benchmark
+    public Taint<Object> combineTaintArrayTest() {
+        return Taint.combineTaintArray(taints);
+    }
+
+    /* Folds the array into a single accumulating set, skipping only consecutive duplicate tags. */
+    @Benchmark
+    public Taint<Object> sequentialFoldTest() {
+        Taint<Object> result = Taint.emptyTaint();
+        Taint<Object> prev = result;
+        for(Taint<Object> taint : taints) {
+            if(taint != null && taint != prev) {
+                result = result.isEmpty() ? taint : result.union(taint);
+                prev = taint;
+            }
+        }
+        return result;
+    }
+}
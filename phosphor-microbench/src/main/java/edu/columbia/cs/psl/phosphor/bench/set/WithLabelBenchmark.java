@@ -0,0 +1,50 @@
+package edu.columbia.cs.psl.phosphor.bench.set;
+
+import edu.columbia.cs.psl.phosphor.runtime.Taint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Measures the cost of creating taint tags for labels when the rank registry holds a large number of live labels. Looks up
+ * labels that are already registered and registers new labels that immediately become garbage, so that dead entries
+ * must be expunged from the registry. */
+@Fork(3)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class WithLabelBenchmark {
+
+    // The number of distinct labels that are kept alive
+    @Param({"1000000"})
+    private int liveLabels;
+    // Labels that are kept alive, registered before the benchmark is run
+    private String[] labels;
+    // Taint tags for the live labels, keep the labels' ranks alive in the registry
+    private Taint[] tags;
+    // The index of the next live label to be looked up
+    private int next;
+    // Used to produce new labels that have not been registered before
+    private long fresh;
+
+    @Setup(Level.Trial)
+    public void initLabels() {
+        labels = new String[liveLabels];
+        tags = new Taint[liveLabels];
+        for(int i = 0; i < liveLabels; i++) {
+            labels[i] = "request-" + i;
+            tags[i] = Taint.withLabel(labels[i]);
+        }
+    }
+
+    @Benchmark
+    public Taint withExistingLabelTest() {
+        String label = labels[next];
+        next = next + 1 == liveLabels ? 0 : next + 1;
+        return Taint.withLabel(label);
+    }
+
+    @Benchmark
+    public Taint withNewLabelTest() {
+        return Taint.withLabel(fresh++);
+    }
+}